@@ -0,0 +1,166 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.files.filelist
+
+import android.os.SystemClock
+import android.util.Log
+import android.view.Choreographer
+import androidx.lifecycle.lifecycleScope
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.core.app.ActivityScenario.launch
+import androidx.test.filters.LargeTest
+import com.owncloud.android.domain.files.model.FileListOption
+import com.owncloud.android.domain.files.model.OCFileWithSyncInfo
+import com.owncloud.android.presentation.files.filelist.FileListAdapter
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
+import com.owncloud.android.sharing.shares.ui.TestShareFileActivity
+import com.owncloud.android.testutil.OC_FILE
+import kotlinx.coroutines.launch
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Opens a folder with [NUMBER_OF_FILES] files and then toggles the sync status of some of them
+ * [NUMBER_OF_CHURN_UPDATES] times, as it happens while a big folder is being synchronized. Time to display the folder,
+ * time per update and frames dropped during the churn are written to logcat with the tag [TAG].
+ */
+@LargeTest
+class FileListChurnBenchmarkTest {
+
+    private val files = (1..NUMBER_OF_FILES).map { index ->
+        OCFileWithSyncInfo(
+            file = OC_FILE.copy(
+                id = index.toLong(),
+                remotePath = "/Big folder/file$index.txt",
+                remoteId = "file-list-churn-benchmark-$index",
+            ),
+            uploadWorkerUuid = null,
+            downloadWorkerUuid = null,
+            isSynchronizing = false,
+        )
+    }
+
+    @Test
+    fun open_big_folder_and_churn_sync_status() {
+        val finished = CountDownLatch(1)
+        var openFolderMillis = 0L
+        var churnMillis = 0L
+        var droppedFrames = 0L
+        var itemCount = 0
+
+        val scenario = launch(TestShareFileActivity::class.java)
+        scenario.onActivity { activity ->
+            val layoutManager = LinearLayoutManager(activity)
+            val fileListAdapter = FileListAdapter(
+                context = activity,
+                isPickerMode = false,
+                layoutManager = layoutManager,
+                listener = object : FileListAdapter.FileListAdapterListener {
+                    override fun onItemClick(ocFileWithSyncInfo: OCFileWithSyncInfo, position: Int) {}
+                    override fun onThreeDotButtonClick(fileWithSyncInfo: OCFileWithSyncInfo) {}
+                },
+                coroutinesDispatcherProvider = CoroutinesDispatcherProvider(),
+            )
+            val recyclerView = RecyclerView(activity).apply {
+                this.layoutManager = layoutManager
+                adapter = fileListAdapter
+            }
+            activity.setContentView(recyclerView)
+
+            val frameCounter = DroppedFramesCounter()
+            activity.lifecycleScope.launch {
+                val openFolderStart = SystemClock.elapsedRealtime()
+                fileListAdapter.updateFileList(files, FileListOption.ALL_FILES)
+                openFolderMillis = SystemClock.elapsedRealtime() - openFolderStart
+
+                frameCounter.start()
+                val random = Random(RANDOM_SEED)
+                var currentFiles = files
+                val churnStart = SystemClock.elapsedRealtime()
+                repeat(NUMBER_OF_CHURN_UPDATES) {
+                    val changedPositions = List(FILES_CHANGED_PER_UPDATE) { random.nextInt(NUMBER_OF_FILES) }.toSet()
+                    currentFiles = currentFiles.mapIndexed { position, fileWithSyncInfo ->
+                        if (position in changedPositions) {
+                            fileWithSyncInfo.copy(isSynchronizing = !fileWithSyncInfo.isSynchronizing)
+                        } else {
+                            fileWithSyncInfo
+                        }
+                    }
+                    fileListAdapter.updateFileList(currentFiles, FileListOption.ALL_FILES)
+                }
+                churnMillis = SystemClock.elapsedRealtime() - churnStart
+                droppedFrames = frameCounter.stop()
+                itemCount = fileListAdapter.itemCount
+                finished.countDown()
+            }
+        }
+        assertTrue(finished.await(TIMEOUT_MINUTES, TimeUnit.MINUTES))
+        scenario.close()
+
+        Log.i(
+            TAG, "Open folder: $openFolderMillis ms, churn: ${churnMillis / NUMBER_OF_CHURN_UPDATES} ms per update, " +
+                    "dropped frames during churn: $droppedFrames"
+        )
+        // Files plus the footer
+        assertEquals(NUMBER_OF_FILES + 1, itemCount)
+    }
+
+    private class DroppedFramesCounter : Choreographer.FrameCallback {
+        private var lastFrameTimeNanos = 0L
+        private var droppedFrames = 0L
+        private var running = false
+
+        fun start() {
+            running = true
+            Choreographer.getInstance().postFrameCallback(this)
+        }
+
+        fun stop(): Long {
+            running = false
+            Choreographer.getInstance().removeFrameCallback(this)
+            return droppedFrames
+        }
+
+        override fun doFrame(frameTimeNanos: Long) {
+            if (lastFrameTimeNanos != 0L) {
+                droppedFrames += ((frameTimeNanos - lastFrameTimeNanos + FRAME_INTERVAL_NANOS / 2) / FRAME_INTERVAL_NANOS - 1)
+                    .coerceAtLeast(0)
+            }
+            lastFrameTimeNanos = frameTimeNanos
+            if (running) {
+                Choreographer.getInstance().postFrameCallback(this)
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "FileListChurnBench"
+        private const val NUMBER_OF_FILES = 10_000
+        private const val NUMBER_OF_CHURN_UPDATES = 50
+        private const val FILES_CHANGED_PER_UPDATE = 20
+        private const val RANDOM_SEED = 42
+        private const val TIMEOUT_MINUTES = 5L
+        private const val FRAME_INTERVAL_NANOS = 16_666_667L
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.files.filelist
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.util.Log
+import android.view.Choreographer
+import androidx.recyclerview.widget.RecyclerView
+import androidx.recyclerview.widget.StaggeredGridLayoutManager
+import androidx.test.core.app.ActivityScenario.launch
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.R
+import com.owncloud.android.datamodel.ThumbnailsCacheManager
+import com.owncloud.android.domain.files.model.FileListOption
+import com.owncloud.android.domain.files.model.OCFileWithSyncInfo
+import com.owncloud.android.presentation.files.filelist.FileListAdapter
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
+import com.owncloud.android.sharing.shares.ui.TestShareFileActivity
+import com.owncloud.android.testutil.OC_FILE
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.math.roundToLong
+
+/**
+ * Scrolls a grid of [NUMBER_OF_IMAGES] images whose thumbnails are only in the disk cache, and counts the frames
+ * dropped while binding them. Results are written to logcat with the tag [TAG].
+ */
+@LargeTest
+class ThumbnailsScrollBenchmarkTest {
+
+    private val files = (1..NUMBER_OF_IMAGES).map { index ->
+        OCFileWithSyncInfo(
+            file = OC_FILE.copy(
+                id = index.toLong(),
+                remotePath = "/Photos/image$index.jpg",
+                remoteId = "$KEY_PREFIX$index",
+                needsToUpdateThumbnail = false,
+            ),
+            uploadWorkerUuid = null,
+            downloadWorkerUuid = null,
+            isSynchronizing = false,
+        )
+    }
+
+    @Before
+    fun setUp() {
+        val thumbnailSize = InstrumentationRegistry.getInstrumentation().targetContext
+            .resources.getDimensionPixelSize(R.dimen.file_icon_size_grid)
+        files.forEachIndexed { index, fileWithSyncInfo ->
+            val thumbnail = Bitmap.createBitmap(thumbnailSize, thumbnailSize, Bitmap.Config.ARGB_8888).apply {
+                eraseColor(Color.HSVToColor(floatArrayOf((index % 360).toFloat(), 0.6f, 0.9f)))
+            }
+            ThumbnailsCacheManager.addBitmapToCache(fileWithSyncInfo.file.remoteId, thumbnail)
+        }
+        // Disk writes are asynchronous, wait for all of them before starting from an empty memory cache
+        ThumbnailsCacheManager.clearMemoryCache()
+        files.forEach { fileWithSyncInfo ->
+            while (ThumbnailsCacheManager.getBitmapFromDiskCache(fileWithSyncInfo.file.remoteId) == null) {
+                Thread.sleep(WAIT_FOR_DISK_WRITES_MILLIS)
+            }
+        }
+        ThumbnailsCacheManager.clearMemoryCache()
+    }
+
+    @After
+    fun tearDown() {
+        files.forEach { ThumbnailsCacheManager.removeBitmapFromCache(it.file.remoteId) }
+    }
+
+    @Test
+    fun scroll_grid_of_images_with_thumbnails_in_disk() {
+        val diskHitsBefore = ThumbnailsCacheManager.getStats().diskHits
+
+        val coldScroll = scrollWholeGrid()
+        Log.i(TAG, "Cold memory cache: $coldScroll, ${ThumbnailsCacheManager.getStats()}")
+
+        val warmScroll = scrollWholeGrid()
+        Log.i(TAG, "Warm memory cache: $warmScroll, ${ThumbnailsCacheManager.getStats()}")
+
+        assertTrue(ThumbnailsCacheManager.getStats().diskHits > diskHitsBefore)
+    }
+
+    private fun scrollWholeGrid(): ScrollResult {
+        val finished = CountDownLatch(1)
+        lateinit var result: ScrollResult
+
+        val scenario = launch(TestShareFileActivity::class.java)
+        scenario.onActivity { activity ->
+            val layoutManager = StaggeredGridLayoutManager(GRID_COLUMNS, StaggeredGridLayoutManager.VERTICAL)
+            val fileListAdapter = FileListAdapter(
+                context = activity,
+                isPickerMode = false,
+                layoutManager = layoutManager,
+                listener = object : FileListAdapter.FileListAdapterListener {
+                    override fun onItemClick(ocFileWithSyncInfo: OCFileWithSyncInfo, position: Int) {}
+                    override fun onThreeDotButtonClick(fileWithSyncInfo: OCFileWithSyncInfo) {}
+                },
+                coroutinesDispatcherProvider = CoroutinesDispatcherProvider(),
+            )
+            val recyclerView = RecyclerView(activity).apply {
+                this.layoutManager = layoutManager
+                adapter = fileListAdapter
+            }
+            activity.setContentView(recyclerView)
+            runBlocking { fileListAdapter.updateFileList(files, FileListOption.ALL_FILES) }
+
+            @Suppress("DEPRECATION")
+            val frameIntervalNanos = (NANOS_PER_SECOND / activity.windowManager.defaultDisplay.refreshRate).roundToLong()
+            var lastFrameTimeNanos = 0L
+            var frames = 0
+            var droppedFrames = 0L
+
+            Choreographer.getInstance().postFrameCallback(object : Choreographer.FrameCallback {
+                override fun doFrame(frameTimeNanos: Long) {
+                    if (lastFrameTimeNanos != 0L) {
+                        frames++
+                        droppedFrames += ((frameTimeNanos - lastFrameTimeNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1)
+                            .coerceAtLeast(0)
+                    }
+                    lastFrameTimeNanos = frameTimeNanos
+                    if (recyclerView.canScrollVertically(1)) {
+                        recyclerView.scrollBy(0, SCROLL_PIXELS_PER_FRAME)
+                        Choreographer.getInstance().postFrameCallback(this)
+                    } else {
+                        result = ScrollResult(frames = frames, droppedFrames = droppedFrames)
+                        finished.countDown()
+                    }
+                }
+            })
+        }
+        assertTrue(finished.await(SCROLL_TIMEOUT_MINUTES, TimeUnit.MINUTES))
+        scenario.close()
+        return result
+    }
+
+    private data class ScrollResult(val frames: Int, val droppedFrames: Long)
+
+    companion object {
+        private const val TAG = "ThumbnailsScrollBench"
+        private const val NUMBER_OF_IMAGES = 5_000
+        private const val KEY_PREFIX = "thumbnails-scroll-benchmark-"
+        private const val GRID_COLUMNS = 4
+        private const val SCROLL_PIXELS_PER_FRAME = 60
+        private const val SCROLL_TIMEOUT_MINUTES = 10L
+        private const val WAIT_FOR_DISK_WRITES_MILLIS = 10L
+        private const val NANOS_PER_SECOND = 1_000_000_000f
+    }
+}
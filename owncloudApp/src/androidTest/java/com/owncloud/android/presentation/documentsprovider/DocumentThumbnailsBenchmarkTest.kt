@@ -0,0 +1,138 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.documentsprovider
+
+import android.util.Log
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.testutil.OC_FILE
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.Locale
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Opens a picker grid of [GRID_SIZE] images whose thumbnails come from a fake server that takes [SERVER_LATENCY_MILLIS]
+ * per preview, and measures how long each thumbnail takes to be read, first with nothing cached and then with every
+ * thumbnail in the cache folder of the device. Results are written to logcat with the tag [TAG].
+ */
+@LargeTest
+class DocumentThumbnailsBenchmarkTest {
+
+    private val cachedThumbnails = ConcurrentHashMap<String, File>()
+    private val fetches = AtomicInteger(0)
+
+    private lateinit var cacheFolder: File
+    private lateinit var loader: DocumentThumbnailLoader
+
+    @Before
+    fun setUp() {
+        cacheFolder = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, CACHE_FOLDER_NAME).apply { mkdirs() }
+        loader = DocumentThumbnailLoader(
+            appThumbnailSize = APP_THUMBNAIL_SIZE,
+            getCachedThumbnail = { key -> cachedThumbnails[key] },
+            fetchThumbnail = { _, key, size -> fetch(key, size) },
+        )
+    }
+
+    @After
+    fun tearDown() {
+        cacheFolder.deleteRecursively()
+    }
+
+    @Test
+    fun open_grid_of_images_in_a_picker() {
+        val files = (1..GRID_SIZE).map { index ->
+            OC_FILE.copy(
+                id = index.toLong(),
+                remoteId = "remoteId$index",
+                remotePath = "/Photos/image$index.jpg",
+                mimeType = "image/jpeg",
+                etag = "etag$index",
+                needsToUpdateThumbnail = false,
+            )
+        }
+
+        val coldLatencies = openGrid(files)
+        Log.i(TAG, "Not cached: ${describe(coldLatencies)}, $GRID_SIZE thumbnails, $PICKER_THREADS requests at once")
+
+        val warmLatencies = openGrid(files)
+        Log.i(TAG, "Cached: ${describe(warmLatencies)}, $GRID_SIZE thumbnails, $PICKER_THREADS requests at once")
+
+        assertEquals(GRID_SIZE, fetches.get())
+    }
+
+    /**
+     * Asks for the thumbnails of [files] from [PICKER_THREADS] threads, like the binder threads of the provider.
+     *
+     * @return latency of each thumbnail, in nanoseconds.
+     */
+    private fun openGrid(files: List<OCFile>): List<Long> {
+        val pickerThreads = Executors.newFixedThreadPool(PICKER_THREADS)
+        try {
+            return pickerThreads.invokeAll(files.map { file ->
+                Callable {
+                    val start = System.nanoTime()
+                    val thumbnail = loader.loadThumbnail(file, GRID_THUMBNAIL_SIZE).get(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    // The picker reads the file of the thumbnail as it is
+                    thumbnail!!.readBytes()
+                    System.nanoTime() - start
+                }
+            }).map { it.get() }
+        } finally {
+            pickerThreads.shutdown()
+        }
+    }
+
+    private fun fetch(key: String, size: Int): File {
+        fetches.incrementAndGet()
+        Thread.sleep(SERVER_LATENCY_MILLIS)
+        return File(cacheFolder, key.replace(':', '_')).apply { writeBytes(ByteArray(size * size)) }
+            .also { cachedThumbnails[key] = it }
+    }
+
+    private fun describe(latencies: List<Long>): String {
+        val sortedMillis = latencies.sorted().map { it / NANOS_PER_MILLI }
+        return String.format(
+            Locale.ROOT,
+            "p50 %.2f ms, p95 %.2f ms, max %.2f ms",
+            sortedMillis[sortedMillis.size / 2], sortedMillis[sortedMillis.size * 95 / 100], sortedMillis.last()
+        )
+    }
+
+    companion object {
+        private const val TAG = "DocThumbnailsBench"
+        private const val CACHE_FOLDER_NAME = "document-thumbnails-benchmark"
+        private const val GRID_SIZE = 200
+        private const val PICKER_THREADS = 16
+        private const val APP_THUMBNAIL_SIZE = 128
+        private const val GRID_THUMBNAIL_SIZE = 96
+        private const val SERVER_LATENCY_MILLIS = 20L
+        private const val LOAD_TIMEOUT_SECONDS = 30L
+        private const val NANOS_PER_MILLI = 1_000_000f
+    }
+}
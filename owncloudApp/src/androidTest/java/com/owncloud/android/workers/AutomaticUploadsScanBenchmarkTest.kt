@@ -0,0 +1,101 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import android.content.Context
+import android.os.SystemClock
+import android.util.Log
+import androidx.documentfile.provider.DocumentFile
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import com.owncloud.android.testing.SyntheticFolderProvider
+import com.owncloud.android.utils.MimetypeIconUtil
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Scans synthetic camera folders served by [SyntheticFolderProvider] looking for the pictures taken after the last
+ * sync, as automatic uploads do, counting the queries sent to the provider. The folder of [NUMBER_OF_FILES] files is
+ * only listed with [AutomaticUploadsFolderScanner], listing it with [DocumentFile] takes minutes, so that one is
+ * measured with a folder of [NUMBER_OF_FILES_DOCUMENT_FILE] files. Times and queries are written to logcat with the
+ * tag [TAG].
+ */
+@LargeTest
+class AutomaticUploadsScanBenchmarkTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    @Before
+    fun setUp() {
+        SyntheticFolderProvider.queryCount.set(0)
+    }
+
+    @Test
+    fun scan_big_folder_with_a_single_query() {
+        val treeUri = SyntheticFolderProvider.buildTreeUri(context.packageName, NUMBER_OF_FILES)
+        val lastSyncTimestamp = lastModifiedOf(NUMBER_OF_FILES - NUMBER_OF_NEW_FILES)
+
+        val startMillis = SystemClock.elapsedRealtime()
+        val localFiles = AutomaticUploadsFolderScanner(context.contentResolver).getFilesModifiedBetween(
+            treeUri = treeUri,
+            mimeTypePrefix = MIME_TYPE_PREFIX,
+            fromTimestamp = lastSyncTimestamp,
+            toTimestamp = Long.MAX_VALUE,
+        )
+        val scanMillis = SystemClock.elapsedRealtime() - startMillis
+        val queries = SyntheticFolderProvider.queryCount.get()
+
+        Log.i(TAG, "Folder scanner: $NUMBER_OF_FILES files scanned in $scanMillis ms with $queries queries")
+        assertEquals(NUMBER_OF_NEW_FILES, localFiles.size)
+        assertEquals(lastSyncTimestamp, localFiles.first().lastModified)
+        assertEquals(SyntheticFolderProvider.PICTURE_SIZE, localFiles.first().length)
+        assertEquals(1, queries)
+    }
+
+    @Test
+    fun scan_folder_with_document_file() {
+        val treeUri = SyntheticFolderProvider.buildTreeUri(context.packageName, NUMBER_OF_FILES_DOCUMENT_FILE)
+        val lastSyncTimestamp = lastModifiedOf(NUMBER_OF_FILES_DOCUMENT_FILE - NUMBER_OF_NEW_FILES)
+
+        val startMillis = SystemClock.elapsedRealtime()
+        // How automatic uploads listed the source folder before AutomaticUploadsFolderScanner
+        val documentFiles = DocumentFile.fromTreeUri(context, treeUri)?.listFiles().orEmpty()
+            .sortedBy { it.lastModified() }
+            .filter { it.lastModified() >= lastSyncTimestamp }
+            .filter { MimetypeIconUtil.getBestMimeTypeByFilename(it.name).startsWith(MIME_TYPE_PREFIX) }
+        val scanMillis = SystemClock.elapsedRealtime() - startMillis
+        val queries = SyntheticFolderProvider.queryCount.get()
+
+        Log.i(TAG, "DocumentFile: $NUMBER_OF_FILES_DOCUMENT_FILE files scanned in $scanMillis ms with $queries queries")
+        assertEquals(NUMBER_OF_NEW_FILES, documentFiles.size)
+        assertTrue(queries > NUMBER_OF_FILES_DOCUMENT_FILE * 2)
+    }
+
+    private fun lastModifiedOf(index: Int) = SyntheticFolderProvider.FIRST_LAST_MODIFIED + index * 1_000L
+
+    companion object {
+        private const val TAG = "AutomaticUploadsScanBenchmark"
+        private const val NUMBER_OF_FILES = 50_000
+        private const val NUMBER_OF_FILES_DOCUMENT_FILE = 2_000
+        private const val NUMBER_OF_NEW_FILES = 200
+        private const val MIME_TYPE_PREFIX = "image/"
+    }
+}
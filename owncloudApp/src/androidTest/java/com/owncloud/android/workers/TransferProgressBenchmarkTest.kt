@@ -0,0 +1,254 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import android.net.Uri
+import android.os.Debug
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.network.ChunkFromFileRequestBody
+import com.owncloud.android.lib.common.network.FileRequestBody
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
+import com.owncloud.android.lib.common.network.TransferProgressNotifier
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation
+import okhttp3.OkHttpClient
+import okio.blackholeSink
+import okio.buffer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.net.ServerSocket
+import java.util.Locale
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+/**
+ * Transfers a file of [FILE_LENGTH] bytes through the code of the transfers, reporting its progress to a listener:
+ * - Uploads write [FileRequestBody] and [ChunkFromFileRequestBody] into a sink that discards the bytes.
+ * - Downloads run [DownloadRemoteFileOperation] against an HTTP server in the device, serving the file from memory.
+ *
+ * Throughput, CPU time of the transferring thread per MB and number of callbacks are written to logcat with the tag
+ * [TAG].
+ */
+@LargeTest
+class TransferProgressBenchmarkTest {
+
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val content = Random(RANDOM_SEED).nextBytes(FILE_LENGTH)
+
+    private lateinit var sourceFile: File
+    private lateinit var downloadFolder: File
+
+    @Before
+    fun setUp() {
+        sourceFile = File(context.cacheDir, SOURCE_FILE_NAME).apply { writeBytes(content) }
+        downloadFolder = File(context.cacheDir, DOWNLOAD_FOLDER_NAME)
+    }
+
+    @After
+    fun tearDown() {
+        sourceFile.delete()
+        downloadFolder.deleteRecursively()
+    }
+
+    @Test
+    fun upload_file_request_body() {
+        val listener = CountingListener()
+        val body = FileRequestBody(sourceFile, null).apply { addDatatransferProgressListener(listener) }
+
+        val measurement = measure { blackholeSink().buffer().use { body.writeTo(it) } }
+
+        Log.i(TAG, "FileRequestBody: ${describe(measurement, listener)}")
+        assertReportedWholeFile(listener, measurement)
+    }
+
+    @Test
+    fun upload_chunk_request_bodies() {
+        val listener = CountingListener()
+
+        val measurement = measure {
+            RandomAccessFile(sourceFile, "r").channel.use { channel ->
+                var offset = 0L
+                while (offset < FILE_LENGTH) {
+                    val body = ChunkFromFileRequestBody(sourceFile, null, channel, CHUNK_SIZE).apply {
+                        setOffset(offset)
+                        addDatatransferProgressListener(listener)
+                    }
+                    blackholeSink().buffer().use { body.writeTo(it) }
+                    offset += CHUNK_SIZE
+                }
+            }
+        }
+
+        Log.i(TAG, "ChunkFromFileRequestBody, chunks of $CHUNK_SIZE bytes: ${describe(measurement, listener)}")
+        assertEquals(FILE_LENGTH.toLong(), listener.reportedBytes)
+        // One callback per 512 KiB or 250 ms, and the last one of every chunk
+        val chunks = (FILE_LENGTH + CHUNK_SIZE - 1) / CHUNK_SIZE
+        assertTrue(listener.callbacks <= maxThrottledCallbacks(measurement) + chunks)
+    }
+
+    @Test
+    fun download_remote_file_operation() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        val listener = CountingListener()
+        FileServer(content).use { server ->
+            val client = object : OwnCloudClient(Uri.parse(server.baseUrl), null, false, null, context) {
+                private val okHttpClient = OkHttpClient()
+                override fun getOkHttpClient(): OkHttpClient = okHttpClient
+            }
+            val operation = DownloadRemoteFileOperation(
+                remotePath = REMOTE_PATH,
+                localFolderPath = downloadFolder.absolutePath,
+                spaceWebDavUrl = server.baseUrl,
+            ).apply { addDatatransferProgressListener(listener) }
+
+            val measurement = measure { assertTrue(operation.execute(client).isSuccess) }
+
+            Log.i(TAG, "DownloadRemoteFileOperation: ${describe(measurement, listener)}")
+            assertEquals(FILE_LENGTH.toLong(), File(downloadFolder, REMOTE_PATH).length())
+            assertReportedWholeFile(listener, measurement)
+        }
+    }
+
+    private fun assertReportedWholeFile(listener: CountingListener, measurement: Measurement) {
+        assertEquals(FILE_LENGTH.toLong(), listener.reportedBytes)
+        assertTrue(listener.callbacks <= maxThrottledCallbacks(measurement) + 1)
+    }
+
+    /**
+     * One callback per 512 KiB or 250 ms at most.
+     */
+    private fun maxThrottledCallbacks(measurement: Measurement): Long =
+        FILE_LENGTH / TransferProgressNotifier.DEFAULT_MIN_BYTES_BETWEEN_UPDATES +
+                measurement.millis / TransferProgressNotifier.DEFAULT_MIN_MILLIS_BETWEEN_UPDATES
+
+    /**
+     * Measures the elapsed time and the CPU time of the calling thread, which is the one moving the bytes.
+     */
+    private fun measure(block: () -> Unit): Measurement {
+        val startMillis = SystemClock.elapsedRealtime()
+        val startCpuNanos = Debug.threadCpuTimeNanos()
+        block()
+        return Measurement(
+            millis = SystemClock.elapsedRealtime() - startMillis,
+            cpuMillis = (Debug.threadCpuTimeNanos() - startCpuNanos) / NANOS_PER_MILLI,
+        )
+    }
+
+    private fun describe(measurement: Measurement, listener: CountingListener): String {
+        val megabytes = FILE_LENGTH / BYTES_PER_MB
+        return String.format(
+            Locale.ROOT,
+            "%d MB in %d ms (%.1f MB/s), %.2f ms of CPU per MB, %d callbacks",
+            megabytes.toInt(),
+            measurement.millis,
+            megabytes / (measurement.millis.coerceAtLeast(1) / MILLIS_PER_SECOND),
+            measurement.cpuMillis / megabytes,
+            listener.callbacks,
+        )
+    }
+
+    private data class Measurement(
+        val millis: Long,
+        val cpuMillis: Long,
+    )
+
+    /**
+     * Does what the transfer workers do with every callback, working out the percentage of the transfer.
+     */
+    private class CountingListener : OnDatatransferProgressListener {
+        var callbacks = 0
+        var reportedBytes = 0L
+        private var lastPercent = 0
+
+        override fun onTransferProgress(read: Long, transferred: Long, total: Long, absolutePath: String) {
+            callbacks++
+            reportedBytes += read
+            lastPercent = (100.0 * transferred / total).toInt()
+        }
+    }
+
+    /**
+     * Minimal HTTP/1.1 server answering every request with [content], and closing the connection afterwards.
+     */
+    private class FileServer(private val content: ByteArray) : AutoCloseable {
+        private val serverSocket = ServerSocket(0)
+        val baseUrl = "http://127.0.0.1:${serverSocket.localPort}"
+
+        init {
+            thread(isDaemon = true) {
+                while (!serverSocket.isClosed) {
+                    val socket = try {
+                        serverSocket.accept()
+                    } catch (e: IOException) {
+                        break
+                    }
+                    try {
+                        socket.use {
+                            val reader = it.getInputStream().bufferedReader()
+                            generateSequence { reader.readLine() }.takeWhile { line -> line.isNotEmpty() }.count()
+                            val head = "HTTP/1.1 200 OK\r\n" +
+                                    "Content-Length: ${content.size}\r\n" +
+                                    "ETag: $ETAG\r\n" +
+                                    "Last-Modified: $LAST_MODIFIED\r\n" +
+                                    "Connection: close\r\n\r\n"
+                            it.getOutputStream().apply {
+                                write(head.toByteArray())
+                                write(content)
+                                flush()
+                            }
+                        }
+                    } catch (e: IOException) {
+                        // Client aborted the response
+                    }
+                }
+            }
+        }
+
+        override fun close() {
+            serverSocket.close()
+        }
+    }
+
+    companion object {
+        private const val TAG = "TransferProgressBench"
+        private const val SOURCE_FILE_NAME = "transfer-progress-benchmark"
+        private const val DOWNLOAD_FOLDER_NAME = "transfer-progress-benchmark-downloads"
+        private const val REMOTE_PATH = "/transfer-progress-benchmark"
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/benchmark"
+        private const val ETAG = "\"5f8d2a1b3c4e\""
+        private const val LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT"
+        private const val FILE_LENGTH = 64 * 1024 * 1024
+        private const val CHUNK_SIZE = ChunkedUploadFromFileSystemOperation.CHUNK_SIZE
+        private const val RANDOM_SEED = 7
+        private const val BYTES_PER_MB = 1024f * 1024f
+        private const val MILLIS_PER_SECOND = 1000f
+        private const val NANOS_PER_MILLI = 1_000_000L
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.testing
+
+import android.content.ContentProvider
+import android.content.ContentValues
+import android.database.Cursor
+import android.database.MatrixCursor
+import android.net.Uri
+import android.provider.DocumentsContract
+import android.provider.DocumentsContract.Document
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Used for testing scans of big local folders. Answers the documents contract URIs of a synthetic tree whose id is
+ * the number of pictures in it, "picture-<index>.jpg", modified one second after the other from [FIRST_LAST_MODIFIED].
+ */
+class SyntheticFolderProvider : ContentProvider() {
+
+    override fun onCreate(): Boolean = true
+
+    override fun query(
+        uri: Uri,
+        projection: Array<out String>?,
+        selection: String?,
+        selectionArgs: Array<out String>?,
+        sortOrder: String?
+    ): Cursor {
+        queryCount.incrementAndGet()
+        val columns = projection ?: ALL_COLUMNS
+        return MatrixCursor(columns).apply {
+            if (uri.lastPathSegment == CHILDREN_PATH_SEGMENT) {
+                val numberOfFiles = DocumentsContract.getTreeDocumentId(uri).toInt()
+                for (index in 0 until numberOfFiles) {
+                    addRow(columns.map { column -> valueOf(column, index) })
+                }
+            } else {
+                val documentId = DocumentsContract.getDocumentId(uri)
+                addRow(columns.map { column -> valueOf(column, documentId.substringAfter(DOCUMENT_ID_PREFIX).toInt()) })
+            }
+        }
+    }
+
+    private fun valueOf(column: String, index: Int): Any? =
+        when (column) {
+            Document.COLUMN_DOCUMENT_ID -> "$DOCUMENT_ID_PREFIX$index"
+            Document.COLUMN_DISPLAY_NAME -> "picture-$index.jpg"
+            Document.COLUMN_MIME_TYPE -> "image/jpeg"
+            Document.COLUMN_LAST_MODIFIED -> FIRST_LAST_MODIFIED + index * 1_000L
+            Document.COLUMN_SIZE -> PICTURE_SIZE
+            Document.COLUMN_FLAGS -> 0
+            else -> null
+        }
+
+    override fun getType(uri: Uri): String? = null
+
+    override fun insert(uri: Uri, values: ContentValues?): Uri? = null
+
+    override fun delete(uri: Uri, selection: String?, selectionArgs: Array<out String>?): Int = 0
+
+    override fun update(uri: Uri, values: ContentValues?, selection: String?, selectionArgs: Array<out String>?): Int = 0
+
+    companion object {
+        const val AUTHORITY_SUFFIX = ".testing.syntheticfolder"
+        const val FIRST_LAST_MODIFIED = 1_700_000_000_000L
+        const val PICTURE_SIZE = 2_000_000L
+
+        val queryCount = AtomicInteger()
+
+        fun buildTreeUri(packageName: String, numberOfFiles: Int): Uri =
+            DocumentsContract.buildTreeDocumentUri(packageName + AUTHORITY_SUFFIX, numberOfFiles.toString())
+
+        private const val CHILDREN_PATH_SEGMENT = "children"
+        private const val DOCUMENT_ID_PREFIX = "picture-"
+        private val ALL_COLUMNS = arrayOf(
+            Document.COLUMN_DOCUMENT_ID,
+            Document.COLUMN_DISPLAY_NAME,
+            Document.COLUMN_MIME_TYPE,
+            Document.COLUMN_LAST_MODIFIED,
+            Document.COLUMN_SIZE,
+            Document.COLUMN_FLAGS,
+        )
+    }
+}
@@ -26,9 +26,11 @@
 
 package com.owncloud.android
 
+import android.accounts.AccountManager
 import android.app.Activity
 import android.app.Application
 import android.app.NotificationManager.IMPORTANCE_LOW
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.content.pm.PackageInfo
 import android.content.pm.PackageManager
@@ -53,6 +55,8 @@ import com.owncloud.android.domain.spaces.usecases.GetPersonalSpaceForAccountUse
 import com.owncloud.android.domain.user.usecases.GetStoredQuotaUseCase
 import com.owncloud.android.extensions.createNotificationChannel
 import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.accounts.AccountUtils as LibAccountUtils
+import com.owncloud.android.lib.common.http.HttpClient
 import com.owncloud.android.presentation.authentication.AccountUtils
 import com.owncloud.android.presentation.migration.StorageMigrationActivity
 import com.owncloud.android.presentation.releasenotes.ReleaseNotesActivity
@@ -106,9 +110,11 @@ class MainApp : Application() {
         createNotificationChannels()
 
         SingleSessionManager.setUserAgent(userAgent)
+        HttpClient.setConnectionPoolSettings(MAX_IDLE_CONNECTIONS, CONNECTIONS_KEEP_ALIVE_MILLIS)
+        applyHttp2TransportSetup()
 
         // initialise thumbnails cache on background thread
-        ThumbnailsCacheManager.InitDiskCacheTask().execute()
+        ThumbnailsCacheManager.initDiskCache()
 
         initDependencyInjection()
 
@@ -241,6 +247,15 @@ class MainApp : Application() {
 
     }
 
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        // Thumbnails in memory can be recovered from the disk cache
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            Timber.d("Releasing thumbnails memory cache. ${ThumbnailsCacheManager.getStats()}")
+            ThumbnailsCacheManager.clearMemoryCache()
+        }
+    }
+
     private fun startLogsIfEnabled() {
         val preferenceProvider = OCSharedPreferencesProvider(applicationContext)
 
@@ -270,6 +285,22 @@ class MainApp : Application() {
         return mdmProvider.getBrandingBoolean(CONFIGURATION_ALLOW_SCREENSHOTS, R.bool.allow_screenshots)
     }
 
+    /**
+     * Flags every account, also the ones added later, to negotiate HTTP/2 or not, as set up in the branding. Clients
+     * read the flag of their account when they are created.
+     */
+    private fun applyHttp2TransportSetup() {
+        val isHttp2TransportEnabled = resources.getBoolean(R.bool.http2_transport_enabled)
+        AccountManager.get(this).addOnAccountsUpdatedListener({ accounts ->
+            accounts.filter { account ->
+                account.type == accountType &&
+                        LibAccountUtils.isHttp2TransportEnabled(this, account) != isHttp2TransportEnabled
+            }.forEach { account ->
+                LibAccountUtils.setHttp2TransportEnabled(this, account, isHttp2TransportEnabled)
+            }
+        }, null, true)
+    }
+
     private fun createNotificationChannels() {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
             return
@@ -321,6 +352,9 @@ class MainApp : Application() {
     companion object {
         const val MDM_FLAVOR = "mdm"
 
+        private const val MAX_IDLE_CONNECTIONS = 8
+        private const val CONNECTIONS_KEEP_ALIVE_MILLIS = 5 * 60 * 1000L
+
         lateinit var appContext: Context
             private set
         var enabledLogging: Boolean = false
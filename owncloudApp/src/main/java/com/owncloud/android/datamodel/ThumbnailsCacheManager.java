@@ -31,7 +31,10 @@ import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.LruCache;
 import android.widget.ImageView;
 
 import androidx.core.content.ContextCompat;
@@ -54,28 +57,75 @@ import org.jetbrains.annotations.NotNull;
 import timber.log.Timber;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.koin.java.KoinJavaComponent.inject;
 
 /**
  * Manager for concurrent access to thumbnails cache.
+ *
+ * Thumbnails are kept in two tiers: a bitmap LRU in memory, sized as a fraction of the heap, in front of a larger
+ * disk cache. Memory lookups never touch the disk and are safe from the main thread; disk reads, decodes and writes
+ * run in {@link #mDiskCacheExecutor}.
  */
 public class ThumbnailsCacheManager {
 
     private static final String CACHE_FOLDER = "thumbnailCache";
 
-    private static final Object mThumbnailsDiskCacheLock = new Object();
-    private static DiskLruImageCache mThumbnailCache = null;
-    private static boolean mThumbnailCacheStarting = true;
+    private static final CountDownLatch mDiskCacheStarted = new CountDownLatch(1);
+    private static volatile DiskLruImageCache mThumbnailCache = null;
+
+    private static final int DISK_CACHE_THREADS = 2;
+    private static final ExecutorService mDiskCacheExecutor = Executors.newFixedThreadPool(DISK_CACHE_THREADS);
+    private static final Handler mMainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private static final int MEMORY_CACHE_FRACTION_OF_HEAP = 8;
+    private static final LruCache<String, Bitmap> mMemoryCache =
+            new LruCache<String, Bitmap>((int) (Runtime.getRuntime().maxMemory() / 1024 / MEMORY_CACHE_FRACTION_OF_HEAP)) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    // Size in kilobytes, as the max size
+                    return bitmap.getByteCount() / 1024;
+                }
+            };
+
+    private static final CacheStats mStats = new CacheStats();
 
-    private static final int DISK_CACHE_SIZE = 1024 * 1024 * 10; // 10MB
     private static final CompressFormat mCompressFormat = CompressFormat.JPEG;
     private static final int mCompressQuality = 70;
-    private static OwnCloudClient mClient = null;
+
+    private static final int THUMBNAIL_THREADS = 3;
+    private static final long THUMBNAIL_THREADS_KEEP_ALIVE_SECONDS = 30;
+    private static final PriorityBlockingQueue<Runnable> mThumbnailsQueue = new PriorityBlockingQueue<>();
+    private static final ThreadPoolExecutor mThumbnailsExecutor = new ThreadPoolExecutor(
+            THUMBNAIL_THREADS, THUMBNAIL_THREADS, THUMBNAIL_THREADS_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, mThumbnailsQueue);
+
+    static {
+        mThumbnailsExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Map<String, ThumbnailJob> mPendingJobs = new HashMap<>();
+    private static final Map<String, OwnCloudClient> mClients = new ConcurrentHashMap<>();
+    private static final AtomicLong mRequestSequence = new AtomicLong();
+    private static long mFirstRequestNanos = 0; // guarded by mPendingJobs
 
     private static final String PREVIEW_URI = "%s%s?x=%d&y=%d&c=%s&preview=1";
     private static final String SPACE_SPECIAL_URI = "%s?scalingup=0&a=1&x=%d&y=%d&c=%s&preview=1";
@@ -86,78 +136,233 @@ public class ThumbnailsCacheManager {
                     R.drawable.file_image
             );
 
-    public static class InitDiskCacheTask extends AsyncTask<File, Void, Void> {
-
-        @Override
-        protected Void doInBackground(File... params) {
-            synchronized (mThumbnailsDiskCacheLock) {
-                mThumbnailCacheStarting = true;
+    /**
+     * Callback for the asynchronous cache lookups, always called in the main thread.
+     */
+    public interface OnBitmapLoadedListener {
+        void onBitmapLoaded(Bitmap bitmap);
+    }
 
-                if (mThumbnailCache == null) {
-                    try {
-                        // Check if media is mounted or storage is built-in, if so,
-                        // try and use external cache dir; otherwise use internal cache dir
-                        final String cachePath =
-                                MainApp.Companion.getAppContext().getExternalCacheDir().getPath() +
-                                        File.separator + CACHE_FOLDER;
-                        Timber.d("create dir: %s", cachePath);
-                        final File diskCacheDir = new File(cachePath);
-                        mThumbnailCache = new DiskLruImageCache(
-                                diskCacheDir,
-                                DISK_CACHE_SIZE,
-                                mCompressFormat,
-                                mCompressQuality
-                        );
-                    } catch (Exception e) {
-                        Timber.e(e, "Thumbnail cache could not be opened ");
-                        mThumbnailCache = null;
-                    }
+    /**
+     * Opens the disk cache in background. Lookups in the disk cache wait until it is opened.
+     */
+    public static void initDiskCache() {
+        mDiskCacheExecutor.execute(() -> {
+            if (mThumbnailCache == null) {
+                try {
+                    // Check if media is mounted or storage is built-in, if so,
+                    // try and use external cache dir; otherwise use internal cache dir
+                    final String cachePath =
+                            MainApp.Companion.getAppContext().getExternalCacheDir().getPath() +
+                                    File.separator + CACHE_FOLDER;
+                    Timber.d("create dir: %s", cachePath);
+                    final File diskCacheDir = new File(cachePath);
+                    final int diskCacheSizeMb =
+                            MainApp.Companion.getAppContext().getResources().getInteger(R.integer.thumbnail_disk_cache_size_mb);
+                    mThumbnailCache = new DiskLruImageCache(
+                            diskCacheDir,
+                            diskCacheSizeMb * 1024 * 1024,
+                            mCompressFormat,
+                            mCompressQuality
+                    );
+                } catch (Exception e) {
+                    Timber.e(e, "Thumbnail cache could not be opened ");
+                    mThumbnailCache = null;
                 }
-                mThumbnailCacheStarting = false; // Finished initialization
-                mThumbnailsDiskCacheLock.notifyAll(); // Wake any waiting threads
             }
-            return null;
+            mDiskCacheStarted.countDown(); // Finished initialization, wake any waiting threads
+        });
+    }
+
+    private static DiskLruImageCache getDiskCache() {
+        try {
+            // Wait while disk cache is started from background thread
+            mDiskCacheStarted.await();
+        } catch (InterruptedException e) {
+            Timber.e(e, "Wait for the thumbnails disk cache was interrupted");
+            Thread.currentThread().interrupt();
         }
+        return mThumbnailCache;
     }
 
     public static void addBitmapToCache(String key, Bitmap bitmap) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            if (mThumbnailCache != null) {
-                mThumbnailCache.put(key, bitmap);
+        mMemoryCache.put(key, bitmap);
+        mDiskCacheExecutor.execute(() -> {
+            DiskLruImageCache diskCache = getDiskCache();
+            if (diskCache != null) {
+                diskCache.put(key, bitmap);
             }
-        }
+        });
     }
 
     public static void removeBitmapFromCache(String key) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            if (mThumbnailCache != null) {
-                mThumbnailCache.removeKey(key);
+        mMemoryCache.remove(key);
+        mDiskCacheExecutor.execute(() -> {
+            DiskLruImageCache diskCache = getDiskCache();
+            if (diskCache != null) {
+                diskCache.removeKey(key);
             }
+        });
+    }
+
+    /**
+     * Looks for the thumbnail only in memory. It does not block, so it can be used from the main thread.
+     */
+    public static Bitmap getBitmapFromMemoryCache(String key) {
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            mStats.memoryHits.incrementAndGet();
         }
+        return bitmap;
     }
 
+    /**
+     * Looks for the thumbnail in memory and then in disk, blocking the calling thread. Not to be used from the main
+     * thread, use {@link #getBitmapFromCacheAsync(String, OnBitmapLoadedListener)} there instead.
+     */
     public static Bitmap getBitmapFromDiskCache(String key) {
-        synchronized (mThumbnailsDiskCacheLock) {
-            // Wait while disk cache is started from background thread
-            while (mThumbnailCacheStarting) {
-                try {
-                    mThumbnailsDiskCacheLock.wait();
-                } catch (InterruptedException e) {
-                    Timber.e(e, "Wait in mThumbnailsDiskCacheLock was interrupted");
-                }
-            }
-            if (mThumbnailCache != null) {
-                return mThumbnailCache.getBitmap(key);
+        Bitmap bitmap = getBitmapFromMemoryCache(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache != null) {
+            long decodeStart = SystemClock.elapsedRealtimeNanos();
+            bitmap = diskCache.getBitmap(key);
+            if (bitmap != null) {
+                mStats.recordDecode(SystemClock.elapsedRealtimeNanos() - decodeStart);
+                mStats.diskHits.incrementAndGet();
+                mMemoryCache.put(key, bitmap);
+                return bitmap;
             }
         }
+        mStats.misses.incrementAndGet();
         return null;
     }
 
-    public static class ThumbnailGenerationTask extends AsyncTask<Object, Void, Bitmap> {
+    /**
+     * Looks for the thumbnail in memory and then in disk without blocking the calling thread. The listener is always
+     * called later in the main thread, with null if the thumbnail is not cached.
+     */
+    public static void getBitmapFromCacheAsync(String key, OnBitmapLoadedListener listener) {
+        mDiskCacheExecutor.execute(() -> {
+            Bitmap bitmap = getBitmapFromDiskCache(key);
+            mMainThreadHandler.post(() -> listener.onBitmapLoaded(bitmap));
+        });
+    }
+
+    /**
+     * Releases the thumbnails kept in memory. The disk cache is kept.
+     */
+    public static void clearMemoryCache() {
+        mMemoryCache.evictAll();
+    }
+
+    public static CacheStats getStats() {
+        return mStats;
+    }
+
+    /**
+     * Hit and decode counters of the thumbnails cache, since the app started.
+     */
+    public static final class CacheStats {
+        private final AtomicLong memoryHits = new AtomicLong();
+        private final AtomicLong diskHits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong decodes = new AtomicLong();
+        private final AtomicLong decodeTimeNanos = new AtomicLong();
+        private final AtomicLong coalescedRequests = new AtomicLong();
+        private final AtomicLong cancelledJobs = new AtomicLong();
+        private final AtomicLong timeToFirstThumbnailNanos = new AtomicLong();
+
+        private CacheStats() {
+        }
+
+        void recordDecode(long nanos) {
+            decodes.incrementAndGet();
+            decodeTimeNanos.addAndGet(nanos);
+        }
+
+        public long getMemoryHits() {
+            return memoryHits.get();
+        }
+
+        public long getDiskHits() {
+            return diskHits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getDecodes() {
+            return decodes.get();
+        }
+
+        public long getDecodeTimeNanos() {
+            return decodeTimeNanos.get();
+        }
+
+        /**
+         * Requests served by the generation of a thumbnail already requested.
+         */
+        public long getCoalescedRequests() {
+            return coalescedRequests.get();
+        }
+
+        /**
+         * Thumbnail generations dropped before starting, because their views were recycled.
+         */
+        public long getCancelledJobs() {
+            return cancelledJobs.get();
+        }
+
+        /**
+         * Thumbnail generations waiting for a thread.
+         */
+        public int getQueueDepth() {
+            return mThumbnailsQueue.size();
+        }
+
+        /**
+         * Time from the first request with no other pending ones, to the first thumbnail generated for them. Measured
+         * for the last burst of requests, typically when a folder is opened.
+         */
+        public long getTimeToFirstThumbnailNanos() {
+            return timeToFirstThumbnailNanos.get();
+        }
+
+        public float getHitRate() {
+            long hits = getMemoryHits() + getDiskHits();
+            long lookups = hits + getMisses();
+            return lookups == 0 ? 0f : (float) hits / lookups;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            long decodes = getDecodes();
+            return String.format(Locale.ROOT,
+                    "memoryHits=%d diskHits=%d misses=%d hitRate=%.2f decodes=%d avgDecodeMs=%.2f queueDepth=%d " +
+                            "coalescedRequests=%d cancelledJobs=%d timeToFirstThumbnailMs=%.2f",
+                    getMemoryHits(), getDiskHits(), getMisses(), getHitRate(), decodes,
+                    decodes == 0 ? 0f : getDecodeTimeNanos() / 1_000_000f / decodes, getQueueDepth(),
+                    getCoalescedRequests(), getCancelledJobs(), getTimeToFirstThumbnailNanos() / 1_000_000f);
+        }
+    }
+
+    /**
+     * Request of a thumbnail for an {@link ImageView}.
+     *
+     * Requests for the same thumbnail share a single {@link ThumbnailJob}. Jobs are run by a bounded pool that serves
+     * the most recent requests first, since those are the ones for the items on screen. Cancelling a request whose
+     * view was recycled drops its job if nobody else is waiting for it.
+     */
+    public static class ThumbnailGenerationTask {
         private final WeakReference<ImageView> mImageViewReference;
-        private static Account mAccount;
+        private final Account mAccount;
         private Object mFile;
-        private FileDataStorageManager mStorageManager;
+        private ThumbnailJob mJob; // guarded by mPendingJobs
 
         public ThumbnailGenerationTask(ImageView imageView, Account account) {
             // Use a WeakReference to ensure the ImageView can be garbage collected
@@ -166,26 +371,340 @@ public class ThumbnailsCacheManager {
         }
 
         public ThumbnailGenerationTask(ImageView imageView) {
-            // Use a WeakReference to ensure the ImageView can be garbage collected
-            mImageViewReference = new WeakReference<>(imageView);
+            this(imageView, null);
+        }
+
+        public void execute(Object file) {
+            mFile = file;
+            enqueueThumbnailRequest(this);
+        }
+
+        public void cancel() {
+            cancelThumbnailRequest(this);
+        }
+
+        private boolean isImageViewGone() {
+            return mImageViewReference.get() == null;
+        }
+
+        private void onThumbnailLoaded(Bitmap bitmap) {
+            if (bitmap != null) {
+                final ImageView imageView = mImageViewReference.get();
+                final ThumbnailGenerationTask bitmapWorkerTask = getBitmapWorkerTask(imageView);
+                if (this == bitmapWorkerTask) {
+                    String tagId = "";
+                    if (mFile instanceof OCFile) {
+                        tagId = String.valueOf(((OCFile) mFile).getId());
+                    } else if (mFile instanceof File) {
+                        tagId = String.valueOf(mFile.hashCode());
+                    } else if (mFile instanceof SpaceSpecial) {
+                        tagId = ((SpaceSpecial) mFile).getId();
+                    }
+                    if (String.valueOf(imageView.getTag()).equals(tagId)) {
+                        imageView.setImageBitmap(bitmap);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void enqueueThumbnailRequest(ThumbnailGenerationTask request) {
+        final String jobKey = getJobKey(request.mFile);
+        synchronized (mPendingJobs) {
+            if (mPendingJobs.isEmpty()) {
+                mFirstRequestNanos = SystemClock.elapsedRealtimeNanos();
+            }
+            ThumbnailJob job = mPendingJobs.get(jobKey);
+            if (job == null) {
+                job = new ThumbnailJob(jobKey, request.mFile, request.mAccount);
+                mPendingJobs.put(jobKey, job);
+            } else {
+                mStats.coalescedRequests.incrementAndGet();
+            }
+            job.requests.add(request);
+            request.mJob = job;
+            // Queue it again with the newest priority, if it did not start yet
+            if (job.sequence == 0 || mThumbnailsQueue.remove(job)) {
+                job.sequence = mRequestSequence.incrementAndGet();
+                mThumbnailsExecutor.execute(job);
+            }
+        }
+    }
+
+    private static void cancelThumbnailRequest(ThumbnailGenerationTask request) {
+        synchronized (mPendingJobs) {
+            ThumbnailJob job = request.mJob;
+            if (job == null) {
+                return;
+            }
+            job.requests.remove(request);
+            request.mJob = null;
+            if (job.requests.isEmpty() && mThumbnailsQueue.remove(job)) {
+                mPendingJobs.remove(job.key);
+                mStats.cancelledJobs.incrementAndGet();
+            }
+        }
+    }
+
+    private static String getJobKey(Object file) {
+        if (file instanceof OCFile) {
+            return ((OCFile) file).getRemoteId() + ":" + ((OCFile) file).getEtag();
+        } else if (file instanceof SpaceSpecial) {
+            return ((SpaceSpecial) file).getId() + ":" + ((SpaceSpecial) file).getETag();
+        } else {
+            return String.valueOf(file.hashCode());
+        }
+    }
+
+    /**
+     * Returns a client for the account, reused across thumbnails. It is dropped when the server rejects its
+     * credentials, so that the next one is obtained with fresh credentials.
+     */
+    private static OwnCloudClient getClientForThumbnails(Account account) throws Exception {
+        OwnCloudClient client = mClients.get(account.name);
+        if (client == null) {
+            OwnCloudAccount ocAccount = new OwnCloudAccount(account, MainApp.Companion.getAppContext());
+            client = SingleSessionManager.getDefaultSingleton().getClientFor(ocAccount, MainApp.Companion.getAppContext());
+            mClients.put(account.name, client);
+        }
+        return client;
+    }
+
+    /**
+     * Converts size of file icon from dp to pixel
+     *
+     * @return size in pixels of the thumbnails shown in the file lists
+     */
+    public static int getThumbnailDimension() {
+        // Converts dp to pixel
+        Resources r = MainApp.Companion.getAppContext().getResources();
+        return Math.round(r.getDimension(R.dimen.file_icon_size_grid));
+    }
+
+    private static String getPreviewUrl(OwnCloudClient client, OCFile ocFile, Account account, int px) {
+        String baseUrl = client.getBaseUri() + "/remote.php/dav/files/" + AccountUtils.getUserId(account, MainApp.Companion.getAppContext());
+
+        if (ocFile.getSpaceId() != null) {
+            Lazy<GetWebDavUrlForSpaceUseCase> getWebDavUrlForSpaceUseCaseLazy = inject(GetWebDavUrlForSpaceUseCase.class);
+            baseUrl = getWebDavUrlForSpaceUseCaseLazy.getValue().invoke(
+                    new GetWebDavUrlForSpaceUseCase.Params(ocFile.getOwner(), ocFile.getSpaceId())
+            );
+
+        }
+        return String.format(Locale.ROOT,
+                PREVIEW_URI,
+                baseUrl,
+                Uri.encode(ocFile.getRemotePath(), "/"),
+                px,
+                px,
+                ocFile.getEtag());
+    }
+
+    /**
+     * Looks for the thumbnail in the disk cache, blocking the calling thread, and returns the file with it as it was
+     * encoded. Meant for other apps, which decode the thumbnail themselves.
+     */
+    public static File getThumbnailFileFromDiskCache(String key) {
+        DiskLruImageCache diskCache = getDiskCache();
+        File thumbnailFile = diskCache != null ? diskCache.getFile(key) : null;
+        if (thumbnailFile != null) {
+            mStats.diskHits.incrementAndGet();
+        } else {
+            mStats.misses.incrementAndGet();
+        }
+        return thumbnailFile;
+    }
+
+    /**
+     * Downloads the preview of a file, {@code px} pixels wide and high, into the disk cache as the server encodes it,
+     * without decoding it. Blocks the calling thread.
+     *
+     * @return the file with the preview in the disk cache, null if it could not be downloaded
+     */
+    public static File downloadThumbnailToDiskCache(OCFile file, Account account, String key, int px) {
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache == null) {
+            return null;
+        }
+        try {
+            OwnCloudClient client = getClientForThumbnails(account);
+            String uri = getPreviewUrl(client, file, account, px);
+            Timber.d("URI: %s", uri);
+            GetMethod get = new GetMethod(new URL(uri));
+            int status = client.executeHttpMethod(get);
+            if (status == HttpConstants.HTTP_UNAUTHORIZED) {
+                mClients.remove(account.name);
+            }
+            if (status != HttpConstants.HTTP_OK) {
+                client.exhaustResponse(get.getResponseBodyAsStream());
+                return null;
+            }
+            try (InputStream inputStream = get.getResponseBodyAsStream()) {
+                return diskCache.put(key, inputStream) ? diskCache.getFile(key) : null;
+            }
+        } catch (Exception e) {
+            Timber.e(e, "Preview of %s could not be downloaded", file.getRemotePath());
+            return null;
+        }
+    }
+
+    /**
+     * Creates the thumbnail of an image stored in the device into the disk cache, decoding it subsampled to about
+     * {@code px} pixels. Blocks the calling thread.
+     *
+     * @return the file with the thumbnail in the disk cache, null if it could not be created
+     */
+    public static File createThumbnailInDiskCache(File imageFile, String key, int px) {
+        DiskLruImageCache diskCache = getDiskCache();
+        if (diskCache == null) {
+            return null;
+        }
+        long decodeStart = SystemClock.elapsedRealtimeNanos();
+        Bitmap bitmap = BitmapUtils.decodeSampledBitmapFromFile(imageFile.getAbsolutePath(), px, px);
+        mStats.recordDecode(SystemClock.elapsedRealtimeNanos() - decodeStart);
+        if (bitmap == null) {
+            return null;
+        }
+        Bitmap thumbnail = BitmapUtils.rotateImage(ThumbnailUtils.extractThumbnail(bitmap, px, px), imageFile.getPath());
+        diskCache.put(key, thumbnail);
+        return diskCache.getFile(key);
+    }
+
+    /**
+     * Downloads the thumbnail of a file into the cache if it needs to be updated, blocking the calling thread. Meant
+     * for prefetching thumbnails before any view asks for them.
+     *
+     * @return bytes downloaded from the server, 0 if nothing was downloaded
+     */
+    public static long prefetchThumbnail(OCFile file, Account account) {
+        final String jobKey = getJobKey(file);
+        final ThumbnailJob job;
+        synchronized (mPendingJobs) {
+            if (mPendingJobs.containsKey(jobKey)) {
+                // A view or another prefetch is already generating it
+                return 0;
+            }
+            job = new ThumbnailJob(jobKey, file, account);
+            // Runs in the calling thread, views asking for it meanwhile wait for this job instead of queueing it
+            job.sequence = mRequestSequence.incrementAndGet();
+            mPendingJobs.put(jobKey, job);
+        }
+        job.publishThumbnail(job.generateThumbnail());
+        return job.mDownloadedBytes;
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Generation of a thumbnail, shared by all the requests for it.
+     */
+    private static class ThumbnailJob implements Runnable, Comparable<ThumbnailJob> {
+        private final String key;
+        private final Object mFile;
+        private final Account mAccount;
+        private final List<ThumbnailGenerationTask> requests = new ArrayList<>(); // guarded by mPendingJobs
+        private volatile long sequence;
+        private OwnCloudClient mClient;
+        private long mDownloadedBytes = 0;
+
+        ThumbnailJob(String key, Object file, Account account) {
+            this.key = key;
+            mFile = file;
+            mAccount = account;
         }
 
         @Override
-        protected Bitmap doInBackground(Object... params) {
+        public int compareTo(ThumbnailJob other) {
+            // Newest first
+            return Long.compare(other.sequence, sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (mPendingJobs) {
+                // Views released without being bound again are not cancelled, skip them here
+                Iterator<ThumbnailGenerationTask> iterator = requests.iterator();
+                while (iterator.hasNext()) {
+                    ThumbnailGenerationTask request = iterator.next();
+                    if (request.isImageViewGone()) {
+                        iterator.remove();
+                        request.mJob = null;
+                    }
+                }
+                if (requests.isEmpty()) {
+                    mPendingJobs.remove(key);
+                    mStats.cancelledJobs.incrementAndGet();
+                    return;
+                }
+            }
+
+            publishThumbnail(generateThumbnail());
+        }
+
+        /**
+         * Finishes the job, handing the thumbnail to the views waiting for it.
+         */
+        private void publishThumbnail(Bitmap thumbnail) {
+            final List<ThumbnailGenerationTask> requestsToNotify;
+            synchronized (mPendingJobs) {
+                mPendingJobs.remove(key);
+                requestsToNotify = new ArrayList<>(requests);
+                for (ThumbnailGenerationTask request : requests) {
+                    request.mJob = null;
+                }
+                requests.clear();
+                if (thumbnail != null && mFirstRequestNanos != 0) {
+                    mStats.timeToFirstThumbnailNanos.set(SystemClock.elapsedRealtimeNanos() - mFirstRequestNanos);
+                    mFirstRequestNanos = 0;
+                    Timber.d("First thumbnail generated, %s", mStats);
+                }
+            }
+            if (requestsToNotify.isEmpty()) {
+                return;
+            }
+            mMainThreadHandler.post(() -> {
+                for (ThumbnailGenerationTask request : requestsToNotify) {
+                    request.onThumbnailLoaded(thumbnail);
+                }
+            });
+        }
+
+        private Bitmap generateThumbnail() {
             Bitmap thumbnail = null;
 
             try {
                 if (mAccount != null) {
-                    OwnCloudAccount ocAccount = new OwnCloudAccount(
-                            mAccount,
-                            MainApp.Companion.getAppContext()
-                    );
-                    mClient = SingleSessionManager.getDefaultSingleton().
-                            getClientFor(ocAccount, MainApp.Companion.getAppContext());
+                    mClient = getClientForThumbnails(mAccount);
                 }
 
-                mFile = params[0];
-
                 if (mFile instanceof OCFile) {
                     thumbnail = doOCFileInBackground();
                 } else if (mFile instanceof File) {
@@ -206,23 +725,9 @@ public class ThumbnailsCacheManager {
             return thumbnail;
         }
 
-        protected void onPostExecute(Bitmap bitmap) {
-            if (bitmap != null) {
-                final ImageView imageView = mImageViewReference.get();
-                final ThumbnailGenerationTask bitmapWorkerTask = getBitmapWorkerTask(imageView);
-                if (this == bitmapWorkerTask) {
-                    String tagId = "";
-                    if (mFile instanceof OCFile) {
-                        tagId = String.valueOf(((OCFile) mFile).getId());
-                    } else if (mFile instanceof File) {
-                        tagId = String.valueOf(mFile.hashCode());
-                    } else if (mFile instanceof SpaceSpecial) {
-                        tagId = ((SpaceSpecial) mFile).getId();
-                    }
-                    if (String.valueOf(imageView.getTag()).equals(tagId)) {
-                        imageView.setImageBitmap(bitmap);
-                    }
-                }
+        private void checkCredentials(int status) {
+            if (status == HttpConstants.HTTP_UNAUTHORIZED && mAccount != null) {
+                mClients.remove(mAccount.name);
             }
         }
 
@@ -248,36 +753,6 @@ public class ThumbnailsCacheManager {
             return thumbnail;
         }
 
-        /**
-         * Converts size of file icon from dp to pixel
-         *
-         * @return int
-         */
-        private int getThumbnailDimension() {
-            // Converts dp to pixel
-            Resources r = MainApp.Companion.getAppContext().getResources();
-            return Math.round(r.getDimension(R.dimen.file_icon_size_grid));
-        }
-
-        private String getPreviewUrl(OCFile ocFile, Account account) {
-            String baseUrl = mClient.getBaseUri() + "/remote.php/dav/files/" + AccountUtils.getUserId(account, MainApp.Companion.getAppContext());
-
-            if (ocFile.getSpaceId() != null) {
-                Lazy<GetWebDavUrlForSpaceUseCase> getWebDavUrlForSpaceUseCaseLazy = inject(GetWebDavUrlForSpaceUseCase.class);
-                baseUrl = getWebDavUrlForSpaceUseCaseLazy.getValue().invoke(
-                        new GetWebDavUrlForSpaceUseCase.Params(ocFile.getOwner(), ocFile.getSpaceId())
-                );
-
-            }
-            return String.format(Locale.ROOT,
-                    PREVIEW_URI,
-                    baseUrl,
-                    Uri.encode(ocFile.getRemotePath(), "/"),
-                    getThumbnailDimension(),
-                    getThumbnailDimension(),
-                    ocFile.getEtag());
-        }
-
         private Bitmap doOCFileInBackground() {
             OCFile file = (OCFile) mFile;
 
@@ -295,13 +770,17 @@ public class ThumbnailsCacheManager {
                 if (mClient != null) {
                     GetMethod get;
                     try {
-                        String uri = getPreviewUrl(file, mAccount);
+                        String uri = getPreviewUrl(mClient, file, mAccount, px);
                         Timber.d("URI: %s", uri);
                         get = new GetMethod(new URL(uri));
                         int status = mClient.executeHttpMethod(get);
+                        checkCredentials(status);
                         if (status == HttpConstants.HTTP_OK) {
-                            InputStream inputStream = get.getResponseBodyAsStream();
+                            CountingInputStream inputStream = new CountingInputStream(get.getResponseBodyAsStream());
+                            long decodeStart = SystemClock.elapsedRealtimeNanos();
                             Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+                            mStats.recordDecode(SystemClock.elapsedRealtimeNanos() - decodeStart);
+                            mDownloadedBytes = inputStream.getCount();
                             thumbnail = ThumbnailUtils.extractThumbnail(bitmap, px, px);
 
                             // Handle PNG
@@ -355,8 +834,10 @@ public class ThumbnailsCacheManager {
 
                 int px = getThumbnailDimension();
 
+                long decodeStart = SystemClock.elapsedRealtimeNanos();
                 Bitmap bitmap = BitmapUtils.decodeSampledBitmapFromFile(
                         file.getAbsolutePath(), px, px);
+                mStats.recordDecode(SystemClock.elapsedRealtimeNanos() - decodeStart);
 
                 if (bitmap != null) {
                     thumbnail = addThumbnailToCache(imageKey, bitmap, file.getPath(), px);
@@ -397,9 +878,12 @@ public class ThumbnailsCacheManager {
                         Timber.d("URI: %s", uri);
                         get = new GetMethod(new URL(uri));
                         int status = mClient.executeHttpMethod(get);
+                        checkCredentials(status);
                         if (status == HttpConstants.HTTP_OK) {
                             InputStream inputStream = get.getResponseBodyAsStream();
+                            long decodeStart = SystemClock.elapsedRealtimeNanos();
                             Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+                            mStats.recordDecode(SystemClock.elapsedRealtimeNanos() - decodeStart);
                             thumbnail = ThumbnailUtils.extractThumbnail(bitmap, px, px);
 
                             // Handle PNG
@@ -433,7 +917,7 @@ public class ThumbnailsCacheManager {
             // If bitmapData is not yet set or it differs from the new data
             if (bitmapData == null || bitmapData != file) {
                 // Cancel previous task
-                bitmapWorkerTask.cancel(true);
+                bitmapWorkerTask.cancel();
                 Timber.v("Cancelled generation of thumbnail for a reused imageView");
             } else {
                 // The same work is already in progress
@@ -22,6 +22,7 @@ package com.owncloud.android.dependecyinjection
 
 import androidx.work.WorkManager
 import com.owncloud.android.presentation.avatar.AvatarManager
+import com.owncloud.android.presentation.thumbnails.ThumbnailsPrefetcher
 import com.owncloud.android.providers.AccountProvider
 import com.owncloud.android.providers.ContextProvider
 import com.owncloud.android.providers.CoroutinesDispatcherProvider
@@ -29,6 +30,7 @@ import com.owncloud.android.providers.LogsProvider
 import com.owncloud.android.providers.MdmProvider
 import com.owncloud.android.providers.WorkManagerProvider
 import com.owncloud.android.providers.implementation.OCContextProvider
+import com.owncloud.android.usecases.transfers.downloads.DownloadCompletionNotifier
 import org.koin.android.ext.koin.androidApplication
 import org.koin.android.ext.koin.androidContext
 import org.koin.dsl.module
@@ -36,6 +38,7 @@ import org.koin.dsl.module
 val commonModule = module {
 
     single { AvatarManager() }
+    single { ThumbnailsPrefetcher(get(), get()) }
     single { CoroutinesDispatcherProvider() }
     factory<ContextProvider> { OCContextProvider(androidContext()) }
     single { LogsProvider(get(), get()) }
@@ -43,4 +46,5 @@ val commonModule = module {
     single { WorkManagerProvider(androidContext()) }
     single { AccountProvider(androidContext()) }
     single { WorkManager.getInstance(androidApplication()) }
+    single { DownloadCompletionNotifier() }
 }
@@ -45,9 +45,11 @@ import com.owncloud.android.data.spaces.datasources.implementation.OCLocalSpaces
 import com.owncloud.android.data.providers.LocalStorageProvider
 import com.owncloud.android.data.providers.ScopedStorageProvider
 import com.owncloud.android.data.transfers.datasources.LocalTransferDataSource
+import com.owncloud.android.data.transfers.datasources.implementation.OCChunkedUploadStateStore
 import com.owncloud.android.data.transfers.datasources.implementation.OCLocalTransferDataSource
 import com.owncloud.android.data.user.datasources.LocalUserDataSource
 import com.owncloud.android.data.user.datasources.implementation.OCLocalUserDataSource
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import org.koin.android.ext.koin.androidContext
 import org.koin.core.module.dsl.factoryOf
 import org.koin.core.module.dsl.singleOf
@@ -68,6 +70,7 @@ val localDataSourceModule = module {
 
     singleOf(::OCSharedPreferencesProvider) bind SharedPreferencesProvider::class
     single<LocalStorageProvider> { ScopedStorageProvider(dataFolder, androidContext()) }
+    singleOf(::OCChunkedUploadStateStore) bind ChunkedUploadStateStore::class
 
     factory<LocalAuthenticationDataSource> { OCLocalAuthenticationDataSource(androidContext(), get(), get(), accountType) }
     factoryOf(::OCLocalFolderBackupDataSource) bind LocalFolderBackupDataSource::class
@@ -115,6 +115,7 @@ import com.owncloud.android.usecases.accounts.RemoveAccountUseCase
 import com.owncloud.android.usecases.files.FilterFileMenuOptionsUseCase
 import com.owncloud.android.usecases.files.RemoveLocalFilesForAccountUseCase
 import com.owncloud.android.usecases.files.RemoveLocallyFilesWithLastUsageOlderThanGivenTimeUseCase
+import com.owncloud.android.usecases.synchronization.SynchronizeAvailableOfflineFilesUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFileUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase
 import com.owncloud.android.usecases.transfers.downloads.CancelDownloadForFileUseCase
@@ -190,6 +191,7 @@ val useCaseModule = module {
     factoryOf(::SetLastUsageFileUseCase)
     factoryOf(::SortFilesUseCase)
     factoryOf(::SortFilesWithSyncInfoUseCase)
+    factoryOf(::SynchronizeAvailableOfflineFilesUseCase)
     factoryOf(::SynchronizeFileUseCase)
     factoryOf(::SynchronizeFolderUseCase)
 
@@ -28,6 +28,7 @@ import com.owncloud.android.R
 import com.owncloud.android.domain.transfers.model.OCTransfer
 import com.owncloud.android.domain.transfers.model.TransferResult
 import com.owncloud.android.domain.transfers.model.TransferStatus
+import com.owncloud.android.utils.SecurityUtils
 
 @StringRes
 fun OCTransfer.statusToStringRes(): Int =
@@ -66,3 +67,10 @@ fun OCTransfer.statusToStringRes(): Int =
 
 fun OCTransfer.isContentUri(context: Context): Boolean =
     DocumentFile.isDocumentUri(context, Uri.parse(localPath))
+
+/**
+ * Name of the folder the chunks of this upload are uploaded to, also the key of its acknowledged chunks. It does not
+ * change between retries, so they can resume the chunks already acknowledged by the server.
+ */
+fun OCTransfer.getChunksFolderName(): String =
+    SecurityUtils.stringToMD5Hash(remotePath) + id
@@ -0,0 +1,136 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.documentsprovider
+
+import com.owncloud.android.domain.files.model.OCFile
+import timber.log.Timber
+import java.io.File
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Thumbnails of the documents provider, served as files of the thumbnails disk cache, so neither this process nor the
+ * picker has to decode the original image.
+ *
+ * Thumbnails are cached with a side of [MIN_THUMBNAIL_SIZE] to [MAX_THUMBNAIL_SIZE] pixels, the smallest power of two
+ * not smaller than the size asked for. The thumbnail the app shows in its own lists, of [appThumbnailSize] pixels, is
+ * served when it is big enough and up to date.
+ *
+ * Missing thumbnails are fetched with [fetchThumbnail] by at most [threads] threads. Requests for the same thumbnail
+ * share the fetch, and a fetch that did not start yet is dropped once all its requests are cancelled, as pickers do
+ * when the user scrolls past the thumbnails.
+ */
+class DocumentThumbnailLoader(
+    private val appThumbnailSize: Int,
+    private val getCachedThumbnail: (key: String) -> File?,
+    private val fetchThumbnail: (file: OCFile, key: String, size: Int) -> File?,
+    threads: Int = LOADER_THREADS,
+) {
+
+    private val executor = ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, LinkedBlockingQueue()).apply {
+        allowCoreThreadTimeOut(true)
+    }
+    private val pendingFetches = HashMap<String, PendingFetch>() // guarded by itself
+
+    /**
+     * Looks for the thumbnail in the cache in the calling thread, fetching it in background if it is not there.
+     *
+     * @return future completed with the file of the thumbnail, or null if it could not be fetched. It can be cancelled
+     * without affecting other requests of the same thumbnail.
+     */
+    fun loadThumbnail(file: OCFile, sizeHint: Int): CompletableFuture<File?> {
+        val size = getThumbnailSize(sizeHint)
+        if (file.remoteId != null && size <= appThumbnailSize && !file.needsToUpdateThumbnail) {
+            getCachedThumbnail(getAppThumbnailKey(file))?.let { return CompletableFuture.completedFuture(it) }
+        }
+        val key = getThumbnailKey(file, size)
+        getCachedThumbnail(key)?.let { return CompletableFuture.completedFuture(it) }
+
+        val request = CompletableFuture<File?>()
+        synchronized(pendingFetches) {
+            val fetch = pendingFetches[key] ?: PendingFetch(key, file, size).also { fetch ->
+                pendingFetches[key] = fetch
+                executor.execute(fetch)
+            }
+            fetch.requests.add(request)
+        }
+        request.whenComplete { _, _ ->
+            if (request.isCancelled) {
+                cancelRequest(key, request)
+            }
+        }
+        return request
+    }
+
+    private fun cancelRequest(key: String, request: CompletableFuture<File?>) {
+        synchronized(pendingFetches) {
+            val fetch = pendingFetches[key] ?: return
+            fetch.requests.remove(request)
+            // A fetch already running is let finish, its thumbnail is cached for the next time
+            if (fetch.requests.isEmpty() && executor.remove(fetch)) {
+                pendingFetches.remove(key)
+            }
+        }
+    }
+
+    private inner class PendingFetch(
+        private val key: String,
+        private val file: OCFile,
+        private val size: Int,
+    ) : Runnable {
+        val requests = mutableListOf<CompletableFuture<File?>>() // guarded by pendingFetches
+
+        override fun run() {
+            val thumbnail = try {
+                fetchThumbnail(file, key, size)
+            } catch (exception: Exception) {
+                Timber.w(exception, "Thumbnail of ${file.remotePath} could not be fetched")
+                null
+            }
+            val requestsToComplete = synchronized(pendingFetches) {
+                pendingFetches.remove(key, this)
+                requests.toList()
+            }
+            requestsToComplete.forEach { it.complete(thumbnail) }
+        }
+    }
+
+    companion object {
+        const val MIN_THUMBNAIL_SIZE = 64
+        const val MAX_THUMBNAIL_SIZE = 1024
+
+        private const val LOADER_THREADS = 3
+        private const val KEEP_ALIVE_SECONDS = 30L
+
+        fun getThumbnailSize(sizeHint: Int): Int =
+            Integer.highestOneBit(sizeHint.coerceIn(MIN_THUMBNAIL_SIZE, MAX_THUMBNAIL_SIZE) - 1) shl 1
+
+        /**
+         * Same key as the thumbnails of the file lists, see [com.owncloud.android.datamodel.ThumbnailsCacheManager].
+         */
+        private fun getAppThumbnailKey(file: OCFile) = file.remoteId.toString()
+
+        /**
+         * Includes the etag, so thumbnails of older versions of the file are not served and end up evicted.
+         */
+        private fun getThumbnailKey(file: OCFile, size: Int) = "${file.remoteId ?: file.id}:${file.etag}:$size"
+    }
+}
@@ -31,6 +31,7 @@ import android.database.Cursor
 import android.database.MatrixCursor
 import android.graphics.Point
 import android.net.Uri
+import android.os.Build
 import android.os.CancellationSignal
 import android.os.Handler
 import android.os.ParcelFileDescriptor
@@ -39,6 +40,7 @@ import android.provider.DocumentsProvider
 import com.owncloud.android.MainApp
 import com.owncloud.android.R
 import com.owncloud.android.data.providers.SharedPreferencesProvider
+import com.owncloud.android.datamodel.ThumbnailsCacheManager
 import com.owncloud.android.domain.UseCaseResult
 import com.owncloud.android.domain.capabilities.usecases.GetStoredCapabilitiesUseCase
 import com.owncloud.android.domain.exceptions.NoConnectionWithServerException
@@ -63,6 +65,7 @@ import com.owncloud.android.presentation.documentsprovider.cursors.SpaceCursor
 import com.owncloud.android.presentation.settings.security.SettingsSecurityFragment.Companion.PREFERENCE_LOCK_ACCESS_FROM_DOCUMENT_PROVIDER
 import com.owncloud.android.usecases.synchronization.SynchronizeFileUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase
+import com.owncloud.android.usecases.transfers.downloads.DownloadCompletionNotifier
 import com.owncloud.android.usecases.transfers.downloads.DownloadFileUseCase
 import com.owncloud.android.usecases.transfers.uploads.UploadFilesFromSystemUseCase
 import com.owncloud.android.utils.FileStorageUtils
@@ -76,6 +79,9 @@ import java.io.File
 import java.io.FileNotFoundException
 import java.io.IOException
 import java.util.Vector
+import java.util.concurrent.CancellationException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
 
 class DocumentsStorageProvider : DocumentsProvider() {
     /**
@@ -90,6 +96,14 @@ class DocumentsStorageProvider : DocumentsProvider() {
 
     private lateinit var fileToUpload: OCFile
 
+    private val thumbnailLoader by lazy {
+        DocumentThumbnailLoader(
+            appThumbnailSize = ThumbnailsCacheManager.getThumbnailDimension(),
+            getCachedThumbnail = { key -> ThumbnailsCacheManager.getThumbnailFileFromDiskCache(key) },
+            fetchThumbnail = ::fetchThumbnail,
+        )
+    }
+
     override fun openDocument(
         documentId: String,
         mode: String,
@@ -108,17 +122,11 @@ class DocumentsStorageProvider : DocumentsProvider() {
             ocFile = getFileByIdOrException(documentId.toInt())
 
             if (!ocFile.isAvailableLocally) {
-                val downloadFileUseCase: DownloadFileUseCase by inject()
-
-                downloadFileUseCase(DownloadFileUseCase.Params(accountName = ocFile.owner, file = ocFile))
-
-                do {
-                    if (!waitOrGetCancelled(signal)) {
-                        return null
-                    }
-                    ocFile = getFileByIdOrException(documentId.toInt())
+                if (!isWrite) {
+                    openStreamingDocument(ocFile)?.let { return it }
+                }
 
-                } while (!ocFile.isAvailableLocally)
+                ocFile = downloadFileAndWait(ocFile, signal) ?: return null
             }
         } else {
             ocFile = fileToUpload
@@ -316,13 +324,41 @@ class DocumentsStorageProvider : DocumentsProvider() {
         // To do: Show thumbnail for spaces
         val file = getFileByIdOrException(documentId.toInt())
 
-        val realFile = File(file.storagePath)
+        val thumbnail = thumbnailLoader.loadThumbnail(file, sizeHint?.let { maxOf(it.x, it.y) } ?: 0)
+        signal?.setOnCancelListener { thumbnail.cancel(false) }
+        val thumbnailFile = try {
+            thumbnail.get(THUMBNAIL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        } catch (exception: Exception) {
+            // Cancelled by the picker, or timed out
+            thumbnail.cancel(false)
+            null
+        } finally {
+            signal?.setOnCancelListener(null)
+        }
+        thumbnailFile ?: throw FileNotFoundException("No thumbnail for ${file.remotePath}")
 
+        // The picker decodes the small image of the cache, nothing is decoded here
         return AssetFileDescriptor(
-            ParcelFileDescriptor.open(realFile, ParcelFileDescriptor.MODE_READ_ONLY), 0, AssetFileDescriptor.UNKNOWN_LENGTH
+            ParcelFileDescriptor.open(thumbnailFile, ParcelFileDescriptor.MODE_READ_ONLY), 0, thumbnailFile.length()
         )
     }
 
+    /**
+     * Downloads the preview of the file from the server, or creates the thumbnail from the local copy if the preview
+     * cannot be downloaded.
+     */
+    private fun fetchThumbnail(file: OCFile, key: String, size: Int): File? {
+        val account = context?.let { AccountUtils.getOwnCloudAccountByName(it, file.owner) }
+        val preview = if (account != null && file.remoteId != null) {
+            ThumbnailsCacheManager.downloadThumbnailToDiskCache(file, account, key, size)
+        } else {
+            null
+        }
+        return preview ?: file.storagePath?.takeIf { file.isAvailableLocally }?.let { storagePath ->
+            ThumbnailsCacheManager.createThumbnailInDiskCache(File(storagePath), key, size)
+        }
+    }
+
     override fun querySearchDocuments(
         rootId: String,
         query: String,
@@ -529,14 +565,60 @@ class DocumentsStorageProvider : DocumentsProvider() {
         }
     }
 
-    private fun waitOrGetCancelled(cancellationSignal: CancellationSignal?): Boolean {
-        try {
-            Thread.sleep(1000)
-        } catch (e: InterruptedException) {
-            return false
+    /**
+     * @return a descriptor reading the file from the server while it is read, or null if it has to be downloaded first.
+     */
+    private fun openStreamingDocument(ocFile: OCFile): ParcelFileDescriptor? {
+        val context = context ?: return null
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || !context.resources.getBoolean(R.bool.documents_provider_streaming_enabled)) {
+            return null
         }
+        return try {
+            StreamingDocument(context, ocFile).open()
+        } catch (exception: Exception) {
+            Timber.w(exception, "${ocFile.remotePath} cannot be streamed, downloading it")
+            null
+        }
+    }
+
+    /**
+     * Downloads the file and blocks until the download ends or the open is cancelled. The download wakes this thread
+     * as soon as it ends, see [DownloadCompletionNotifier]. The file is checked again now and then anyway, in case it
+     * lands by other means.
+     *
+     * @return the downloaded file, or null if the open was cancelled.
+     */
+    private fun downloadFileAndWait(ocFile: OCFile, signal: CancellationSignal?): OCFile? {
+        val downloadFileUseCase: DownloadFileUseCase by inject()
+        val downloadCompletionNotifier: DownloadCompletionNotifier by inject()
 
-        return cancellationSignal == null || !cancellationSignal.isCanceled
+        val downloadCompletion = downloadCompletionNotifier.getDownloadCompletion(ocFile.id!!)
+        signal?.setOnCancelListener { downloadCompletion.cancel(false) }
+        try {
+            downloadFileUseCase(DownloadFileUseCase.Params(accountName = ocFile.owner, file = ocFile))
+
+            while (true) {
+                // The download may have finished before it was waited for
+                getFileByIdOrException(ocFile.id!!.toInt()).takeIf { it.isAvailableLocally }?.let { return it }
+
+                val isDownloaded = try {
+                    downloadCompletion.get(DOWNLOAD_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                } catch (timeoutException: TimeoutException) {
+                    continue
+                } catch (cancellationException: CancellationException) {
+                    return null
+                } catch (interruptedException: InterruptedException) {
+                    return null
+                }
+                if (!isDownloaded) {
+                    throw FileNotFoundException("Download of ${ocFile.remotePath} failed")
+                }
+                return getFileByIdOrException(ocFile.id!!.toInt()).takeIf { it.isAvailableLocally }
+                    ?: throw FileNotFoundException("File ${ocFile.remotePath} not available after downloading it")
+            }
+        } finally {
+            signal?.setOnCancelListener(null)
+        }
     }
 
     private fun findFiles(root: OCFile, query: String): Vector<OCFile> {
@@ -583,5 +665,8 @@ class DocumentsStorageProvider : DocumentsProvider() {
 
     companion object {
         const val NONEXISTENT_DOCUMENT_ID = "-1"
+
+        private const val DOWNLOAD_CHECK_INTERVAL_SECONDS = 30L
+        private const val THUMBNAIL_TIMEOUT_SECONDS = 30L
     }
 }
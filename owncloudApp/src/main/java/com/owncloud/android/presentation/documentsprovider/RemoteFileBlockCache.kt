@@ -0,0 +1,120 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.documentsprovider
+
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.util.BitSet
+
+/**
+ * Sparse local copy of a remote file of [fileLength] bytes, filled in blocks of [blockSize] bytes as they are read.
+ *
+ * A block is fetched with [fetchRange] the first time it is read and written at its offset of [cacheFile], so reading
+ * it again does not go to the server. Missing blocks next to each other are fetched in a single request and, when a
+ * read starts where the previous one ended, the next [readAheadBlocks] blocks are fetched with it, so sequential reads
+ * like playing a video do not send a request per block.
+ */
+class RemoteFileBlockCache(
+    private val cacheFile: File,
+    val fileLength: Long,
+    private val blockSize: Int,
+    private val readAheadBlocks: Int,
+    private val fetchRange: (start: Long, length: Int) -> ByteArray,
+) : Closeable {
+
+    private val blockCount = ((fileLength + blockSize - 1) / blockSize).toInt()
+    private val cachedBlocks = BitSet(blockCount)
+    private val file = RandomAccessFile(cacheFile, "rw").apply { setLength(fileLength) }
+    private var lastReadEnd = -1L
+
+    val isComplete: Boolean
+        @Synchronized get() = cachedBlocks.cardinality() == blockCount
+
+    /**
+     * Number of bytes cached from the beginning of the file, up to the first missing block.
+     */
+    val cachedPrefixLength: Long
+        @Synchronized get() = minOf(cachedBlocks.nextClearBit(0).toLong() * blockSize, fileLength)
+
+    /**
+     * Reads up to [size] bytes from [offset] into [data], fetching the blocks that are not cached yet.
+     *
+     * @return number of bytes read, 0 at the end of the file.
+     */
+    @Synchronized
+    fun read(offset: Long, size: Int, data: ByteArray): Int {
+        if (offset >= fileLength || size <= 0) return 0
+        val length = minOf(size.toLong(), fileLength - offset).toInt()
+        val isSequential = offset == lastReadEnd
+        val firstBlock = (offset / blockSize).toInt()
+        val lastBlock = ((offset + length - 1) / blockSize).toInt()
+        val lastBlockToFetch = if (isSequential) minOf(lastBlock + readAheadBlocks, blockCount - 1) else lastBlock
+
+        var block = firstBlock
+        while (block <= lastBlock) {
+            if (cachedBlocks[block]) {
+                block++
+                continue
+            }
+            var endBlock = block
+            while (endBlock < lastBlockToFetch && !cachedBlocks[endBlock + 1]) {
+                endBlock++
+            }
+            fetchBlocks(block, endBlock)
+            block = endBlock + 1
+        }
+
+        file.seek(offset)
+        file.readFully(data, 0, length)
+        lastReadEnd = offset + length
+        return length
+    }
+
+    /**
+     * Stores [bytes] read from [start] elsewhere. Only the whole blocks in them, or the last one of the file, are cached.
+     */
+    @Synchronized
+    fun addRange(start: Long, bytes: ByteArray) {
+        val firstBlock = ((start + blockSize - 1) / blockSize).toInt()
+        val end = start + bytes.size
+        val endBlock = if (end == fileLength) blockCount else (end / blockSize).toInt()
+        if (firstBlock >= endBlock) return
+        val firstBlockStart = firstBlock.toLong() * blockSize
+        val blocksEnd = minOf(endBlock.toLong() * blockSize, fileLength)
+        file.seek(firstBlockStart)
+        file.write(bytes, (firstBlockStart - start).toInt(), (blocksEnd - firstBlockStart).toInt())
+        cachedBlocks.set(firstBlock, endBlock)
+    }
+
+    private fun fetchBlocks(firstBlock: Int, lastBlock: Int) {
+        val start = firstBlock.toLong() * blockSize
+        val end = minOf((lastBlock + 1).toLong() * blockSize, fileLength)
+        val bytes = fetchRange(start, (end - start).toInt())
+        if (bytes.size.toLong() != end - start) {
+            throw IOException("Fetched ${bytes.size} of ${end - start} bytes at $start of ${cacheFile.name}")
+        }
+        addRange(start, bytes)
+    }
+
+    override fun close() {
+        file.close()
+    }
+}
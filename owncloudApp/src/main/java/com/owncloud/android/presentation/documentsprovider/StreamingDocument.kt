@@ -0,0 +1,223 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.documentsprovider
+
+import android.content.Context
+import android.os.Build
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.ParcelFileDescriptor
+import android.os.ProxyFileDescriptorCallback
+import android.os.storage.StorageManager
+import android.system.ErrnoException
+import android.system.OsConstants
+import androidx.annotation.RequiresApi
+import com.owncloud.android.data.executeRemoteOperation
+import com.owncloud.android.data.providers.LocalStorageProvider
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.domain.files.usecases.CleanConflictUseCase
+import com.owncloud.android.domain.files.usecases.GetFileByIdUseCase
+import com.owncloud.android.domain.files.usecases.GetWebDavUrlForSpaceUseCase
+import com.owncloud.android.domain.files.usecases.SaveFileOrFolderUseCase
+import com.owncloud.android.lib.common.OwnCloudAccount
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.ReadRemoteFileRangeOperation
+import com.owncloud.android.lib.resources.files.RemoteFileRange
+import com.owncloud.android.presentation.authentication.AccountUtils
+import com.owncloud.android.usecases.transfers.downloads.DownloadCompletionNotifier
+import com.owncloud.android.utils.FileStorageUtils
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+
+/**
+ * Read only access to a file that is not downloaded yet, through a seekable proxy file descriptor whose reads are
+ * served by byte range requests, so the app opening the file can start reading it right away instead of waiting for
+ * the whole download.
+ *
+ * Read blocks are kept in a [RemoteFileBlockCache] next to the temporal downloads. When the descriptor is closed, the
+ * cache becomes the local copy of the file if every block was read. Otherwise the blocks from the beginning of the file
+ * are handed over to the next download of the file, which resumes after them.
+ */
+@RequiresApi(Build.VERSION_CODES.O)
+class StreamingDocument(
+    private val context: Context,
+    private val ocFile: OCFile,
+) : ProxyFileDescriptorCallback(), KoinComponent {
+
+    private val getWebDavUrlForSpaceUseCase: GetWebDavUrlForSpaceUseCase by inject()
+    private val getFileByIdUseCase: GetFileByIdUseCase by inject()
+    private val saveFileOrFolderUseCase: SaveFileOrFolderUseCase by inject()
+    private val cleanConflictUseCase: CleanConflictUseCase by inject()
+    private val localStorageProvider: LocalStorageProvider by inject()
+    private val downloadCompletionNotifier: DownloadCompletionNotifier by inject()
+
+    private lateinit var firstRange: RemoteFileRange
+    private lateinit var cacheFile: File
+    private lateinit var blockCache: RemoteFileBlockCache
+    private lateinit var handlerThread: HandlerThread
+
+    private val temporalFolderPath
+        get() = FileStorageUtils.getTemporalPath(ocFile.owner, ocFile.spaceId)
+
+    /**
+     * Reads the first block of the file, which also tells its length and version, and returns the descriptor to read
+     * the rest.
+     *
+     * @throws Exception if the server does not serve the file in ranges of a single version, so it has to be downloaded.
+     */
+    fun open(): ParcelFileDescriptor {
+        val client = getClientForThisFile()
+        val spaceWebDavUrl =
+            getWebDavUrlForSpaceUseCase(GetWebDavUrlForSpaceUseCase.Params(accountName = ocFile.owner, spaceId = ocFile.spaceId))
+
+        firstRange = readRange(client, spaceWebDavUrl, start = 0, length = BLOCK_SIZE, ifMatchEtag = null)
+        val etag = firstRange.etag
+        if (firstRange.bytes.size < firstRange.totalLength && (etag.isNullOrBlank() || etag.startsWith(WEAK_ETAG_PREFIX))) {
+            throw IOException("Ranges of ${ocFile.remotePath} cannot be validated without a strong etag")
+        }
+
+        cacheFile = File(temporalFolderPath + ocFile.remotePath).parentFile!!.let { folder ->
+            folder.mkdirs()
+            File.createTempFile(CACHE_FILE_PREFIX, null, folder)
+        }
+        try {
+            blockCache = RemoteFileBlockCache(
+                cacheFile = cacheFile,
+                fileLength = firstRange.totalLength,
+                blockSize = BLOCK_SIZE,
+                readAheadBlocks = READ_AHEAD_BLOCKS,
+            ) { start, length ->
+                readRange(client, spaceWebDavUrl, start, length, etag).bytes
+            }
+            blockCache.addRange(0, firstRange.bytes)
+            handlerThread = HandlerThread("StreamingDocument ${ocFile.id}").apply { start() }
+            return context.getSystemService(StorageManager::class.java).openProxyFileDescriptor(
+                ParcelFileDescriptor.MODE_READ_ONLY, this, Handler(handlerThread.looper)
+            )
+        } catch (exception: Exception) {
+            if (::blockCache.isInitialized) blockCache.close()
+            if (::handlerThread.isInitialized) handlerThread.quitSafely()
+            cacheFile.delete()
+            throw exception
+        }
+    }
+
+    override fun onGetSize(): Long = blockCache.fileLength
+
+    override fun onRead(offset: Long, size: Int, data: ByteArray): Int =
+        try {
+            blockCache.read(offset, size, data)
+        } catch (exception: Exception) {
+            Timber.e(exception, "Could not read $size bytes at $offset of ${ocFile.remotePath}")
+            throw ErrnoException("onRead", OsConstants.EIO)
+        }
+
+    override fun onRelease() {
+        blockCache.close()
+        try {
+            keepCachedContent()
+        } catch (exception: Exception) {
+            Timber.e(exception, "Could not keep the streamed content of ${ocFile.remotePath}")
+            cacheFile.delete()
+        }
+        handlerThread.quitSafely()
+    }
+
+    private fun keepCachedContent() {
+        val currentFile = getFileByIdUseCase(GetFileByIdUseCase.Params(ocFile.id!!)).getDataOrNull()
+        when {
+            // Removed or downloaded in the meantime
+            currentFile == null || currentFile.isAvailableLocally -> cacheFile.delete()
+            blockCache.isComplete -> promoteToLocalCopy(currentFile)
+            else -> handOverCachedPrefix()
+        }
+    }
+
+    /**
+     * Same as a finished download, see [com.owncloud.android.workers.DownloadFileWorker].
+     */
+    private fun promoteToLocalCopy(currentFile: OCFile) {
+        val finalLocation = File(
+            currentFile.storagePath.takeUnless { it.isNullOrBlank() }
+                ?: localStorageProvider.getDefaultSavePathFor(accountName = ocFile.owner, remotePath = ocFile.remotePath, spaceId = ocFile.spaceId)
+        )
+        finalLocation.parentFile?.mkdirs()
+        if (!cacheFile.renameTo(finalLocation)) {
+            Timber.w("Could not move the streamed content of ${ocFile.remotePath} to ${finalLocation.path}")
+            cacheFile.delete()
+            return
+        }
+
+        val currentTime = System.currentTimeMillis()
+        currentFile.apply {
+            needsToUpdateThumbnail = true
+            modificationTimestamp = firstRange.modificationTimestamp.takeIf { it > 0 } ?: modificationTimestamp
+            etag = firstRange.etag.orEmpty().replace("\"", "")
+            storagePath = finalLocation.path
+            length = finalLocation.length()
+            lastSyncDateForData = currentTime
+            modifiedAtLastSyncForData = modificationTimestamp
+            lastUsage = currentTime
+        }
+        saveFileOrFolderUseCase(SaveFileOrFolderUseCase.Params(currentFile))
+        cleanConflictUseCase(CleanConflictUseCase.Params(fileId = currentFile.id!!))
+        downloadCompletionNotifier.notifyDownloadFinished(currentFile.id!!, isSuccess = true)
+        Timber.d("Streamed content of ${ocFile.remotePath} kept as its local copy")
+    }
+
+    private fun handOverCachedPrefix() {
+        val cachedPrefixLength = blockCache.cachedPrefixLength
+        val etag = firstRange.etag
+        if (cachedPrefixLength > 0 && etag != null) {
+            RandomAccessFile(cacheFile, "rw").use { it.setLength(cachedPrefixLength) }
+            if (DownloadRemoteFileOperation.handOverPartialDownload(ocFile.remotePath, temporalFolderPath, cacheFile, etag)) {
+                Timber.d("First $cachedPrefixLength streamed bytes of ${ocFile.remotePath} kept for its next download")
+                return
+            }
+        }
+        cacheFile.delete()
+    }
+
+    private fun readRange(client: OwnCloudClient, spaceWebDavUrl: String?, start: Long, length: Int, ifMatchEtag: String?) =
+        executeRemoteOperation {
+            ReadRemoteFileRangeOperation(
+                remotePath = ocFile.remotePath,
+                start = start,
+                length = length,
+                spaceWebDavUrl = spaceWebDavUrl,
+                ifMatchEtag = ifMatchEtag,
+            ).execute(client)
+        }
+
+    private fun getClientForThisFile(): OwnCloudClient = SingleSessionManager.getDefaultSingleton()
+        .getClientFor(OwnCloudAccount(AccountUtils.getOwnCloudAccountByName(context, ocFile.owner), context), context)
+
+    companion object {
+        private const val BLOCK_SIZE = 512 * 1024
+        private const val READ_AHEAD_BLOCKS = 4
+        private const val CACHE_FILE_PREFIX = "streaming"
+        private const val WEAK_ETAG_PREFIX = "W/"
+    }
+}
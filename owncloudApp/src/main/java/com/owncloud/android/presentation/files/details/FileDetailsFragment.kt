@@ -429,7 +429,8 @@ class FileDetailsFragment : FileFragment() {
             }
             if (ocFile.isImage) {
                 val tagId = ocFile.remoteId.toString()
-                var thumbnail: Bitmap? = ThumbnailsCacheManager.getBitmapFromDiskCache(tagId)
+                // The generation task looks for the thumbnail in disk if not in memory
+                var thumbnail: Bitmap? = ThumbnailsCacheManager.getBitmapFromMemoryCache(tagId)
                 if (thumbnail != null && !ocFile.needsToUpdateThumbnail) {
                     imageView.setImageBitmap(thumbnail)
                 } else {
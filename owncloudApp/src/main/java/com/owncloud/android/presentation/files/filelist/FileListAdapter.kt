@@ -46,38 +46,50 @@ import com.owncloud.android.domain.files.model.FileListOption
 import com.owncloud.android.domain.files.model.OCFileWithSyncInfo
 import com.owncloud.android.domain.files.model.OCFooterFile
 import com.owncloud.android.presentation.authentication.AccountUtils
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
 import com.owncloud.android.utils.DisplayUtils
 import com.owncloud.android.utils.MimetypeIconUtil
 import com.owncloud.android.utils.PreferenceUtils
+import kotlinx.coroutines.withContext
 
 class FileListAdapter(
     private val context: Context,
     private val isPickerMode: Boolean,
     private val layoutManager: StaggeredGridLayoutManager,
     private val listener: FileListAdapterListener,
+    private val coroutinesDispatcherProvider: CoroutinesDispatcherProvider,
 ) : SelectableAdapter<RecyclerView.ViewHolder>() {
 
     var files = mutableListOf<Any>()
     private var account: Account? = AccountUtils.getCurrentOwnCloudAccount(context)
     private var fileListOption: FileListOption = FileListOption.ALL_FILES
 
-    fun updateFileList(filesToAdd: List<OCFileWithSyncInfo>, fileListOption: FileListOption) {
-
-        val listWithFooter = mutableListOf<Any>()
-        listWithFooter.addAll(filesToAdd)
+    /**
+     * Replaces the files displayed. The footer and the diff with the current list are computed in background, so that
+     * big folders do not block the main thread. Being a suspend function, a newer list cancels the previous update if
+     * called from a collectLatest.
+     */
+    suspend fun updateFileList(filesToAdd: List<OCFileWithSyncInfo>, fileListOption: FileListOption) {
+        val oldList = files.toList()
+        val oldFileListOption = this.fileListOption
+
+        val (listWithFooter, diffResult) = withContext(coroutinesDispatcherProvider.computation) {
+            val listWithFooter = mutableListOf<Any>()
+            listWithFooter.addAll(filesToAdd)
+
+            if (listWithFooter.isNotEmpty()) {
+                listWithFooter.add(OCFooterFile(manageListOfFilesAndGenerateText(filesToAdd)))
+            }
 
-        if (listWithFooter.isNotEmpty()) {
-            listWithFooter.add(OCFooterFile(manageListOfFilesAndGenerateText(filesToAdd)))
+            val diffUtilCallback = FileListDiffCallback(
+                oldList = oldList,
+                newList = listWithFooter,
+                oldFileListOption = oldFileListOption,
+                newFileListOption = fileListOption,
+            )
+            Pair(listWithFooter, DiffUtil.calculateDiff(diffUtilCallback))
         }
 
-        val diffUtilCallback = FileListDiffCallback(
-            oldList = files,
-            newList = listWithFooter,
-            oldFileListOption = this.fileListOption,
-            newFileListOption = fileListOption,
-        )
-        val diffResult = DiffUtil.calculateDiff(diffUtilCallback)
-
         files.clear()
         files.addAll(listWithFooter)
         this.fileListOption = fileListOption
@@ -186,7 +198,17 @@ class FileListAdapter(
             val fileIcon = holder.itemView.findViewById<ImageView>(R.id.thumbnail).apply {
                 tag = file.id
             }
-            val thumbnail: Bitmap? = file.remoteId?.let { ThumbnailsCacheManager.getBitmapFromDiskCache(file.remoteId) }
+            // Only the memory cache is checked here, the disk cache is read in background and the item bound again
+            val remoteId = file.remoteId
+            val thumbnail: Bitmap? = remoteId?.let { ThumbnailsCacheManager.getBitmapFromMemoryCache(it) }
+            if (thumbnail == null && !file.isFolder && remoteId != null) {
+                ThumbnailsCacheManager.getBitmapFromCacheAsync(remoteId) { bitmapFromDisk ->
+                    val currentPosition = holder.bindingAdapterPosition
+                    if (bitmapFromDisk != null && fileIcon.tag == file.id && currentPosition != RecyclerView.NO_POSITION) {
+                        notifyItemChanged(currentPosition, PAYLOAD_THUMBNAIL_LOADED)
+                    }
+                }
+            }
 
             holder.itemView.findViewById<LinearLayout>(R.id.ListItemLayout)?.apply {
                 contentDescription = "LinearLayout-$name"
@@ -453,4 +475,9 @@ class FileListAdapter(
     enum class ViewType {
         LIST_ITEM, GRID_IMAGE, GRID_ITEM, FOOTER
     }
+
+    companion object {
+        // Rebinding with a payload avoids the change animation when a thumbnail is read from disk
+        private const val PAYLOAD_THUMBNAIL_LOADED = "PAYLOAD_THUMBNAIL_LOADED"
+    }
 }
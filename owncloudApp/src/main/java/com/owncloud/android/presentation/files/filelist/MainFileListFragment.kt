@@ -115,6 +115,7 @@ import com.owncloud.android.presentation.files.renamefile.RenameFileDialogFragme
 import com.owncloud.android.presentation.spaces.SpacesListViewModel
 import com.owncloud.android.presentation.thumbnails.ThumbnailsRequester
 import com.owncloud.android.presentation.transfers.TransfersViewModel
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
 import com.owncloud.android.ui.activity.FileActivity
 import com.owncloud.android.ui.activity.FileDisplayActivity
 import com.owncloud.android.ui.activity.FolderPickerActivity
@@ -124,6 +125,7 @@ import com.owncloud.android.utils.PreferenceUtils
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import okio.Path.Companion.toPath
+import org.koin.android.ext.android.inject
 import org.koin.androidx.viewmodel.ext.android.sharedViewModel
 import org.koin.androidx.viewmodel.ext.android.viewModel
 import org.koin.core.parameter.parametersOf
@@ -158,6 +160,7 @@ class MainFileListFragment : Fragment(),
             requireArguments().getString(ARG_ACCOUNT_NAME),
         )
     }
+    private val coroutinesDispatcherProvider: CoroutinesDispatcherProvider by inject()
 
     private var _binding: MainFileListFragmentBinding? = null
     private val binding get() = _binding!!
@@ -385,6 +388,7 @@ class MainFileListFragment : Fragment(),
             layoutManager = layoutManager,
             isPickerMode = isPickingAFolder(),
             listener = this@MainFileListFragment,
+            coroutinesDispatcherProvider = coroutinesDispatcherProvider,
         )
 
         binding.recyclerViewMainFileList.adapter = fileListAdapter
@@ -836,6 +840,10 @@ class MainFileListFragment : Fragment(),
             binding.syncProgressBar.isIndeterminate = it.peekContent().isLoading
             binding.swipeRefreshMainFileList.isRefreshing = it.peekContent().isLoading
 
+            if (it.peekContent() is UIResult.Success) {
+                mainFileListViewModel.prefetchThumbnails()
+            }
+
             // Refresh the spaces and update the quota
             spacesListViewModel.refreshSpacesFromServer()
 
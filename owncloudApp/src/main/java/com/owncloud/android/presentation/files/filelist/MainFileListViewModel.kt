@@ -53,11 +53,13 @@ import com.owncloud.android.presentation.files.SortOrder.Companion.PREF_FILE_LIS
 import com.owncloud.android.presentation.files.SortType
 import com.owncloud.android.presentation.files.SortType.Companion.PREF_FILE_LIST_SORT_TYPE
 import com.owncloud.android.presentation.settings.advanced.SettingsAdvancedFragment.Companion.PREF_SHOW_HIDDEN_FILES
+import com.owncloud.android.presentation.thumbnails.ThumbnailsPrefetcher
 import com.owncloud.android.providers.ContextProvider
 import com.owncloud.android.providers.CoroutinesDispatcherProvider
 import com.owncloud.android.usecases.files.FilterFileMenuOptionsUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_CONTENTS
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
@@ -65,10 +67,12 @@ import kotlinx.coroutines.flow.SharedFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flowOf
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.stateIn
 import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
@@ -90,6 +94,7 @@ class MainFileListViewModel(
     private val contextProvider: ContextProvider,
     private val coroutinesDispatcherProvider: CoroutinesDispatcherProvider,
     private val sharedPreferencesProvider: SharedPreferencesProvider,
+    private val thumbnailsPrefetcher: ThumbnailsPrefetcher,
     initialFolderToDisplay: OCFile,
     fileListOptionParam: FileListOption,
 ) : ViewModel() {
@@ -118,24 +123,25 @@ class MainFileListViewModel(
     private val _appRegistryMimeTypeSingleFile: MutableSharedFlow<AppRegistryMimeType?> = MutableSharedFlow()
     val appRegistryMimeTypeSingleFile: SharedFlow<AppRegistryMimeType?> = _appRegistryMimeTypeSingleFile
 
-    /** File list ui state combines the other fields and generate a new state whenever any of them changes */
+    /**
+     * File list ui state combines the other fields and generate a new state whenever any of them changes.
+     * Folder content is sorted only when it or the sort order changes, and the search filter is debounced and
+     * applied incrementally on top of the sorted list, all of it out of the main thread.
+     */
     val fileListUiState: StateFlow<FileListUiState> =
         combine(
             currentFolderDisplayed,
             fileListOption,
-            searchFilter,
-            sortTypeAndOrder,
             space,
-        ) { currentFolderDisplayed, fileListOption, searchFilter, sortTypeAndOrder, space ->
+        ) { currentFolderDisplayed, fileListOption, space ->
             composeFileListUiStateForThisParams(
                 currentFolderDisplayed = currentFolderDisplayed,
                 fileListOption = fileListOption,
-                searchFilter = searchFilter,
-                sortTypeAndOrder = sortTypeAndOrder,
                 space = space,
             )
         }
             .flatMapLatest { it }
+            .flowOn(coroutinesDispatcherProvider.computation)
             .stateIn(
                 scope = viewModelScope,
                 started = SharingStarted.WhileSubscribed(5_000),
@@ -151,6 +157,8 @@ class MainFileListViewModel(
     private val _menuOptionsSingleFile: MutableSharedFlow<List<FileMenuOption>> = MutableSharedFlow()
     val menuOptionsSingleFile: SharedFlow<List<FileMenuOption>> = _menuOptionsSingleFile
 
+    private var thumbnailsPrefetchJob: Job? = null
+
     init {
         val sortTypeSelected = SortType.values()[sharedPreferencesProvider.getInt(PREF_FILE_LIST_SORT_TYPE, SortType.SORT_TYPE_BY_NAME.ordinal)]
         val sortOrderSelected =
@@ -166,6 +174,7 @@ class MainFileListViewModel(
                     syncMode = SYNC_CONTENTS,
                 )
             )
+            prefetchThumbnails()
         }
     }
 
@@ -263,7 +272,26 @@ class MainFileListViewModel(
         }
     }
 
+    /**
+     * Downloads in background the thumbnails that changed in the last refresh of the folder displayed. It is cancelled
+     * when another folder is displayed.
+     */
+    fun prefetchThumbnails() {
+        val folderToPrefetch = currentFolderDisplayed.value
+        thumbnailsPrefetchJob?.cancel()
+        thumbnailsPrefetchJob = viewModelScope.launch(coroutinesDispatcherProvider.io) {
+            val folderContent = retrieveFlowForAllFiles(folderToPrefetch, folderToPrefetch.owner).first()
+            thumbnailsPrefetcher.prefetchThumbnails(
+                folderContent = folderContent.map { it.file },
+                accountName = folderToPrefetch.owner,
+            )
+        }
+    }
+
     fun updateFolderToDisplay(newFolderToDisplay: OCFile) {
+        if (newFolderToDisplay.id != currentFolderDisplayed.value.id) {
+            thumbnailsPrefetchJob?.cancel()
+        }
         currentFolderDisplayed.update { newFolderToDisplay }
         searchFilter.update { "" }
         updateSpace()
@@ -365,8 +393,6 @@ class MainFileListViewModel(
     private fun composeFileListUiStateForThisParams(
         currentFolderDisplayed: OCFile,
         fileListOption: FileListOption,
-        searchFilter: String?,
-        sortTypeAndOrder: Pair<SortType, SortOrder>,
         space: OCSpace?,
     ): Flow<FileListUiState> =
         when (fileListOption) {
@@ -377,8 +403,6 @@ class MainFileListViewModel(
         }.toFileListUiState(
             currentFolderDisplayed,
             fileListOption,
-            searchFilter,
-            sortTypeAndOrder,
             space,
         )
 
@@ -424,22 +448,47 @@ class MainFileListViewModel(
     private fun Flow<List<OCFileWithSyncInfo>>.toFileListUiState(
         currentFolderDisplayed: OCFile,
         fileListOption: FileListOption,
-        searchFilter: String?,
-        sortTypeAndOrder: Pair<SortType, SortOrder>,
         space: OCSpace?,
-    ) = this.map { folderContent ->
-        FileListUiState.Success(
-            folderToDisplay = currentFolderDisplayed,
-            folderContent = folderContent.filter { fileWithSyncInfo ->
-                fileWithSyncInfo.file.fileName.contains(
-                    searchFilter ?: "",
-                    ignoreCase = true
-                ) && (showHiddenFiles || !fileWithSyncInfo.file.fileName.startsWith("."))
-            }.let { sortList(it, sortTypeAndOrder) },
-            fileListOption = fileListOption,
-            searchFilter = searchFilter,
-            space = space,
-        )
+    ): Flow<FileListUiState> {
+        val incrementalSearchFilter = IncrementalSearchFilter()
+        return combine(this, sortTypeAndOrder) { folderContent, sortTypeAndOrder ->
+            sortList(
+                folderContent.filter { showHiddenFiles || !it.file.fileName.startsWith(".") },
+                sortTypeAndOrder
+            )
+        }.combine(
+            searchFilter.debounce { if (it.isEmpty()) 0L else SEARCH_FILTER_DEBOUNCE_MILLIS }
+        ) { sortedFolderContent, searchFilter ->
+            FileListUiState.Success(
+                folderToDisplay = currentFolderDisplayed,
+                folderContent = incrementalSearchFilter.filter(sortedFolderContent, searchFilter),
+                fileListOption = fileListOption,
+                searchFilter = searchFilter,
+                space = space,
+            )
+        }
+    }
+
+    /**
+     * Filters a sorted list by file name keeping its order. When the same list is filtered again with a query
+     * that extends the previous one, only the files that matched the previous query need to be checked.
+     */
+    private class IncrementalSearchFilter {
+        private var lastFiles: List<OCFileWithSyncInfo>? = null
+        private var lastSearchFilter: String = ""
+        private var lastResult: List<OCFileWithSyncInfo> = emptyList()
+
+        fun filter(files: List<OCFileWithSyncInfo>, searchFilter: String): List<OCFileWithSyncInfo> {
+            val candidates =
+                if (files === lastFiles && searchFilter.contains(lastSearchFilter, ignoreCase = true)) lastResult else files
+            val result =
+                if (searchFilter.isEmpty()) candidates
+                else candidates.filter { it.file.fileName.contains(searchFilter, ignoreCase = true) }
+            lastFiles = files
+            lastSearchFilter = searchFilter
+            lastResult = result
+            return result
+        }
     }
 
     sealed interface FileListUiState {
@@ -455,6 +504,7 @@ class MainFileListViewModel(
 
     companion object {
         private const val RECYCLER_VIEW_PREFERRED = "RECYCLER_VIEW_PREFERRED"
+        private const val SEARCH_FILTER_DEBOUNCE_MILLIS = 300L
     }
 }
 
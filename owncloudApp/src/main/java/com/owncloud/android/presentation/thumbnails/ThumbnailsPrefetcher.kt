@@ -0,0 +1,83 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.thumbnails
+
+import android.accounts.Account
+import com.owncloud.android.R
+import com.owncloud.android.datamodel.ThumbnailsCacheManager
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.presentation.authentication.AccountUtils
+import com.owncloud.android.providers.ContextProvider
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+
+/**
+ * Downloads the thumbnails of the images and videos of a folder that changed in the last refresh, so they are in the
+ * cache before the user scrolls to them.
+ *
+ * Only done on unmetered networks and up to [PREFETCH_BYTES_BUDGET] bytes per folder. Thumbnails are fetched in
+ * parallel batches, and cancelling the calling coroutine stops it after the batch in progress.
+ *
+ * @param prefetchThumbnail downloads the thumbnail of a file into the cache, returning the bytes downloaded.
+ */
+class ThumbnailsPrefetcher(
+    private val contextProvider: ContextProvider,
+    private val coroutinesDispatcherProvider: CoroutinesDispatcherProvider,
+    private val prefetchThumbnail: (OCFile, Account) -> Long = ThumbnailsCacheManager::prefetchThumbnail,
+) {
+
+    suspend fun prefetchThumbnails(folderContent: List<OCFile>, accountName: String) {
+        if (!contextProvider.getBoolean(R.bool.prefetch_thumbnails_on_unmetered_networks) ||
+            !contextProvider.isConnectedToUnmeteredNetwork()
+        ) {
+            return
+        }
+        val filesToPrefetch = folderContent.filter { it.needsToUpdateThumbnail && (it.isImage || it.isVideo) && it.remoteId != null }
+        if (filesToPrefetch.isEmpty()) {
+            return
+        }
+        val account = AccountUtils.getOwnCloudAccountByName(contextProvider.getContext(), accountName) ?: return
+
+        withContext(coroutinesDispatcherProvider.io) {
+            var downloadedBytes = 0L
+            var prefetchedFiles = 0
+            for (batch in filesToPrefetch.chunked(PARALLEL_PREFETCHES)) {
+                ensureActive()
+                if (downloadedBytes >= PREFETCH_BYTES_BUDGET) {
+                    Timber.d("Thumbnails prefetch budget exhausted after $prefetchedFiles of ${filesToPrefetch.size} files")
+                    break
+                }
+                downloadedBytes += batch.map { file ->
+                    async { prefetchThumbnail(file, account) }
+                }.awaitAll().sum()
+                prefetchedFiles += batch.size
+            }
+            Timber.d("Prefetched $prefetchedFiles thumbnails, $downloadedBytes bytes downloaded")
+        }
+    }
+
+    companion object {
+        internal const val PARALLEL_PREFETCHES = 4
+        internal const val PREFETCH_BYTES_BUDGET = 20L * 1024 * 1024 // 20MB
+    }
+}
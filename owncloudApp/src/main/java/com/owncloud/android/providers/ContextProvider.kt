@@ -30,4 +30,5 @@ interface ContextProvider {
     fun getInt(id: Int): Int
     fun getContext(): Context
     fun isConnected(): Boolean
+    fun isConnectedToUnmeteredNetwork(): Boolean
 }
@@ -36,4 +36,6 @@ class OCContextProvider(private val context: Context) : ContextProvider {
     override fun getContext(): Context = context
 
     override fun isConnected(): Boolean = ConnectivityUtils.isAppConnected(context)
+
+    override fun isConnectedToUnmeteredNetwork(): Boolean = ConnectivityUtils.isAppConnectedToUnmeteredNetwork(context)
 }
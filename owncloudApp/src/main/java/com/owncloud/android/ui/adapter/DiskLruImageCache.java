@@ -96,6 +96,65 @@ public class DiskLruImageCache {
         }
     }
 
+    /**
+     * Puts an image already encoded, copying it as it is, without decoding it.
+     *
+     * @return true if the image was put in the cache
+     */
+    public boolean put(String key, InputStream data) {
+        DiskLruCache.Editor editor = null;
+        String validKey = convertToValidKey(key);
+        try {
+            editor = mDiskCache.edit(validKey);
+            if (editor == null) {
+                return false;
+            }
+            try (OutputStream out = new BufferedOutputStream(editor.newOutputStream(0), IO_BUFFER_SIZE)) {
+                byte[] buffer = new byte[IO_BUFFER_SIZE];
+                int read;
+                while ((read = data.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            editor.commit();
+            mDiskCache.flush();
+            return true;
+        } catch (IOException e) {
+            Timber.w(e, "Encoded image could not be put on disk cache %s", validKey);
+            try {
+                if (editor != null) {
+                    editor.abort();
+                }
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the file with the encoded image of the key, so it can be read without decoding it here. The entry may
+     * be evicted later, but a file already opened can still be read until it is closed.
+     */
+    public File getFile(String key) {
+        DiskLruCache.Snapshot snapshot = null;
+        String validKey = convertToValidKey(key);
+        try {
+            // Reading the entry also marks it as recently used
+            snapshot = mDiskCache.get(validKey);
+            if (snapshot == null) {
+                return null;
+            }
+        } catch (IOException e) {
+            Timber.e(e);
+            return null;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+        return new File(mDiskCache.getDirectory(), validKey + "." + 0);
+    }
+
     public Bitmap getBitmap(String key) {
 
         Bitmap bitmap = null;
@@ -147,8 +147,8 @@ public class ReceiveExternalFilesAdapter extends BaseAdapter implements ListAdap
 
         // get Thumbnail if file is image
         if (file.isImage() && file.getRemoteId() != null) {
-            // Thumbnail in Cache?
-            Bitmap thumbnail = ThumbnailsCacheManager.getBitmapFromDiskCache(
+            // Thumbnail in memory? The generation task looks for it in disk otherwise
+            Bitmap thumbnail = ThumbnailsCacheManager.getBitmapFromMemoryCache(
                     String.valueOf(file.getRemoteId())
             );
             if (thumbnail != null && !file.getNeedsToUpdateThumbnail()) {
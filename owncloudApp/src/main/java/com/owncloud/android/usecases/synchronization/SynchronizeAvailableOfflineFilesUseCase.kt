@@ -0,0 +1,119 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.usecases.synchronization
+
+import com.owncloud.android.domain.BaseUseCaseWithResult
+import com.owncloud.android.domain.files.FileRepository
+import com.owncloud.android.domain.files.model.OCFile
+import timber.log.Timber
+
+/**
+ * Synchronizes available offline files checking their state in the server with a single Depth-1 PROPFIND per parent
+ * folder, instead of one per file. Only the files that changed locally or remotely, or that are not downloaded yet,
+ * go through [SynchronizeFileUseCase], which enqueues the download or upload.
+ *
+ * The listing is read in batches while it is received and only the entries of the available offline files are kept,
+ * so a big folder with a few available offline files does not need to fit in memory.
+ *
+ * Files alone in their folder are synchronized as before, reading just that file is cheaper than listing the folder.
+ */
+class SynchronizeAvailableOfflineFilesUseCase(
+    private val synchronizeFileUseCase: SynchronizeFileUseCase,
+    private val fileRepository: FileRepository,
+) : BaseUseCaseWithResult<SynchronizeAvailableOfflineFilesUseCase.SyncStats, SynchronizeAvailableOfflineFilesUseCase.Params>() {
+
+    override fun run(params: Params): SyncStats {
+        var requests = 0
+        var synchronizedFiles = 0
+
+        val filesByParentFolder = params.filesToSynchronize
+            .filterNot { it.isFolder }
+            .groupBy { ParentFolder(accountName = it.owner, spaceId = it.spaceId, remotePath = it.getParentRemotePath()) }
+
+        for ((parentFolder, files) in filesByParentFolder) {
+            if (params.isCancelled()) break
+
+            val filesToSynchronize = if (files.size == 1) {
+                files
+            } else {
+                val remoteFiles = try {
+                    requests++
+                    readAvailableOfflineFilesInFolder(parentFolder, files)
+                } catch (exception: Exception) {
+                    Timber.w(exception, "Could not list ${parentFolder.remotePath}, its files will be checked one by one")
+                    null
+                }
+                remoteFiles?.let { files.filter { file -> needsToBeSynchronized(file, remoteFiles[file.remotePath]) } } ?: files
+            }
+
+            filesToSynchronize.forEach { file ->
+                // Reads the file again, so a file that is not in the folder listing is removed or moved as before
+                requests++
+                synchronizedFiles++
+                synchronizeFileUseCase(SynchronizeFileUseCase.Params(file))
+            }
+        }
+
+        return SyncStats(
+            checkedFiles = filesByParentFolder.values.sumOf { it.size },
+            synchronizedFiles = synchronizedFiles,
+            requests = requests,
+        )
+    }
+
+    private fun readAvailableOfflineFilesInFolder(parentFolder: ParentFolder, files: List<OCFile>): Map<String, OCFile> {
+        val availableOfflinePaths = files.mapTo(HashSet(files.size)) { it.remotePath }
+        val remoteFiles = HashMap<String, OCFile>(files.size)
+        fileRepository.readFolderInBatches(
+            remotePath = parentFolder.remotePath,
+            accountName = parentFolder.accountName,
+            spaceId = parentFolder.spaceId,
+        ) { remoteFilesBatch ->
+            remoteFilesBatch.filter { it.remotePath in availableOfflinePaths }.associateByTo(remoteFiles) { it.remotePath }
+        }
+        return remoteFiles
+    }
+
+    private fun needsToBeSynchronized(localFile: OCFile, remoteFile: OCFile?): Boolean {
+        if (remoteFile == null || !localFile.isAvailableLocally) return true
+        val changedRemotely = remoteFile.etag != localFile.etag
+        val changedLocally = localFile.localModificationTimestamp > (localFile.lastSyncDateForData ?: 0)
+        return changedRemotely || changedLocally
+    }
+
+    private data class ParentFolder(
+        val accountName: String,
+        val spaceId: String?,
+        val remotePath: String,
+    )
+
+    data class Params(
+        val filesToSynchronize: List<OCFile>,
+        val isCancelled: () -> Boolean = { false },
+    )
+
+    /**
+     * @property requests requests sent to the server to check the files, each synchronized file reads itself again.
+     */
+    data class SyncStats(
+        val checkedFiles: Int,
+        val synchronizedFiles: Int,
+        val requests: Int,
+    )
+}
@@ -26,52 +26,253 @@ import com.owncloud.android.domain.files.FileRepository
 import com.owncloud.android.domain.files.model.OCFile
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.REFRESH_FOLDER_RECURSIVELY
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_CONTENTS
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_INCREMENTALLY
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_RECURSIVELY
+import timber.log.Timber
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
+/**
+ * Synchronizes a folder and, depending on the [SyncFolderMode], its subfolders.
+ *
+ * Subfolders are walked with a work queue: sibling folders are refreshed concurrently by up to [Params.parallelism]
+ * threads, on top of the per account limit of concurrent requests of the client. The requested folder is always
+ * refreshed in the calling thread, so its errors are returned as the result of the use case, while errors in
+ * subfolders are logged and do not stop the walk.
+ *
+ * When synchronizing incrementally, tree etags work as checkpoints: the walk only descends into subfolders whose etag
+ * in the server differs from their tree etag, so unchanged subtrees are not listed at all, and subtrees left halfway by
+ * an interrupted walk are resumed in the next one even if their etag did not change since. Tree etags only reflect
+ * changes in the server, so the files modified locally under the folder are looked up in the database afterwards.
+ *
+ * Only incremental synchronizations write tree etags. Other modes refresh folders without synchronizing their files,
+ * so a checkpoint written by them would hide the pending changes from the next incremental synchronization. A folder
+ * whose files were synchronized in a walk does not get its checkpoint until a later walk finds nothing left to
+ * synchronize in it, since the downloads are only enqueued and may still fail.
+ */
 class SynchronizeFolderUseCase(
     private val synchronizeFileUseCase: SynchronizeFileUseCase,
     private val fileRepository: FileRepository,
 ) : BaseUseCaseWithResult<Unit, SynchronizeFolderUseCase.Params>() {
 
     override fun run(params: Params) {
-        val remotePath = params.remotePath
-        val accountName = params.accountName
+        val synchronizedFilePaths: MutableSet<String> = ConcurrentHashMap.newKeySet()
+
+        if (params.syncMode == SYNC_FOLDER_INCREMENTALLY && isTreeEtagUpToDate(params)) {
+            Timber.d("Tree etag of ${params.remotePath} did not change, nothing to synchronize from the server")
+        } else {
+            synchronizeFolderTree(params, synchronizedFilePaths)
+        }
+
+        if (params.syncMode == SYNC_FOLDER_INCREMENTALLY) {
+            synchronizeFilesModifiedLocally(params, synchronizedFilePaths)
+        }
+    }
+
+    private fun synchronizeFolderTree(params: Params, synchronizedFilePaths: MutableSet<String>) {
+        val rootNode = FolderNode(remotePath = params.remotePath, spaceId = params.spaceId, parent = null)
+        rootNode.subfolders = synchronizeFolder(rootNode, params, synchronizedFilePaths)
+
+        if (rootNode.subfolders.isEmpty()) {
+            onSubtreeCompleted(rootNode, params)
+            return
+        }
+
+        val executor = Executors.newFixedThreadPool(params.parallelism.coerceAtLeast(1))
+        val completionService = ExecutorCompletionService<FolderNode>(executor)
+        var pendingFolders = 0
+        var synchronizedFolders = 1
+
+        fun enqueueSubfolders(node: FolderNode) {
+            node.pendingSubfolders = node.subfolders.size
+            node.subfolders.forEach { subfolder ->
+                completionService.submit {
+                    subfolder.apply {
+                        subfolders = try {
+                            synchronizeFolder(this, params, synchronizedFilePaths)
+                        } catch (exception: Exception) {
+                            Timber.w(exception, "Folder $remotePath could not be synchronized")
+                            isComplete = false
+                            emptyList()
+                        }
+                    }
+                }
+                pendingFolders++
+            }
+        }
 
-        val folderContent = fileRepository.refreshFolder(
-            remotePath = remotePath,
-            accountName = accountName,
-            spaceId = params.spaceId,
+        try {
+            enqueueSubfolders(rootNode)
+            while (pendingFolders > 0) {
+                if (params.isCancelled()) {
+                    throw CancellationException("Synchronization of ${params.remotePath} cancelled")
+                }
+                val node = completionService.poll(CANCELLATION_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)?.get() ?: continue
+                pendingFolders--
+                synchronizedFolders++
+                if (node.subfolders.isEmpty()) {
+                    onSubtreeCompleted(node, params)
+                } else {
+                    enqueueSubfolders(node)
+                }
+                params.onProgress?.invoke(FolderSyncProgress(synchronizedFolders = synchronizedFolders, pendingFolders = pendingFolders))
+            }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    /**
+     * Refreshes a single folder, synchronizes the files in it when needed and returns the subfolders to walk next.
+     * The content of the folder is saved in batches while it is received from the server. Files are synchronized once
+     * the response has been read, since each of them sends its own request, and the listing still holds a request
+     * permit of the client while it is parsed.
+     */
+    private fun synchronizeFolder(node: FolderNode, params: Params, synchronizedFilePaths: MutableSet<String>): List<FolderNode> {
+        if (params.isCancelled()) {
+            throw CancellationException("Synchronization of ${node.remotePath} cancelled")
+        }
+
+        val previousTreeEtag = if (params.syncMode == SYNC_FOLDER_INCREMENTALLY) {
+            fileRepository.getFileByRemotePath(node.remotePath, params.accountName, node.spaceId)?.treeEtag
+        } else null
+
+        val subfolders = mutableListOf<FolderNode>()
+        val filesToSynchronize = mutableListOf<OCFile>()
+        fileRepository.refreshFolderInBatches(
+            remotePath = node.remotePath,
+            accountName = params.accountName,
+            spaceId = node.spaceId,
             isActionSetFolderAvailableOfflineOrSynchronize = params.isActionSetFolderAvailableOfflineOrSynchronize,
-        )
-
-        folderContent.forEach { ocFile ->
-            if (ocFile.isFolder) {
-                if (shouldSyncFolder(params.syncMode, ocFile)) {
-                    SynchronizeFolderUseCase(synchronizeFileUseCase, fileRepository)(
-                        Params(
-                            remotePath = ocFile.remotePath,
-                            accountName = accountName,
-                            spaceId = ocFile.spaceId,
-                            syncMode = params.syncMode,
-                            isActionSetFolderAvailableOfflineOrSynchronize = params.isActionSetFolderAvailableOfflineOrSynchronize,
-                        )
-                    )
+        ) { filesThatChanged ->
+            filesThatChanged.forEach { ocFile ->
+                if (ocFile.isFolder) {
+                    if (shouldSyncFolder(params.syncMode, ocFile)) {
+                        subfolders.add(FolderNode(remotePath = ocFile.remotePath, spaceId = ocFile.spaceId, parent = node))
+                    }
+                } else if (shouldSyncFile(params.syncMode, ocFile)) {
+                    filesToSynchronize.add(ocFile)
                 }
-            } else if (shouldSyncFile(params.syncMode, ocFile)) {
+            }
+        }
+
+        filesToSynchronize.forEach { ocFile ->
+            synchronizeFileUseCase(
+                SynchronizeFileUseCase.Params(
+                    fileToSynchronize = ocFile,
+                )
+            )
+            synchronizedFilePaths.add(ocFile.remotePath)
+        }
+        if (filesToSynchronize.isNotEmpty()) {
+            node.isComplete = false
+        }
+
+        if (!previousTreeEtag.isNullOrEmpty() &&
+            previousTreeEtag == fileRepository.getFileByRemotePath(node.remotePath, params.accountName, node.spaceId)?.etag
+        ) {
+            Timber.d("Tree etag of ${node.remotePath} did not change, skipping its subtree")
+            node.isTreeEtagUpToDate = true
+            return emptyList()
+        }
+
+        if (params.syncMode == SYNC_FOLDER_INCREMENTALLY) {
+            subfolders.addAll(getSubfoldersNotSynchronizedYet(node, params, subfolders))
+        }
+
+        return subfolders
+    }
+
+    /**
+     * Reads just the requested folder, without its content, to compare its etag in the server with its tree etag.
+     */
+    private fun isTreeEtagUpToDate(params: Params): Boolean {
+        val treeEtag = fileRepository.getFileByRemotePath(params.remotePath, params.accountName, params.spaceId)?.treeEtag
+        if (treeEtag.isNullOrEmpty()) return false
+        return treeEtag == fileRepository.readFile(params.remotePath, params.accountName, params.spaceId).etag
+    }
+
+    /**
+     * Files modified locally in subtrees that were skipped, or in the whole folder if it did not change in the server,
+     * are not returned by any refresh. The downloaded files under the folder are checked in the database instead.
+     */
+    private fun synchronizeFilesModifiedLocally(params: Params, synchronizedFilePaths: Set<String>) {
+        fileRepository.getDownloadedFilesUnderRemotePath(params.remotePath, params.accountName, params.spaceId)
+            .filter { ocFile ->
+                !ocFile.isFolder && ocFile.remotePath !in synchronizedFilePaths &&
+                        ocFile.localModificationTimestamp > (ocFile.lastSyncDateForData ?: 0)
+            }
+            .forEach { ocFile ->
+                if (params.isCancelled()) {
+                    throw CancellationException("Synchronization of ${params.remotePath} cancelled")
+                }
+                Timber.d("File ${ocFile.remotePath} was modified locally, synchronizing it")
                 synchronizeFileUseCase(
                     SynchronizeFileUseCase.Params(
                         fileToSynchronize = ocFile,
                     )
                 )
             }
+    }
+
+    /**
+     * Subfolders that did not change in the server are not returned by the refresh, but the ones whose subtree was not
+     * completely walked before, because the walk was interrupted or failed, still need to be synchronized.
+     */
+    private fun getSubfoldersNotSynchronizedYet(
+        node: FolderNode,
+        params: Params,
+        changedSubfolders: List<FolderNode>,
+    ): List<FolderNode> {
+        val folder = fileRepository.getFileByRemotePath(node.remotePath, params.accountName, node.spaceId) ?: return emptyList()
+        val changedPaths = changedSubfolders.map { it.remotePath }.toSet()
+        return fileRepository.getFolderContent(folder.id!!)
+            .filter { it.isFolder && it.treeEtag != it.etag && it.remotePath !in changedPaths }
+            .map { FolderNode(remotePath = it.remotePath, spaceId = it.spaceId, parent = node) }
+    }
+
+    /**
+     * Called in the coordinating thread when a folder and all its subfolders have been walked.
+     */
+    private fun onSubtreeCompleted(node: FolderNode, params: Params) {
+        if (params.syncMode == SYNC_FOLDER_INCREMENTALLY && node.isComplete && !node.isTreeEtagUpToDate) {
+            fileRepository.getFileByRemotePath(node.remotePath, params.accountName, node.spaceId)?.let { folder ->
+                fileRepository.saveFile(folder.copy(treeEtag = folder.etag))
+            }
+        }
+        val parent = node.parent ?: return
+        if (!node.isComplete) {
+            parent.isComplete = false
+        }
+        parent.pendingSubfolders--
+        if (parent.pendingSubfolders == 0) {
+            onSubtreeCompleted(parent, params)
         }
     }
 
     private fun shouldSyncFolder(syncMode: SyncFolderMode, ocFolder: OCFile) =
-        syncMode.isOneOf(REFRESH_FOLDER_RECURSIVELY, SYNC_FOLDER_RECURSIVELY) || syncMode == SYNC_CONTENTS && ocFolder.isAvailableOffline
+        syncMode.isOneOf(REFRESH_FOLDER_RECURSIVELY, SYNC_FOLDER_RECURSIVELY, SYNC_FOLDER_INCREMENTALLY) || syncMode == SYNC_CONTENTS && ocFolder.isAvailableOffline
 
     private fun shouldSyncFile(syncMode: SyncFolderMode, ocFile: OCFile) =
-        syncMode == SYNC_FOLDER_RECURSIVELY || (syncMode == SYNC_CONTENTS && (ocFile.isAvailableLocally || ocFile.isAvailableOffline))
+        syncMode.isOneOf(SYNC_FOLDER_RECURSIVELY, SYNC_FOLDER_INCREMENTALLY) || (syncMode == SYNC_CONTENTS && (ocFile.isAvailableLocally || ocFile.isAvailableOffline))
+
+    /**
+     * State of a folder in the walk. It is written by the thread refreshing the folder before its future completes,
+     * and only read and updated by the coordinating thread afterwards.
+     */
+    private class FolderNode(
+        val remotePath: String,
+        val spaceId: String?,
+        val parent: FolderNode?,
+    ) {
+        var subfolders: List<FolderNode> = emptyList()
+        var pendingSubfolders = 0
+        var isComplete = true
+        var isTreeEtagUpToDate = false
+    }
 
     data class Params(
         val remotePath: String,
@@ -79,6 +280,14 @@ class SynchronizeFolderUseCase(
         val spaceId: String? = null,
         val syncMode: SyncFolderMode,
         val isActionSetFolderAvailableOfflineOrSynchronize: Boolean = false,
+        val parallelism: Int = DEFAULT_PARALLELISM,
+        val isCancelled: () -> Boolean = { false },
+        val onProgress: ((FolderSyncProgress) -> Unit)? = null,
+    )
+
+    data class FolderSyncProgress(
+        val synchronizedFolders: Int,
+        val pendingFolders: Int,
     )
 
     /**
@@ -86,9 +295,15 @@ class SynchronizeFolderUseCase(
      * - REFRESH_FOLDER: To get the content when picking a folder.
      * - REFRESH_FOLDER_RECURSIVELY: To discover the full account content. Probably worthy to do when adding a new account.
      * - SYNC_CONTENTS: To refresh and also sync the already downloaded content to check if there were changes locally or remotely
-     * - SYNC_FOLDER_RECURSIVELY: Full folder synchronization. Probably also triggered in av. offline worker.
+     * - SYNC_FOLDER_RECURSIVELY: Full folder synchronization.
+     * - SYNC_FOLDER_INCREMENTALLY: Folder synchronization skipping the subtrees that did not change since the last one. Used by av. offline worker.
      */
     enum class SyncFolderMode {
-        REFRESH_FOLDER, REFRESH_FOLDER_RECURSIVELY, SYNC_CONTENTS, SYNC_FOLDER_RECURSIVELY;
+        REFRESH_FOLDER, REFRESH_FOLDER_RECURSIVELY, SYNC_CONTENTS, SYNC_FOLDER_RECURSIVELY, SYNC_FOLDER_INCREMENTALLY;
+    }
+
+    companion object {
+        const val DEFAULT_PARALLELISM = 4
+        private const val CANCELLATION_CHECK_INTERVAL_MILLIS = 500L
     }
 }
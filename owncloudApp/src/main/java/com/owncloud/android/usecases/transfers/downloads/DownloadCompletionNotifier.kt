@@ -0,0 +1,51 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.usecases.transfers.downloads
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Lets callers in the app process wait for the download of a file to finish, whichever worker downloads it, instead of
+ * polling the database until the file is available locally.
+ *
+ * [com.owncloud.android.workers.DownloadFileWorker] notifies every download that succeeds or fails for good. Downloads
+ * interrupted to be retried later are not notified, waiters keep waiting for the retry.
+ */
+class DownloadCompletionNotifier {
+
+    private val pendingDownloads = ConcurrentHashMap<Long, CompletableFuture<Boolean>>()
+
+    /**
+     * Must be called before enqueuing the download, so its end is not missed.
+     *
+     * @return future completed with true when the file is downloaded, or false if the download fails. It can be
+     * cancelled without affecting other waiters of the same file.
+     */
+    fun getDownloadCompletion(fileId: Long): CompletableFuture<Boolean> {
+        val sharedCompletion = pendingDownloads.computeIfAbsent(fileId) { CompletableFuture() }
+        return CompletableFuture<Boolean>().also { completion ->
+            sharedCompletion.thenAccept { isSuccess -> completion.complete(isSuccess) }
+        }
+    }
+
+    fun notifyDownloadFinished(fileId: Long, isSuccess: Boolean) {
+        pendingDownloads.remove(fileId)?.complete(isSuccess)
+    }
+}
@@ -24,6 +24,8 @@ package com.owncloud.android.usecases.transfers.uploads
 import androidx.work.WorkManager
 import com.owncloud.android.domain.BaseUseCase
 import com.owncloud.android.domain.transfers.TransferRepository
+import com.owncloud.android.extensions.getChunksFolderName
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import timber.log.Timber
 
 /**
@@ -33,11 +35,15 @@ import timber.log.Timber
 class CancelTransfersFromAccountUseCase(
     private val workManager: WorkManager,
     private val transferRepository: TransferRepository,
+    private val chunkedUploadStateStore: ChunkedUploadStateStore,
 ) : BaseUseCase<Unit, CancelTransfersFromAccountUseCase.Params>() {
 
     override fun run(params: Params) {
         workManager.cancelAllWorkByTag(params.accountName)
 
+        transferRepository.getAllTransfers()
+            .filter { it.accountName == params.accountName }
+            .forEach { chunkedUploadStateStore.clear(it.getChunksFolderName()) }
         transferRepository.deleteAllTransfersFromAccount(params.accountName)
 
         Timber.i("Uploads and downloads of ${params.accountName} have been cancelled.")
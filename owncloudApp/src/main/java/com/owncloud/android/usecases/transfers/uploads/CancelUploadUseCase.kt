@@ -26,7 +26,9 @@ import com.owncloud.android.data.providers.LocalStorageProvider
 import com.owncloud.android.domain.BaseUseCase
 import com.owncloud.android.domain.transfers.TransferRepository
 import com.owncloud.android.domain.transfers.model.OCTransfer
+import com.owncloud.android.extensions.getChunksFolderName
 import com.owncloud.android.extensions.getWorkInfoByTags
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import com.owncloud.android.workers.UploadFileFromContentUriWorker
 import com.owncloud.android.workers.UploadFileFromFileSystemWorker
 import timber.log.Timber
@@ -35,6 +37,7 @@ class CancelUploadUseCase(
     private val workManager: WorkManager,
     private val transferRepository: TransferRepository,
     private val localStorageProvider: LocalStorageProvider,
+    private val chunkedUploadStateStore: ChunkedUploadStateStore,
 ) : BaseUseCase<Unit, CancelUploadUseCase.Params>() {
 
     override fun run(params: Params) {
@@ -64,6 +67,7 @@ class CancelUploadUseCase(
         }
 
         localStorageProvider.deleteCacheIfNeeded(upload)
+        chunkedUploadStateStore.clear(upload.getChunksFolderName())
 
         transferRepository.deleteTransferById(upload.id!!)
     }
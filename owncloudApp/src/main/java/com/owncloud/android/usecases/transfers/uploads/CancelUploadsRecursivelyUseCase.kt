@@ -28,7 +28,9 @@ import com.owncloud.android.domain.files.model.OCFile
 import com.owncloud.android.domain.files.usecases.GetFolderContentUseCase
 import com.owncloud.android.domain.transfers.TransferRepository
 import com.owncloud.android.domain.transfers.model.OCTransfer
+import com.owncloud.android.extensions.getChunksFolderName
 import com.owncloud.android.extensions.getWorkInfoByTags
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import com.owncloud.android.workers.UploadFileFromContentUriWorker
 import com.owncloud.android.workers.UploadFileFromFileSystemWorker
 import timber.log.Timber
@@ -43,6 +45,7 @@ class CancelUploadsRecursivelyUseCase(
     private val transferRepository: TransferRepository,
     private val localStorageProvider: LocalStorageProvider,
     private val getFolderContentUseCase: GetFolderContentUseCase,
+    private val chunkedUploadStateStore: ChunkedUploadStateStore,
 ) : BaseUseCase<Unit, CancelUploadsRecursivelyUseCase.Params>() {
 
     private lateinit var currentAndPendingTransfers: List<OCTransfer>
@@ -93,6 +96,7 @@ class CancelUploadsRecursivelyUseCase(
                 }
 
                 localStorageProvider.deleteCacheIfNeeded(upload)
+                chunkedUploadStateStore.clear(upload.getChunksFolderName())
 
                 transferRepository.deleteTransferById(upload.id!!)
             }
@@ -24,17 +24,21 @@ import androidx.work.WorkManager
 import com.owncloud.android.data.providers.LocalStorageProvider
 import com.owncloud.android.domain.BaseUseCase
 import com.owncloud.android.domain.transfers.TransferRepository
+import com.owncloud.android.extensions.getChunksFolderName
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 
 class ClearFailedTransfersUseCase(
     private val workManager: WorkManager,
     private val transferRepository: TransferRepository,
     private val localStorageProvider: LocalStorageProvider,
+    private val chunkedUploadStateStore: ChunkedUploadStateStore,
 ) : BaseUseCase<Unit, Unit>() {
     override fun run(params: Unit) {
         val failedTransfers = transferRepository.getFailedTransfers()
         failedTransfers.forEach { failedTransfer ->
             workManager.cancelAllWorkByTag(failedTransfer.id.toString())
             localStorageProvider.deleteCacheIfNeeded(failedTransfer)
+            chunkedUploadStateStore.clear(failedTransfer.getChunksFolderName())
         }
         transferRepository.clearFailedTransfers()
     }
@@ -0,0 +1,75 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.usecases.transfers.uploads
+
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.workDataOf
+import com.owncloud.android.domain.BaseUseCase
+import com.owncloud.android.domain.transfers.model.UploadEnqueuedBy
+import com.owncloud.android.workers.AutomaticUploadsQueueWorker
+import timber.log.Timber
+
+/**
+ * Starts draining the queued automatic uploads of one kind, pictures or videos, with the constraints of its
+ * configuration. A previous drain of the same kind is replaced, so the constraints are always the current ones. The
+ * uploads it already handed to WorkManager are not affected. A continuation, enqueued by a drain that ran out of time,
+ * runs after it instead.
+ */
+class EnqueueAutomaticUploadsQueueUseCase(
+    private val workManager: WorkManager
+) : BaseUseCase<Unit, EnqueueAutomaticUploadsQueueUseCase.Params>() {
+
+    override fun run(params: Params) {
+        val inputData = workDataOf(
+            AutomaticUploadsQueueWorker.KEY_PARAM_ENQUEUED_BY to params.enqueuedBy.name,
+            AutomaticUploadsQueueWorker.KEY_PARAM_WIFI_ONLY to params.wifiOnly,
+            AutomaticUploadsQueueWorker.KEY_PARAM_CHARGING_ONLY to params.chargingOnly,
+        )
+
+        val networkRequired = if (params.wifiOnly) NetworkType.UNMETERED else NetworkType.CONNECTED
+        val constraints = Constraints.Builder()
+            .setRequiredNetworkType(networkRequired)
+            .setRequiresCharging(params.chargingOnly)
+            .build()
+
+        val automaticUploadsQueueWorker = OneTimeWorkRequestBuilder<AutomaticUploadsQueueWorker>()
+            .setInputData(inputData)
+            .setConstraints(constraints)
+            .build()
+
+        workManager.enqueueUniqueWork(
+            AutomaticUploadsQueueWorker.getUniqueWorkName(params.enqueuedBy),
+            if (params.isContinuation) ExistingWorkPolicy.APPEND_OR_REPLACE else ExistingWorkPolicy.REPLACE,
+            automaticUploadsQueueWorker
+        )
+
+        Timber.i("Queue of ${params.enqueuedBy} uploads has been enqueued.")
+    }
+
+    data class Params(
+        val enqueuedBy: UploadEnqueuedBy,
+        val wifiOnly: Boolean,
+        val chargingOnly: Boolean,
+        val isContinuation: Boolean = false,
+    )
+}
@@ -62,6 +62,7 @@ class UploadFileFromContentUriUseCase(
             .setConstraints(constraints)
             .addTag(params.accountName)
             .addTag(params.uploadIdInStorageManager.toString())
+            .apply { params.queueTag?.let { addTag(it) } }
             .build()
 
         val behavior = UploadBehavior.fromString(params.behavior)
@@ -88,5 +89,6 @@ class UploadFileFromContentUriUseCase(
         val uploadIdInStorageManager: Long,
         val wifiOnly: Boolean,
         val chargingOnly: Boolean,
+        val queueTag: String? = null,
     )
 }
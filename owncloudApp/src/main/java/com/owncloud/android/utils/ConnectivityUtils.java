@@ -21,6 +21,7 @@ package com.owncloud.android.utils;
 
 import android.content.Context;
 import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
 
 import timber.log.Timber;
@@ -42,6 +43,12 @@ public class ConnectivityUtils {
         return cm.getActiveNetworkInfo() != null && cm.getActiveNetworkInfo().isConnected();
     }
 
+    public static boolean isAppConnectedToUnmeteredNetwork(Context context) {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkCapabilities capabilities = cm == null ? null : cm.getNetworkCapabilities(cm.getActiveNetwork());
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
     public static boolean isNetworkActive(Context context) {
 
         ConnectivityManager cm = (ConnectivityManager) context.
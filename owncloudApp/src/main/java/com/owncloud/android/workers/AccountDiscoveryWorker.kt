@@ -25,6 +25,7 @@ package com.owncloud.android.workers
 import android.content.Context
 import androidx.work.CoroutineWorker
 import androidx.work.WorkerParameters
+import androidx.work.workDataOf
 import com.owncloud.android.domain.capabilities.usecases.GetStoredCapabilitiesUseCase
 import com.owncloud.android.domain.files.model.OCFile
 import com.owncloud.android.domain.files.model.OCFile.Companion.ROOT_PATH
@@ -110,12 +111,23 @@ class AccountDiscoveryWorker(
                 accountName = folder.owner,
                 remotePath = folder.remotePath,
                 spaceId = folder.spaceId,
-                syncMode = SynchronizeFolderUseCase.SyncFolderMode.REFRESH_FOLDER_RECURSIVELY
+                syncMode = SynchronizeFolderUseCase.SyncFolderMode.REFRESH_FOLDER_RECURSIVELY,
+                isCancelled = { isStopped },
+                onProgress = { progress ->
+                    setProgressAsync(
+                        workDataOf(
+                            WORKER_KEY_SYNCHRONIZED_FOLDERS to progress.synchronizedFolders,
+                            WORKER_KEY_PENDING_FOLDERS to progress.pendingFolders,
+                        )
+                    )
+                },
             )
         )
     }
 
     companion object {
         const val KEY_PARAM_DISCOVERY_ACCOUNT = "KEY_PARAM_DISCOVERY_ACCOUNT"
+        const val WORKER_KEY_SYNCHRONIZED_FOLDERS = "KEY_SYNCHRONIZED_FOLDERS"
+        const val WORKER_KEY_PENDING_FOLDERS = "KEY_PENDING_FOLDERS"
     }
 }
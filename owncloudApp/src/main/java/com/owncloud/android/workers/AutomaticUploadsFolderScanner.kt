@@ -0,0 +1,108 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import android.content.ContentResolver
+import android.database.Cursor
+import android.net.Uri
+import android.provider.DocumentsContract
+import android.provider.DocumentsContract.Document
+import com.owncloud.android.utils.MimetypeIconUtil
+import timber.log.Timber
+
+/**
+ * Finds the files of a source folder of automatic uploads that were modified in a given period, reading the name,
+ * last modification and size of all the children with a single query to the documents provider.
+ *
+ * Listing the folder with [androidx.documentfile.provider.DocumentFile] needs an extra query to the provider for every
+ * property read from every file, which is too much for camera folders with tens of thousands of pictures.
+ */
+class AutomaticUploadsFolderScanner(
+    private val contentResolver: ContentResolver,
+) {
+
+    data class LocalFile(
+        val uri: Uri,
+        val name: String,
+        val lastModified: Long,
+        val length: Long,
+    )
+
+    /**
+     * @return files in the folder [treeUri] whose type starts with [mimeTypePrefix] and that were modified from
+     * [fromTimestamp] (included) to [toTimestamp] (excluded), sorted by last modification.
+     */
+    fun getFilesModifiedBetween(
+        treeUri: Uri,
+        mimeTypePrefix: String,
+        fromTimestamp: Long,
+        toTimestamp: Long,
+    ): List<LocalFile> {
+        val childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, DocumentsContract.getTreeDocumentId(treeUri))
+        val localFiles = ArrayList<LocalFile>()
+        try {
+            // Documents providers do not have to honor selections, so the period is checked while reading the rows
+            contentResolver.query(childrenUri, CHILDREN_PROJECTION, null, null, null)?.use { cursor ->
+                while (cursor.moveToNext()) {
+                    cursor.toLocalFileIfModifiedBetween(treeUri, mimeTypePrefix, fromTimestamp, toTimestamp)?.let { localFiles.add(it) }
+                }
+                Timber.i("${cursor.count} files found in folder: ${treeUri.path}")
+            }
+        } catch (e: Exception) {
+            Timber.w(e, "Failed query to list the folder $treeUri")
+        }
+        localFiles.sortBy { it.lastModified }
+        return localFiles
+    }
+
+    private fun Cursor.toLocalFileIfModifiedBetween(
+        treeUri: Uri,
+        mimeTypePrefix: String,
+        fromTimestamp: Long,
+        toTimestamp: Long,
+    ): LocalFile? {
+        val lastModified = getLong(COLUMN_INDEX_LAST_MODIFIED)
+        if (lastModified < fromTimestamp || lastModified >= toTimestamp) return null
+        if (getString(COLUMN_INDEX_MIME_TYPE) == Document.MIME_TYPE_DIR) return null
+        val name = getString(COLUMN_INDEX_DISPLAY_NAME) ?: return null
+        if (!MimetypeIconUtil.getBestMimeTypeByFilename(name).startsWith(mimeTypePrefix)) return null
+
+        return LocalFile(
+            uri = DocumentsContract.buildDocumentUriUsingTree(treeUri, getString(COLUMN_INDEX_DOCUMENT_ID)),
+            name = name,
+            lastModified = lastModified,
+            length = getLong(COLUMN_INDEX_SIZE),
+        )
+    }
+
+    companion object {
+        private val CHILDREN_PROJECTION = arrayOf(
+            Document.COLUMN_DOCUMENT_ID,
+            Document.COLUMN_DISPLAY_NAME,
+            Document.COLUMN_LAST_MODIFIED,
+            Document.COLUMN_SIZE,
+            Document.COLUMN_MIME_TYPE,
+        )
+        private const val COLUMN_INDEX_DOCUMENT_ID = 0
+        private const val COLUMN_INDEX_DISPLAY_NAME = 1
+        private const val COLUMN_INDEX_LAST_MODIFIED = 2
+        private const val COLUMN_INDEX_SIZE = 3
+        private const val COLUMN_INDEX_MIME_TYPE = 4
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.collect
+import kotlinx.coroutines.flow.takeWhile
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.TimeUnit
+
+/**
+ * Hands queued uploads over to WorkManager as the pending ones finish, keeping at most [concurrency] of them pending,
+ * during a window of [windowMillis]. WorkManager stops a worker after 10 minutes, so a long queue is drained in
+ * several windows, each one in a new run of [AutomaticUploadsQueueWorker].
+ *
+ * @param handOverNextUploads hands over up to the given number of queued uploads, returning how many it did.
+ */
+class AutomaticUploadsQueueDrain(
+    private val concurrency: Int,
+    private val windowMillis: Long = QUEUE_WINDOW_MILLIS,
+    private val handOverNextUploads: (maxUploads: Int) -> Int,
+) {
+    var uploadsHandedOver = 0
+        private set
+
+    /**
+     * @param pendingUploads number of handed over uploads pending in WorkManager, emitted every time it changes.
+     * @return 'true' if the queue is empty and no upload is pending anymore, 'false' if the window closed before.
+     */
+    suspend fun drain(pendingUploads: Flow<Int>): Boolean {
+        var isDrained = false
+        withTimeoutOrNull(windowMillis) {
+            pendingUploads
+                .takeWhile { pending ->
+                    val freeSlots = concurrency - pending
+                    val newUploads = if (freeSlots > 0) handOverNextUploads(freeSlots) else 0
+                    uploadsHandedOver += newUploads
+                    isDrained = newUploads == 0 && pending == 0
+                    !isDrained
+                }
+                .collect()
+        }
+        return isDrained
+    }
+
+    companion object {
+        // Leaves some margin to the 10 minutes limit for the last hand over and the next run to be enqueued
+        val QUEUE_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(8)
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import android.content.Context
+import androidx.core.net.toUri
+import androidx.documentfile.provider.DocumentFile
+import androidx.lifecycle.asFlow
+import androidx.work.CoroutineWorker
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.owncloud.android.R
+import com.owncloud.android.domain.transfers.TransferRepository
+import com.owncloud.android.domain.transfers.model.OCTransfer
+import com.owncloud.android.domain.transfers.model.TransferStatus
+import com.owncloud.android.domain.transfers.model.UploadEnqueuedBy
+import com.owncloud.android.extensions.PENDING_WORK_STATUS
+import com.owncloud.android.extensions.buildWorkQuery
+import com.owncloud.android.extensions.getWorkInfoByTags
+import com.owncloud.android.usecases.transfers.uploads.EnqueueAutomaticUploadsQueueUseCase
+import com.owncloud.android.usecases.transfers.uploads.UploadFileFromContentUriUseCase
+import kotlinx.coroutines.flow.map
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
+import timber.log.Timber
+
+/**
+ * Drains the automatic uploads of one kind that are queued in the transfers database, handing them to WorkManager a
+ * few at a time. No more than [R.integer.automatic_uploads_queue_concurrency] of them are pending in WorkManager at
+ * once, the next ones are handed over as those finish, so a backlog of thousands of pictures does not turn into
+ * thousands of jobs.
+ *
+ * This worker runs with the network and charging constraints of the automatic uploads configuration, so the queue
+ * stops being drained as soon as they are not met. Each run drains the queue for a window shorter than the execution
+ * limit of WorkManager, and enqueues the next run if the queue is not drained by then.
+ */
+class AutomaticUploadsQueueWorker(
+    private val appContext: Context,
+    workerParameters: WorkerParameters
+) : CoroutineWorker(
+    appContext,
+    workerParameters
+), KoinComponent {
+
+    private val transferRepository: TransferRepository by inject()
+
+    private val queuedTransfers = ArrayDeque<OCTransfer>()
+
+    override suspend fun doWork(): Result {
+        val enqueuedBy = inputData.getString(KEY_PARAM_ENQUEUED_BY)?.let { UploadEnqueuedBy.valueOf(it) } ?: return Result.failure()
+        val wifiOnly = inputData.getBoolean(KEY_PARAM_WIFI_ONLY, false)
+        val chargingOnly = inputData.getBoolean(KEY_PARAM_CHARGING_ONLY, false)
+        val concurrency = appContext.resources.getInteger(R.integer.automatic_uploads_queue_concurrency)
+        val workManager = WorkManager.getInstance(appContext)
+        val queueTag = getQueueTag(enqueuedBy)
+
+        Timber.i("Starting AutomaticUploadsQueueWorker for $enqueuedBy with UUID ${this.id}")
+        val queueDrain = AutomaticUploadsQueueDrain(concurrency) { maxUploads ->
+            handOverNextUploads(workManager, enqueuedBy, queueTag, maxUploads, wifiOnly, chargingOnly)
+        }
+        val isDrained = queueDrain.drain(
+            workManager.getWorkInfosLiveData(buildWorkQuery(tags = listOf(queueTag), states = PENDING_WORK_STATUS)).asFlow()
+                .map { pendingUploads -> pendingUploads.size }
+        )
+        if (!isDrained) {
+            // The next run starts once this one finishes, with the uploads already handed over still pending
+            EnqueueAutomaticUploadsQueueUseCase(workManager)(
+                EnqueueAutomaticUploadsQueueUseCase.Params(
+                    enqueuedBy = enqueuedBy,
+                    wifiOnly = wifiOnly,
+                    chargingOnly = chargingOnly,
+                    isContinuation = true,
+                )
+            )
+        }
+        Timber.i(
+            "Finishing AutomaticUploadsQueueWorker for $enqueuedBy, ${queueDrain.uploadsHandedOver} uploads handed over, " +
+                    if (isDrained) "queue drained" else "queue handed over to the next run"
+        )
+
+        return Result.success()
+    }
+
+    /**
+     * @return number of uploads handed over to WorkManager, at most [maxUploads].
+     */
+    private fun handOverNextUploads(
+        workManager: WorkManager,
+        enqueuedBy: UploadEnqueuedBy,
+        queueTag: String,
+        maxUploads: Int,
+        wifiOnly: Boolean,
+        chargingOnly: Boolean,
+    ): Int {
+        var uploadsHandedOver = 0
+        var isQueueReloaded = false
+        while (uploadsHandedOver < maxUploads) {
+            if (queuedTransfers.isEmpty()) {
+                // Uploads may have been queued since the last time, read the queue again once
+                if (isQueueReloaded) break
+                queuedTransfers.addAll(
+                    transferRepository.getCurrentAndPendingTransfers()
+                        .filter { it.status == TransferStatus.TRANSFER_QUEUED && it.createdBy == enqueuedBy }
+                        .sortedBy { it.id }
+                )
+                isQueueReloaded = true
+                if (queuedTransfers.isEmpty()) break
+            }
+            val transfer = transferRepository.getTransferById(queuedTransfers.removeFirst().id!!) ?: continue
+            if (transfer.status != TransferStatus.TRANSFER_QUEUED || hasPendingWorker(workManager, transfer)) continue
+
+            val contentUri = transfer.localPath.toUri()
+            val lastModified = DocumentFile.fromSingleUri(appContext, contentUri)?.lastModified() ?: 0L
+            UploadFileFromContentUriUseCase(workManager)(
+                UploadFileFromContentUriUseCase.Params(
+                    accountName = transfer.accountName,
+                    contentUri = contentUri,
+                    lastModifiedInSeconds = (lastModified / 1000L).toString(),
+                    behavior = transfer.localBehaviour.toString(),
+                    uploadPath = transfer.remotePath,
+                    uploadIdInStorageManager = transfer.id!!,
+                    wifiOnly = wifiOnly,
+                    chargingOnly = chargingOnly,
+                    queueTag = queueTag,
+                )
+            )
+            uploadsHandedOver++
+        }
+        return uploadsHandedOver
+    }
+
+    /**
+     * Uploads handed over in a previous run, or retried by the user, are already pending in WorkManager.
+     */
+    private fun hasPendingWorker(workManager: WorkManager, transfer: OCTransfer): Boolean =
+        workManager.getWorkInfoByTags(
+            listOf(
+                transfer.id.toString(),
+                transfer.accountName,
+                UploadFileFromContentUriWorker::class.java.name
+            )
+        ).any { !it.state.isFinished }
+
+    companion object {
+        const val KEY_PARAM_ENQUEUED_BY = "KEY_PARAM_ENQUEUED_BY"
+        const val KEY_PARAM_WIFI_ONLY = "KEY_PARAM_WIFI_ONLY"
+        const val KEY_PARAM_CHARGING_ONLY = "KEY_PARAM_CHARGING_ONLY"
+
+        private const val AUTOMATIC_UPLOADS_QUEUE_WORKER = "AUTOMATIC_UPLOADS_QUEUE_WORKER"
+
+        fun getUniqueWorkName(enqueuedBy: UploadEnqueuedBy) = "${AUTOMATIC_UPLOADS_QUEUE_WORKER}_${enqueuedBy.name}"
+
+        /**
+         * Tag of the uploads handed over to WorkManager by the queue of [enqueuedBy].
+         */
+        private fun getQueueTag(enqueuedBy: UploadEnqueuedBy) = "${getUniqueWorkName(enqueuedBy)}_UPLOAD"
+    }
+}
@@ -40,8 +40,7 @@ import com.owncloud.android.domain.transfers.model.OCTransfer
 import com.owncloud.android.domain.transfers.model.TransferStatus
 import com.owncloud.android.presentation.settings.SettingsActivity
 import com.owncloud.android.domain.transfers.model.UploadEnqueuedBy
-import com.owncloud.android.usecases.transfers.uploads.UploadFileFromContentUriUseCase
-import com.owncloud.android.utils.MimetypeIconUtil
+import com.owncloud.android.usecases.transfers.uploads.EnqueueAutomaticUploadsQueueUseCase
 import com.owncloud.android.utils.NotificationUtils
 import com.owncloud.android.utils.UPLOAD_NOTIFICATION_CHANNEL_ID
 import org.koin.core.component.KoinComponent
@@ -134,36 +133,34 @@ class AutomaticUploadsWorker(
 
         val currentTimestamp = System.currentTimeMillis()
 
-        val localPicturesDocumentFiles: List<DocumentFile> = getFilesReadyToUpload(
+        val localFiles = getFilesReadyToUpload(
             syncType = syncType,
             sourcePath = folderBackUpConfiguration.sourcePath,
             lastSyncTimestamp = folderBackUpConfiguration.lastSyncTimestamp,
             currentTimestamp = currentTimestamp,
         )
 
-        showNotification(syncType, localPicturesDocumentFiles.size)
+        showNotification(syncType, localFiles.size)
 
-        for (documentFile in localPicturesDocumentFiles) {
-            val uploadId = storeInUploadsDatabase(
-                documentFile = documentFile,
-                uploadPath = folderBackUpConfiguration.uploadPath.plus(File.separator).plus(documentFile.name),
+        val enqueuedBy = when (syncType) {
+            SyncType.PICTURE_UPLOADS -> UploadEnqueuedBy.ENQUEUED_AS_AUTOMATIC_UPLOAD_PICTURE
+            SyncType.VIDEO_UPLOADS -> UploadEnqueuedBy.ENQUEUED_AS_AUTOMATIC_UPLOAD_VIDEO
+        }
+        if (localFiles.isNotEmpty()) {
+            storeInUploadsDatabase(
+                localFiles = localFiles,
+                uploadFolderPath = folderBackUpConfiguration.uploadPath,
                 accountName = folderBackUpConfiguration.accountName,
                 behavior = folderBackUpConfiguration.behavior,
-                createdByWorker = when (syncType) {
-                    SyncType.PICTURE_UPLOADS -> UploadEnqueuedBy.ENQUEUED_AS_AUTOMATIC_UPLOAD_PICTURE
-                    SyncType.VIDEO_UPLOADS -> UploadEnqueuedBy.ENQUEUED_AS_AUTOMATIC_UPLOAD_VIDEO
-                },
+                createdByWorker = enqueuedBy,
                 spaceId = folderBackUpConfiguration.spaceId
             )
-            enqueueSingleUpload(
-                contentUri = documentFile.uri,
-                uploadPath = folderBackUpConfiguration.uploadPath.plus(File.separator).plus(documentFile.name),
-                lastModified = documentFile.lastModified(),
-                behavior = folderBackUpConfiguration.behavior.toString(),
-                accountName = folderBackUpConfiguration.accountName,
-                uploadId = uploadId,
-                wifiOnly = folderBackUpConfiguration.wifiOnly,
-                chargingOnly = folderBackUpConfiguration.chargingOnly
+            EnqueueAutomaticUploadsQueueUseCase(WorkManager.getInstance(appContext))(
+                EnqueueAutomaticUploadsQueueUseCase.Params(
+                    enqueuedBy = enqueuedBy,
+                    wifiOnly = folderBackUpConfiguration.wifiOnly,
+                    chargingOnly = folderBackUpConfiguration.chargingOnly
+                )
             )
         }
         updateTimestamp(folderBackUpConfiguration, syncType, currentTimestamp)
@@ -242,72 +239,49 @@ class AutomaticUploadsWorker(
         sourcePath: String,
         lastSyncTimestamp: Long,
         currentTimestamp: Long,
-    ): List<DocumentFile> {
+    ): List<AutomaticUploadsFolderScanner.LocalFile> {
         val sourceUri: Uri = sourcePath.toUri()
-        val documentTree = DocumentFile.fromTreeUri(applicationContext, sourceUri)
-        val arrayOfLocalFiles = documentTree?.listFiles() ?: arrayOf()
-
-        val filteredList: List<DocumentFile> = arrayOfLocalFiles
-            .sortedBy { it.lastModified() }
-            .filter { it.lastModified() >= lastSyncTimestamp }
-            .filter { it.lastModified() < currentTimestamp }
-            .filter { MimetypeIconUtil.getBestMimeTypeByFilename(it.name).startsWith(syncType.prefixForType) }
+        val filteredList = AutomaticUploadsFolderScanner(appContext.contentResolver).getFilesModifiedBetween(
+            treeUri = sourceUri,
+            mimeTypePrefix = syncType.prefixForType,
+            fromTimestamp = lastSyncTimestamp,
+            toTimestamp = currentTimestamp,
+        )
 
         Timber.i("Last sync ${syncType.name}: ${Date(lastSyncTimestamp)}")
         Timber.i("CurrentTimestamp ${Date(currentTimestamp)}")
-        Timber.i("${arrayOfLocalFiles.size} files found in folder: ${sourceUri.path}")
         Timber.i("${filteredList.size} files are ${syncType.name} and were taken after last sync")
 
         return filteredList
     }
 
-    private fun enqueueSingleUpload(
-        contentUri: Uri,
-        uploadPath: String,
-        lastModified: Long,
-        behavior: String,
-        accountName: String,
-        uploadId: Long,
-        wifiOnly: Boolean,
-        chargingOnly: Boolean
-    ) {
-        val lastModifiedInSeconds = (lastModified / 1000L).toString()
-
-        UploadFileFromContentUriUseCase(WorkManager.getInstance(appContext))(
-            UploadFileFromContentUriUseCase.Params(
-                accountName = accountName,
-                contentUri = contentUri,
-                lastModifiedInSeconds = lastModifiedInSeconds,
-                behavior = behavior,
-                uploadPath = uploadPath,
-                uploadIdInStorageManager = uploadId,
-                wifiOnly = wifiOnly,
-                chargingOnly = chargingOnly
-            )
-        )
-    }
-
+    /**
+     * Queues the uploads of all the files in a single transaction, [AutomaticUploadsQueueWorker] hands them to
+     * WorkManager.
+     */
     private fun storeInUploadsDatabase(
-        documentFile: DocumentFile,
-        uploadPath: String,
+        localFiles: List<AutomaticUploadsFolderScanner.LocalFile>,
+        uploadFolderPath: String,
         accountName: String,
         behavior: UploadBehavior,
         createdByWorker: UploadEnqueuedBy,
         spaceId: String?,
-    ): Long {
-        val ocTransfer = OCTransfer(
-            localPath = documentFile.uri.toString(),
-            remotePath = uploadPath,
-            accountName = accountName,
-            fileSize = documentFile.length(),
-            status = TransferStatus.TRANSFER_QUEUED,
-            localBehaviour = behavior,
-            forceOverwrite = false,
-            createdBy = createdByWorker,
-            spaceId = spaceId,
-        )
+    ) {
+        val ocTransfers = localFiles.map { localFile ->
+            OCTransfer(
+                localPath = localFile.uri.toString(),
+                remotePath = uploadFolderPath.plus(File.separator).plus(localFile.name),
+                accountName = accountName,
+                fileSize = localFile.length,
+                status = TransferStatus.TRANSFER_QUEUED,
+                localBehaviour = behavior,
+                forceOverwrite = false,
+                createdBy = createdByWorker,
+                spaceId = spaceId,
+            )
+        }
 
-        return transferRepository.saveTransfer(ocTransfer)
+        transferRepository.saveTransfers(ocTransfers)
     }
 
     companion object {
@@ -19,11 +19,13 @@
 package com.owncloud.android.workers
 
 import android.content.Context
+import android.os.SystemClock
 import androidx.work.CoroutineWorker
 import androidx.work.WorkerParameters
 import com.owncloud.android.domain.availableoffline.usecases.GetFilesAvailableOfflineFromEveryAccountUseCase
 import com.owncloud.android.domain.files.model.OCFile
-import com.owncloud.android.usecases.synchronization.SynchronizeFileUseCase
+import com.owncloud.android.lib.common.http.HttpClient
+import com.owncloud.android.usecases.synchronization.SynchronizeAvailableOfflineFilesUseCase
 import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
@@ -39,7 +41,7 @@ class AvailableOfflinePeriodicWorker(
 ), KoinComponent {
 
     private val getFilesAvailableOfflineFromEveryAccountUseCase: GetFilesAvailableOfflineFromEveryAccountUseCase by inject()
-    private val synchronizeFileUseCase: SynchronizeFileUseCase by inject()
+    private val synchronizeAvailableOfflineFilesUseCase: SynchronizeAvailableOfflineFilesUseCase by inject()
     private val synchronizeFolderUseCase: SynchronizeFolderUseCase by inject()
 
     override suspend fun doWork(): Result =
@@ -56,20 +58,38 @@ class AvailableOfflinePeriodicWorker(
         }
 
     private fun syncAvailableOfflineFiles(availableOfflineFiles: List<OCFile>) {
-        availableOfflineFiles.forEach {
-            if (it.isFolder) {
-                synchronizeFolderUseCase(
-                    SynchronizeFolderUseCase.Params(
-                        remotePath = it.remotePath,
-                        accountName = it.owner,
-                        spaceId = it.spaceId,
-                        syncMode = SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_RECURSIVELY
-                    )
+        val cycleStartMillis = SystemClock.elapsedRealtime()
+        val connectionReuseAtStart = HttpClient.getConnectionReuseStats().snapshot()
+        val (availableOfflineFolders, availableOfflineSingleFiles) = availableOfflineFiles.partition { it.isFolder }
+
+        availableOfflineFolders.forEach {
+            synchronizeFolderUseCase(
+                SynchronizeFolderUseCase.Params(
+                    remotePath = it.remotePath,
+                    accountName = it.owner,
+                    spaceId = it.spaceId,
+                    syncMode = SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_INCREMENTALLY,
+                    isCancelled = { isStopped },
                 )
-            } else {
-                synchronizeFileUseCase(SynchronizeFileUseCase.Params(it))
-            }
+            )
         }
+
+        val filesSyncResult = synchronizeAvailableOfflineFilesUseCase(
+            SynchronizeAvailableOfflineFilesUseCase.Params(
+                filesToSynchronize = availableOfflineSingleFiles,
+                isCancelled = { isStopped },
+            )
+        )
+        val cycleMillis = SystemClock.elapsedRealtime() - cycleStartMillis
+        // Shared by every client, so it also counts requests sent meanwhile out of this cycle
+        val connectionReuse = HttpClient.getConnectionReuseStats().snapshot() - connectionReuseAtStart
+        filesSyncResult.getDataOrNull()?.let { stats ->
+            Timber.i(
+                "Available offline sync cycle finished in $cycleMillis ms: ${availableOfflineFolders.size} folders, " +
+                        "${stats.checkedFiles} files checked with ${stats.requests} requests, ${stats.synchronizedFiles} files synchronized, " +
+                        connectionReuse
+            )
+        } ?: Timber.e(filesSyncResult.getThrowableOrNull(), "Sync of available offline files failed after $cycleMillis ms")
     }
 
     companion object {
@@ -33,8 +33,9 @@ import com.owncloud.android.R
 import com.owncloud.android.data.executeRemoteOperation
 import com.owncloud.android.data.providers.LocalStorageProvider
 import com.owncloud.android.domain.exceptions.CancelledException
-import com.owncloud.android.domain.exceptions.LocalStorageNotMovedException
+import com.owncloud.android.domain.exceptions.NetworkErrorException
 import com.owncloud.android.domain.exceptions.NoConnectionWithServerException
+import com.owncloud.android.domain.exceptions.ServerResponseTimeoutException
 import com.owncloud.android.domain.files.model.OCFile
 import com.owncloud.android.domain.files.usecases.CleanConflictUseCase
 import com.owncloud.android.domain.files.usecases.CleanWorkersUUIDUseCase
@@ -47,6 +48,7 @@ import com.owncloud.android.lib.common.OwnCloudClient
 import com.owncloud.android.lib.common.SingleSessionManager
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.SegmentedDownloadSettings
 import com.owncloud.android.presentation.authentication.ACTION_UPDATE_EXPIRED_TOKEN
 import com.owncloud.android.presentation.authentication.AccountUtils
 import com.owncloud.android.presentation.authentication.EXTRA_ACCOUNT
@@ -54,6 +56,7 @@ import com.owncloud.android.presentation.authentication.EXTRA_ACTION
 import com.owncloud.android.presentation.authentication.LoginActivity
 import com.owncloud.android.presentation.transfers.TransferOperation.Download
 import com.owncloud.android.ui.errorhandling.ErrorMessageAdapter
+import com.owncloud.android.usecases.transfers.downloads.DownloadCompletionNotifier
 import com.owncloud.android.utils.DOWNLOAD_NOTIFICATION_CHANNEL_ID
 import com.owncloud.android.utils.DOWNLOAD_NOTIFICATION_ID_DEFAULT
 import com.owncloud.android.utils.FileStorageUtils
@@ -65,7 +68,6 @@ import kotlinx.coroutines.launch
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
 import timber.log.Timber
-import java.io.File
 
 class DownloadFileWorker(
     private val appContext: Context,
@@ -82,6 +84,7 @@ class DownloadFileWorker(
     private val saveDownloadWorkerUuidUseCase: SaveDownloadWorkerUUIDUseCase by inject()
     private val cleanWorkersUuidUseCase: CleanWorkersUUIDUseCase by inject()
     private val localStorageProvider: LocalStorageProvider by inject()
+    private val downloadCompletionNotifier: DownloadCompletionNotifier by inject()
 
     lateinit var account: Account
     lateinit var ocFile: OCFile
@@ -112,11 +115,13 @@ class DownloadFileWorker(
             ?: localStorageProvider.getDefaultSavePathFor(accountName = account.name, remotePath = ocFile.remotePath, spaceId = ocFile.spaceId)
 
     override suspend fun doWork(): Result {
-        if (!areParametersValid()) return Result.failure()
+        if (!areParametersValid()) {
+            downloadCompletionNotifier.notifyDownloadFinished(workerParameters.inputData.getLong(KEY_PARAM_FILE_ID, -1), isSuccess = false)
+            return Result.failure()
+        }
 
         return try {
             downloadFileToTemporalFile()
-            moveTemporalFileToFinalLocation()
             updateDatabaseWithLatestInfoForThisFile()
             notifyDownloadResult(null)
         } catch (throwable: Throwable) {
@@ -162,9 +167,11 @@ class DownloadFileWorker(
             getWebdavUrlForSpaceUseCase(GetWebDavUrlForSpaceUseCase.Params(accountName = account.name, spaceId = ocFile.spaceId))
 
         downloadRemoteFileOperation = DownloadRemoteFileOperation(
-            ocFile.remotePath,
-            temporalFolderPath,
-            spaceWebDavUrl,
+            remotePath = ocFile.remotePath,
+            localFolderPath = temporalFolderPath,
+            spaceWebDavUrl = spaceWebDavUrl,
+            knownEtag = getEtagOfUnmodifiedLocalCopy(),
+            segmentedDownloadSettings = getSegmentedDownloadSettings(),
         ).apply {
             addDatatransferProgressListener(this@DownloadFileWorker)
         }
@@ -177,45 +184,49 @@ class DownloadFileWorker(
     }
 
     /**
-     * Move the temporal file to the final location.
-     * @see temporalFilePath for the temporal location
-     * @see finalLocationForFile for the final one
+     * Etag of the local copy of this file, only if it was not modified locally since it was downloaded, so the
+     * server can answer that there is nothing new to download.
      */
-    private fun moveTemporalFileToFinalLocation() {
-        val temporalLocation = File(temporalFilePath)
-
-        if (FileStorageUtils.getUsableSpace() < temporalLocation.length()) {
-            Timber.w("Not enough space to copy %s", temporalLocation.absolutePath)
-        }
-
-        val finalLocation = File(finalLocationForFile)
-        finalLocation.parentFile?.mkdirs()
-        val movedToTheFinalLocation = temporalLocation.renameTo(finalLocation)
+    private fun getEtagOfUnmodifiedLocalCopy(): String? {
+        val lastSyncDateForData = ocFile.lastSyncDateForData ?: return null
+        val isUnmodifiedLocalCopy = ocFile.isAvailableLocally &&
+                ocFile.etagInConflict == null &&
+                ocFile.localModificationTimestamp <= lastSyncDateForData
+        return ocFile.etag.takeIf { isUnmodifiedLocalCopy && !it.isNullOrBlank() }
+    }
 
-        if (!movedToTheFinalLocation) {
-            throw LocalStorageNotMovedException()
+    /**
+     * Settings to download this file over several parallel connections, only if it is big enough and segmented
+     * downloads are enabled in the setup.
+     */
+    private fun getSegmentedDownloadSettings(): SegmentedDownloadSettings? {
+        val resources = appContext.resources
+        val minFileSize = resources.getInteger(R.integer.segmented_downloads_min_file_size_mb) * BYTES_PER_MB
+        if (!resources.getBoolean(R.bool.segmented_downloads_enabled) || ocFile.length < minFileSize) {
+            return null
         }
+        return SegmentedDownloadSettings(
+            segmentSize = resources.getInteger(R.integer.segmented_downloads_segment_size_mb) * BYTES_PER_MB,
+            maxConnections = resources.getInteger(R.integer.segmented_downloads_max_connections),
+        )
     }
 
     /**
-     * Update the database with latest details about this file.
+     * Move the temporal file to the final location and update the database with latest details about this file.
      *
      * We will ask for thumbnails after a download
      * We will update info about the file (modification timestamp and etag)
      * We will update info about local storage (where it was stored and its size)
+     *
+     * @see DownloadedFileUpdater
+     * @see temporalFilePath for the temporal location
+     * @see finalLocationForFile for the final one
      */
     private fun updateDatabaseWithLatestInfoForThisFile() {
-        val currentTime = System.currentTimeMillis()
-        ocFile.apply {
-            needsToUpdateThumbnail = true
-            modificationTimestamp = downloadRemoteFileOperation.modificationTimestamp
-            etag = downloadRemoteFileOperation.etag
-            storagePath = finalLocationForFile
-            length = (File(finalLocationForFile).length())
-            lastSyncDateForData = currentTime
-            modifiedAtLastSyncForData = downloadRemoteFileOperation.modificationTimestamp
-            lastUsage = currentTime
-        }
+        DownloadedFileUpdater(
+            temporalFilePath = temporalFilePath,
+            finalLocation = finalLocationForFile,
+        ).update(ocFile, downloadRemoteFileOperation)
         saveFileOrFolderUseCase(SaveFileOrFolderUseCase.Params(ocFile))
         cleanConflictUseCase(
             CleanConflictUseCase.Params(
@@ -276,17 +287,34 @@ class DownloadFileWorker(
             )
         }
 
+        if (throwable == null || !isTransferInterruption(throwable)) {
+            downloadCompletionNotifier.notifyDownloadFinished(
+                fileId = workerParameters.inputData.getLong(KEY_PARAM_FILE_ID, -1),
+                isSuccess = throwable == null
+            )
+        }
+
         return if (throwable == null) {
             Result.success()
         } else {
-            if (throwable is NoConnectionWithServerException) {
+            if (isTransferInterruption(throwable)) {
+                // Partial temporal file is kept, so the retry resumes the download where it stopped
                 Result.retry()
             } else {
+                // A stopped worker may be rescheduled by the system, its partial file is kept just in case
+                if (throwable !is CancelledException && ::downloadRemoteFileOperation.isInitialized) {
+                    downloadRemoteFileOperation.discardPartialDownload()
+                }
                 Result.failure()
             }
         }
     }
 
+    private fun isTransferInterruption(throwable: Throwable): Boolean =
+        throwable is NoConnectionWithServerException ||
+                throwable is NetworkErrorException ||
+                throwable is ServerResponseTimeoutException
+
     private fun composePendingIntentToRefreshCredentials(): PendingIntent {
         val updateCredentialsIntent =
             Intent(appContext, LoginActivity::class.java).apply {
@@ -336,5 +364,7 @@ class DownloadFileWorker(
         const val KEY_PARAM_ACCOUNT = "KEY_PARAM_ACCOUNT"
         const val KEY_PARAM_FILE_ID = "KEY_PARAM_FILE_ID"
         const val WORKER_KEY_PROGRESS = "KEY_PROGRESS"
+
+        private const val BYTES_PER_MB = 1024 * 1024L
     }
 }
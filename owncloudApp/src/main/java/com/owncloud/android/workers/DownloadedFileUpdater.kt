@@ -0,0 +1,75 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import com.owncloud.android.domain.exceptions.LocalStorageNotMovedException
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.utils.FileStorageUtils
+import timber.log.Timber
+import java.io.File
+
+/**
+ * Local side of a finished download. The version downloaded to [temporalFilePath] replaces the local copy in
+ * [finalLocation], unless the server answered that the local copy was already the latest version: then nothing was
+ * downloaded, so nothing is moved and only the sync dates of the file change.
+ */
+class DownloadedFileUpdater(
+    private val temporalFilePath: String,
+    private val finalLocation: String,
+    private val getUsableSpace: () -> Long = FileStorageUtils::getUsableSpace,
+) {
+
+    @Throws(LocalStorageNotMovedException::class)
+    fun update(ocFile: OCFile, download: DownloadRemoteFileOperation, currentTime: Long = System.currentTimeMillis()) {
+        if (download.isNotModified) {
+            ocFile.lastSyncDateForData = currentTime
+            ocFile.lastUsage = currentTime
+            return
+        }
+
+        moveTemporalFileToFinalLocation()
+        ocFile.apply {
+            needsToUpdateThumbnail = true
+            modificationTimestamp = download.modificationTimestamp
+            etag = download.etag
+            storagePath = finalLocation
+            length = File(finalLocation).length()
+            lastSyncDateForData = currentTime
+            modifiedAtLastSyncForData = download.modificationTimestamp
+            lastUsage = currentTime
+        }
+    }
+
+    private fun moveTemporalFileToFinalLocation() {
+        val temporalLocation = File(temporalFilePath)
+
+        if (getUsableSpace() < temporalLocation.length()) {
+            Timber.w("Not enough space to copy %s", temporalLocation.absolutePath)
+        }
+
+        val finalLocation = File(finalLocation)
+        finalLocation.parentFile?.mkdirs()
+        val movedToTheFinalLocation = temporalLocation.renameTo(finalLocation)
+
+        if (!movedToTheFinalLocation) {
+            throw LocalStorageNotMovedException()
+        }
+    }
+}
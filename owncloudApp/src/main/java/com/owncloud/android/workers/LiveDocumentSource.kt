@@ -0,0 +1,48 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import java.io.IOException
+
+/**
+ * Document uploaded straight from its provider instead of from a copy. The provider can change it while it is read,
+ * so its version when it was opened is compared with the current one before the upload is committed.
+ *
+ * @param readVersion reads the current length and last modification of the document.
+ */
+class LiveDocumentSource(
+    private val readVersion: () -> ChunkedUploadSourceVersion,
+) {
+
+    val openedVersion: ChunkedUploadSourceVersion = readVersion()
+
+    @Throws(DocumentChangedException::class)
+    fun checkUnchanged() {
+        val currentVersion = readVersion()
+        if (currentVersion != openedVersion) {
+            throw DocumentChangedException(openedVersion, currentVersion)
+        }
+    }
+
+    class DocumentChangedException(
+        openedVersion: ChunkedUploadSourceVersion,
+        currentVersion: ChunkedUploadSourceVersion,
+    ) : IOException("Document changed while it was uploaded, from $openedVersion to $currentVersion")
+}
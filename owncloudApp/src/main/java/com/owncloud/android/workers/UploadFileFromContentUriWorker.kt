@@ -25,6 +25,10 @@ package com.owncloud.android.workers
 import android.accounts.Account
 import android.content.Context
 import android.net.Uri
+import android.os.ParcelFileDescriptor
+import android.system.ErrnoException
+import android.system.Os
+import android.system.OsConstants
 import androidx.core.net.toUri
 import androidx.documentfile.provider.DocumentFile
 import androidx.work.CoroutineWorker
@@ -43,11 +47,13 @@ import com.owncloud.android.domain.transfers.TransferRepository
 import com.owncloud.android.domain.transfers.model.OCTransfer
 import com.owncloud.android.domain.transfers.model.TransferResult
 import com.owncloud.android.domain.transfers.model.TransferStatus
+import com.owncloud.android.extensions.getChunksFolderName
 import com.owncloud.android.extensions.isContentUri
 import com.owncloud.android.extensions.parseError
 import com.owncloud.android.lib.common.OwnCloudAccount
 import com.owncloud.android.lib.common.OwnCloudClient
 import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
 import com.owncloud.android.lib.resources.files.CheckPathExistenceRemoteOperation
@@ -56,11 +62,12 @@ import com.owncloud.android.lib.resources.files.FileUtils
 import com.owncloud.android.lib.resources.files.UploadFileFromFileSystemOperation
 import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation
 import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation.Companion.CHUNK_SIZE
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import com.owncloud.android.lib.resources.files.services.implementation.OCChunkService
 import com.owncloud.android.presentation.authentication.AccountUtils
 import com.owncloud.android.utils.NotificationUtils
 import com.owncloud.android.utils.RemoteFileUtils.getAvailableRemotePath
-import com.owncloud.android.utils.SecurityUtils
 import com.owncloud.android.utils.UPLOAD_NOTIFICATION_CHANNEL_ID
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -69,7 +76,10 @@ import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
 import timber.log.Timber
 import java.io.File
+import java.io.FileInputStream
 import java.io.FileOutputStream
+import java.nio.channels.FileChannel
+import java.util.concurrent.TimeUnit
 
 class UploadFileFromContentUriWorker(
     private val appContext: Context,
@@ -91,6 +101,17 @@ class UploadFileFromContentUriWorker(
     private lateinit var ocTransfer: OCTransfer
     private var spaceWebDavUrl: String? = null
 
+    /**
+     * Seekable descriptor of the document when it is uploaded straight from its provider, null when it was copied to
+     * [cachePath] instead.
+     */
+    private var sourceFileDescriptor: ParcelFileDescriptor? = null
+    private var sourceChannel: FileChannel? = null
+    private var liveDocumentSource: LiveDocumentSource? = null
+    private var bytesWrittenToLocalStorage: Long = 0
+    private var workStartNanos: Long = 0
+    private var firstByteNanos: Long = 0
+
     private lateinit var uploadFileOperation: UploadFileFromFileSystemOperation
 
     private var lastPercent = 0
@@ -110,16 +131,19 @@ class UploadFileFromContentUriWorker(
         val localStorageProvider: LocalStorageProvider by inject()
         cachePath = localStorageProvider.getTemporalPath(account.name, ocTransfer.spaceId) + uploadPath
 
+        workStartNanos = System.nanoTime()
         return try {
             if (ocTransfer.isContentUri(appContext)) {
                 checkDocumentFileExists()
                 checkPermissionsToReadDocumentAreGranted()
-                copyFileToLocalStorage()
+                if (!openSeekableSourceChannel()) {
+                    copyFileToLocalStorage()
+                }
             }
             val clientForThisUpload = getClientForThisUpload()
             checkParentFolderExistence(clientForThisUpload)
             checkNameCollisionAndGetAnAvailableOneInCase(clientForThisUpload)
-            uploadDocument(clientForThisUpload)
+            uploadDocumentOrCopyIfItChanges(clientForThisUpload)
             updateUploadsDatabaseWithResult(null)
             Result.success()
         } catch (throwable: Throwable) {
@@ -127,6 +151,9 @@ class UploadFileFromContentUriWorker(
             showNotification(throwable)
             updateUploadsDatabaseWithResult(throwable)
             Result.failure()
+        } finally {
+            closeSourceChannel()
+            logTransferStats()
         }
     }
 
@@ -176,6 +203,56 @@ class UploadFileFromContentUriWorker(
         }
     }
 
+    /**
+     * Opens the document for positional reads, so it can be uploaded without copying it, and every chunk can be read
+     * again if it has to be retried. Only regular files are seekable, pipes and sockets served by some providers
+     * are not.
+     *
+     * @return true if the document can be uploaded straight from its provider.
+     */
+    private fun openSeekableSourceChannel(): Boolean {
+        val fileDescriptor = try {
+            appContext.contentResolver.openFileDescriptor(contentUri, "r")
+        } catch (e: Exception) {
+            Timber.w(e, "Could not open a file descriptor for %s", contentUri)
+            null
+        } ?: return false
+
+        val isSeekable = try {
+            OsConstants.S_ISREG(Os.fstat(fileDescriptor.fileDescriptor).st_mode)
+        } catch (e: ErrnoException) {
+            false
+        }
+        if (!isSeekable) {
+            Timber.d("%s is not seekable, it will be copied before uploading it", contentUri)
+            fileDescriptor.close()
+            return false
+        }
+
+        sourceFileDescriptor = fileDescriptor
+        sourceChannel = FileInputStream(fileDescriptor.fileDescriptor).channel
+        liveDocumentSource = LiveDocumentSource(::readDocumentVersion)
+        transferRepository.updateTransferSourcePath(uploadIdInStorageManager, contentUri.toString())
+        return true
+    }
+
+    private fun closeSourceChannel() {
+        // The channel does not own the descriptor, closing the descriptor releases both
+        sourceFileDescriptor?.close()
+        sourceChannel = null
+        sourceFileDescriptor = null
+        liveDocumentSource = null
+    }
+
+    private fun logTransferStats() {
+        val timeToFirstByteMillis =
+            if (firstByteNanos == 0L) -1 else TimeUnit.NANOSECONDS.toMillis(firstByteNanos - workStartNanos)
+        Timber.i(
+            "Upload of %s: time to first byte %d ms, %d bytes written to local storage",
+            uploadPath, timeToFirstByteMillis, bytesWrittenToLocalStorage
+        )
+    }
+
     private fun copyFileToLocalStorage() {
         val cacheFile = File(cachePath)
         val cacheDir = cacheFile.parentFile
@@ -187,7 +264,7 @@ class UploadFileFromContentUriWorker(
         val inputStream = appContext.contentResolver.openInputStream(contentUri)
         val outputStream = FileOutputStream(cachePath)
         outputStream.use { fileOut ->
-            inputStream?.copyTo(fileOut)
+            bytesWrittenToLocalStorage = inputStream?.copyTo(fileOut) ?: 0
         }
         inputStream?.close()
         outputStream.close()
@@ -238,10 +315,25 @@ class UploadFileFromContentUriWorker(
         }
     }
 
+    /**
+     * A document uploaded straight from its provider may be changed while it is read, mixing both versions in the
+     * server. In that case it is copied to local storage and uploaded again from the copy, overwriting the mix.
+     */
+    private fun uploadDocumentOrCopyIfItChanges(client: OwnCloudClient) {
+        try {
+            uploadDocument(client)
+        } catch (documentChangedException: LiveDocumentSource.DocumentChangedException) {
+            Timber.w(documentChangedException, "Uploading %s again from a copy", contentUri)
+            closeSourceChannel()
+            copyFileToLocalStorage()
+            uploadDocument(client)
+        }
+    }
+
     private fun uploadDocument(client: OwnCloudClient) {
         val cacheFile = File(cachePath)
         mimeType = cacheFile.extension
-        fileSize = cacheFile.length()
+        fileSize = sourceChannel?.size() ?: cacheFile.length()
 
         val getStoredCapabilitiesUseCase: GetStoredCapabilitiesUseCase by inject()
         val capabilitiesForAccount = getStoredCapabilitiesUseCase(
@@ -268,22 +360,35 @@ class UploadFileFromContentUriWorker(
             lastModifiedTimestamp = lastModified,
             requiredEtag = null,
             spaceWebDavUrl = spaceWebDavUrl,
+            sourceChannel = sourceChannel,
         ).apply {
             addDataTransferProgressListener(this@UploadFileFromContentUriWorker)
         }
 
         executeRemoteOperation { uploadFileOperation.execute(client) }
+        liveDocumentSource?.checkUnchanged()
     }
 
     private fun uploadChunkedFile(client: OwnCloudClient) {
-        val immutableHashForChunkedFile = SecurityUtils.stringToMD5Hash(uploadPath) + System.currentTimeMillis()
-        // Step 1: Create folder where the chunks will be uploaded.
-        val createChunksRemoteFolderOperation = CreateRemoteFolderOperation(
-            remotePath = immutableHashForChunkedFile,
-            createFullPath = false,
-            isChunksFolder = true
-        )
-        executeRemoteOperation { createChunksRemoteFolderOperation.execute(client) }
+        // The transfer id is stable for this upload, so a retry can resume the chunks already acknowledged by the server
+        val immutableHashForChunkedFile = ocTransfer.getChunksFolderName()
+        val chunkedUploadStateStore: ChunkedUploadStateStore by inject()
+        val sourceVersion = getSourceVersion()
+
+        // Step 1: Create folder where the chunks will be uploaded, unless it was created by a previous attempt.
+        if (chunkedUploadStateStore.getAcknowledgedChunks(immutableHashForChunkedFile, sourceVersion, CHUNK_SIZE).isEmpty()) {
+            // Chunks left by a previous attempt, maybe of another version of the file or chunk size, must not be assembled
+            OCChunkService(client).removeFile(immutableHashForChunkedFile)
+            val createChunksRemoteFolderOperation = CreateRemoteFolderOperation(
+                remotePath = immutableHashForChunkedFile,
+                createFullPath = false,
+                isChunksFolder = true
+            )
+            val createChunksRemoteFolderResult = createChunksRemoteFolderOperation.execute(client)
+            if (createChunksRemoteFolderResult.httpCode != HttpConstants.HTTP_METHOD_NOT_ALLOWED) {
+                executeRemoteOperation { createChunksRemoteFolderResult }
+            }
+        }
 
         // Step 2: Upload file by chunks
         uploadFileOperation = ChunkedUploadFromFileSystemOperation(
@@ -293,20 +398,44 @@ class UploadFileFromContentUriWorker(
             mimeType = mimeType,
             lastModifiedTimestamp = lastModified,
             requiredEtag = null,
+            chunkSize = CHUNK_SIZE,
+            chunkedUploadStateStore = chunkedUploadStateStore,
+            sourceVersion = sourceVersion,
+            sourceChannel = sourceChannel,
         ).apply {
             addDataTransferProgressListener(this@UploadFileFromContentUriWorker)
         }
 
         executeRemoteOperation { uploadFileOperation.execute(client) }
+        // Chunks read from a document that changed in the meantime must not be assembled
+        liveDocumentSource?.checkUnchanged()
 
         // Step 3: Move remote file to the final remote destination
         val ocChunkService = OCChunkService(client)
-        ocChunkService.moveFile(
+        val moveChunksResult = ocChunkService.moveFile(
             sourceRemotePath = "${immutableHashForChunkedFile}${OCFile.PATH_SEPARATOR}${FileUtils.FINAL_CHUNKS_FILE}",
             targetRemotePath = uploadPath,
             fileLastModificationTimestamp = lastModified,
             fileLength = fileSize
         )
+        if (moveChunksResult.isSuccess) {
+            chunkedUploadStateStore.clear(immutableHashForChunkedFile)
+        }
+    }
+
+    /**
+     * Version of the document itself, the copy in [cachePath] is made again on every attempt.
+     */
+    private fun getSourceVersion(): ChunkedUploadSourceVersion =
+        liveDocumentSource?.openedVersion ?: readDocumentVersion()
+
+    private fun readDocumentVersion(): ChunkedUploadSourceVersion {
+        val documentFile = DocumentFile.fromSingleUri(appContext, contentUri)
+        return if (documentFile != null) {
+            ChunkedUploadSourceVersion(length = documentFile.length(), lastModified = documentFile.lastModified())
+        } else {
+            File(cachePath).let { ChunkedUploadSourceVersion(length = it.length(), lastModified = it.lastModified()) }
+        }
     }
 
     private fun removeCacheFile() {
@@ -361,6 +490,9 @@ class UploadFileFromContentUriWorker(
         totalToTransfer: Long,
         filePath: String
     ) {
+        if (firstByteNanos == 0L) {
+            firstByteNanos = System.nanoTime()
+        }
         val percent: Int = (100.0 * totalTransferredSoFar.toDouble() / totalToTransfer.toDouble()).toInt()
         if (percent == lastPercent) return
 
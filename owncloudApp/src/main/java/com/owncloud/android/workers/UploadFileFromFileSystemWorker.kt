@@ -42,10 +42,12 @@ import com.owncloud.android.domain.transfers.TransferRepository
 import com.owncloud.android.domain.transfers.model.OCTransfer
 import com.owncloud.android.domain.transfers.model.TransferResult
 import com.owncloud.android.domain.transfers.model.TransferStatus
+import com.owncloud.android.extensions.getChunksFolderName
 import com.owncloud.android.extensions.parseError
 import com.owncloud.android.lib.common.OwnCloudAccount
 import com.owncloud.android.lib.common.OwnCloudClient
 import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
 import com.owncloud.android.lib.resources.files.CheckPathExistenceRemoteOperation
@@ -54,11 +56,12 @@ import com.owncloud.android.lib.resources.files.FileUtils
 import com.owncloud.android.lib.resources.files.UploadFileFromFileSystemOperation
 import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation
 import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation.Companion.CHUNK_SIZE
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
 import com.owncloud.android.lib.resources.files.services.implementation.OCChunkService
 import com.owncloud.android.presentation.authentication.AccountUtils
 import com.owncloud.android.utils.NotificationUtils
 import com.owncloud.android.utils.RemoteFileUtils.getAvailableRemotePath
-import com.owncloud.android.utils.SecurityUtils
 import com.owncloud.android.utils.UPLOAD_NOTIFICATION_CHANNEL_ID
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -259,14 +262,25 @@ class UploadFileFromFileSystemWorker(
     }
 
     private fun uploadChunkedFile(client: OwnCloudClient) {
-        val immutableHashForChunkedFile = SecurityUtils.stringToMD5Hash(uploadPath) + System.currentTimeMillis()
-        // Step 1: Create folder where the chunks will be uploaded.
-        val createChunksRemoteFolderOperation = CreateRemoteFolderOperation(
-            remotePath = immutableHashForChunkedFile,
-            createFullPath = false,
-            isChunksFolder = true
-        )
-        executeRemoteOperation { createChunksRemoteFolderOperation.execute(client) }
+        // The transfer id is stable for this upload, so a retry can resume the chunks already acknowledged by the server
+        val immutableHashForChunkedFile = ocTransfer.getChunksFolderName()
+        val chunkedUploadStateStore: ChunkedUploadStateStore by inject()
+        val sourceVersion = getSourceVersion()
+
+        // Step 1: Create folder where the chunks will be uploaded, unless it was created by a previous attempt.
+        if (chunkedUploadStateStore.getAcknowledgedChunks(immutableHashForChunkedFile, sourceVersion, CHUNK_SIZE).isEmpty()) {
+            // Chunks left by a previous attempt, maybe of another version of the file or chunk size, must not be assembled
+            OCChunkService(client).removeFile(immutableHashForChunkedFile)
+            val createChunksRemoteFolderOperation = CreateRemoteFolderOperation(
+                remotePath = immutableHashForChunkedFile,
+                createFullPath = false,
+                isChunksFolder = true
+            )
+            val createChunksRemoteFolderResult = createChunksRemoteFolderOperation.execute(client)
+            if (createChunksRemoteFolderResult.httpCode != HttpConstants.HTTP_METHOD_NOT_ALLOWED) {
+                executeRemoteOperation { createChunksRemoteFolderResult }
+            }
+        }
 
         // Step 2: Upload file by chunks
         uploadFileOperation = ChunkedUploadFromFileSystemOperation(
@@ -276,6 +290,9 @@ class UploadFileFromFileSystemWorker(
             mimeType = mimetype,
             lastModifiedTimestamp = lastModified,
             requiredEtag = eTagInConflict,
+            chunkSize = CHUNK_SIZE,
+            chunkedUploadStateStore = chunkedUploadStateStore,
+            sourceVersion = sourceVersion,
         ).apply {
             addDataTransferProgressListener(this@UploadFileFromFileSystemWorker)
         }
@@ -284,12 +301,15 @@ class UploadFileFromFileSystemWorker(
 
         // Step 3: Move remote file to the final remote destination
         val ocChunkService = OCChunkService(client)
-        ocChunkService.moveFile(
+        val moveChunksResult = ocChunkService.moveFile(
             sourceRemotePath = "$immutableHashForChunkedFile$PATH_SEPARATOR${FileUtils.FINAL_CHUNKS_FILE}",
             targetRemotePath = uploadPath,
             fileLastModificationTimestamp = lastModified,
             fileLength = fileSize
         )
+        if (moveChunksResult.isSuccess) {
+            chunkedUploadStateStore.clear(immutableHashForChunkedFile)
+        }
 
         // Step 4: Remove tmp file folder after uploading
         if (result == Unit && removeLocal) {
@@ -297,6 +317,9 @@ class UploadFileFromFileSystemWorker(
         }
     }
 
+    private fun getSourceVersion(): ChunkedUploadSourceVersion =
+        File(fileSystemPath).let { ChunkedUploadSourceVersion(length = it.length(), lastModified = it.lastModified()) }
+
     private fun removeLocalFile() {
         val fileDeleted = File(fileSystemPath).delete()
         Timber.d("File with path: $fileSystemPath has been removed: $fileDeleted after uploading.")
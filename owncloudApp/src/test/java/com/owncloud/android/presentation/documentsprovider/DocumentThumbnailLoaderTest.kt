@@ -0,0 +1,213 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.presentation.documentsprovider
+
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.testutil.OC_FILE
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Serves the thumbnails of a picker grid of [GRID_SIZE] images, fetched from a fake server, counting the fetches and
+ * how many of them run at the same time. Latencies are measured on a device by DocumentThumbnailsBenchmarkTest.
+ */
+class DocumentThumbnailLoaderTest {
+
+    private val cachedThumbnails = ConcurrentHashMap<String, File>()
+    private val fetchedKeys = ConcurrentHashMap.newKeySet<String>()
+    private val fetches = AtomicInteger(0)
+    private val runningFetches = AtomicInteger(0)
+    private val maxRunningFetches = AtomicInteger(0)
+    private var fetchLatch: CountDownLatch? = null
+
+    private lateinit var cacheFolder: File
+    private lateinit var loader: DocumentThumbnailLoader
+
+    @Before
+    fun setUp() {
+        cacheFolder = Files.createTempDirectory("thumbnails").toFile()
+        loader = DocumentThumbnailLoader(
+            appThumbnailSize = APP_THUMBNAIL_SIZE,
+            getCachedThumbnail = { key -> cachedThumbnails[key] },
+            fetchThumbnail = { _, key, size -> fetch(key, size) },
+            threads = LOADER_THREADS,
+        )
+    }
+
+    @After
+    fun tearDown() {
+        cacheFolder.deleteRecursively()
+    }
+
+    @Test
+    fun `get thumbnail size - ok - sizes are rounded up to powers of two`() {
+        assertEquals(64, DocumentThumbnailLoader.getThumbnailSize(0))
+        assertEquals(128, DocumentThumbnailLoader.getThumbnailSize(100))
+        assertEquals(128, DocumentThumbnailLoader.getThumbnailSize(128))
+        assertEquals(256, DocumentThumbnailLoader.getThumbnailSize(129))
+        assertEquals(1024, DocumentThumbnailLoader.getThumbnailSize(4000))
+    }
+
+    @Test
+    fun `load thumbnail - ok - thumbnail of the app is served when it is big enough`() {
+        val file = imageFile(1)
+        val appThumbnail = cacheThumbnail(file.remoteId!!)
+
+        assertEquals(appThumbnail, loader.loadThumbnail(file, APP_THUMBNAIL_SIZE).get())
+        assertEquals(0, fetches.get())
+
+        val biggerThumbnail = loader.loadThumbnail(file, 4 * APP_THUMBNAIL_SIZE).get()
+        assertEquals(1, fetches.get())
+        assertEquals(4 * APP_THUMBNAIL_SIZE, biggerThumbnail!!.length().toInt())
+    }
+
+    @Test
+    fun `load thumbnail - ok - outdated thumbnail of the app is not served`() {
+        val file = imageFile(1).copy(needsToUpdateThumbnail = true)
+        val appThumbnail = cacheThumbnail(file.remoteId!!)
+
+        val thumbnail = loader.loadThumbnail(file, APP_THUMBNAIL_SIZE).get()
+
+        assertEquals(1, fetches.get())
+        assertTrue(thumbnail != appThumbnail)
+    }
+
+    @Test
+    fun `load thumbnail - ok - requests for the same thumbnail share the fetch`() {
+        fetchLatch = CountDownLatch(1)
+        val file = imageFile(1)
+
+        val requests = List(5) { loader.loadThumbnail(file, APP_THUMBNAIL_SIZE) }
+        fetchLatch?.countDown()
+
+        val thumbnails = requests.map { it.get(1, TimeUnit.SECONDS) }
+        assertEquals(1, fetches.get())
+        assertEquals(1, thumbnails.toSet().size)
+    }
+
+    @Test
+    fun `load thumbnail - ok - cancelled requests drop the fetches not started yet`() {
+        fetchLatch = CountDownLatch(1)
+        val blockingRequests = (1..LOADER_THREADS).map { loader.loadThumbnail(imageFile(it), APP_THUMBNAIL_SIZE) }
+        val cancelledFile = imageFile(LOADER_THREADS + 1)
+        val cancelledRequest = loader.loadThumbnail(cancelledFile, APP_THUMBNAIL_SIZE)
+
+        cancelledRequest.cancel(false)
+        fetchLatch?.countDown()
+        blockingRequests.forEach { it.get(1, TimeUnit.SECONDS) }
+
+        assertEquals(LOADER_THREADS, fetches.get())
+        assertTrue(fetchedKeys.none { it.startsWith("${cancelledFile.remoteId}:") })
+    }
+
+    @Test
+    fun `load thumbnail - ko - failed fetch completes the request with null`() {
+        val file = imageFile(1).copy(etag = FAILING_ETAG)
+
+        assertNull(loader.loadThumbnail(file, APP_THUMBNAIL_SIZE).get(1, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun `load thumbnail - ok - grid of a picker fetches each thumbnail once`() {
+        val files = (1..GRID_SIZE).map { imageFile(it) }
+
+        // Every thumbnail is asked for twice, as pickers do when they bind a cell again
+        openGrid(files + files)
+        assertEquals(GRID_SIZE, fetches.get())
+        assertEquals(GRID_SIZE, fetchedKeys.size)
+        assertTrue(maxRunningFetches.get() <= LOADER_THREADS)
+
+        openGrid(files)
+        assertEquals(GRID_SIZE, fetches.get())
+    }
+
+    @Test
+    fun `load thumbnail - ok - scrolling past a grid drops the fetches not started yet`() {
+        fetchLatch = CountDownLatch(1)
+        val files = (1..GRID_SIZE).map { imageFile(it) }
+
+        files.map { loader.loadThumbnail(it, GRID_THUMBNAIL_SIZE) }.forEach { it.cancel(false) }
+        fetchLatch?.countDown()
+        val nextFile = imageFile(GRID_SIZE + 1)
+        loader.loadThumbnail(nextFile, GRID_THUMBNAIL_SIZE).get(1, TimeUnit.SECONDS)
+
+        assertTrue(fetches.get() <= LOADER_THREADS + 1)
+        assertTrue(fetchedKeys.any { it.startsWith("${nextFile.remoteId}:") })
+        assertTrue(files.drop(LOADER_THREADS).none { file -> fetchedKeys.any { it.startsWith("${file.remoteId}:") } })
+    }
+
+    /**
+     * Asks for the thumbnails of [files] from [PICKER_THREADS] threads, like the binder threads of the provider.
+     */
+    private fun openGrid(files: List<OCFile>) {
+        val pickerThreads = Executors.newFixedThreadPool(PICKER_THREADS)
+        try {
+            pickerThreads.invokeAll(files.map { file ->
+                Callable { loader.loadThumbnail(file, GRID_THUMBNAIL_SIZE).get(10, TimeUnit.SECONDS) }
+            }).forEach { assertTrue(it.get() != null) }
+        } finally {
+            pickerThreads.shutdown()
+        }
+    }
+
+    private fun fetch(key: String, size: Int): File? {
+        val running = runningFetches.incrementAndGet()
+        maxRunningFetches.accumulateAndGet(running) { max, current -> maxOf(max, current) }
+        try {
+            fetches.incrementAndGet()
+            fetchedKeys.add(key)
+            fetchLatch?.await()
+            return if (key.contains(FAILING_ETAG)) null else cacheThumbnail(key, size)
+        } finally {
+            runningFetches.decrementAndGet()
+        }
+    }
+
+    private fun cacheThumbnail(key: String, size: Int = APP_THUMBNAIL_SIZE): File =
+        File(cacheFolder, key.replace(':', '_')).apply { writeBytes(ByteArray(size)) }.also { cachedThumbnails[key] = it }
+
+    private fun imageFile(index: Int) = OC_FILE.copy(
+        id = index.toLong(),
+        remoteId = "remoteId$index",
+        remotePath = "/Photos/image$index.jpg",
+        mimeType = "image/jpeg",
+        etag = "etag$index",
+        needsToUpdateThumbnail = false,
+    )
+
+    companion object {
+        private const val GRID_SIZE = 200
+        private const val PICKER_THREADS = 16
+        private const val LOADER_THREADS = 3
+        private const val APP_THUMBNAIL_SIZE = 128
+        private const val GRID_THUMBNAIL_SIZE = 96
+        private const val FAILING_ETAG = "failingEtag"
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.presentation.documentsprovider
+
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import kotlin.random.Random
+
+class RemoteFileBlockCacheTest {
+
+    private val remoteContent = Random(RANDOM_SEED).nextBytes(FILE_LENGTH)
+    private val fetchedRanges = mutableListOf<LongRange>()
+
+    private lateinit var cacheFile: File
+    private lateinit var blockCache: RemoteFileBlockCache
+
+    @Before
+    fun setUp() {
+        cacheFile = File.createTempFile("streaming", null)
+        blockCache = RemoteFileBlockCache(
+            cacheFile = cacheFile,
+            fileLength = FILE_LENGTH.toLong(),
+            blockSize = BLOCK_SIZE,
+            readAheadBlocks = READ_AHEAD_BLOCKS,
+        ) { start, length ->
+            fetchedRanges.add(start until start + length)
+            remoteContent.copyOfRange(start.toInt(), start.toInt() + length)
+        }
+    }
+
+    @After
+    fun tearDown() {
+        blockCache.close()
+        cacheFile.delete()
+    }
+
+    @Test
+    fun `read - ok - sequential reads fetch the next blocks ahead`() {
+        val readContent = readSequentially(chunkSize = BLOCK_SIZE / 4)
+
+        assertArrayEquals(remoteContent, readContent)
+        assertTrue(blockCache.isComplete)
+        assertEquals(FILE_LENGTH.toLong(), blockCache.cachedPrefixLength)
+        // First read fetches its block alone, every next request fetches the block being read and the ones ahead
+        assertEquals(1 + (NUMBER_OF_BLOCKS - 1 + READ_AHEAD_BLOCKS) / (READ_AHEAD_BLOCKS + 1), fetchedRanges.size)
+    }
+
+    @Test
+    fun `read - ok - random reads only fetch the blocks they need once`() {
+        val data = ByteArray(BLOCK_SIZE)
+        val offset = 5L * BLOCK_SIZE + 10
+
+        repeat(3) {
+            assertEquals(100, blockCache.read(offset, 100, data))
+        }
+
+        assertArrayEquals(remoteContent.copyOfRange(offset.toInt(), offset.toInt() + 100), data.copyOf(100))
+        assertEquals(listOf(5L * BLOCK_SIZE until 6L * BLOCK_SIZE), fetchedRanges)
+        assertFalse(blockCache.isComplete)
+        assertEquals(0L, blockCache.cachedPrefixLength)
+    }
+
+    @Test
+    fun `read - ok - read across blocks fetches the missing ones in a single request`() {
+        val data = ByteArray(3 * BLOCK_SIZE)
+        blockCache.read(BLOCK_SIZE.toLong(), 1, data)
+        fetchedRanges.clear()
+
+        blockCache.read(0, 3 * BLOCK_SIZE, data)
+
+        assertArrayEquals(remoteContent.copyOfRange(0, 3 * BLOCK_SIZE), data)
+        assertEquals(listOf(0L until BLOCK_SIZE.toLong(), 2L * BLOCK_SIZE until 3L * BLOCK_SIZE), fetchedRanges)
+        assertEquals(3L * BLOCK_SIZE, blockCache.cachedPrefixLength)
+    }
+
+    @Test
+    fun `read - ok - ranges added from outside are not fetched again`() {
+        blockCache.addRange(0, remoteContent.copyOfRange(0, BLOCK_SIZE + 10))
+        val data = ByteArray(BLOCK_SIZE)
+
+        blockCache.read(0, BLOCK_SIZE, data)
+
+        assertArrayEquals(remoteContent.copyOfRange(0, BLOCK_SIZE), data)
+        assertTrue(fetchedRanges.isEmpty())
+        assertEquals(BLOCK_SIZE.toLong(), blockCache.cachedPrefixLength)
+    }
+
+    @Test
+    fun `read - ok - end of the file`() {
+        val data = ByteArray(BLOCK_SIZE)
+
+        assertEquals(LAST_BLOCK_LENGTH, blockCache.read(FILE_LENGTH.toLong() - LAST_BLOCK_LENGTH, BLOCK_SIZE, data))
+        assertEquals(0, blockCache.read(FILE_LENGTH.toLong(), BLOCK_SIZE, data))
+    }
+
+    private fun readSequentially(chunkSize: Int): ByteArray {
+        val readContent = ByteArray(FILE_LENGTH)
+        val data = ByteArray(chunkSize)
+        var offset = 0
+        while (true) {
+            val read = blockCache.read(offset.toLong(), chunkSize, data)
+            if (read == 0) break
+            data.copyInto(readContent, offset, 0, read)
+            offset += read
+        }
+        return readContent
+    }
+
+    companion object {
+        private const val BLOCK_SIZE = 4 * 1024
+        private const val READ_AHEAD_BLOCKS = 3
+        private const val LAST_BLOCK_LENGTH = 100
+        private const val NUMBER_OF_BLOCKS = 20
+        private const val FILE_LENGTH = (NUMBER_OF_BLOCKS - 1) * BLOCK_SIZE + LAST_BLOCK_LENGTH
+        private const val RANDOM_SEED = 23
+    }
+}
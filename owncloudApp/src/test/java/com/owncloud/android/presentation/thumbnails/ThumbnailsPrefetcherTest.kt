@@ -0,0 +1,167 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.presentation.thumbnails
+
+import android.accounts.Account
+import com.owncloud.android.R
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.presentation.authentication.AccountUtils
+import com.owncloud.android.providers.ContextProvider
+import com.owncloud.android.providers.CoroutinesDispatcherProvider
+import com.owncloud.android.testutil.OC_ACCOUNT_NAME
+import com.owncloud.android.testutil.OC_FILE
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.mockkStatic
+import io.mockk.unmockkStatic
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ThumbnailsPrefetcherTest {
+
+    private val contextProvider: ContextProvider = mockk(relaxed = true)
+    private val account: Account = mockk()
+    private val prefetchedFiles = Collections.synchronizedList(ArrayList<OCFile>())
+    private var prefetchThumbnail: (OCFile) -> Long = { THUMBNAIL_BYTES }
+
+    private val prefetcher = ThumbnailsPrefetcher(
+        contextProvider = contextProvider,
+        coroutinesDispatcherProvider = CoroutinesDispatcherProvider(),
+        prefetchThumbnail = { file, _ ->
+            prefetchedFiles.add(file)
+            prefetchThumbnail(file)
+        },
+    )
+
+    @Before
+    fun setUp() {
+        every { contextProvider.getBoolean(R.bool.prefetch_thumbnails_on_unmetered_networks) } returns true
+        every { contextProvider.isConnectedToUnmeteredNetwork() } returns true
+        mockkStatic(AccountUtils::class)
+        every { AccountUtils.getOwnCloudAccountByName(any(), OC_ACCOUNT_NAME) } returns account
+    }
+
+    @After
+    fun tearDown() {
+        unmockkStatic(AccountUtils::class)
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - only images and videos whose thumbnail needs to be updated`() = runBlocking {
+        val image = fileToPrefetch(0)
+        val video = fileToPrefetch(1).copy(mimeType = "video/mp4")
+        val upToDateImage = fileToPrefetch(2).copy(needsToUpdateThumbnail = false)
+        val document = fileToPrefetch(3).copy(mimeType = "application/pdf")
+        val imageWithoutRemoteId = fileToPrefetch(4).copy(remoteId = null)
+
+        prefetcher.prefetchThumbnails(listOf(image, video, upToDateImage, document, imageWithoutRemoteId), OC_ACCOUNT_NAME)
+
+        assertEquals(setOf(image, video), prefetchedFiles.toSet())
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - nothing is prefetched on metered networks`() = runBlocking {
+        every { contextProvider.isConnectedToUnmeteredNetwork() } returns false
+
+        prefetcher.prefetchThumbnails(List(NUMBER_OF_FILES) { fileToPrefetch(it) }, OC_ACCOUNT_NAME)
+
+        assertTrue(prefetchedFiles.isEmpty())
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - nothing is prefetched if disabled in the setup`() = runBlocking {
+        every { contextProvider.getBoolean(R.bool.prefetch_thumbnails_on_unmetered_networks) } returns false
+
+        prefetcher.prefetchThumbnails(List(NUMBER_OF_FILES) { fileToPrefetch(it) }, OC_ACCOUNT_NAME)
+
+        assertTrue(prefetchedFiles.isEmpty())
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - batches run in parallel`() = runBlocking {
+        val batchStarted = CountDownLatch(ThumbnailsPrefetcher.PARALLEL_PREFETCHES)
+        val runningPrefetches = AtomicInteger()
+        val maxRunningPrefetches = AtomicInteger()
+        prefetchThumbnail = {
+            maxRunningPrefetches.accumulateAndGet(runningPrefetches.incrementAndGet()) { max, running -> maxOf(max, running) }
+            // Only returns once the whole batch is in flight
+            batchStarted.countDown()
+            batchStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            runningPrefetches.decrementAndGet()
+            0
+        }
+
+        prefetcher.prefetchThumbnails(List(ThumbnailsPrefetcher.PARALLEL_PREFETCHES) { fileToPrefetch(it) }, OC_ACCOUNT_NAME)
+
+        assertEquals(ThumbnailsPrefetcher.PARALLEL_PREFETCHES, prefetchedFiles.size)
+        assertEquals(ThumbnailsPrefetcher.PARALLEL_PREFETCHES, maxRunningPrefetches.get())
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - stops once the bytes budget is exhausted`() = runBlocking {
+        val batchBytes = THUMBNAIL_BYTES * ThumbnailsPrefetcher.PARALLEL_PREFETCHES
+        val batchesWithinBudget = ((ThumbnailsPrefetcher.PREFETCH_BYTES_BUDGET + batchBytes - 1) / batchBytes).toInt()
+
+        prefetcher.prefetchThumbnails(List(NUMBER_OF_FILES) { fileToPrefetch(it) }, OC_ACCOUNT_NAME)
+
+        assertEquals(batchesWithinBudget * ThumbnailsPrefetcher.PARALLEL_PREFETCHES, prefetchedFiles.size)
+    }
+
+    @Test
+    fun `prefetch thumbnails - ok - cancelling stops before the next batch`() = runBlocking {
+        lateinit var prefetchJob: Job
+        prefetchThumbnail = {
+            prefetchJob.cancel()
+            0
+        }
+
+        prefetchJob = launch(Dispatchers.IO, start = CoroutineStart.LAZY) {
+            prefetcher.prefetchThumbnails(List(NUMBER_OF_FILES) { fileToPrefetch(it) }, OC_ACCOUNT_NAME)
+        }
+        prefetchJob.join()
+
+        assertTrue(prefetchedFiles.size in 1..ThumbnailsPrefetcher.PARALLEL_PREFETCHES)
+    }
+
+    private fun fileToPrefetch(index: Int) =
+        OC_FILE.copy(
+            id = index.toLong(),
+            remotePath = "/Photos/image$index.jpg",
+            remoteId = "remoteId$index",
+            needsToUpdateThumbnail = true,
+        )
+
+    companion object {
+        private const val NUMBER_OF_FILES = 100
+        private const val THUMBNAIL_BYTES = 512L * 1024
+        private const val TIMEOUT_SECONDS = 10L
+    }
+}
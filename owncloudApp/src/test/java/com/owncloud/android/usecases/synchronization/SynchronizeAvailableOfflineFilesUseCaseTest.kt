@@ -0,0 +1,136 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.usecases.synchronization
+
+import com.owncloud.android.domain.exceptions.NoConnectionWithServerException
+import com.owncloud.android.domain.files.FileRepository
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.testutil.OC_FILE
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+import kotlin.random.Random
+
+/**
+ * Synchronizes [NUMBER_OF_FILES] available offline files downloaded in the same folder, counting the requests sent
+ * to check their state in the server.
+ */
+class SynchronizeAvailableOfflineFilesUseCaseTest {
+
+    private val synchronizeFileUseCase: SynchronizeFileUseCase = mockk(relaxed = true)
+    private val fileRepository: FileRepository = mockk()
+    private val useCase = SynchronizeAvailableOfflineFilesUseCase(synchronizeFileUseCase, fileRepository)
+
+    private lateinit var localFolder: File
+    private lateinit var availableOfflineFiles: List<OCFile>
+
+    @Before
+    fun setUp() {
+        localFolder = Files.createTempDirectory("available-offline").toFile()
+        availableOfflineFiles = (1..NUMBER_OF_FILES).map { index ->
+            val localFile = File(localFolder, "file$index.txt").apply { writeText("content $index") }
+            OC_FILE.copy(
+                id = index.toLong(),
+                remotePath = "$FOLDER_PATH/file$index.txt",
+                etag = "etag$index",
+                storagePath = localFile.absolutePath,
+                lastSyncDateForData = localFile.lastModified(),
+            )
+        }
+    }
+
+    @After
+    fun tearDown() {
+        localFolder.deleteRecursively()
+    }
+
+    @Test
+    fun `synchronize available offline files - ok - unchanged files are checked with one request per folder`() {
+        every {
+            fileRepository.readFolderInBatches("$FOLDER_PATH/", OC_FILE.owner, OC_FILE.spaceId, any())
+        } answers { listFolder(availableOfflineFiles, lastArg()) }
+
+        val stats = useCase(SynchronizeAvailableOfflineFilesUseCase.Params(availableOfflineFiles)).getDataOrNull()
+
+        assertEquals(SynchronizeAvailableOfflineFilesUseCase.SyncStats(checkedFiles = NUMBER_OF_FILES, synchronizedFiles = 0, requests = 1), stats)
+        verify(exactly = 0) { synchronizeFileUseCase(any()) }
+    }
+
+    @Test
+    fun `synchronize available offline files - ok - only changed files are synchronized`() {
+        val changedRemotely = availableOfflineFiles[0]
+        val removedRemotely = availableOfflineFiles[1]
+        val changedLocally = availableOfflineFiles[2]
+        File(changedLocally.storagePath!!).setLastModified(changedLocally.lastSyncDateForData!! + 10_000)
+        val remoteFiles = availableOfflineFiles.minus(removedRemotely).map { file ->
+            if (file == changedRemotely) file.copy(etag = "newEtag") else file
+        }
+        every {
+            fileRepository.readFolderInBatches("$FOLDER_PATH/", OC_FILE.owner, OC_FILE.spaceId, any())
+        } answers { listFolder(remoteFiles, lastArg()) }
+
+        val stats = useCase(SynchronizeAvailableOfflineFilesUseCase.Params(availableOfflineFiles)).getDataOrNull()
+
+        assertEquals(SynchronizeAvailableOfflineFilesUseCase.SyncStats(checkedFiles = NUMBER_OF_FILES, synchronizedFiles = 3, requests = 4), stats)
+        verify(exactly = 1) {
+            synchronizeFileUseCase(SynchronizeFileUseCase.Params(changedRemotely))
+            synchronizeFileUseCase(SynchronizeFileUseCase.Params(removedRemotely))
+            synchronizeFileUseCase(SynchronizeFileUseCase.Params(changedLocally))
+        }
+    }
+
+    @Test
+    fun `synchronize available offline files - ok - files are synchronized one by one if the folder cannot be listed`() {
+        every { fileRepository.readFolderInBatches(any(), any(), any(), any()) } throws NoConnectionWithServerException()
+
+        val stats = useCase(SynchronizeAvailableOfflineFilesUseCase.Params(availableOfflineFiles)).getDataOrNull()
+
+        assertEquals(NUMBER_OF_FILES, stats?.synchronizedFiles)
+        verify(exactly = NUMBER_OF_FILES) { synchronizeFileUseCase(any()) }
+    }
+
+    @Test
+    fun `synchronize available offline files - ok - file alone in its folder is synchronized without listing the folder`() {
+        val stats = useCase(SynchronizeAvailableOfflineFilesUseCase.Params(availableOfflineFiles.take(1))).getDataOrNull()
+
+        assertEquals(SynchronizeAvailableOfflineFilesUseCase.SyncStats(checkedFiles = 1, synchronizedFiles = 1, requests = 1), stats)
+        verify(exactly = 0) { fileRepository.readFolderInBatches(any(), any(), any(), any()) }
+        verify(exactly = 1) { synchronizeFileUseCase(SynchronizeFileUseCase.Params(availableOfflineFiles[0])) }
+    }
+
+    /**
+     * Hands the remote files, mixed with files that are not available offline, to the consumer in batches.
+     */
+    private fun listFolder(remoteFiles: List<OCFile>, onFilesBatch: (List<OCFile>) -> Unit) {
+        val otherFiles = (1..NUMBER_OF_FILES).map { index -> OC_FILE.copy(id = null, remotePath = "$FOLDER_PATH/other$index.txt") }
+        (remoteFiles.map { it.copy(storagePath = null) } + otherFiles).shuffled(Random(RANDOM_SEED)).chunked(BATCH_SIZE).forEach(onFilesBatch)
+    }
+
+    companion object {
+        private const val FOLDER_PATH = "/Documents"
+        private const val NUMBER_OF_FILES = 200
+        private const val BATCH_SIZE = 50
+        private const val RANDOM_SEED = 21
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.usecases.synchronization
+
+import com.owncloud.android.domain.UseCaseResult
+import com.owncloud.android.domain.files.FileRepository
+import com.owncloud.android.domain.files.model.MIME_DIR
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.testutil.OC_ACCOUNT_NAME
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.REFRESH_FOLDER_RECURSIVELY
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_INCREMENTALLY
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_RECURSIVELY
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.random.Random
+
+/**
+ * Synchronizes an available offline tree of [NUMBER_OF_FILES] files, [FILES_PER_FOLDER] per leaf folder, after
+ * [CHURN_PERCENT]% of them changed in the server, counting the requests sent and the files synchronized.
+ *
+ * The fake repository behaves like the real one: a refresh only returns the children whose etag changed, keeping their
+ * old etag, and a folder gets its new etag once it is refreshed. Changing a file changes the etag of all its ancestors.
+ */
+class SynchronizeFolderIncrementallyTest {
+
+    @Rule
+    @JvmField
+    val temporaryFolder = TemporaryFolder()
+
+    private val synchronizeFileUseCase: SynchronizeFileUseCase = mockk()
+    private val fileRepository: FileRepository = mockk()
+    private val useCase = SynchronizeFolderUseCase(synchronizeFileUseCase, fileRepository)
+
+    private val serverEtags = HashMap<String, String>()
+    private val serverChildren = HashMap<String, List<String>>()
+    private var database = ConcurrentHashMap<String, OCFile>()
+    private var lastEtag = 0
+    private val failedDownloads = mutableSetOf<String>()
+
+    private val listedFolders = AtomicInteger(0)
+    private val readFolders = AtomicInteger(0)
+    private val synchronizedFiles = AtomicInteger(0)
+
+    @Before
+    fun setUp() {
+        every { fileRepository.refreshFolderInBatches(any(), any(), any(), any(), any()) } answers {
+            val remotePath = firstArg<String>()
+            listedFolders.incrementAndGet()
+            val filesThatChanged = serverChildren.getValue(remotePath)
+                .map { database.getValue(it) }
+                .filter { it.etag != serverEtags[it.remotePath] }
+            lastArg<(List<OCFile>) -> Unit>().invoke(filesThatChanged)
+            database[remotePath] = database.getValue(remotePath).copy(etag = serverEtags[remotePath])
+        }
+        every { fileRepository.readFile(any(), any(), any()) } answers {
+            readFolders.incrementAndGet()
+            database.getValue(firstArg()).copy(etag = serverEtags[firstArg()])
+        }
+        every { fileRepository.getFileByRemotePath(any(), any(), any()) } answers { database[firstArg()] }
+        every { fileRepository.getDownloadedFilesUnderRemotePath(any(), any(), any()) } answers {
+            val remotePath = firstArg<String>()
+            database.values.filter { it.storagePath != null && it.remotePath.startsWith(remotePath) }
+        }
+        every { fileRepository.getFolderContent(any()) } answers {
+            val folderId = firstArg<Long>()
+            database.values.filter { it.parentId == folderId }
+        }
+        val savedFile = slot<OCFile>()
+        every { fileRepository.saveFile(capture(savedFile)) } answers {
+            database[savedFile.captured.remotePath] = savedFile.captured
+        }
+        val fileToSynchronize = slot<SynchronizeFileUseCase.Params>()
+        every { synchronizeFileUseCase(capture(fileToSynchronize)) } answers {
+            val file = fileToSynchronize.captured.fileToSynchronize
+            synchronizedFiles.incrementAndGet()
+            if (file.remotePath !in failedDownloads) {
+                database[file.remotePath] = file.copy(
+                    etag = serverEtags[file.remotePath],
+                    lastSyncDateForData = maxOf(file.lastSyncDateForData ?: 0, file.localModificationTimestamp),
+                )
+            }
+            UseCaseResult.Success(SynchronizeFileUseCase.SyncType.DownloadEnqueued(null))
+        }
+
+        addTree()
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - first cycle walks the whole tree`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+
+        assertEquals(NUMBER_OF_FOLDERS, listedFolders.get())
+        assertEquals(0, synchronizedFiles.get())
+        assertEquals(serverEtags[ROOT_PATH], database.getValue(ROOT_PATH).treeEtag)
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - nothing is listed when the tree did not change`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        resetCounters()
+
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+
+        assertEquals(1, readFolders.get())
+        assertEquals(0, listedFolders.get())
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - only changed subtrees are listed`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val changedFiles = changeFilesInServer()
+        val changedFolders = changedFiles.flatMap { ancestorsOf(it) }.toSet()
+        val snapshot = copyOfDatabase()
+
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val incrementalRequests = readFolders.get() + listedFolders.get()
+        assertEquals(changedFiles.size, synchronizedFiles.get())
+        assertEquals(changedFolders.size, listedFolders.get())
+
+        database = snapshot
+        resetCounters()
+        synchronize(SYNC_FOLDER_RECURSIVELY)
+        assertEquals(changedFiles.size, synchronizedFiles.get())
+        assertEquals(NUMBER_OF_FOLDERS, listedFolders.get())
+        assertTrue(incrementalRequests < listedFolders.get())
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - files modified locally are synchronized when the tree did not change`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val modifiedPath = "${ROOT_PATH}folder3/folder7/file2.txt"
+        val localFile = temporaryFolder.newFile().apply { setLastModified(LOCAL_MODIFICATION_TIMESTAMP) }
+        database[modifiedPath] = database.getValue(modifiedPath).copy(
+            storagePath = localFile.absolutePath,
+            lastSyncDateForData = LOCAL_MODIFICATION_TIMESTAMP - 60_000,
+        )
+
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+
+        assertEquals(0, listedFolders.get())
+        assertEquals(1, synchronizedFiles.get())
+        verify(exactly = 1) {
+            synchronizeFileUseCase(match { it.fileToSynchronize.remotePath == modifiedPath })
+        }
+
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+
+        assertEquals(0, synchronizedFiles.get())
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - interrupted cycle is resumed`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val changedFiles = changeFilesInServer()
+        val changedFirstLevelFolders = changedFiles.map { ancestorsOf(it)[1] }.toSet()
+        val snapshot = copyOfDatabase()
+        // Interrupted once the first level has been listed, before the folders with the changed files
+        val foldersBeforeInterruption = 1 + changedFirstLevelFolders.size
+
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY, isCancelled = { listedFolders.get() >= foldersBeforeInterruption })
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val resumedFiles = synchronizedFiles.get()
+
+        database = snapshot
+        resetCounters()
+        synchronize(SYNC_FOLDER_RECURSIVELY, isCancelled = { listedFolders.get() >= foldersBeforeInterruption })
+        synchronize(SYNC_FOLDER_RECURSIVELY)
+        assertEquals(changedFiles.size, resumedFiles)
+        assertTrue(synchronizedFiles.get() < changedFiles.size)
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - files changed in the server are synchronized after a recursive refresh`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val changedPath = "${ROOT_PATH}folder3/folder7/file2.txt"
+        changeFileInServer(changedPath)
+
+        synchronize(REFRESH_FOLDER_RECURSIVELY)
+        assertEquals(0, synchronizedFiles.get())
+
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+
+        assertEquals(1, synchronizedFiles.get())
+        verify(exactly = 1) {
+            synchronizeFileUseCase(match { it.fileToSynchronize.remotePath == changedPath })
+        }
+        assertEquals(serverEtags[changedPath], database.getValue(changedPath).etag)
+    }
+
+    @Test
+    fun `synchronize folder incrementally - ok - failed downloads are retried in the next cycle`() {
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        val changedPath = "${ROOT_PATH}folder3/folder7/file2.txt"
+        changeFileInServer(changedPath)
+        failedDownloads.add(changedPath)
+
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        assertEquals(1, synchronizedFiles.get())
+
+        failedDownloads.clear()
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        assertEquals(1, synchronizedFiles.get())
+        assertEquals(serverEtags[changedPath], database.getValue(changedPath).etag)
+
+        // The checkpoint is written once a cycle finds nothing left to synchronize
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        resetCounters()
+        synchronize(SYNC_FOLDER_INCREMENTALLY)
+        assertEquals(0, listedFolders.get())
+        assertEquals(0, synchronizedFiles.get())
+    }
+
+    private fun synchronize(syncMode: SyncFolderMode, isCancelled: () -> Boolean = { false }) {
+        useCase(
+            SynchronizeFolderUseCase.Params(
+                remotePath = ROOT_PATH,
+                accountName = OC_ACCOUNT_NAME,
+                syncMode = syncMode,
+                parallelism = 1,
+                isCancelled = isCancelled,
+            )
+        )
+    }
+
+    /**
+     * Root folder with [BRANCHING] folders, each of them with [BRANCHING] folders of [FILES_PER_FOLDER] files. Everything
+     * is already downloaded, but the tree has never been synchronized incrementally.
+     */
+    private fun addTree() {
+        addFolder(ROOT_PATH, parentId = null)
+        repeat(BRANCHING) { first ->
+            val firstLevelPath = "${ROOT_PATH}folder$first/"
+            addFolder(firstLevelPath, parentId = database.getValue(ROOT_PATH).id)
+            repeat(BRANCHING) { second ->
+                val secondLevelPath = "${firstLevelPath}folder$second/"
+                addFolder(secondLevelPath, parentId = database.getValue(firstLevelPath).id)
+                repeat(FILES_PER_FOLDER) { file ->
+                    addFile("${secondLevelPath}file$file.txt", parentId = database.getValue(secondLevelPath).id)
+                }
+            }
+        }
+    }
+
+    private fun addFolder(remotePath: String, parentId: Long?) {
+        add(remotePath, parentId, MIME_DIR)
+        serverChildren[remotePath] = emptyList()
+    }
+
+    private fun addFile(remotePath: String, parentId: Long?) {
+        add(remotePath, parentId, "text/plain")
+    }
+
+    private fun add(remotePath: String, parentId: Long?, mimeType: String) {
+        val etag = newEtag()
+        serverEtags[remotePath] = etag
+        database[remotePath] = OCFile(
+            id = database.size.toLong() + 1,
+            parentId = parentId,
+            owner = OC_ACCOUNT_NAME,
+            length = 0,
+            modificationTimestamp = 0,
+            remotePath = remotePath,
+            mimeType = mimeType,
+            etag = etag,
+        )
+        ancestorsOf(remotePath).lastOrNull()?.let { parentPath ->
+            serverChildren[parentPath] = serverChildren.getValue(parentPath) + remotePath
+        }
+    }
+
+    private fun changeFilesInServer(): List<String> {
+        val files = database.values.filterNot { it.isFolder }.map { it.remotePath }.sorted()
+        val changedFiles = files.shuffled(Random(RANDOM_SEED)).take(NUMBER_OF_FILES * CHURN_PERCENT / 100)
+        changedFiles.forEach { changeFileInServer(it) }
+        return changedFiles
+    }
+
+    private fun changeFileInServer(remotePath: String) {
+        (ancestorsOf(remotePath) + remotePath).forEach { serverEtags[it] = newEtag() }
+    }
+
+    /**
+     * @return folders containing [remotePath], from the root to its parent.
+     */
+    private fun ancestorsOf(remotePath: String): List<String> {
+        if (remotePath == ROOT_PATH) return emptyList()
+        val segments = remotePath.trim('/').split('/').dropLast(1)
+        return (0..segments.size).map { level -> ROOT_PATH + segments.take(level).joinToString("") { "$it/" } }
+    }
+
+    private fun newEtag() = "etag${lastEtag++}"
+
+    private fun copyOfDatabase() = ConcurrentHashMap(database.mapValues { it.value.copy() })
+
+    private fun resetCounters() {
+        listedFolders.set(0)
+        readFolders.set(0)
+        synchronizedFiles.set(0)
+    }
+
+    companion object {
+        private const val ROOT_PATH = "/"
+        private const val LOCAL_MODIFICATION_TIMESTAMP = 1_700_000_000_000
+        private const val BRANCHING = 10
+        private const val FILES_PER_FOLDER = 100
+        private const val NUMBER_OF_FOLDERS = 1 + BRANCHING + BRANCHING * BRANCHING
+        private const val NUMBER_OF_FILES = BRANCHING * BRANCHING * FILES_PER_FOLDER
+        private const val CHURN_PERCENT = 1
+        private const val RANDOM_SEED = 22
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.usecases.synchronization
+
+import com.owncloud.android.domain.UseCaseResult
+import com.owncloud.android.domain.files.FileRepository
+import com.owncloud.android.domain.files.model.MIME_DIR
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.testutil.OC_ACCOUNT_NAME
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.REFRESH_FOLDER_RECURSIVELY
+import com.owncloud.android.usecases.synchronization.SynchronizeFolderUseCase.SyncFolderMode.SYNC_FOLDER_RECURSIVELY
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Walks a synthetic tree of [BRANCHING]^[DEPTH] folders, counting the refreshes of the repository and how many of them
+ * are running at the same time.
+ */
+class SynchronizeFolderUseCaseTest {
+
+    private val synchronizeFileUseCase: SynchronizeFileUseCase = mockk(relaxed = true)
+    private val fileRepository: FileRepository = mockk(relaxed = true)
+    private val useCase = SynchronizeFolderUseCase(synchronizeFileUseCase, fileRepository)
+
+    private val foldersInDatabase = ConcurrentHashMap<String, OCFile>()
+    private val refreshedFolders = AtomicInteger(0)
+    private val runningRefreshes = AtomicInteger(0)
+    private val maxRunningRefreshes = AtomicInteger(0)
+    private var firstLevelRefreshesStarted: CountDownLatch? = null
+
+    @Before
+    fun setUp() {
+        every { fileRepository.refreshFolderInBatches(any(), any(), any(), any(), any()) } answers {
+            val remotePath = firstArg<String>()
+            maxRunningRefreshes.accumulateAndGet(runningRefreshes.incrementAndGet(), ::maxOf)
+            if (depthOf(remotePath) == 1) {
+                firstLevelRefreshesStarted?.run {
+                    countDown()
+                    await(LATCH_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                }
+            }
+            refreshedFolders.incrementAndGet()
+            runningRefreshes.decrementAndGet()
+            lastArg<(List<OCFile>) -> Unit>().invoke(childrenOf(remotePath))
+            foldersInDatabase[remotePath] = foldersInDatabase[remotePath]!!.copy(etag = remoteEtagOf(remotePath))
+        }
+        every { fileRepository.getFileByRemotePath(any(), any(), any()) } answers { foldersInDatabase[firstArg()] }
+        val savedFolder = slot<OCFile>()
+        every { fileRepository.saveFile(capture(savedFolder)) } answers {
+            foldersInDatabase[savedFolder.captured.remotePath] = savedFolder.captured
+        }
+
+        addTreeToDatabase(ROOT_PATH, 0)
+    }
+
+    @Test
+    fun `synchronize folder - ok - refreshes the whole tree`() {
+        val result = useCase(paramsForRoot(parallelism = 1))
+
+        assertTrue(result.isSuccess)
+        assertEquals(numberOfFolders(), refreshedFolders.get())
+    }
+
+    @Test
+    fun `synchronize folder - ok - folders are refreshed one at a time without parallelism`() {
+        useCase(paramsForRoot(parallelism = 1))
+
+        assertEquals(numberOfFolders(), refreshedFolders.get())
+        assertEquals(1, maxRunningRefreshes.get())
+    }
+
+    @Test
+    fun `synchronize folder - ok - sibling folders are refreshed concurrently`() {
+        // Every first level refresh waits until all its siblings have started
+        firstLevelRefreshesStarted = CountDownLatch(BRANCHING)
+
+        useCase(paramsForRoot(parallelism = BRANCHING))
+
+        assertEquals(0, firstLevelRefreshesStarted!!.count)
+        assertEquals(numberOfFolders(), refreshedFolders.get())
+        assertEquals(BRANCHING, maxRunningRefreshes.get())
+    }
+
+    @Test
+    fun `synchronize folder - ok - refreshing recursively does not save tree etags`() {
+        useCase(paramsForRoot(parallelism = BRANCHING))
+
+        assertNotEquals(remoteEtagOf(ROOT_PATH), foldersInDatabase[ROOT_PATH]!!.treeEtag)
+
+        refreshedFolders.set(0)
+        useCase(paramsForRoot(parallelism = BRANCHING))
+
+        assertEquals(numberOfFolders(), refreshedFolders.get())
+    }
+
+    @Test
+    fun `synchronize folder - ko - cancelled walk stops and does not save tree etags`() {
+        val result = useCase(paramsForRoot(parallelism = 1).copy(isCancelled = { refreshedFolders.get() >= BRANCHING }))
+
+        assertTrue(result.isError)
+        assertTrue(refreshedFolders.get() < numberOfFolders())
+        verify(exactly = 0) { fileRepository.saveFile(any()) }
+    }
+
+    @Test
+    fun `synchronize folder - ok - reports progress`() {
+        var lastProgress: SynchronizeFolderUseCase.FolderSyncProgress? = null
+
+        useCase(paramsForRoot(parallelism = BRANCHING).copy(onProgress = { lastProgress = it }))
+
+        assertEquals(SynchronizeFolderUseCase.FolderSyncProgress(synchronizedFolders = numberOfFolders(), pendingFolders = 0), lastProgress)
+    }
+
+    @Test
+    fun `synchronize folder - ok - files are synchronized once the listing of their folder has been read`() {
+        val file = folderOf("${ROOT_PATH}file.txt").copy(mimeType = "text/plain")
+        var isListing = false
+        var filesSynchronizedWhileListing = 0
+        every { fileRepository.refreshFolderInBatches(ROOT_PATH, any(), any(), any(), any()) } answers {
+            isListing = true
+            lastArg<(List<OCFile>) -> Unit>().invoke(listOf(file))
+            isListing = false
+        }
+        every { synchronizeFileUseCase(any()) } answers {
+            if (isListing) filesSynchronizedWhileListing++
+            UseCaseResult.Success(SynchronizeFileUseCase.SyncType.AlreadySynchronized)
+        }
+
+        useCase(paramsForRoot(parallelism = 1).copy(syncMode = SYNC_FOLDER_RECURSIVELY))
+
+        verify(exactly = 1) { synchronizeFileUseCase(SynchronizeFileUseCase.Params(fileToSynchronize = file)) }
+        assertEquals(0, filesSynchronizedWhileListing)
+    }
+
+    private fun paramsForRoot(parallelism: Int) =
+        SynchronizeFolderUseCase.Params(
+            remotePath = ROOT_PATH,
+            accountName = OC_ACCOUNT_NAME,
+            syncMode = REFRESH_FOLDER_RECURSIVELY,
+            parallelism = parallelism,
+        )
+
+    private fun addTreeToDatabase(remotePath: String, depth: Int) {
+        foldersInDatabase[remotePath] = folderOf(remotePath)
+        if (depth < DEPTH) {
+            childrenOf(remotePath).forEach { addTreeToDatabase(it.remotePath, depth + 1) }
+        }
+    }
+
+    private fun depthOf(remotePath: String) = remotePath.count { it == '/' } - 1
+
+    private fun childrenOf(remotePath: String): List<OCFile> {
+        if (depthOf(remotePath) >= DEPTH) return emptyList()
+        return (0 until BRANCHING).map { folderOf("${remotePath}folder$it/") }
+    }
+
+    private fun folderOf(remotePath: String) =
+        OCFile(
+            owner = OC_ACCOUNT_NAME,
+            length = 0,
+            modificationTimestamp = 0,
+            remotePath = remotePath,
+            mimeType = MIME_DIR,
+            etag = "",
+        )
+
+    private fun remoteEtagOf(remotePath: String) = "etag-${remotePath.hashCode()}"
+
+    private fun numberOfFolders() = (0..DEPTH).sumOf { level -> (1..level).fold(1) { acc, _ -> acc * BRANCHING } }
+
+    companion object {
+        private const val ROOT_PATH = "/"
+        private const val BRANCHING = 4
+        private const val DEPTH = 2
+        private const val LATCH_TIMEOUT_SECONDS = 5L
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.usecases.transfers.downloads
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+class DownloadCompletionNotifierTest {
+
+    private val downloadCompletionNotifier = DownloadCompletionNotifier()
+
+    @Test
+    fun `download completion - ok - waiter wakes when the download finishes and not before`() {
+        val downloadCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+        val isWaiting = CountDownLatch(1)
+        var isSuccess: Boolean? = null
+
+        val waiter = thread {
+            isWaiting.countDown()
+            isSuccess = downloadCompletion.get(10, TimeUnit.SECONDS)
+        }
+        isWaiting.await()
+
+        assertFalse(downloadCompletion.isDone)
+        assertTrue(waiter.isAlive)
+
+        downloadCompletionNotifier.notifyDownloadFinished(FILE_ID, isSuccess = true)
+        waiter.join(TimeUnit.SECONDS.toMillis(10))
+
+        assertTrue(downloadCompletion.isDone)
+        assertEquals(true, isSuccess)
+    }
+
+    @Test
+    fun `download completion - ok - every waiter of the file is notified of a failure`() {
+        val firstCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+        val secondCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+        val otherFileCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID + 1)
+
+        downloadCompletionNotifier.notifyDownloadFinished(FILE_ID, isSuccess = false)
+
+        assertFalse(firstCompletion.get(1, TimeUnit.SECONDS))
+        assertFalse(secondCompletion.get(1, TimeUnit.SECONDS))
+        assertFalse(otherFileCompletion.isDone)
+    }
+
+    @Test
+    fun `download completion - ok - cancelled waiter does not affect the rest`() {
+        val cancelledCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+        val downloadCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+
+        cancelledCompletion.cancel(false)
+        downloadCompletionNotifier.notifyDownloadFinished(FILE_ID, isSuccess = true)
+
+        assertTrue(cancelledCompletion.isCancelled)
+        assertTrue(downloadCompletion.get(1, TimeUnit.SECONDS))
+    }
+
+    @Test
+    fun `download completion - ok - next download of the file is waited for again`() {
+        downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+        downloadCompletionNotifier.notifyDownloadFinished(FILE_ID, isSuccess = false)
+
+        val downloadCompletion = downloadCompletionNotifier.getDownloadCompletion(FILE_ID)
+
+        assertFalse(downloadCompletion.isDone)
+    }
+
+    companion object {
+        private const val FILE_ID = 42L
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.usecases.transfers.uploads
+
+import androidx.work.ExistingWorkPolicy
+import androidx.work.OneTimeWorkRequest
+import androidx.work.WorkManager
+import com.owncloud.android.domain.transfers.model.UploadEnqueuedBy
+import com.owncloud.android.workers.AutomaticUploadsQueueWorker
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class EnqueueAutomaticUploadsQueueUseCaseTest {
+
+    private val workManager: WorkManager = mockk(relaxed = true)
+    private val useCase = EnqueueAutomaticUploadsQueueUseCase(workManager)
+
+    @Test
+    fun `enqueue queue - ok - new drain replaces the previous one`() {
+        useCase(EnqueueAutomaticUploadsQueueUseCase.Params(ENQUEUED_BY, wifiOnly = true, chargingOnly = false))
+
+        verify(exactly = 1) {
+            workManager.enqueueUniqueWork(
+                AutomaticUploadsQueueWorker.getUniqueWorkName(ENQUEUED_BY),
+                ExistingWorkPolicy.REPLACE,
+                any<OneTimeWorkRequest>()
+            )
+        }
+    }
+
+    @Test
+    fun `enqueue queue - ok - continuation runs after the current drain with the same configuration`() {
+        val workRequest = slot<OneTimeWorkRequest>()
+
+        useCase(EnqueueAutomaticUploadsQueueUseCase.Params(ENQUEUED_BY, wifiOnly = true, chargingOnly = true, isContinuation = true))
+
+        verify(exactly = 1) {
+            workManager.enqueueUniqueWork(
+                AutomaticUploadsQueueWorker.getUniqueWorkName(ENQUEUED_BY),
+                ExistingWorkPolicy.APPEND_OR_REPLACE,
+                capture(workRequest)
+            )
+        }
+        val inputData = workRequest.captured.workSpec.input
+        assertEquals(ENQUEUED_BY.name, inputData.getString(AutomaticUploadsQueueWorker.KEY_PARAM_ENQUEUED_BY))
+        assertTrue(inputData.getBoolean(AutomaticUploadsQueueWorker.KEY_PARAM_WIFI_ONLY, false))
+        assertTrue(inputData.getBoolean(AutomaticUploadsQueueWorker.KEY_PARAM_CHARGING_ONLY, false))
+    }
+
+    companion object {
+        private val ENQUEUED_BY = UploadEnqueuedBy.ENQUEUED_AS_AUTOMATIC_UPLOAD_PICTURE
+    }
+}
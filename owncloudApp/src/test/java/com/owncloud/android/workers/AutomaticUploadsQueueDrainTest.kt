@@ -0,0 +1,130 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Drains a fake queue whose uploads finish one by one, in virtual time, checking the limit of pending uploads and the
+ * hand over of the rest of the queue to the next window.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class AutomaticUploadsQueueDrainTest {
+
+    private val pendingUploads = MutableStateFlow(0)
+    private var queuedUploads = 0
+    private var maxPendingUploads = 0
+    private var handOverCalls = 0
+
+    @Test
+    fun `drain - ok - short queue is drained within the window`() = runTest {
+        queuedUploads = 10
+        val queueDrain = newQueueDrain()
+
+        val isDrained = finishingUploads { queueDrain.drain(pendingUploads) }
+
+        assertTrue(isDrained)
+        assertEquals(10, queueDrain.uploadsHandedOver)
+        assertEquals(0, queuedUploads)
+        assertEquals(CONCURRENCY, maxPendingUploads)
+    }
+
+    @Test
+    fun `drain - ok - empty queue without pending uploads finishes at once`() = runTest {
+        val queueDrain = newQueueDrain()
+
+        assertTrue(queueDrain.drain(pendingUploads))
+        assertEquals(0, queueDrain.uploadsHandedOver)
+        assertEquals(1, handOverCalls)
+    }
+
+    @Test
+    fun `drain - ok - long queue is handed over to the next window with its uploads still pending`() = runTest {
+        queuedUploads = LONG_QUEUE
+        val firstWindow = newQueueDrain()
+        val secondWindow = newQueueDrain()
+
+        val isDrainedInFirstWindow = finishingUploads { firstWindow.drain(pendingUploads) }
+        val pendingAtHandOver = pendingUploads.value
+        val isDrainedInSecondWindow = finishingUploads { secondWindow.drain(pendingUploads) }
+
+        assertFalse(isDrainedInFirstWindow)
+        assertTrue(firstWindow.uploadsHandedOver in 1 until LONG_QUEUE)
+        assertTrue(pendingAtHandOver > 0)
+        assertTrue(isDrainedInSecondWindow)
+        assertEquals(LONG_QUEUE, firstWindow.uploadsHandedOver + secondWindow.uploadsHandedOver)
+        assertEquals(CONCURRENCY, maxPendingUploads)
+    }
+
+    @Test
+    fun `drain - ok - window closes while no upload finishes`() = runTest {
+        queuedUploads = LONG_QUEUE
+        val queueDrain = newQueueDrain()
+
+        val isDrained = queueDrain.drain(pendingUploads)
+
+        assertFalse(isDrained)
+        assertEquals(CONCURRENCY, queueDrain.uploadsHandedOver)
+        assertEquals(WINDOW_MILLIS, testScheduler.currentTime)
+    }
+
+    private fun newQueueDrain() =
+        AutomaticUploadsQueueDrain(concurrency = CONCURRENCY, windowMillis = WINDOW_MILLIS) { maxUploads ->
+            handOverCalls++
+            val uploads = minOf(maxUploads, queuedUploads)
+            queuedUploads -= uploads
+            pendingUploads.update { it + uploads }
+            maxPendingUploads = maxOf(maxPendingUploads, pendingUploads.value)
+            uploads
+        }
+
+    /**
+     * Runs [block] while the pending uploads finish one every [UPLOAD_MILLIS].
+     */
+    private suspend fun <T> TestScope.finishingUploads(block: suspend () -> T): T {
+        val uploader = launch {
+            while (true) {
+                delay(UPLOAD_MILLIS)
+                pendingUploads.update { maxOf(0, it - 1) }
+            }
+        }
+        return try {
+            block()
+        } finally {
+            uploader.cancel()
+        }
+    }
+
+    companion object {
+        private const val CONCURRENCY = 3
+        private const val WINDOW_MILLIS = 60_000L
+        private const val UPLOAD_MILLIS = 1_000L
+        private const val LONG_QUEUE = 100
+    }
+}
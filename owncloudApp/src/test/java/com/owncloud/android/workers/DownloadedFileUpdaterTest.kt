@@ -0,0 +1,112 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.workers
+
+import com.owncloud.android.domain.exceptions.LocalStorageNotMovedException
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.testutil.OC_FILE
+import io.mockk.every
+import io.mockk.mockk
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+class DownloadedFileUpdaterTest {
+
+    private val download: DownloadRemoteFileOperation = mockk()
+
+    private lateinit var folder: File
+    private lateinit var temporalFile: File
+    private lateinit var finalFile: File
+    private lateinit var updater: DownloadedFileUpdater
+
+    @Before
+    fun setUp() {
+        folder = Files.createTempDirectory("downloads").toFile()
+        temporalFile = File(folder, "tmp/image.jpt")
+        finalFile = File(folder, "files/image.jpt").apply {
+            parentFile?.mkdirs()
+            writeBytes(LOCAL_CONTENT)
+        }
+        updater = DownloadedFileUpdater(
+            temporalFilePath = temporalFile.absolutePath,
+            finalLocation = finalFile.absolutePath,
+            getUsableSpace = { Long.MAX_VALUE },
+        )
+        every { download.modificationTimestamp } returns MODIFICATION_TIMESTAMP
+        every { download.etag } returns NEW_ETAG
+    }
+
+    @After
+    fun tearDown() {
+        folder.deleteRecursively()
+    }
+
+    @Test
+    fun `update - ok - local copy is kept when the file was not modified`() {
+        every { download.isNotModified } returns true
+        val ocFile = OC_FILE.copy(storagePath = finalFile.absolutePath, lastSyncDateForData = 0)
+
+        updater.update(ocFile, download, currentTime = CURRENT_TIME)
+
+        assertArrayEquals(LOCAL_CONTENT, finalFile.readBytes())
+        assertFalse(temporalFile.exists())
+        assertEquals(OC_FILE.etag, ocFile.etag)
+        assertEquals(OC_FILE.modificationTimestamp, ocFile.modificationTimestamp)
+        assertEquals(CURRENT_TIME, ocFile.lastSyncDateForData)
+        assertEquals(CURRENT_TIME, ocFile.lastUsage)
+    }
+
+    @Test
+    fun `update - ok - downloaded version replaces the local copy`() {
+        every { download.isNotModified } returns false
+        temporalFile.apply { parentFile?.mkdirs() }.writeBytes(DOWNLOADED_CONTENT)
+        val ocFile = OC_FILE.copy(storagePath = finalFile.absolutePath, lastSyncDateForData = 0)
+
+        updater.update(ocFile, download, currentTime = CURRENT_TIME)
+
+        assertArrayEquals(DOWNLOADED_CONTENT, finalFile.readBytes())
+        assertFalse(temporalFile.exists())
+        assertEquals(NEW_ETAG, ocFile.etag)
+        assertEquals(MODIFICATION_TIMESTAMP, ocFile.modificationTimestamp)
+        assertEquals(MODIFICATION_TIMESTAMP, ocFile.modifiedAtLastSyncForData)
+        assertEquals(DOWNLOADED_CONTENT.size.toLong(), ocFile.length)
+        assertEquals(CURRENT_TIME, ocFile.lastSyncDateForData)
+    }
+
+    @Test(expected = LocalStorageNotMovedException::class)
+    fun `update - ko - downloaded version missing`() {
+        every { download.isNotModified } returns false
+
+        updater.update(OC_FILE.copy(), download, currentTime = CURRENT_TIME)
+    }
+
+    companion object {
+        private val LOCAL_CONTENT = "local copy".toByteArray()
+        private val DOWNLOADED_CONTENT = "downloaded version".toByteArray()
+        private const val NEW_ETAG = "7a9b0c1d2e3f"
+        private const val MODIFICATION_TIMESTAMP = 1_700_000_000_000L
+        private const val CURRENT_TIME = 1_700_000_100_000L
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.workers
+
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class LiveDocumentSourceTest {
+
+    private var currentVersion = ChunkedUploadSourceVersion(length = LENGTH, lastModified = LAST_MODIFIED)
+
+    private val liveDocumentSource = LiveDocumentSource { currentVersion }
+
+    @Test
+    fun `check unchanged - ok - document read while it did not change`() {
+        liveDocumentSource.checkUnchanged()
+
+        assertEquals(ChunkedUploadSourceVersion(LENGTH, LAST_MODIFIED), liveDocumentSource.openedVersion)
+    }
+
+    @Test(expected = LiveDocumentSource.DocumentChangedException::class)
+    fun `check unchanged - ko - document grew while it was uploaded`() {
+        currentVersion = currentVersion.copy(length = LENGTH + 1)
+
+        liveDocumentSource.checkUnchanged()
+    }
+
+    @Test(expected = LiveDocumentSource.DocumentChangedException::class)
+    fun `check unchanged - ko - document rewritten with the same length while it was uploaded`() {
+        currentVersion = currentVersion.copy(lastModified = LAST_MODIFIED + 1_000)
+
+        liveDocumentSource.checkUnchanged()
+    }
+
+    companion object {
+        private const val LENGTH = 25_000_000L
+        private const val LAST_MODIFIED = 1_700_000_000_000L
+    }
+}
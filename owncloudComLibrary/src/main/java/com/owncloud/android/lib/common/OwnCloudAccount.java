@@ -55,6 +55,8 @@ public class OwnCloudAccount {
 
     private Account mSavedAccount;
 
+    private boolean mHttp2TransportEnabled;
+
     /**
      * Constructor for already saved OC accounts.
      * <p>
@@ -80,6 +82,7 @@ public class OwnCloudAccount {
         }
         mBaseUri = Uri.parse(AccountUtils.getBaseUrlForAccount(context, mSavedAccount));
         mDisplayName = ama.getUserData(mSavedAccount, AccountUtils.Constants.KEY_DISPLAY_NAME);
+        mHttp2TransportEnabled = AccountUtils.isHttp2TransportEnabled(context, mSavedAccount);
     }
 
     /**
@@ -138,6 +141,10 @@ public class OwnCloudAccount {
         return mSavedAccount;
     }
 
+    public boolean isHttp2TransportEnabled() {
+        return mHttp2TransportEnabled;
+    }
+
     public String getDisplayName() {
         if (mDisplayName != null && mDisplayName.length() > 0) {
             return mDisplayName;
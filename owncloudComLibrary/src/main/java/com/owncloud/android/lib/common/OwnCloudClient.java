@@ -34,14 +34,20 @@ import com.owncloud.android.lib.common.authentication.OwnCloudCredentialsFactory
 import com.owncloud.android.lib.common.authentication.OwnCloudCredentialsFactory.OwnCloudAnonymousCredentials;
 import com.owncloud.android.lib.common.http.HttpClient;
 import com.owncloud.android.lib.common.http.HttpConstants;
+import com.owncloud.android.lib.common.http.RequestConcurrencyLimiter;
+import com.owncloud.android.lib.common.http.RequestConcurrencyLimiter.RequestClass;
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod;
+import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod;
 import com.owncloud.android.lib.common.utils.RandomUtils;
 import okhttp3.Cookie;
 import okhttp3.HttpUrl;
+import okhttp3.internal.http2.ConnectionShutdownException;
+import okhttp3.internal.http2.StreamResetException;
 import timber.log.Timber;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.ProtocolException;
 import java.util.List;
 import java.util.Locale;
 
@@ -56,17 +62,18 @@ public class OwnCloudClient extends HttpClient {
     private static final int MAX_RETRY_COUNT = 2;
 
     private static int sIntanceCounter = 0;
-    private OwnCloudCredentials mCredentials = null;
+    private volatile OwnCloudCredentials mCredentials = null;
     private int mInstanceNumber;
     private Uri mBaseUri;
     private OwnCloudAccount mAccount;
     private final ConnectionValidator mConnectionValidator;
-    private Object mRequestMutex = new Object();
+    private final Object mConnectionValidationMutex = new Object();
+    private final RequestConcurrencyLimiter mRequestLimiter = new RequestConcurrencyLimiter();
 
-    // If set to true a mutex will be used to prevent parallel execution of the execute() method
-    // if false the execute() method can be called even though the mutex is already aquired.
-    // This is used for the ConnectionValidator, which has to be able to execute OperationsWhile all "normal" operations net
-    // to be set on hold.
+    // If set to true the number of parallel executions of the execute() method is bounded by mRequestLimiter,
+    // with separate bounds for transfers and metadata requests.
+    // If false the execute() method is never held back. This is used for the ConnectionValidator, which has to be
+    // able to execute operations while it is validating the connection of another client.
     private final Boolean mSynchronizeRequests;
 
     private SingleSessionManager mSingleSessionManager = null;
@@ -102,18 +109,39 @@ public class OwnCloudClient extends HttpClient {
     }
 
     public int executeHttpMethod(HttpBaseMethod method) throws Exception {
-        if (mSynchronizeRequests) {
-            synchronized (mRequestMutex) {
-                return saveExecuteHttpMethod(method);
+        return saveExecuteHttpMethod(method);
+    }
+
+    private int executeWithinLimits(HttpBaseMethod method) throws Exception {
+        if (!mSynchronizeRequests) {
+            return method.execute(this);
+        }
+        RequestClass requestClass = method.isFileTransfer() ? RequestClass.TRANSFER : RequestClass.METADATA;
+        mRequestLimiter.acquire(requestClass);
+        boolean isPermitHeldByResponseBody = false;
+        try {
+            int status = method.execute(this);
+            if (isDownloadingFileContent(method, status)) {
+                // The body of a download is read after execute() returns, the permit is kept until it is closed
+                ((GetMethod) method).releaseWithResponseBody(() -> mRequestLimiter.release(requestClass));
+                isPermitHeldByResponseBody = true;
+            }
+            return status;
+        } finally {
+            if (!isPermitHeldByResponseBody) {
+                mRequestLimiter.release(requestClass);
             }
-        } else {
-            return saveExecuteHttpMethod(method);
         }
     }
 
+    private boolean isDownloadingFileContent(HttpBaseMethod method, int status) {
+        return method.isFileTransfer() && method instanceof GetMethod &&
+                (status == HttpConstants.HTTP_OK || status == HttpConstants.HTTP_PARTIAL_CONTENT);
+    }
+
     private int saveExecuteHttpMethod(HttpBaseMethod method) throws Exception {
         int repeatCounter = 0;
-        int status;
+        int status = -1;
 
         if (mFollowRedirects) {
             method.setFollowRedirects(true);
@@ -130,15 +158,35 @@ public class OwnCloudClient extends HttpClient {
             method.setRequestHeader(HttpConstants.OC_X_REQUEST_ID, requestId);
             method.setRequestHeader(HttpConstants.USER_AGENT_HEADER, SingleSessionManager.getUserAgent());
             method.setRequestHeader(HttpConstants.ACCEPT_LANGUAGE_HEADER, Locale.getDefault().getLanguage());
-            method.setRequestHeader(HttpConstants.ACCEPT_ENCODING_HEADER, HttpConstants.ACCEPT_ENCODING_IDENTITY);
-            if (mCredentials.getHeaderAuth() != null && !mCredentials.getHeaderAuth().isEmpty()) {
-                method.setRequestHeader(AUTHORIZATION_HEADER, mCredentials.getHeaderAuth());
+            if (!isHttp2TransportEnabled() || method.isFileTransfer()) {
+                method.setRequestHeader(HttpConstants.ACCEPT_ENCODING_HEADER, HttpConstants.ACCEPT_ENCODING_IDENTITY);
+            } // else, OkHttp asks for gzip and transparently decompresses the response
+            final OwnCloudCredentials requestCredentials = mCredentials;
+            if (requestCredentials.getHeaderAuth() != null && !requestCredentials.getHeaderAuth().isEmpty()) {
+                method.setRequestHeader(AUTHORIZATION_HEADER, requestCredentials.getHeaderAuth());
             }
 
-            status = method.execute(this);
+            try {
+                status = executeWithinLimits(method);
+            } catch (StreamResetException | ConnectionShutdownException | ProtocolException e) {
+                if (!isHttp2TransportEnabled() || repeatCounter >= MAX_RETRY_COUNT) {
+                    throw e;
+                }
+                Timber.w(e, "HTTP/2 request with id %s failed, falling back to HTTP/1.1", requestId);
+                setHttp2TransportEnabled(false);
+                retry = true;
+                continue;
+            }
 
             if (shouldConnectionValidatorBeCalled(method, status)) {
-                retry = mConnectionValidator.validate(this, mSingleSessionManager, getContext()); // retry on success fail on no success
+                // Only one validation at a time; requests failing meanwhile just retry with the refreshed credentials
+                synchronized (mConnectionValidationMutex) {
+                    if (mCredentials != requestCredentials) {
+                        retry = true;
+                    } else {
+                        retry = mConnectionValidator.validate(this, mSingleSessionManager, getContext()); // retry on success fail on no success
+                    }
+                }
             } else if (method.getFollowPermanentRedirects() && status == HTTP_MOVED_PERMANENTLY) {
                 retry = true;
                 method.setFollowRedirects(true);
@@ -158,6 +158,7 @@ public class SingleSessionManager {
             client.clearCredentials();
 
             client.setAccount(account);
+            client.setHttp2TransportEnabled(account.isHttp2TransportEnabled());
 
             account.loadCredentials(context);
             client.setCredentials(account.getCredentials());
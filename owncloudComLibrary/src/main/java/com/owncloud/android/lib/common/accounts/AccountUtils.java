@@ -145,6 +145,21 @@ public class AccountUtils {
         return accountMgr.getUserData(account, Constants.KEY_ID);
     }
 
+    /**
+     * @return true if the account was set to negotiate HTTP/2 and accept compressed responses.
+     */
+    public static boolean isHttp2TransportEnabled(Context context, Account account) {
+        AccountManager accountMgr = AccountManager.get(context);
+        return Constants.HTTP2_TRANSPORT_ENABLED_TRUE.equals(
+                accountMgr.getUserData(account, Constants.KEY_HTTP2_TRANSPORT));
+    }
+
+    public static void setHttp2TransportEnabled(Context context, Account account, boolean enabled) {
+        AccountManager accountMgr = AccountManager.get(context);
+        accountMgr.setUserData(account, Constants.KEY_HTTP2_TRANSPORT,
+                enabled ? Constants.HTTP2_TRANSPORT_ENABLED_TRUE : null);
+    }
+
     public static String buildAccountNameOld(Uri serverBaseUrl, String username) {
         if (serverBaseUrl.getScheme() == null) {
             serverBaseUrl = Uri.parse("https://" + serverBaseUrl.toString());
@@ -223,6 +238,13 @@ public class AccountUtils {
          */
         public static final String KEY_DISPLAY_NAME = "oc_display_name";
 
+        /**
+         * Flag signaling if requests for the account should negotiate HTTP/2 and accept compressed responses.
+         */
+        public static final String KEY_HTTP2_TRANSPORT = "oc_http2_transport";
+
+        public static final String HTTP2_TRANSPORT_ENABLED_TRUE = "TRUE";
+
         public static final int ACCOUNT_VERSION = 1;
     }
 }
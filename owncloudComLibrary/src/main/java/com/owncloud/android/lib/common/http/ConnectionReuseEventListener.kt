@@ -0,0 +1,102 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib.common.http
+
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.EventListener
+import okhttp3.Handshake
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts, for every call executed through the shared OkHttp client, whether it reused a pooled connection or had to
+ * open a new one, and how many TLS handshakes were performed. Used to check the benefit of sharing the connection
+ * pool among all the clients.
+ */
+class ConnectionReuseEventListener private constructor(
+    private val stats: ConnectionReuseStats
+) : EventListener() {
+
+    private var connectStarted = false
+
+    override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+        connectStarted = true
+    }
+
+    override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+        stats.tlsHandshakes.incrementAndGet()
+    }
+
+    override fun connectionAcquired(call: Call, connection: Connection) {
+        if (connectStarted) {
+            stats.newConnections.incrementAndGet()
+        } else {
+            stats.reusedConnections.incrementAndGet()
+        }
+        // A follow up (redirect, auth retry) of the same call may acquire another connection
+        connectStarted = false
+    }
+
+    class ConnectionReuseStats {
+        val reusedConnections = AtomicLong()
+        val newConnections = AtomicLong()
+        val tlsHandshakes = AtomicLong()
+
+        fun reset() {
+            reusedConnections.set(0)
+            newConnections.set(0)
+            tlsHandshakes.set(0)
+        }
+
+        /**
+         * @return the current counters, to be subtracted from a later snapshot to get the ones of a period of work.
+         */
+        fun snapshot(): Snapshot =
+            Snapshot(reusedConnections.get(), newConnections.get(), tlsHandshakes.get())
+
+        override fun toString(): String = snapshot().toString()
+    }
+
+    data class Snapshot(
+        val reusedConnections: Long,
+        val newConnections: Long,
+        val tlsHandshakes: Long,
+    ) {
+        operator fun minus(other: Snapshot): Snapshot =
+            Snapshot(
+                reusedConnections = reusedConnections - other.reusedConnections,
+                newConnections = newConnections - other.newConnections,
+                tlsHandshakes = tlsHandshakes - other.tlsHandshakes,
+            )
+
+        override fun toString(): String =
+            "reused connections: $reusedConnections, new connections: $newConnections, TLS handshakes: $tlsHandshakes"
+    }
+
+    class Factory(val stats: ConnectionReuseStats = ConnectionReuseStats()) : EventListener.Factory {
+        override fun create(call: Call): EventListener = ConnectionReuseEventListener(stats)
+    }
+}
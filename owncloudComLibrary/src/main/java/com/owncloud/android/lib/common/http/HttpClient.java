@@ -29,8 +29,10 @@ import android.content.Context;
 import com.owncloud.android.lib.common.http.logging.LogInterceptor;
 import com.owncloud.android.lib.common.network.AdvancedX509TrustManager;
 import com.owncloud.android.lib.common.network.NetworkUtils;
+import okhttp3.ConnectionPool;
 import okhttp3.Cookie;
 import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -42,23 +44,39 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Client used to perform network operations
+ * <p>
+ * Every instance derives its OkHttp client from a single process-wide one, so all of them share the same connection
+ * pool, dispatcher and TLS session cache, and only keep their own cookies and interceptors.
  *
  * @author David González Verdugo
  */
 
 public class HttpClient {
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    private static final long DEFAULT_KEEP_ALIVE_DURATION = 5 * 60 * 1000; // 5 mins.
+
+    private static int sMaxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private static long sKeepAliveDurationMillis = DEFAULT_KEEP_ALIVE_DURATION;
+    private static final ConnectionReuseEventListener.ConnectionReuseStats sConnectionReuseStats =
+            new ConnectionReuseEventListener.ConnectionReuseStats();
+    private static OkHttpClient sBaseOkHttpClient = null;
+
     private Context mContext;
-    private HashMap<String, List<Cookie>> mCookieStore = new HashMap<>();
+    private final Map<String, List<Cookie>> mCookieStore = new ConcurrentHashMap<>();
     private LogInterceptor mLogInterceptor = new LogInterceptor();
 
-    private OkHttpClient mOkHttpClient = null;
+    // Guarded by this for writes; requests failing over HTTP/2 disable it from several threads at once
+    private volatile OkHttpClient mOkHttpClient = null;
+    private volatile boolean mHttp2TransportEnabled = false;
 
     protected HttpClient(Context context) {
         if (context == null) {
@@ -68,19 +86,84 @@ public class HttpClient {
         mContext = context;
     }
 
+    /**
+     * Sets the size and keep alive of the connection pool shared by all the clients. It only has effect if it is
+     * called before the first request, once the shared client has been built it is ignored.
+     *
+     * @param maxIdleConnections       Maximum number of idle connections kept in the pool.
+     * @param keepAliveDurationMillis  Time an idle connection is kept in the pool before being evicted.
+     */
+    public static synchronized void setConnectionPoolSettings(int maxIdleConnections, long keepAliveDurationMillis) {
+        if (sBaseOkHttpClient != null) {
+            Timber.w("Shared OkHttp client already built, connection pool settings will be ignored");
+            return;
+        }
+        sMaxIdleConnections = maxIdleConnections;
+        sKeepAliveDurationMillis = keepAliveDurationMillis;
+    }
+
+    /**
+     * @return counters of reused connections versus new connections and TLS handshakes of all the clients.
+     */
+    public static ConnectionReuseEventListener.ConnectionReuseStats getConnectionReuseStats() {
+        return sConnectionReuseStats;
+    }
+
     public OkHttpClient getOkHttpClient() {
-        if (mOkHttpClient == null) {
+        OkHttpClient okHttpClient = mOkHttpClient;
+        if (okHttpClient == null) {
+            synchronized (this) {
+                okHttpClient = mOkHttpClient;
+                if (okHttpClient == null) {
+                    // Automatic cookie handling, NOT PERSISTENT
+                    final CookieJar cookieJar = new CookieJarImpl(mCookieStore);
+                    okHttpClient = getBaseOkHttpClient(mContext).newBuilder()
+                            .addNetworkInterceptor(getLogInterceptor())
+                            .addNetworkInterceptor(DebugInterceptorFactory.INSTANCE.getInterceptor())
+                            .cookieJar(cookieJar)
+                            .protocols(mHttp2TransportEnabled
+                                    ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                                    : Collections.singletonList(Protocol.HTTP_1_1))
+                            .build();
+                    mOkHttpClient = okHttpClient;
+                }
+            }
+        }
+        return okHttpClient;
+    }
+
+    public boolean isHttp2TransportEnabled() {
+        return mHttp2TransportEnabled;
+    }
+
+    /**
+     * Enables negotiating HTTP/2 via ALPN, falling back to HTTP/1.1 when the server does not offer it, and accepting
+     * compressed responses for requests that do not transfer raw file contents.
+     *
+     * Requests already sent keep the client they were sent with. Safe to call from several threads at once, the client
+     * is only rebuilt when the mode actually changes.
+     *
+     * @param enabled 'True' to use HTTP/2 and compression, 'false' to stick to uncompressed HTTP/1.1
+     */
+    public synchronized void setHttp2TransportEnabled(boolean enabled) {
+        if (mHttp2TransportEnabled != enabled) {
+            mHttp2TransportEnabled = enabled;
+            // Rebuilt on demand with the new protocols; cookies are kept in mCookieStore
+            mOkHttpClient = null;
+        }
+    }
+
+    private static synchronized OkHttpClient getBaseOkHttpClient(Context context) {
+        if (sBaseOkHttpClient == null) {
             try {
                 final X509TrustManager trustManager = new AdvancedX509TrustManager(
-                        NetworkUtils.getKnownServersStore(mContext));
+                        NetworkUtils.getKnownServersStore(context));
 
                 final SSLContext sslContext = buildSSLContext();
                 sslContext.init(null, new TrustManager[]{trustManager}, null);
                 final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
 
-                // Automatic cookie handling, NOT PERSISTENT
-                final CookieJar cookieJar = new CookieJarImpl(mCookieStore);
-                mOkHttpClient = buildNewOkHttpClient(sslSocketFactory, trustManager, cookieJar);
+                sBaseOkHttpClient = buildNewOkHttpClient(sslSocketFactory, trustManager);
 
             } catch (NoSuchAlgorithmException nsae) {
                 Timber.e(nsae, "Could not setup SSL system.");
@@ -90,10 +173,10 @@ public class HttpClient {
                 throw new RuntimeException("Could not setup okHttp client.", e);
             }
         }
-        return mOkHttpClient;
+        return sBaseOkHttpClient;
     }
 
-    private SSLContext buildSSLContext() throws NoSuchAlgorithmException {
+    private static SSLContext buildSSLContext() throws NoSuchAlgorithmException {
         try {
             return SSLContext.getInstance(TlsVersion.TLS_1_3.javaName());
         } catch (NoSuchAlgorithmException tlsv13Exception) {
@@ -114,11 +197,11 @@ public class HttpClient {
         }
     }
 
-    private OkHttpClient buildNewOkHttpClient(SSLSocketFactory sslSocketFactory, X509TrustManager trustManager,
-                                              CookieJar cookieJar) {
+    private static OkHttpClient buildNewOkHttpClient(SSLSocketFactory sslSocketFactory, X509TrustManager trustManager) {
         return new OkHttpClient.Builder()
-                .addNetworkInterceptor(getLogInterceptor())
-                .addNetworkInterceptor(DebugInterceptorFactory.INSTANCE.getInterceptor())
+                .connectionPool(new ConnectionPool(sMaxIdleConnections, sKeepAliveDurationMillis, TimeUnit.MILLISECONDS))
+                .dispatcher(new Dispatcher())
+                .eventListenerFactory(new ConnectionReuseEventListener.Factory(sConnectionReuseStats))
                 .protocols(Collections.singletonList(Protocol.HTTP_1_1))
                 .readTimeout(HttpConstants.DEFAULT_DATA_TIMEOUT, TimeUnit.MILLISECONDS)
                 .writeTimeout(HttpConstants.DEFAULT_DATA_TIMEOUT, TimeUnit.MILLISECONDS)
@@ -126,7 +209,6 @@ public class HttpClient {
                 .followRedirects(false)
                 .sslSocketFactory(sslSocketFactory, trustManager)
                 .hostnameVerifier((asdf, usdf) -> true)
-                .cookieJar(cookieJar)
                 .build();
     }
 
@@ -39,6 +39,10 @@ public class HttpConstants {
     public static final String USER_AGENT_HEADER = "User-Agent";
     public static final String IF_MATCH_HEADER = "If-Match";
     public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    public static final String IF_RANGE_HEADER = "If-Range";
+    public static final String RANGE_HEADER = "Range";
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+    public static final String ETAG_HEADER = "ETag";
     public static final String CONTENT_TYPE_HEADER = "Content-Type";
     public static final String ACCEPT_LANGUAGE_HEADER = "Accept-Language";
     public static final String CONTENT_LENGTH_HEADER = "Content-Length";
@@ -0,0 +1,106 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib.common.http
+
+import timber.log.Timber
+import java.util.concurrent.Semaphore
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Bounds the number of requests a client runs in parallel, with separate permits for file transfers and metadata
+ * requests, so long uploads and downloads never hold back the browsing of the account.
+ *
+ * A permit is held from sending the request until the response is received, and for downloads until their body is
+ * closed too. Time spent waiting for a permit is recorded per [RequestClass], and logged when a request waits longer
+ * than [SLOW_WAIT_MILLIS].
+ */
+class RequestConcurrencyLimiter(
+    maxParallelMetadataRequests: Int = DEFAULT_MAX_PARALLEL_METADATA_REQUESTS,
+    maxParallelTransferRequests: Int = DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS,
+) {
+
+    enum class RequestClass {
+        METADATA, TRANSFER
+    }
+
+    private val permits = mapOf(
+        RequestClass.METADATA to Semaphore(maxParallelMetadataRequests, true),
+        RequestClass.TRANSFER to Semaphore(maxParallelTransferRequests, true),
+    )
+
+    private val queueWaitStats = RequestClass.values().associateWith { QueueWaitStats() }
+
+    init {
+        require(maxParallelMetadataRequests > 0) { "Max parallel metadata requests must be greater than zero" }
+        require(maxParallelTransferRequests > 0) { "Max parallel transfer requests must be greater than zero" }
+    }
+
+    @Throws(InterruptedException::class)
+    fun acquire(requestClass: RequestClass) {
+        val waitStart = System.nanoTime()
+        permits.getValue(requestClass).acquire()
+        val waitNanos = System.nanoTime() - waitStart
+        val stats = queueWaitStats.getValue(requestClass).apply { record(waitNanos) }
+        if (TimeUnit.NANOSECONDS.toMillis(waitNanos) >= SLOW_WAIT_MILLIS) {
+            Timber.d("Request waited %d ms for a %s permit, %s", TimeUnit.NANOSECONDS.toMillis(waitNanos), requestClass, stats)
+        }
+    }
+
+    fun release(requestClass: RequestClass) {
+        permits.getValue(requestClass).release()
+    }
+
+    fun getQueueWaitStats(requestClass: RequestClass): QueueWaitStats = queueWaitStats.getValue(requestClass)
+
+    class QueueWaitStats {
+        private val requests = AtomicLong()
+        private val totalWaitNanos = AtomicLong()
+        private val maxWaitNanos = AtomicLong()
+
+        internal fun record(waitNanos: Long) {
+            requests.incrementAndGet()
+            totalWaitNanos.addAndGet(waitNanos)
+            maxWaitNanos.accumulateAndGet(waitNanos) { current, new -> maxOf(current, new) }
+        }
+
+        val requestCount: Long
+            get() = requests.get()
+
+        val averageWaitMillis: Long
+            get() = requests.get().takeIf { it > 0 }?.let { TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / it) } ?: 0
+
+        val maxWaitMillis: Long
+            get() = TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get())
+
+        override fun toString(): String =
+            "requests: $requestCount, average wait: $averageWaitMillis ms, max wait: $maxWaitMillis ms"
+    }
+
+    companion object {
+        const val DEFAULT_MAX_PARALLEL_METADATA_REQUESTS = 6
+        const val DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS = 4
+        const val SLOW_WAIT_MILLIS = 1_000L
+    }
+}
@@ -45,6 +45,12 @@ abstract class HttpBaseMethod constructor(url: URL) {
     var call: Call? = null
 
     var followRedirects: Boolean = true
+
+    /**
+     * Whether the method moves raw file contents. File transfers never ask for compressed responses, so lengths and
+     * ranges keep referring to the bytes of the file, and they are limited apart from metadata requests.
+     */
+    var isFileTransfer: Boolean = false
     var retryOnConnectionFailure: Boolean = true
     var connectionTimeoutVal: Long? = null
     var connectionTimeoutUnit: TimeUnit? = null
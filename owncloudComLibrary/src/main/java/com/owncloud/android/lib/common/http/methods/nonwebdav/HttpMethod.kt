@@ -24,9 +24,15 @@
 package com.owncloud.android.lib.common.http.methods.nonwebdav
 
 import com.owncloud.android.lib.common.http.methods.HttpBaseMethod
+import okhttp3.MediaType
 import okhttp3.OkHttpClient
 import okhttp3.Response
+import okhttp3.ResponseBody
+import okio.BufferedSource
+import okio.ForwardingSource
+import okio.buffer
 import java.net.URL
+import java.util.concurrent.atomic.AtomicReference
 
 /**
  * Wrapper to perform OkHttp calls
@@ -39,9 +45,56 @@ abstract class HttpMethod(
 
     override lateinit var response: Response
 
+    private val onResponseBodyReleased = AtomicReference<Runnable?>()
+
     public override fun onExecute(okHttpClient: OkHttpClient): Int {
         call = okHttpClient.newCall(request)
         call?.let { response = it.execute() }
         return super.statusCode
     }
+
+    /**
+     * Runs [onRelease] once the body of the response is closed or the call is aborted, that is, when the connection is
+     * not transferring the body anymore. It runs right away if the response has no body.
+     */
+    fun releaseWithResponseBody(onRelease: Runnable) {
+        val body = response.body ?: return onRelease.run()
+        onResponseBodyReleased.set(onRelease)
+        response = response.newBuilder()
+            .body(ReleasingResponseBody(body) { releaseResponseBody() })
+            .build()
+    }
+
+    override fun abort() {
+        super.abort()
+        releaseResponseBody()
+    }
+
+    private fun releaseResponseBody() {
+        onResponseBodyReleased.getAndSet(null)?.run()
+    }
+
+    private class ReleasingResponseBody(
+        private val body: ResponseBody,
+        private val onClosed: () -> Unit,
+    ) : ResponseBody() {
+
+        private val source: BufferedSource by lazy {
+            object : ForwardingSource(body.source()) {
+                override fun close() {
+                    try {
+                        super.close()
+                    } finally {
+                        onClosed()
+                    }
+                }
+            }.buffer()
+        }
+
+        override fun contentType(): MediaType? = body.contentType()
+
+        override fun contentLength(): Long = body.contentLength()
+
+        override fun source(): BufferedSource = source
+    }
 }
@@ -34,12 +34,16 @@ import java.net.URL
 /**
  * Propfind calls wrapper
  *
+ * Members of the multistatus response are kept in [members], unless a [memberConsumer] is provided. In that case,
+ * every member is handed to the consumer as soon as it is parsed and is not retained by the method.
+ *
  * @author David González Verdugo
  */
 class PropfindMethod(
     url: URL,
     private val depth: Int,
-    private val propertiesToRequest: Array<Property.Name>
+    private val propertiesToRequest: Array<Property.Name>,
+    private val memberConsumer: ((Response) -> Unit)? = null,
 ) : DavMethod(url) {
 
     // response
@@ -60,7 +64,7 @@ class PropfindMethod(
             listOfHeaders = super.getRequestHeadersAsHashMap(),
             callback = { response: Response, hrefRelation: HrefRelation ->
                 when (hrefRelation) {
-                    HrefRelation.MEMBER -> members.add(response)
+                    HrefRelation.MEMBER -> if (memberConsumer != null) memberConsumer.invoke(response) else members.add(response)
                     HrefRelation.SELF -> this.root = response
                     HrefRelation.OTHER -> {
                     }
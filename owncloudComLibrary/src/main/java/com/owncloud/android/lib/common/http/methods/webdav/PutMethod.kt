@@ -39,6 +39,11 @@ class PutMethod(
     url: URL,
     private val putRequestBody: RequestBody
 ) : DavMethod(url) {
+
+    init {
+        isFileTransfer = true
+    }
+
     @Throws(IOException::class, HttpException::class)
     public override fun onDavExecute(davResource: DavOCResource): Int {
         davResource.put(
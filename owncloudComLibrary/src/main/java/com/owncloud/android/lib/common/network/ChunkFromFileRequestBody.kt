@@ -44,43 +44,45 @@ class ChunkFromFileRequestBody(
 ) : FileRequestBody(file, contentType) {
 
     private var offset: Long = 0
-    private var alreadyTransferred: Long = 0
-    private val buffer = ByteBuffer.allocate(4_096)
+    private val buffer = ByteBuffer.allocateDirect(TransferProgressNotifier.TRANSFER_SEGMENT_SIZE)
 
     init {
         require(chunkSize > 0) { "Chunk size must be greater than zero" }
     }
 
     override fun contentLength(): Long =
-        chunkSize.coerceAtMost(channel.size() - channel.position())
+        chunkSize.coerceAtMost(channel.size() - offset).coerceAtLeast(0)
 
+    /**
+     * Reads the chunk with positional reads, so the position of the shared [channel] is never modified and
+     * several chunks of the same file can be written at the same time.
+     */
     override fun writeTo(sink: BufferedSink) {
         var readCount: Int
-        var iterator: Iterator<OnDatatransferProgressListener>
+        var position = offset
+        var alreadyTransferred: Long = 0
+        val chunkLength = contentLength()
         try {
-            channel.position(offset)
-
-            val maxCount = (offset + chunkSize).coerceAtMost(channel.size())
-            while (channel.position() < maxCount) {
-                readCount = channel.read(buffer)
-                val bytesToWriteInBuffer = readCount.toLong().coerceAtMost(file.length() - alreadyTransferred).toInt()
-                sink.buffer.write(buffer.array(), 0, bytesToWriteInBuffer)
-                sink.flush()
+            val maxCount = offset + chunkLength
+            while (position < maxCount) {
                 buffer.clear()
-
-                if (alreadyTransferred < maxCount) {  // condition to avoid accumulate progress for repeated chunks
-                    alreadyTransferred += readCount.toLong()
+                buffer.limit((maxCount - position).coerceAtMost(buffer.capacity().toLong()).toInt())
+                readCount = channel.read(buffer, position)
+                if (readCount == -1) break
+                buffer.flip()
+                while (buffer.hasRemaining()) {
+                    sink.write(buffer)
                 }
+                sink.emitCompleteSegments()
 
-                synchronized(dataTransferListeners) {
-                    iterator = dataTransferListeners.iterator()
-                    while (iterator.hasNext()) {
-                        iterator.next().onTransferProgress(readCount.toLong(), alreadyTransferred, file.length(), file.absolutePath)
-                    }
-                }
+                position += readCount
+                alreadyTransferred += readCount
+
+                progressNotifier.onBytesTransferred(readCount.toLong(), alreadyTransferred, chunkLength, file.absolutePath)
             }
+            sink.emit()
         } catch (exception: Exception) {
-            Timber.e(exception, "Transferred " + alreadyTransferred + " bytes from a total of " + file.length())
+            Timber.e(exception, "Transferred $alreadyTransferred bytes from a chunk of $chunkLength starting at $offset")
         }
     }
 
@@ -41,7 +41,7 @@ class ContentUriRequestBody(
     private val contentUri: Uri
 ) : RequestBody(), ProgressiveDataTransferer {
 
-    private val dataTransferListeners: MutableSet<OnDatatransferProgressListener> = HashSet()
+    private val progressNotifier = TransferProgressNotifier()
 
     val fileSize: Long = contentResolver.query(contentUri, null, null, null, null)?.use { cursor ->
         val sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE)
@@ -72,45 +72,29 @@ class ContentUriRequestBody(
     }
 
     private fun BufferedSink.writeAndUpdateProgress(source: Source) {
-        var iterator: Iterator<OnDatatransferProgressListener>
-
         try {
             var totalBytesRead = 0L
             var read: Long
-            while (source.read(this.buffer, BYTES_TO_READ).also { read = it } != -1L) {
+            while (source.read(this.buffer, TransferProgressNotifier.TRANSFER_SEGMENT_SIZE.toLong()).also { read = it } != -1L) {
                 totalBytesRead += read
-                this.flush()
-                synchronized(dataTransferListeners) {
-                    iterator = dataTransferListeners.iterator()
-                    while (iterator.hasNext()) {
-                        iterator.next().onTransferProgress(read, totalBytesRead, fileSize, contentUri.toString())
-                    }
-                }
+                this.emitCompleteSegments()
+                progressNotifier.onBytesTransferred(read, totalBytesRead, fileSize, contentUri.toString())
             }
+            this.emit()
         } catch (e: Exception) {
             Timber.e(e)
         }
     }
 
     override fun addDatatransferProgressListener(listener: OnDatatransferProgressListener) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.add(listener)
-        }
+        progressNotifier.addDatatransferProgressListener(listener)
     }
 
     override fun addDatatransferProgressListeners(listeners: MutableCollection<OnDatatransferProgressListener>) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.addAll(listeners)
-        }
+        progressNotifier.addDatatransferProgressListeners(listeners)
     }
 
     override fun removeDatatransferProgressListener(listener: OnDatatransferProgressListener) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.remove(listener)
-        }
-    }
-
-    companion object {
-        private const val BYTES_TO_READ = 4_096L
+        progressNotifier.removeDatatransferProgressListener(listener)
     }
 }
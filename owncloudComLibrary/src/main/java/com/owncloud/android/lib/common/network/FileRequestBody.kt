@@ -30,11 +30,13 @@ import okio.Source
 import okio.source
 import timber.log.Timber
 import java.io.File
-import java.util.HashSet
 
 /**
  * A Request body that represents a file and include information about the progress when uploading it
  *
+ * Data is moved in large segments and only emitted to the socket when complete segments are available, and the
+ * progress is reported through a [TransferProgressNotifier] instead of once per read.
+ *
  * @author David González Verdugo
  */
 open class FileRequestBody(
@@ -42,7 +44,7 @@ open class FileRequestBody(
     private val contentType: MediaType?,
 ) : RequestBody(), ProgressiveDataTransferer {
 
-    val dataTransferListeners: MutableSet<OnDatatransferProgressListener> = HashSet()
+    protected val progressNotifier = TransferProgressNotifier()
 
     override fun isOneShot(): Boolean = true
 
@@ -52,21 +54,19 @@ open class FileRequestBody(
 
     override fun writeTo(sink: BufferedSink) {
         val source: Source
-        var it: Iterator<OnDatatransferProgressListener>
         try {
             source = file.source()
+            val totalToTransfer = file.length()
             var transferred: Long = 0
             var read: Long
-            while (source.read(sink.buffer, BYTES_TO_READ).also { read = it } != -1L) {
-                transferred += read
-                sink.flush()
-                synchronized(dataTransferListeners) {
-                    it = dataTransferListeners.iterator()
-                    while (it.hasNext()) {
-                        it.next().onTransferProgress(read, transferred, file.length(), file.absolutePath)
-                    }
+            source.use {
+                while (source.read(sink.buffer, TransferProgressNotifier.TRANSFER_SEGMENT_SIZE.toLong()).also { read = it } != -1L) {
+                    transferred += read
+                    sink.emitCompleteSegments()
+                    progressNotifier.onBytesTransferred(read, transferred, totalToTransfer, file.absolutePath)
                 }
             }
+            sink.emit()
             Timber.d("File with name ${file.name} and size ${file.length()} written in request body")
         } catch (e: Exception) {
             Timber.e(e)
@@ -74,24 +74,14 @@ open class FileRequestBody(
     }
 
     override fun addDatatransferProgressListener(listener: OnDatatransferProgressListener) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.add(listener)
-        }
+        progressNotifier.addDatatransferProgressListener(listener)
     }
 
     override fun addDatatransferProgressListeners(listeners: Collection<OnDatatransferProgressListener>) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.addAll(listeners)
-        }
+        progressNotifier.addDatatransferProgressListeners(listeners)
     }
 
     override fun removeDatatransferProgressListener(listener: OnDatatransferProgressListener) {
-        synchronized(dataTransferListeners) {
-            dataTransferListeners.remove(listener)
-        }
-    }
-
-    companion object {
-        private const val BYTES_TO_READ = 4_096L
+        progressNotifier.removeDatatransferProgressListener(listener)
     }
 }
@@ -0,0 +1,84 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib.common.network
+
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.TimeUnit
+
+/**
+ * Forwards the progress of a transfer to its listeners, at most once every [minBytesBetweenUpdates] bytes or
+ * [minMillisBetweenUpdates] milliseconds, and always when the transfer completes.
+ *
+ * Listeners are kept in a copy-on-write set, so notifying them never takes a lock. The amount reported as read in
+ * every notification is the one accumulated since the previous notification, so the sum of all of them is still the
+ * total transferred.
+ *
+ * [onBytesTransferred] is meant to be called from the single thread moving the data.
+ */
+class TransferProgressNotifier(
+    private val minBytesBetweenUpdates: Long = DEFAULT_MIN_BYTES_BETWEEN_UPDATES,
+    private val minMillisBetweenUpdates: Long = DEFAULT_MIN_MILLIS_BETWEEN_UPDATES,
+) : ProgressiveDataTransferer {
+
+    private val listeners: MutableSet<OnDatatransferProgressListener> = CopyOnWriteArraySet()
+
+    private var pendingBytes: Long = 0
+    private var lastUpdateNanos: Long = System.nanoTime()
+
+    fun onBytesTransferred(read: Long, transferred: Long, total: Long, path: String) {
+        pendingBytes += read
+        val now = System.nanoTime()
+        val isCompleted = total in 0..transferred
+        if (pendingBytes >= minBytesBetweenUpdates ||
+            TimeUnit.NANOSECONDS.toMillis(now - lastUpdateNanos) >= minMillisBetweenUpdates ||
+            isCompleted
+        ) {
+            listeners.forEach { it.onTransferProgress(pendingBytes, transferred, total, path) }
+            pendingBytes = 0
+            lastUpdateNanos = now
+        }
+    }
+
+    override fun addDatatransferProgressListener(listener: OnDatatransferProgressListener) {
+        listeners.add(listener)
+    }
+
+    override fun addDatatransferProgressListeners(listeners: Collection<OnDatatransferProgressListener>) {
+        this.listeners.addAll(listeners)
+    }
+
+    override fun removeDatatransferProgressListener(listener: OnDatatransferProgressListener) {
+        listeners.remove(listener)
+    }
+
+    companion object {
+        const val DEFAULT_MIN_BYTES_BETWEEN_UPDATES = 512 * 1024L
+        const val DEFAULT_MIN_MILLIS_BETWEEN_UPDATES = 250L
+
+        /**
+         * Size of the segments moved in a single read/write by the transfer bodies.
+         */
+        const val TRANSFER_SEGMENT_SIZE = 128 * 1024
+    }
+}
@@ -26,10 +26,8 @@ package com.owncloud.android.lib.resources.files
 import com.owncloud.android.lib.common.OwnCloudClient
 import com.owncloud.android.lib.common.http.HttpConstants
 import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod
-import com.owncloud.android.lib.common.http.methods.webdav.DavConstants
-import com.owncloud.android.lib.common.http.methods.webdav.DavUtils
-import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
+import com.owncloud.android.lib.common.network.TransferProgressNotifier
 import com.owncloud.android.lib.common.network.WebdavUtils
 import com.owncloud.android.lib.common.operations.OperationCancelledException
 import com.owncloud.android.lib.common.operations.RemoteOperation
@@ -38,12 +36,26 @@ import timber.log.Timber
 import java.io.BufferedInputStream
 import java.io.File
 import java.io.FileOutputStream
+import java.io.IOException
+import java.net.ProtocolException
 import java.net.URL
 import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Remote operation performing the download of a remote file in the PiCloud server.
  *
+ * When [knownEtag] is provided the download is conditional: if the file did not change in the server, nothing is
+ * downloaded and [isNotModified] is set.
+ *
+ * If a download is interrupted, the partial temporal file is kept together with the strong etag of the version it
+ * belongs to. The next download of the same file resumes it with a Range request validated with If-Range, so only
+ * the missing bytes are transferred if the file did not change in the server. Otherwise, or if the server rejects
+ * the range, the file is downloaded from the beginning.
+ *
+ * With [segmentedDownloadSettings], a file that is not being resumed nor conditionally downloaded is fetched in
+ * byte ranges over parallel requests, see [SegmentedFileDownload]. If the server does not serve the file in ranges,
+ * it is downloaded in a single request.
+ *
  * @author David A. Velasco
  * @author masensio
  */
@@ -51,10 +63,12 @@ class DownloadRemoteFileOperation(
     private val remotePath: String,
     localFolderPath: String,
     private val spaceWebDavUrl: String? = null,
+    private val knownEtag: String? = null,
+    private val segmentedDownloadSettings: SegmentedDownloadSettings? = null,
 ) : RemoteOperation<Unit>() {
 
     private val cancellationRequested = AtomicBoolean(false)
-    private val dataTransferListeners: MutableSet<OnDatatransferProgressListener> = HashSet()
+    private val progressNotifier = TransferProgressNotifier()
 
     var modificationTimestamp: Long = 0
         private set
@@ -62,24 +76,35 @@ class DownloadRemoteFileOperation(
     var etag: String = ""
         private set
 
+    var isNotModified: Boolean = false
+        private set
+
     private val tmpPath: String = localFolderPath + remotePath
+    private val partialEtagPath: String = tmpPath + PARTIAL_DOWNLOAD_ETAG_SUFFIX
 
     override fun run(client: OwnCloudClient): RemoteOperationResult<Unit> {
         // download will be performed to a temporal file, then moved to the final location
         val tmpFile = File(tmpPath)
 
-        val propfindMethod = PropfindMethod(
-            URL(client.userFilesWebDavUri.toString()),
-            DavConstants.DEPTH_1,
-            DavUtils.allPropSet
-        )
-        val status = client.executeHttpMethod(propfindMethod)
-
         // perform the download
         return try {
             tmpFile.parentFile?.mkdirs()
-            downloadFile(client, tmpFile).also {
-                Timber.i("Download of $remotePath to $tmpPath - HTTP status code: $status")
+            val partialEtag = readPartialDownloadEtag(tmpFile)
+            if (segmentedDownloadSettings != null && partialEtag == null && knownEtag.isNullOrBlank()) {
+                downloadFileInSegments(client, tmpFile, segmentedDownloadSettings)?.let { result ->
+                    Timber.i("Download of $remotePath to $tmpPath in segments - result code: ${result.code}")
+                    return result
+                }
+                Timber.d("Server did not serve $remotePath in segments, downloading it in a single request")
+            }
+            var result = downloadFile(client, tmpFile, partialEtag)
+            if (result == null) {
+                Timber.d("Server rejected resuming the download of $remotePath, downloading it from the beginning")
+                discardPartialDownload()
+                result = downloadFile(client, tmpFile, null)!!
+            }
+            result.also {
+                Timber.i("Download of $remotePath to $tmpPath - result code: ${it.code}")
             }
         } catch (e: Exception) {
             RemoteOperationResult<Unit>(e).also { result ->
@@ -88,83 +113,93 @@ class DownloadRemoteFileOperation(
         }
     }
 
+    /**
+     * @param partialEtag etag of the partial content already in [targetFile], to resume from its end. Null to download
+     * the whole file.
+     * @return result of the download, or null if the server could not resume the partial download.
+     */
     @Throws(Exception::class)
-    private fun downloadFile(client: OwnCloudClient, targetFile: File): RemoteOperationResult<Unit> {
+    private fun downloadFile(client: OwnCloudClient, targetFile: File, partialEtag: String?): RemoteOperationResult<Unit>? {
         val result: RemoteOperationResult<Unit>
-        var it: Iterator<OnDatatransferProgressListener>
         var fos: FileOutputStream? = null
         var bis: BufferedInputStream? = null
         var savedFile = false
+        var keepPartialFile = partialEtag != null
 
-        val webDavUri = spaceWebDavUrl ?: client.userFilesWebDavUri.toString()
-        val getMethod = GetMethod(URL(webDavUri + WebdavUtils.encodePath(remotePath)))
+        val resumeOffset = if (partialEtag != null) targetFile.length() else 0L
+        val getMethod = GetMethod(getFileUrl(client)).apply {
+            isFileTransfer = true
+            if (!knownEtag.isNullOrBlank()) {
+                addRequestHeader(HttpConstants.IF_NONE_MATCH_HEADER, "\"$knownEtag\"")
+            }
+            if (partialEtag != null) {
+                addRequestHeader(HttpConstants.RANGE_HEADER, "bytes=$resumeOffset-")
+                addRequestHeader(HttpConstants.IF_RANGE_HEADER, partialEtag)
+            }
+        }
 
         try {
             val status = client.executeHttpMethod(getMethod)
+            val isResumed = partialEtag != null && status == HttpConstants.HTTP_PARTIAL_CONTENT &&
+                    getContentRangeStart(getMethod) == resumeOffset
 
-            if (isSuccess(status)) {
-                targetFile.createNewFile()
-                bis = BufferedInputStream(getMethod.getResponseBodyAsStream())
-                fos = FileOutputStream(targetFile)
-                var transferred: Long = 0
-                val contentLength = getMethod.getResponseHeader(HttpConstants.CONTENT_LENGTH_HEADER)
-                val totalToTransfer = if (!contentLength.isNullOrEmpty()) {
-                    contentLength.toLong()
+            if (status == HttpConstants.HTTP_NOT_MODIFIED) {
+                Timber.d("File $remotePath not modified since etag $knownEtag, nothing to download")
+                isNotModified = true
+                etag = knownEtag.orEmpty()
+                keepPartialFile = false
+                client.exhaustResponse(getMethod.getResponseBodyAsStream())
+            } else if (partialEtag != null && (status == HttpConstants.HTTP_REQUESTED_RANGE_NOT_SATISFIABLE ||
+                        (status == HttpConstants.HTTP_PARTIAL_CONTENT && getContentRangeStart(getMethod) != resumeOffset))
+            ) {
+                client.exhaustResponse(getMethod.getResponseBodyAsStream())
+                return null
+            } else if (status == HttpConstants.HTTP_OK || isResumed) {
+                // Opened first, so it is closed in any case and the transfer permit held by the body is released
+                bis = BufferedInputStream(getMethod.getResponseBodyAsStream(), TransferProgressNotifier.TRANSFER_SEGMENT_SIZE)
+                if (isResumed) {
+                    Timber.d("Resuming download of $remotePath from byte $resumeOffset")
                 } else {
-                    -1L
+                    // Whole file in the response, the partial content is overwritten
+                    keepPartialFile = savePartialDownloadEtag(getMethod.getResponseHeader(HttpConstants.ETAG_HEADER))
+                    targetFile.createNewFile()
                 }
-                val bytes = ByteArray(4096)
+                fos = FileOutputStream(targetFile, isResumed)
+                var transferred: Long = if (isResumed) resumeOffset else 0
+                val totalToTransfer = getTotalToTransfer(getMethod, transferred)
+                val bytes = ByteArray(TransferProgressNotifier.TRANSFER_SEGMENT_SIZE)
                 var readResult: Int
                 while (bis.read(bytes).also { readResult = it } != -1) {
-                    synchronized(cancellationRequested) {
-                        if (cancellationRequested.get()) {
-                            getMethod.abort()
-                            throw OperationCancelledException()
-                        }
+                    if (cancellationRequested.get()) {
+                        getMethod.abort()
+                        throw OperationCancelledException()
                     }
                     fos.write(bytes, 0, readResult)
                     transferred += readResult.toLong()
-                    synchronized(dataTransferListeners) {
-                        it = dataTransferListeners.iterator()
-                        while (it.hasNext()) {
-                            it.next()
-                                .onTransferProgress(readResult.toLong(), transferred, totalToTransfer, targetFile.name)
-                        }
-                    }
+                    progressNotifier.onBytesTransferred(readResult.toLong(), transferred, totalToTransfer, targetFile.name)
                 }
 
                 if (totalToTransfer == -1L || transferred == totalToTransfer) {  // Check if the file is completed
                     savedFile = true
-                    val modificationTime =
-                        getMethod.getResponseHeaders()?.get("Last-Modified")
-                            ?: getMethod.getResponseHeader("last-modified")
-
-                    if (modificationTime != null) {
-                        val modificationDate = WebdavUtils.parseResponseDate(modificationTime)
-                        modificationTimestamp = modificationDate?.time ?: 0
-                    } else {
-                        Timber.e("Could not read modification time from response downloading %s", remotePath)
-                    }
-                    etag = WebdavUtils.getEtagFromResponse(getMethod)
-
-                    // Get rid of extra quotas
-                    etag = etag.replace("\"", "")
-                    if (etag.isEmpty()) {
-                        Timber.e("Could not read eTag from response downloading %s", remotePath)
-                    }
+                    File(partialEtagPath).delete()
+                    readMetadataFromResponse(client, getMethod)
                 } else {
                     Timber.e("Content-Length not equal to transferred bytes.")
                     Timber.d("totalToTransfer = $totalToTransfer, transferred = $transferred")
                     client.exhaustResponse(getMethod.getResponseBodyAsStream())
-                    // TODO some kind of error control!
+                    // Same as a connection dropped mid-stream, the partial file is kept to resume it later
+                    throw ProtocolException("Connection closed after $transferred of $totalToTransfer bytes")
                 }
 
-            } else if (status != HttpConstants.HTTP_FORBIDDEN && status != HttpConstants.HTTP_SERVICE_UNAVAILABLE) {
-                client.exhaustResponse(getMethod.getResponseBodyAsStream())
-            } // else, body read by RemoteOperationResult constructor
+            } else {
+                keepPartialFile = false
+                if (status != HttpConstants.HTTP_FORBIDDEN && status != HttpConstants.HTTP_SERVICE_UNAVAILABLE) {
+                    client.exhaustResponse(getMethod.getResponseBodyAsStream())
+                } // else, body read by RemoteOperationResult constructor
+            }
 
             result =
-                if (isSuccess(status)) {
+                if (status == HttpConstants.HTTP_OK || isResumed || isNotModified) {
                     RemoteOperationResult(RemoteOperationResult.ResultCode.OK)
                 } else {
                     RemoteOperationResult(getMethod)
@@ -172,24 +207,200 @@ class DownloadRemoteFileOperation(
         } finally {
             fos?.close()
             bis?.close()
-            if (!savedFile && targetFile.exists()) {
-                targetFile.delete()
+            if (!savedFile && !keepPartialFile) {
+                discardPartialDownload()
             }
         }
         return result
     }
 
-    private fun isSuccess(status: Int) = status == HttpConstants.HTTP_OK
+    /**
+     * Segmented downloads are not resumable, their partial content is always discarded if they fail.
+     *
+     * @return result of the download, or null if the server did not serve the file in ranges.
+     */
+    @Throws(Exception::class)
+    private fun downloadFileInSegments(
+        client: OwnCloudClient,
+        targetFile: File,
+        settings: SegmentedDownloadSettings,
+    ): RemoteOperationResult<Unit>? {
+        var savedFile = false
+        try {
+            val firstRange = SegmentedFileDownload(
+                client = client,
+                url = getFileUrl(client),
+                targetFile = targetFile,
+                settings = settings,
+                cancellationRequested = cancellationRequested,
+                progressNotifier = progressNotifier,
+            ).download() ?: return null
+            savedFile = true
+            readMetadataFromResponse(client, firstRange)
+            return RemoteOperationResult(RemoteOperationResult.ResultCode.OK)
+        } finally {
+            if (!savedFile) {
+                discardPartialDownload()
+            }
+        }
+    }
+
+    private fun getFileUrl(client: OwnCloudClient): URL =
+        URL((spaceWebDavUrl ?: client.userFilesWebDavUri.toString()) + WebdavUtils.encodePath(remotePath))
+
+    /**
+     * @return etag of the version of the file the partial content in [tmpFile] belongs to, or null if there is no
+     * partial content that can be resumed.
+     */
+    private fun readPartialDownloadEtag(tmpFile: File): String? {
+        val partialEtagFile = File(partialEtagPath)
+        if (tmpFile.length() == 0L || !partialEtagFile.exists()) {
+            return null
+        }
+        return try {
+            partialEtagFile.readText().takeIf { it.isNotBlank() }
+        } catch (e: IOException) {
+            Timber.w(e, "Could not read etag of partial download of %s", remotePath)
+            null
+        }
+    }
+
+    /**
+     * Only strong etags can validate a range request, partial downloads with weak or no etag cannot be resumed.
+     *
+     * @return true if the etag was saved, so the partial content can be resumed.
+     */
+    private fun savePartialDownloadEtag(responseEtag: String?): Boolean {
+        val partialEtagFile = File(partialEtagPath)
+        if (responseEtag.isNullOrBlank() || responseEtag.startsWith(WEAK_ETAG_PREFIX)) {
+            partialEtagFile.delete()
+            return false
+        }
+        return try {
+            partialEtagFile.writeText(responseEtag)
+            true
+        } catch (e: IOException) {
+            Timber.w(e, "Could not save etag of partial download of %s", remotePath)
+            false
+        }
+    }
+
+    /**
+     * Removes the partial content of an interrupted download of this file, if any.
+     */
+    fun discardPartialDownload() {
+        File(tmpPath).delete()
+        File(partialEtagPath).delete()
+    }
+
+    /**
+     * @return first byte of a "bytes start-end/total" Content-Range, or -1 if it is missing or malformed.
+     */
+    private fun getContentRangeStart(getMethod: GetMethod): Long =
+        getMethod.getResponseHeader(HttpConstants.CONTENT_RANGE_HEADER)
+            ?.substringAfter("bytes ", "")
+            ?.substringBefore("-")
+            ?.trim()
+            ?.toLongOrNull() ?: -1L
+
+    private fun getTotalToTransfer(getMethod: GetMethod, alreadyTransferred: Long): Long {
+        val totalFromContentRange = getMethod.getResponseHeader(HttpConstants.CONTENT_RANGE_HEADER)
+            ?.substringAfterLast("/", "")
+            ?.trim()
+            ?.toLongOrNull()
+        if (totalFromContentRange != null) {
+            return totalFromContentRange
+        }
+        val contentLength = getMethod.getResponseHeader(HttpConstants.CONTENT_LENGTH_HEADER)
+        return if (!contentLength.isNullOrEmpty()) {
+            alreadyTransferred + contentLength.toLong()
+        } else {
+            -1L
+        }
+    }
+
+    private fun readMetadataFromResponse(client: OwnCloudClient, getMethod: GetMethod) {
+        val modificationTime =
+            getMethod.getResponseHeaders()?.get("Last-Modified")
+                ?: getMethod.getResponseHeader("last-modified")
+
+        if (modificationTime != null) {
+            val modificationDate = WebdavUtils.parseResponseDate(modificationTime)
+            modificationTimestamp = modificationDate?.time ?: 0
+        } else {
+            Timber.e("Could not read modification time from response downloading %s", remotePath)
+        }
+        etag = WebdavUtils.getEtagFromResponse(getMethod)
+
+        // Get rid of extra quotas
+        etag = etag.replace("\"", "")
+        if (etag.isEmpty()) {
+            Timber.e("Could not read eTag from response downloading %s", remotePath)
+        }
+        if (etag.isEmpty() || modificationTimestamp == 0L) {
+            readMissingMetadata(client)
+        }
+    }
+
+    /**
+     * Some servers or proxies strip the etag or the modification time of the GET response. Only in that case, they
+     * are read with a single Depth-0 PROPFIND on the downloaded file.
+     */
+    private fun readMissingMetadata(client: OwnCloudClient) {
+        val readRemoteFileResult = ReadRemoteFileOperation(remotePath, spaceWebDavUrl).execute(client)
+        val remoteFile = readRemoteFileResult.data
+        if (!readRemoteFileResult.isSuccess || remoteFile == null) {
+            Timber.w("Could not read metadata of downloaded file %s", remotePath)
+            return
+        }
+        if (etag.isEmpty()) {
+            etag = remoteFile.etag.orEmpty().replace("\"", "")
+        }
+        if (modificationTimestamp == 0L) {
+            modificationTimestamp = remoteFile.modifiedTimestamp
+        }
+    }
 
     fun addDatatransferProgressListener(listener: OnDatatransferProgressListener) {
-        synchronized(dataTransferListeners) { dataTransferListeners.add(listener) }
+        progressNotifier.addDatatransferProgressListener(listener)
     }
 
     fun removeDatatransferProgressListener(listener: OnDatatransferProgressListener?) {
-        synchronized(dataTransferListeners) { dataTransferListeners.remove(listener) }
+        listener?.let { progressNotifier.removeDatatransferProgressListener(it) }
     }
 
     fun cancel() {
         cancellationRequested.set(true) // atomic set; there is no need of synchronizing it
     }
+
+    companion object {
+        private const val PARTIAL_DOWNLOAD_ETAG_SUFFIX = ".part-etag"
+        private const val WEAK_ETAG_PREFIX = "W/"
+
+        /**
+         * Hands [partialFile], holding the first bytes of the version of the file with [etag], over to the next download
+         * of [remotePath] to [localFolderPath], which will resume it. Nothing is done if a partial download is there
+         * already or the etag cannot validate a range.
+         *
+         * @return true if the partial content was handed over.
+         */
+        fun handOverPartialDownload(remotePath: String, localFolderPath: String, partialFile: File, etag: String): Boolean {
+            val tmpFile = File(localFolderPath + remotePath)
+            if (tmpFile.exists() || etag.isBlank() || etag.startsWith(WEAK_ETAG_PREFIX)) {
+                return false
+            }
+            tmpFile.parentFile?.mkdirs()
+            if (!partialFile.renameTo(tmpFile)) {
+                return false
+            }
+            return try {
+                File(tmpFile.path + PARTIAL_DOWNLOAD_ETAG_SUFFIX).writeText(etag)
+                true
+            } catch (e: IOException) {
+                Timber.w(e, "Could not save etag of partial download of %s", remotePath)
+                tmpFile.delete()
+                false
+            }
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ */
+
+package com.owncloud.android.lib.resources.files
+
+import at.bitfire.dav4jvm.property.ResourceType
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.methods.webdav.DavConstants
+import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod
+import com.owncloud.android.lib.common.network.WebdavUtils
+import com.owncloud.android.lib.common.operations.RemoteOperation
+import com.owncloud.android.lib.common.operations.RemoteOperationResult
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
+import com.owncloud.android.lib.common.utils.isOneOf
+import timber.log.Timber
+import java.net.URL
+
+/**
+ * Returns [remotePath] if nothing exists there in the server, or the first "name (n).extension" variant of it that is
+ * free, so an upload, copy or move to it does not overwrite anything.
+ *
+ * The path itself is checked with a single existence request. Only if it is taken, the parent folder is listed once
+ * with a Depth-1 PROPFIND and the suffix is chosen from the names in it, instead of checking the candidates one by
+ * one. If the folder can not be listed, candidates are checked one by one.
+ */
+class GetAvailableRemotePathOperation(
+    private val remotePath: String,
+    private val isUserLoggedIn: Boolean,
+    private val spaceWebDavUrl: String? = null,
+) : RemoteOperation<String>() {
+
+    override fun run(client: OwnCloudClient): RemoteOperationResult<String> {
+        val availableRemotePath = if (!existsPath(client, remotePath)) {
+            remotePath
+        } else {
+            readNamesInParentFolder(client)?.let { takenNames ->
+                getAvailableRemotePath(remotePath, takenNames)
+            } ?: getAvailableRemotePathCheckingCandidates(client)
+        }
+        return RemoteOperationResult<String>(ResultCode.OK).apply { data = availableRemotePath }
+    }
+
+    /**
+     * @return names of the files and folders in the parent folder of [remotePath], or null if it could not be read.
+     */
+    private fun readNamesInParentFolder(client: OwnCloudClient): Set<String>? {
+        if (!isUserLoggedIn) return null
+        val parentPath = remotePath.trimEnd(PATH_SEPARATOR).substringBeforeLast(PATH_SEPARATOR, "") + PATH_SEPARATOR
+        val baseStringUrl = spaceWebDavUrl ?: client.userFilesWebDavUri.toString()
+        val takenNames = HashSet<String>()
+        return try {
+            val propfindMethod = PropfindMethod(
+                URL(baseStringUrl + WebdavUtils.encodePath(parentPath)),
+                DavConstants.DEPTH_1,
+                arrayOf(ResourceType.NAME),
+            ) { member ->
+                member.href.pathSegments.lastOrNull { it.isNotEmpty() }?.let { takenNames.add(it) }
+            }
+            val status = client.executeHttpMethod(propfindMethod)
+            if (status.isOneOf(HttpConstants.HTTP_OK, HttpConstants.HTTP_MULTI_STATUS)) {
+                takenNames
+            } else {
+                Timber.w("Could not list %s to find an available name, HTTP status %d", parentPath, status)
+                null
+            }
+        } catch (e: Exception) {
+            Timber.w(e, "Could not list %s to find an available name", parentPath)
+            null
+        }
+    }
+
+    private fun getAvailableRemotePathCheckingCandidates(client: OwnCloudClient): String =
+        generateSequence(1) { it + 1 }
+            .map { count -> getRemotePathWithSuffix(remotePath, count) }
+            .first { candidate -> !existsPath(client, candidate) }
+
+    private fun existsPath(client: OwnCloudClient, path: String): Boolean =
+        CheckPathExistenceRemoteOperation(
+            remotePath = path,
+            isUserLoggedIn = isUserLoggedIn,
+            spaceWebDavUrl = spaceWebDavUrl,
+        ).execute(client).isSuccess
+
+    companion object {
+        private const val PATH_SEPARATOR = '/'
+
+        /**
+         * @return [remotePath] if its name is not in [takenNames], or the first "name (n).extension" variant of it
+         * whose name is not.
+         */
+        fun getAvailableRemotePath(remotePath: String, takenNames: Set<String>): String {
+            if (remotePath.trimEnd(PATH_SEPARATOR).substringAfterLast(PATH_SEPARATOR) !in takenNames) {
+                return remotePath
+            }
+            return generateSequence(1) { it + 1 }
+                .map { count -> getRemotePathWithSuffix(remotePath, count) }
+                .first { candidate -> candidate.substringAfterLast(PATH_SEPARATOR) !in takenNames }
+        }
+
+        private fun getRemotePathWithSuffix(remotePath: String, count: Int): String {
+            val path = remotePath.trimEnd(PATH_SEPARATOR)
+            val parentPath = path.substringBeforeLast(PATH_SEPARATOR, "")
+            val name = path.substringAfterLast(PATH_SEPARATOR)
+            val extensionIndex = name.lastIndexOf('.')
+            val nameWithSuffix = if (extensionIndex >= 0) {
+                "${name.substring(0, extensionIndex)} ($count)${name.substring(extensionIndex)}"
+            } else {
+                "$name ($count)"
+            }
+            return "$parentPath$PATH_SEPARATOR$nameWithSuffix"
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ */
+
+package com.owncloud.android.lib.resources.files
+
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod
+import com.owncloud.android.lib.common.network.WebdavUtils
+import com.owncloud.android.lib.common.operations.RemoteOperation
+import com.owncloud.android.lib.common.operations.RemoteOperationResult
+import timber.log.Timber
+import java.io.IOException
+import java.net.ProtocolException
+import java.net.URL
+
+/**
+ * Bytes of a remote file read with [ReadRemoteFileRangeOperation].
+ *
+ * @property etag etag of the version of the file the bytes belong to, as received in the response, to validate the
+ * next ranges with it.
+ */
+class RemoteFileRange(
+    val start: Long,
+    val bytes: ByteArray,
+    val totalLength: Long,
+    val etag: String?,
+    val modificationTimestamp: Long,
+)
+
+/**
+ * Remote operation reading [length] bytes of a remote file from [start] with a single Range request, without storing
+ * them anywhere.
+ *
+ * With [ifMatchEtag] the range is only served if the file is still the version with that etag, so ranges read in
+ * several requests belong to the same version of the file. If the server answers with anything but the requested
+ * range, the response is aborted and the operation fails with [RemoteOperationResult.ResultCode.UNHANDLED_HTTP_CODE],
+ * so a server ignoring ranges does not send the whole file.
+ */
+class ReadRemoteFileRangeOperation(
+    private val remotePath: String,
+    private val start: Long,
+    private val length: Int,
+    private val spaceWebDavUrl: String? = null,
+    private val ifMatchEtag: String? = null,
+) : RemoteOperation<RemoteFileRange>() {
+
+    override fun run(client: OwnCloudClient): RemoteOperationResult<RemoteFileRange> {
+        val fileUrl = URL((spaceWebDavUrl ?: client.userFilesWebDavUri.toString()) + WebdavUtils.encodePath(remotePath))
+        val getMethod = GetMethod(fileUrl).apply {
+            isFileTransfer = true
+            addRequestHeader(HttpConstants.RANGE_HEADER, "bytes=$start-${start + length - 1}")
+            if (ifMatchEtag != null) {
+                addRequestHeader(HttpConstants.IF_MATCH_HEADER, ifMatchEtag)
+            }
+        }
+
+        return try {
+            val status = client.executeHttpMethod(getMethod)
+            val contentRange = ContentRange.fromResponse(getMethod)
+            when {
+                status == HttpConstants.HTTP_PARTIAL_CONTENT && contentRange?.start == start && contentRange.total != null -> {
+                    RemoteOperationResult<RemoteFileRange>(RemoteOperationResult.ResultCode.OK).apply {
+                        data = RemoteFileRange(
+                            start = start,
+                            bytes = readBody(getMethod, contentRange.length.toInt()),
+                            totalLength = contentRange.total,
+                            etag = getMethod.getResponseHeader(HttpConstants.ETAG_HEADER),
+                            modificationTimestamp = getModificationTimestamp(getMethod),
+                        )
+                    }
+                }
+                status == HttpConstants.HTTP_OK || status == HttpConstants.HTTP_PARTIAL_CONTENT -> {
+                    Timber.d("Server did not serve the range $start-${start + length - 1} of $remotePath")
+                    getMethod.abort()
+                    RemoteOperationResult(RemoteOperationResult.ResultCode.UNHANDLED_HTTP_CODE)
+                }
+                else -> {
+                    if (status != HttpConstants.HTTP_FORBIDDEN && status != HttpConstants.HTTP_SERVICE_UNAVAILABLE) {
+                        client.exhaustResponse(getMethod.getResponseBodyAsStream())
+                    } // else, body read by RemoteOperationResult constructor
+                    RemoteOperationResult(getMethod)
+                }
+            }
+        } catch (e: Exception) {
+            RemoteOperationResult<RemoteFileRange>(e).also { result ->
+                Timber.e(e, "Read of range $start-${start + length - 1} of $remotePath: ${result.logMessage}")
+            }
+        }
+    }
+
+    private fun readBody(getMethod: GetMethod, contentLength: Int): ByteArray {
+        val bytes = ByteArray(contentLength)
+        val body = getMethod.getResponseBodyAsStream() ?: throw ProtocolException("Empty response for range at $start")
+        body.use {
+            var read = 0
+            while (read < contentLength) {
+                val readResult = body.read(bytes, read, contentLength - read)
+                if (readResult == -1) {
+                    throw IOException("Connection closed after $read of $contentLength bytes of range at $start")
+                }
+                read += readResult
+            }
+        }
+        return bytes
+    }
+
+    private fun getModificationTimestamp(getMethod: GetMethod): Long =
+        getMethod.getResponseHeader(LAST_MODIFIED_HEADER)
+            ?.let { WebdavUtils.parseResponseDate(it)?.time } ?: 0
+
+    companion object {
+        private const val LAST_MODIFIED_HEADER = "Last-Modified"
+    }
+}
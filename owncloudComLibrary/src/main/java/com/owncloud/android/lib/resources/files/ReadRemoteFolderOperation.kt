@@ -24,6 +24,7 @@
 package com.owncloud.android.lib.resources.files
 
 import at.bitfire.dav4jvm.PropertyRegistry
+import at.bitfire.dav4jvm.Response
 import com.owncloud.android.lib.common.OwnCloudClient
 import com.owncloud.android.lib.common.accounts.AccountUtils
 import com.owncloud.android.lib.common.http.HttpConstants.HTTP_MULTI_STATUS
@@ -43,6 +44,10 @@ import java.net.URL
 /**
  * Remote operation performing the read of remote file or folder in the PiCloud server.
  *
+ * By default, the folder and all its children are returned as the result. When [onRemoteFilesBatch] is provided,
+ * the children are handed to it in batches of up to [batchSize] files while the response is parsed, and the result
+ * only contains the folder, so the memory needed does not depend on the size of the folder.
+ *
  * @author David A. Velasco
  * @author masensio
  * @author David González Verdugo
@@ -50,6 +55,8 @@ import java.net.URL
 class ReadRemoteFolderOperation(
     val remotePath: String,
     val spaceWebDavUrl: String? = null,
+    private val batchSize: Int = DEFAULT_BATCH_SIZE,
+    private val onRemoteFilesBatch: ((remoteFolder: RemoteFile, remoteFiles: List<RemoteFile>) -> Unit)? = null,
 ) : RemoteOperation<ArrayList<RemoteFile>>() {
 
     /**
@@ -61,10 +68,17 @@ class ReadRemoteFolderOperation(
         try {
             PropertyRegistry.register(OCShareTypes.Factory())
 
-            val propfindMethod = PropfindMethod(
+            val userId = AccountUtils.getUserId(mAccount, mContext)
+            lateinit var propfindMethod: PropfindMethod
+            val batchConsumer = onRemoteFilesBatch?.let { onBatch ->
+                RemoteFilesBatchConsumer(userId, { propfindMethod.root }, onBatch)
+            }
+
+            propfindMethod = PropfindMethod(
                 getFinalWebDavUrl(),
                 DavConstants.DEPTH_1,
-                DavUtils.allPropSet
+                DavUtils.allPropSet,
+                batchConsumer?.let { consumer -> { resource -> consumer.onMember(resource) } }
             )
 
             val status = client.executeHttpMethod(propfindMethod)
@@ -74,27 +88,33 @@ class ReadRemoteFolderOperation(
 
                 val remoteFolder = RemoteFile.getRemoteFileFromDav(
                     davResource = propfindMethod.root!!,
-                    userId = AccountUtils.getUserId(mAccount, mContext),
+                    userId = userId,
                     userName = mAccount.name,
                     spaceWebDavUrl = spaceWebDavUrl,
                 )
                 mFolderAndFiles.add(remoteFolder)
 
-                // loop to update every child
-                propfindMethod.members.forEach { resource ->
-                    val remoteFile = RemoteFile.getRemoteFileFromDav(
-                        davResource = resource,
-                        userId = AccountUtils.getUserId(mAccount, mContext),
-                        userName = mAccount.name,
-                        spaceWebDavUrl = spaceWebDavUrl,
-                    )
-                    mFolderAndFiles.add(remoteFile)
+                if (batchConsumer != null) {
+                    batchConsumer.flush()
+                } else {
+                    // loop to update every child
+                    propfindMethod.members.forEach { resource ->
+                        val remoteFile = RemoteFile.getRemoteFileFromDav(
+                            davResource = resource,
+                            userId = userId,
+                            userName = mAccount.name,
+                            spaceWebDavUrl = spaceWebDavUrl,
+                        )
+                        mFolderAndFiles.add(remoteFile)
+                    }
                 }
 
                 // Result of the operation
                 RemoteOperationResult<ArrayList<RemoteFile>>(ResultCode.OK).apply {
                     data = mFolderAndFiles
-                    Timber.i("Synchronized $remotePath with ${mFolderAndFiles.size} files. - HTTP status code: $status")
+                    Timber.i(
+                        "Synchronized $remotePath with ${batchConsumer?.consumedFiles ?: mFolderAndFiles.size} files. - HTTP status code: $status"
+                    )
                 }
             } else { // synchronization failed
                 RemoteOperationResult<ArrayList<RemoteFile>>(propfindMethod).also {
@@ -108,6 +128,51 @@ class ReadRemoteFolderOperation(
         }
     }
 
+    /**
+     * Groups the members of the PROPFIND response in batches while they are parsed. Servers send the folder itself
+     * as the first response, so it is usually known before the first batch is complete; otherwise, members are kept
+     * until it arrives.
+     */
+    private inner class RemoteFilesBatchConsumer(
+        private val userId: String,
+        private val rootResponse: () -> Response?,
+        private val onBatch: (RemoteFile, List<RemoteFile>) -> Unit,
+    ) {
+        private val batch = ArrayList<RemoteFile>(batchSize)
+        private var remoteFolder: RemoteFile? = null
+        var consumedFiles = 0
+            private set
+
+        fun onMember(resource: Response) {
+            batch.add(toRemoteFile(resource))
+            if (batch.size >= batchSize) {
+                getRemoteFolder()?.let { deliver(it) }
+            }
+        }
+
+        fun flush() {
+            getRemoteFolder()?.let { deliver(it) }
+        }
+
+        private fun getRemoteFolder(): RemoteFile? =
+            remoteFolder ?: rootResponse()?.let { toRemoteFile(it) }.also { remoteFolder = it }
+
+        private fun toRemoteFile(resource: Response) =
+            RemoteFile.getRemoteFileFromDav(
+                davResource = resource,
+                userId = userId,
+                userName = mAccount.name,
+                spaceWebDavUrl = spaceWebDavUrl,
+            )
+
+        private fun deliver(folder: RemoteFile) {
+            if (batch.isEmpty()) return
+            onBatch(folder, batch.toList())
+            consumedFiles += batch.size
+            batch.clear()
+        }
+    }
+
     private fun getFinalWebDavUrl(): URL {
         val baseWebDavUrl = spaceWebDavUrl ?: client.userFilesWebDavUri.toString()
 
@@ -115,4 +180,8 @@ class ReadRemoteFolderOperation(
     }
 
     private fun isSuccess(status: Int): Boolean = status.isOneOf(HTTP_OK, HTTP_MULTI_STATUS)
+
+    companion object {
+        const val DEFAULT_BATCH_SIZE = 400
+    }
 }
@@ -0,0 +1,252 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ */
+
+package com.owncloud.android.lib.resources.files
+
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod
+import com.owncloud.android.lib.common.network.TransferProgressNotifier
+import com.owncloud.android.lib.common.operations.OperationCancelledException
+import timber.log.Timber
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.net.ProtocolException
+import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Settings of the segmented mode of [DownloadRemoteFileOperation], which splits the file in ranges of [segmentSize]
+ * bytes fetched over up to [maxConnections] parallel requests.
+ *
+ * Segments are file transfers, so they hold a transfer permit of the client until their body is read, and the
+ * segments of all the downloads of an account share those permits. Besides, all segmented downloads together never
+ * fetch more than [SegmentedFileDownload.MAX_PARALLEL_SEGMENTS] ranges in parallel on top of their first one.
+ */
+data class SegmentedDownloadSettings(
+    val segmentSize: Long = DEFAULT_SEGMENT_SIZE,
+    val maxConnections: Int = DEFAULT_MAX_CONNECTIONS,
+) {
+    init {
+        require(segmentSize > 0) { "Segment size must be greater than zero" }
+        require(maxConnections > 1) { "Segmented downloads need more than one connection" }
+    }
+
+    companion object {
+        const val DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024L
+        const val DEFAULT_MAX_CONNECTIONS = 4
+    }
+}
+
+/**
+ * Downloads a file in byte ranges fetched in parallel and written at their offsets of a preallocated file.
+ *
+ * The first range is requested alone to learn the total length and the strong etag of the file. The rest are
+ * requested with If-Match on that etag, so all of them belong to the same version of the file.
+ */
+internal class SegmentedFileDownload(
+    private val client: OwnCloudClient,
+    private val url: URL,
+    private val targetFile: File,
+    private val settings: SegmentedDownloadSettings,
+    private val cancellationRequested: AtomicBoolean,
+    private val progressNotifier: TransferProgressNotifier,
+) {
+
+    private val runningMethods: MutableSet<GetMethod> = CopyOnWriteArraySet()
+    private val firstFailure = AtomicReference<Exception>()
+    private var totalLength: Long = -1
+    private var transferred: Long = 0
+
+    /**
+     * @return the response to the first range, to read the metadata of the file from, or null if the server did not
+     * serve the file in ranges of a single version. In that case [targetFile] may contain partial content.
+     */
+    @Throws(Exception::class)
+    fun download(): GetMethod? {
+        val firstRange = newRangeMethod(0, settings.segmentSize - 1, ifMatchEtag = null)
+        val status = client.executeHttpMethod(firstRange)
+        val etag = firstRange.getResponseHeader(HttpConstants.ETAG_HEADER)
+        val contentRange = ContentRange.fromResponse(firstRange)
+        if (status != HttpConstants.HTTP_PARTIAL_CONTENT || contentRange == null || contentRange.start != 0L ||
+            contentRange.total == null || etag.isNullOrBlank() || etag.startsWith(WEAK_ETAG_PREFIX)
+        ) {
+            // Do not read the whole file if the server ignored the range
+            firstRange.abort()
+            return null
+        }
+        totalLength = contentRange.total
+
+        val segmentStarts = (settings.segmentSize until totalLength step settings.segmentSize).toList()
+        Timber.d("Downloading $url in ${segmentStarts.size + 1} segments of ${settings.segmentSize} bytes")
+
+        try {
+            RandomAccessFile(targetFile, "rw").use { file ->
+                file.setLength(totalLength)
+                val channel = file.channel
+                val executor = Executors.newFixedThreadPool(minOf(settings.maxConnections - 1, segmentStarts.size).coerceAtLeast(1))
+                try {
+                    val segments = segmentStarts.map { start ->
+                        executor.submit(Callable { downloadSegment(start, etag, channel) })
+                    }
+                    runSegment { writeBody(firstRange, 0, contentRange.length, channel) }
+                    segments.forEach { it.get() }
+                } finally {
+                    executor.shutdownNow()
+                }
+
+                if (channel.size() != totalLength || transferred != totalLength) {
+                    throw ProtocolException("Downloaded $transferred of $totalLength bytes in segments")
+                }
+            }
+        } catch (e: Exception) {
+            // Releases the transfer permit of the first range if its body was not read
+            firstRange.abort()
+            val failure = firstFailure.get() ?: (e as? ExecutionException)?.cause ?: e
+            if (failure is FileChangedException) {
+                Timber.d("File $url changed in the middle of a segmented download")
+                return null
+            }
+            throw failure
+        }
+        return firstRange
+    }
+
+    private fun downloadSegment(start: Long, etag: String, channel: FileChannel) = runSegment {
+        val end = minOf(start + settings.segmentSize, totalLength) - 1
+        val rangeMethod = newRangeMethod(start, end, etag)
+        segmentPermits.acquire()
+        runningMethods.add(rangeMethod)
+        try {
+            val status = client.executeHttpMethod(rangeMethod)
+            val responseEtag = rangeMethod.getResponseHeader(HttpConstants.ETAG_HEADER)
+            if (status != HttpConstants.HTTP_PARTIAL_CONTENT || ContentRange.fromResponse(rangeMethod)?.start != start ||
+                (responseEtag != null && responseEtag != etag)
+            ) {
+                rangeMethod.abort()
+                throw FileChangedException()
+            }
+            writeBody(rangeMethod, start, end - start + 1, channel)
+        } finally {
+            runningMethods.remove(rangeMethod)
+            segmentPermits.release()
+        }
+    }
+
+    /**
+     * Runs the download of a segment, aborting the rest of them if it fails.
+     */
+    private fun runSegment(block: () -> Unit) {
+        try {
+            block()
+        } catch (e: Exception) {
+            if (firstFailure.compareAndSet(null, e)) {
+                runningMethods.forEach { it.abort() }
+            }
+            throw e
+        }
+    }
+
+    private fun writeBody(method: GetMethod, offset: Long, length: Long, channel: FileChannel) {
+        val body = method.getResponseBodyAsStream() ?: throw ProtocolException("Empty response for segment at $offset")
+        var position = offset
+        val bytes = ByteArray(TransferProgressNotifier.TRANSFER_SEGMENT_SIZE)
+        body.use {
+            var readResult: Int
+            while (body.read(bytes).also { readResult = it } != -1) {
+                if (cancellationRequested.get()) {
+                    method.abort()
+                    throw OperationCancelledException()
+                }
+                if (firstFailure.get() != null) {
+                    method.abort()
+                    throw IOException("Segment at $offset aborted")
+                }
+                val buffer = ByteBuffer.wrap(bytes, 0, readResult)
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position)
+                }
+                synchronized(progressNotifier) {
+                    transferred += readResult
+                    progressNotifier.onBytesTransferred(readResult.toLong(), transferred, totalLength, targetFile.name)
+                }
+            }
+        }
+        if (position - offset != length) {
+            throw ProtocolException("Connection closed after ${position - offset} of $length bytes of segment at $offset")
+        }
+    }
+
+    private fun newRangeMethod(start: Long, end: Long, ifMatchEtag: String?) = GetMethod(url).apply {
+        isFileTransfer = true
+        addRequestHeader(HttpConstants.RANGE_HEADER, "bytes=$start-$end")
+        if (ifMatchEtag != null) {
+            addRequestHeader(HttpConstants.IF_MATCH_HEADER, ifMatchEtag)
+        }
+    }
+
+    /**
+     * The server did not serve a range of the version of the file the download started with.
+     */
+    private class FileChangedException : IOException()
+
+    companion object {
+        private const val WEAK_ETAG_PREFIX = "W/"
+
+        /**
+         * Ranges fetched in parallel by all segmented downloads, besides the first range of each one, whatever the
+         * account or worker they belong to.
+         */
+        internal const val MAX_PARALLEL_SEGMENTS = 8
+
+        private val segmentPermits = Semaphore(MAX_PARALLEL_SEGMENTS, true)
+    }
+}
+
+/**
+ * A "bytes start-end/total" Content-Range header.
+ */
+internal class ContentRange(val start: Long, val end: Long, val total: Long?) {
+    val length: Long
+        get() = end - start + 1
+
+    companion object {
+        fun fromResponse(method: GetMethod): ContentRange? {
+            val value = method.getResponseHeader(HttpConstants.CONTENT_RANGE_HEADER)
+                ?.substringAfter("bytes ", "")
+                ?.takeIf { it.isNotEmpty() } ?: return null
+            val start = value.substringBefore("-").trim().toLongOrNull() ?: return null
+            val end = value.substringAfter("-").substringBefore("/").trim().toLongOrNull() ?: return null
+            return ContentRange(start, end, value.substringAfter("/", "").trim().toLongOrNull())
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.owncloud.android.lib.common.http.methods.webdav.DavConstants
 import com.owncloud.android.lib.common.http.methods.webdav.DavUtils
 import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod
 import com.owncloud.android.lib.common.http.methods.webdav.PutMethod
+import com.owncloud.android.lib.common.network.ChunkFromFileRequestBody
 import com.owncloud.android.lib.common.network.FileRequestBody
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.common.network.WebdavUtils
@@ -42,11 +43,16 @@ import okhttp3.MediaType.Companion.toMediaTypeOrNull
 import timber.log.Timber
 import java.io.File
 import java.net.URL
+import java.nio.channels.FileChannel
 import java.util.concurrent.atomic.AtomicBoolean
 
 /**
  * Remote operation performing the upload of a remote file to the PiCloud server.
  *
+ * When [sourceChannel] is provided, the content is read from it instead of from the file in [localPath], which is
+ * then only used to name the transfer. The channel must support positional reads, so the content can be read again
+ * if the upload is retried, and it is not closed by the operation.
+ *
  * @author David A. Velasco
  * @author masensio
  * @author David González Verdugo
@@ -60,6 +66,7 @@ open class UploadFileFromFileSystemOperation(
     val lastModifiedTimestamp: String,
     val requiredEtag: String?,
     val spaceWebDavUrl: String? = null,
+    protected val sourceChannel: FileChannel? = null,
 ) : RemoteOperation<Unit>() {
 
     protected val cancellationRequested = AtomicBoolean(false)
@@ -104,8 +111,13 @@ open class UploadFileFromFileSystemOperation(
     protected open fun uploadFile(client: OwnCloudClient): RemoteOperationResult<Unit> {
         val fileToUpload = File(localPath)
         val mediaType: MediaType? = mimeType.toMediaTypeOrNull()
+        val totalLength = sourceChannel?.size() ?: fileToUpload.length()
 
-        fileRequestBody = FileRequestBody(fileToUpload, mediaType).also {
+        val requestBody = sourceChannel?.let {
+            // The whole content as a single chunk
+            ChunkFromFileRequestBody(fileToUpload, mediaType, it, totalLength.coerceAtLeast(1))
+        } ?: FileRequestBody(fileToUpload, mediaType)
+        fileRequestBody = requestBody.also {
             synchronized(dataTransferListener) { it.addDatatransferProgressListeners(dataTransferListener) }
         }
 
@@ -115,7 +127,7 @@ open class UploadFileFromFileSystemOperation(
             if (!requiredEtag.isNullOrBlank()) {
                 addRequestHeader(HttpConstants.IF_MATCH_HEADER, requiredEtag)
             }
-            addRequestHeader(HttpConstants.OC_TOTAL_LENGTH_HEADER, fileToUpload.length().toString())
+            addRequestHeader(HttpConstants.OC_TOTAL_LENGTH_HEADER, totalLength.toString())
             addRequestHeader(HttpConstants.OC_X_OC_MTIME_HEADER, lastModifiedTimestamp)
         }
 
@@ -145,7 +157,7 @@ open class UploadFileFromFileSystemOperation(
         fileRequestBody?.removeDatatransferProgressListener(listener)
     }
 
-    fun cancel() {
+    open fun cancel() {
         synchronized(cancellationRequested) {
             cancellationRequested.set(true)
             putMethod?.abort()
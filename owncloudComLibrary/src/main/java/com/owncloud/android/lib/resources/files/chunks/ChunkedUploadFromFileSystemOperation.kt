@@ -24,8 +24,10 @@
 package com.owncloud.android.lib.resources.files.chunks
 
 import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.http.HttpConstants
 import com.owncloud.android.lib.common.http.methods.webdav.PutMethod
 import com.owncloud.android.lib.common.network.ChunkFromFileRequestBody
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
 import com.owncloud.android.lib.common.operations.OperationCancelledException
 import com.owncloud.android.lib.common.operations.RemoteOperationResult
 import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode
@@ -38,12 +40,21 @@ import java.io.File
 import java.io.RandomAccessFile
 import java.net.URL
 import java.nio.channels.FileChannel
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.math.ceil
 
 /**
  * Remote operation performing the chunked upload of a remote file to the PiCloud server.
  *
+ * Up to [parallelChunks] chunks are PUT at the same time. When a [chunkedUploadStateStore] is provided, every chunk
+ * acknowledged by the server is recorded under [transferId] for the [sourceVersion] of the file and the [chunkSize], so
+ * retrying the upload with the same [transferId] only sends the chunks that are still missing, unless the file or the
+ * chunk size changed.
+ *
  * @author David A. Velasco
  * @author David González Verdugo
  * @author Abel García de Prada
@@ -55,68 +66,154 @@ class ChunkedUploadFromFileSystemOperation(
     mimeType: String,
     lastModifiedTimestamp: String,
     requiredEtag: String?,
+    private val chunkSize: Long = CHUNK_SIZE,
+    private val parallelChunks: Int = DEFAULT_PARALLEL_CHUNKS,
+    private val chunkedUploadStateStore: ChunkedUploadStateStore? = null,
+    sourceChannel: FileChannel? = null,
+    private val sourceVersion: ChunkedUploadSourceVersion = File(localPath).let { ChunkedUploadSourceVersion(it.length(), it.lastModified()) },
 ) : UploadFileFromFileSystemOperation(
     localPath = localPath,
     remotePath = remotePath,
     mimeType = mimeType,
     lastModifiedTimestamp = lastModifiedTimestamp,
-    requiredEtag = requiredEtag
+    requiredEtag = requiredEtag,
+    sourceChannel = sourceChannel,
 ) {
 
+    private val inFlightPutMethods: MutableSet<PutMethod> = ConcurrentHashMap.newKeySet()
+
+    init {
+        require(chunkSize > 0) { "Chunk size must be greater than zero" }
+        require(parallelChunks > 0) { "Parallel chunks must be greater than zero" }
+    }
+
     @Throws(Exception::class)
     override fun uploadFile(client: OwnCloudClient): RemoteOperationResult<Unit> {
-        lateinit var result: RemoteOperationResult<Unit>
-
         val fileToUpload = File(localPath)
         val mediaType: MediaType? = mimeType.toMediaTypeOrNull()
-        val raf = RandomAccessFile(fileToUpload, MODE_READ_ONLY)
-        val channel: FileChannel = raf.channel
-
-        val fileRequestBody = ChunkFromFileRequestBody(fileToUpload, mediaType, channel).also {
-            synchronized(dataTransferListener) { it.addDatatransferProgressListeners(dataTransferListener) }
-        }
 
         val uriPrefix = client.uploadsWebDavUri.toString() + File.separator + transferId
-        val totalLength = fileToUpload.length()
-        val chunkCount = ceil(totalLength.toDouble() / CHUNK_SIZE).toLong()
-        var offset: Long = 0
+        val totalLength = sourceChannel?.size() ?: fileToUpload.length()
+        val chunkCount = ceil(totalLength.toDouble() / chunkSize).toLong()
 
-        for (chunkIndex in 0..chunkCount) {
-            fileRequestBody.setOffset(offset)
+        val acknowledgedChunks = chunkedUploadStateStore?.getAcknowledgedChunks(transferId, sourceVersion, chunkSize).orEmpty().filter { it < chunkCount }
+        val pendingChunks = (0 until chunkCount).filterNot { it in acknowledgedChunks }
+        Timber.d("Upload of $localPath to $remotePath, ${acknowledgedChunks.size} of $chunkCount chunks already acknowledged")
 
-            if (cancellationRequested.get()) {
-                result = RemoteOperationResult<Unit>(OperationCancelledException())
-                break
-            } else {
-                putMethod = PutMethod(URL(uriPrefix + File.separator + chunkIndex), fileRequestBody).apply {
-                    if (chunkIndex == chunkCount - 1) {
-                        // Added a high timeout to the last chunk due to when the last chunk
-                        // arrives to the server with the last PUT, all chunks get assembled
-                        // within that PHP request, so last one takes longer.
-                        setReadTimeout(LAST_CHUNK_TIMEOUT.toLong(), TimeUnit.MILLISECONDS)
+        val transferredSoFar = AtomicLong(acknowledgedChunks.sumOf { getChunkLength(it, totalLength) })
+        val chunkProgressListener = OnDatatransferProgressListener { read, _, _, absolutePath ->
+            val transferred = transferredSoFar.addAndGet(read).coerceAtMost(totalLength)
+            synchronized(dataTransferListener) {
+                dataTransferListener.forEach { it.onTransferProgress(read, transferred, totalLength, absolutePath) }
+            }
+        }
+
+        val failedResult = AtomicReference<RemoteOperationResult<Unit>?>(null)
+        val raf = if (sourceChannel == null) RandomAccessFile(fileToUpload, MODE_READ_ONLY) else null
+        val channel: FileChannel = sourceChannel ?: raf!!.channel
+        val executor = Executors.newFixedThreadPool(parallelChunks.coerceAtMost(pendingChunks.size).coerceAtLeast(1))
+
+        try {
+            pendingChunks.map { chunkIndex ->
+                executor.submit {
+                    // Once a chunk failed, the rest of queued chunks are not sent. They will be sent in the next retry.
+                    if (failedResult.get() == null) {
+                        val chunkResult = uploadChunk(
+                            client = client,
+                            fileToUpload = fileToUpload,
+                            mediaType = mediaType,
+                            channel = channel,
+                            chunkUrl = URL(uriPrefix + File.separator + chunkIndex),
+                            chunkIndex = chunkIndex,
+                            chunkCount = chunkCount,
+                            progressListener = chunkProgressListener,
+                        )
+                        if (!chunkResult.isSuccess) {
+                            failedResult.compareAndSet(null, chunkResult)
+                        }
                     }
                 }
+            }.forEach { it.get() }
+        } finally {
+            executor.shutdownNow()
+            if (raf != null) {
+                channel.close()
+                raf.close()
+            }
+        }
+
+        return failedResult.get() ?: RemoteOperationResult<Unit>(ResultCode.OK)
+    }
+
+    private fun uploadChunk(
+        client: OwnCloudClient,
+        fileToUpload: File,
+        mediaType: MediaType?,
+        channel: FileChannel,
+        chunkUrl: URL,
+        chunkIndex: Long,
+        chunkCount: Long,
+        progressListener: OnDatatransferProgressListener,
+    ): RemoteOperationResult<Unit> {
+        if (cancellationRequested.get()) {
+            return RemoteOperationResult(OperationCancelledException())
+        }
+
+        val chunkRequestBody = ChunkFromFileRequestBody(fileToUpload, mediaType, channel, chunkSize).apply {
+            setOffset(chunkIndex * chunkSize)
+            addDatatransferProgressListener(progressListener)
+        }
+
+        val chunkPutMethod = PutMethod(chunkUrl, chunkRequestBody).apply {
+            if (chunkIndex == chunkCount - 1) {
+                // Added a high timeout to the last chunk due to when the last chunk
+                // arrives to the server with the last PUT, all chunks get assembled
+                // within that PHP request, so last one takes longer.
+                setReadTimeout(LAST_CHUNK_TIMEOUT.toLong(), TimeUnit.MILLISECONDS)
+            }
+        }
 
-                val status = client.executeHttpMethod(putMethod)
+        inFlightPutMethods.add(chunkPutMethod)
+        return try {
+            val status = client.executeHttpMethod(chunkPutMethod)
 
-                Timber.d("Upload of $localPath to $remotePath, chunk index $chunkIndex, count $chunkCount, HTTP result status $status")
+            Timber.d("Upload of $localPath to $remotePath, chunk index $chunkIndex, count $chunkCount, HTTP result status $status")
 
-                if (isSuccess(status)) {
-                    result = RemoteOperationResult<Unit>(ResultCode.OK)
-                } else {
-                    result = RemoteOperationResult<Unit>(putMethod)
-                    break
+            if (isSuccess(status)) {
+                chunkedUploadStateStore?.acknowledgeChunk(transferId, sourceVersion, chunkSize, chunkIndex)
+                RemoteOperationResult(ResultCode.OK)
+            } else {
+                if (status == HttpConstants.HTTP_NOT_FOUND) {
+                    // The chunks folder is gone in the server, so the acknowledged chunks are not valid anymore.
+                    chunkedUploadStateStore?.clear(transferId)
                 }
+                RemoteOperationResult(chunkPutMethod)
+            }
+        } catch (e: Exception) {
+            if (chunkPutMethod.isAborted) {
+                RemoteOperationResult(OperationCancelledException())
+            } else {
+                Timber.e(e, "Upload of $localPath to $remotePath, chunk index $chunkIndex has failed")
+                RemoteOperationResult(e)
             }
-            offset += CHUNK_SIZE
+        } finally {
+            inFlightPutMethods.remove(chunkPutMethod)
+        }
+    }
+
+    private fun getChunkLength(chunkIndex: Long, totalLength: Long): Long =
+        chunkSize.coerceAtMost(totalLength - chunkIndex * chunkSize).coerceAtLeast(0)
+
+    override fun cancel() {
+        synchronized(cancellationRequested) {
+            super.cancel()
+            inFlightPutMethods.forEach { it.abort() }
         }
-        channel.close()
-        raf.close()
-        return result
     }
 
     companion object {
         const val CHUNK_SIZE = 10_240_000L // 10 MB
+        const val DEFAULT_PARALLEL_CHUNKS = 3
         private const val LAST_CHUNK_TIMEOUT = 900_000 // 15 mins.
     }
 }
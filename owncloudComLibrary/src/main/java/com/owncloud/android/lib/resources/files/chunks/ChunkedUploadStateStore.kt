@@ -0,0 +1,55 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib.resources.files.chunks
+
+/**
+ * Keeps track of the chunks of a chunked upload that have already been acknowledged by the server, so an
+ * interrupted transfer can be resumed by sending only the missing ones.
+ *
+ * Chunks are acknowledged for a [ChunkedUploadSourceVersion] of the file being uploaded and a chunk size. If the file
+ * or the chunk size change between retries, the chunks acknowledged before are discarded, so a file is never assembled
+ * from chunks of two versions, nor from chunks whose indexes point to other offsets.
+ *
+ * Implementations must be thread safe, since chunks are acknowledged from several upload threads at once.
+ */
+interface ChunkedUploadStateStore {
+
+    /**
+     * @return chunks acknowledged for [sourceVersion] and [chunkSize]. Chunks acknowledged for another version or chunk
+     * size are discarded.
+     */
+    fun getAcknowledgedChunks(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long): Set<Long>
+
+    fun acknowledgeChunk(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long, chunkIndex: Long)
+
+    fun clear(transferId: String)
+}
+
+/**
+ * Length and last modification time of the file being uploaded, in milliseconds.
+ */
+data class ChunkedUploadSourceVersion(
+    val length: Long,
+    val lastModified: Long,
+)
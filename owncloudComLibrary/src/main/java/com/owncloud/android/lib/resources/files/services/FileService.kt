@@ -35,6 +35,12 @@ interface FileService : Service {
         spaceWebDavUrl: String? = null,
     ): RemoteOperationResult<Boolean>
 
+    fun getAvailableRemotePath(
+        path: String,
+        isUserLogged: Boolean,
+        spaceWebDavUrl: String? = null,
+    ): RemoteOperationResult<String>
+
     fun copyFile(
         sourceRemotePath: String,
         targetRemotePath: String,
@@ -70,6 +76,7 @@ interface FileService : Service {
     fun refreshFolder(
         remotePath: String,
         spaceWebDavUrl: String? = null,
+        onRemoteFilesBatch: ((remoteFolder: RemoteFile, remoteFiles: List<RemoteFile>) -> Unit)? = null,
     ): RemoteOperationResult<ArrayList<RemoteFile>>
 
     fun removeFile(
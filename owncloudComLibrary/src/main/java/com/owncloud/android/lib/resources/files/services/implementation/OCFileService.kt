@@ -29,6 +29,7 @@ import com.owncloud.android.lib.resources.files.CheckPathExistenceRemoteOperatio
 import com.owncloud.android.lib.resources.files.CopyRemoteFileOperation
 import com.owncloud.android.lib.resources.files.CreateRemoteFolderOperation
 import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.GetAvailableRemotePathOperation
 import com.owncloud.android.lib.resources.files.GetRemoteMetaFileOperation
 import com.owncloud.android.lib.resources.files.MoveRemoteFileOperation
 import com.owncloud.android.lib.resources.files.ReadRemoteFileOperation
@@ -51,6 +52,17 @@ class OCFileService(override val client: OwnCloudClient) : FileService {
             spaceWebDavUrl = spaceWebDavUrl,
         ).execute(client)
 
+    override fun getAvailableRemotePath(
+        path: String,
+        isUserLogged: Boolean,
+        spaceWebDavUrl: String?,
+    ): RemoteOperationResult<String> =
+        GetAvailableRemotePathOperation(
+            remotePath = path,
+            isUserLoggedIn = isUserLogged,
+            spaceWebDavUrl = spaceWebDavUrl,
+        ).execute(client)
+
     override fun copyFile(
         sourceRemotePath: String,
         targetRemotePath: String,
@@ -113,10 +125,12 @@ class OCFileService(override val client: OwnCloudClient) : FileService {
     override fun refreshFolder(
         remotePath: String,
         spaceWebDavUrl: String?,
+        onRemoteFilesBatch: ((remoteFolder: RemoteFile, remoteFiles: List<RemoteFile>) -> Unit)?,
     ): RemoteOperationResult<ArrayList<RemoteFile>> =
         ReadRemoteFolderOperation(
             remotePath = remotePath,
             spaceWebDavUrl = spaceWebDavUrl,
+            onRemoteFilesBatch = onRemoteFilesBatch,
         ).execute(client)
 
     override fun removeFile(
@@ -0,0 +1,212 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadFromFileSystemOperation
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
+import okhttp3.Interceptor
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Uploads a file in chunks against a fake server that records the chunks it receives, checking which chunks are sent
+ * again when an upload is resumed.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class ChunkedUploadFromFileSystemOperationTest {
+
+    private val receivedChunks: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+    private val missingChunks: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+    private val stateStore = InMemoryChunkedUploadStateStore()
+
+    private lateinit var client: OwnCloudClient
+    private lateinit var fileToUpload: File
+    private lateinit var sourceVersion: ChunkedUploadSourceVersion
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        client = object : OwnCloudClient(
+            Uri.parse(SERVER_URL), null, false, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient.Builder().addInterceptor(::respond).build()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+        fileToUpload = File.createTempFile("chunked", ".bin").apply { writeBytes(ByteArray((CHUNK_SIZE * CHUNK_COUNT).toInt())) }
+        sourceVersion = ChunkedUploadSourceVersion(fileToUpload.length(), fileToUpload.lastModified())
+    }
+
+    @After
+    fun tearDown() {
+        fileToUpload.delete()
+    }
+
+    @Test
+    fun `chunked upload - ok - every chunk is sent and acknowledged`() {
+        val result = upload()
+
+        assertTrue(result.isSuccess)
+        assertEquals(allChunks(), receivedChunks)
+        assertEquals(allChunks(), stateStore.getAcknowledgedChunks(TRANSFER_ID, sourceVersion, CHUNK_SIZE))
+    }
+
+    @Test
+    fun `chunked upload - ok - resumed upload only sends the chunks not acknowledged yet`() {
+        listOf(0L, 1L, 3L).forEach { stateStore.acknowledgeChunk(TRANSFER_ID, sourceVersion, CHUNK_SIZE, it) }
+
+        val result = upload()
+
+        assertTrue(result.isSuccess)
+        assertEquals(setOf(2L, 4L), receivedChunks)
+        assertEquals(allChunks(), stateStore.getAcknowledgedChunks(TRANSFER_ID, sourceVersion, CHUNK_SIZE))
+    }
+
+    @Test
+    fun `chunked upload - ok - chunks acknowledged for another version of the file are sent again`() {
+        val oldVersion = sourceVersion.copy(lastModified = sourceVersion.lastModified - 1_000)
+        listOf(0L, 1L, 3L).forEach { stateStore.acknowledgeChunk(TRANSFER_ID, oldVersion, CHUNK_SIZE, it) }
+
+        val result = upload()
+
+        assertTrue(result.isSuccess)
+        assertEquals(allChunks(), receivedChunks)
+    }
+
+    @Test
+    fun `chunked upload - ok - chunks acknowledged with another chunk size are sent again`() {
+        listOf(0L, 1L).forEach { stateStore.acknowledgeChunk(TRANSFER_ID, sourceVersion, CHUNK_SIZE * 2, it) }
+
+        val result = upload()
+
+        assertTrue(result.isSuccess)
+        assertEquals(allChunks(), receivedChunks)
+        assertEquals(allChunks(), stateStore.getAcknowledgedChunks(TRANSFER_ID, sourceVersion, CHUNK_SIZE))
+    }
+
+    @Test
+    fun `chunked upload - ko - chunks folder not found resets the acknowledged chunks`() {
+        listOf(0L, 1L).forEach { stateStore.acknowledgeChunk(TRANSFER_ID, sourceVersion, CHUNK_SIZE, it) }
+        missingChunks.add(3L)
+
+        val result = upload()
+
+        assertFalse(result.isSuccess)
+        assertEquals(HttpConstants.HTTP_NOT_FOUND, result.httpCode)
+        assertTrue(stateStore.getAcknowledgedChunks(TRANSFER_ID, sourceVersion, CHUNK_SIZE).isEmpty())
+
+        missingChunks.clear()
+        receivedChunks.clear()
+        val retryResult = upload()
+
+        assertTrue(retryResult.isSuccess)
+        assertEquals(allChunks(), receivedChunks)
+        assertEquals(allChunks(), stateStore.getAcknowledgedChunks(TRANSFER_ID, sourceVersion, CHUNK_SIZE))
+    }
+
+    private fun upload() =
+        ChunkedUploadFromFileSystemOperation(
+            transferId = TRANSFER_ID,
+            localPath = fileToUpload.absolutePath,
+            remotePath = REMOTE_PATH,
+            mimeType = MIME_TYPE,
+            lastModifiedTimestamp = (sourceVersion.lastModified / 1_000).toString(),
+            requiredEtag = null,
+            chunkSize = CHUNK_SIZE,
+            parallelChunks = 1,
+            chunkedUploadStateStore = stateStore,
+            sourceVersion = sourceVersion,
+        ).execute(client)
+
+    private fun allChunks() = (0 until CHUNK_COUNT).toSet()
+
+    private fun respond(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val chunkIndex = request.url.encodedPath.substringAfter("$TRANSFER_ID/", "").toLongOrNull()
+        val code = when {
+            request.method != "PUT" || chunkIndex == null -> HttpConstants.HTTP_MULTI_STATUS
+            chunkIndex in missingChunks -> HttpConstants.HTTP_NOT_FOUND
+            else -> HttpConstants.HTTP_CREATED.also { receivedChunks.add(chunkIndex) }
+        }
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Stub")
+            .body("".toResponseBody("application/xml; charset=utf-8".toMediaType()))
+            .build()
+    }
+
+    private class InMemoryChunkedUploadStateStore : ChunkedUploadStateStore {
+        private val versions = HashMap<String, Pair<ChunkedUploadSourceVersion, Long>>()
+        private val chunks = HashMap<String, Set<Long>>()
+
+        @Synchronized
+        override fun getAcknowledgedChunks(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long): Set<Long> =
+            if (versions[transferId] == sourceVersion to chunkSize) chunks[transferId].orEmpty() else emptySet()
+
+        @Synchronized
+        override fun acknowledgeChunk(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long, chunkIndex: Long) {
+            chunks[transferId] = getAcknowledgedChunks(transferId, sourceVersion, chunkSize) + chunkIndex
+            versions[transferId] = sourceVersion to chunkSize
+        }
+
+        @Synchronized
+        override fun clear(transferId: String) {
+            versions.remove(transferId)
+            chunks.remove(transferId)
+        }
+    }
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val SERVER_URL = "https://server.url"
+        private const val TRANSFER_ID = "transfer-id"
+        private const val REMOTE_PATH = "/Documents/file.bin"
+        private const val MIME_TYPE = "application/octet-stream"
+        private const val CHUNK_SIZE = 1_024L
+        private const val CHUNK_COUNT = 5L
+    }
+}
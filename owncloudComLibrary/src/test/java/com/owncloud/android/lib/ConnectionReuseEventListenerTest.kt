@@ -0,0 +1,142 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import com.owncloud.android.lib.common.http.ConnectionReuseEventListener
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.io.IOException
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * Sends requests through a client counting its connections to a local keep-alive HTTP/1.1 server, checking which of
+ * them reuse a pooled connection.
+ */
+class ConnectionReuseEventListenerTest {
+
+    private val stats = ConnectionReuseEventListener.ConnectionReuseStats()
+    private val acceptedConnections = AtomicInteger()
+
+    private lateinit var serverSocket: ServerSocket
+    private lateinit var okHttpClient: OkHttpClient
+
+    @Before
+    fun setUp() {
+        serverSocket = ServerSocket(0)
+        thread(isDaemon = true) {
+            while (!serverSocket.isClosed) {
+                val socket = try {
+                    serverSocket.accept()
+                } catch (e: IOException) {
+                    break
+                }
+                acceptedConnections.incrementAndGet()
+                thread(isDaemon = true) {
+                    try {
+                        socket.use { answerUntilClosed(it) }
+                    } catch (e: IOException) {
+                        // Client closed the connection
+                    }
+                }
+            }
+        }
+        okHttpClient = OkHttpClient.Builder()
+            .eventListenerFactory(ConnectionReuseEventListener.Factory(stats))
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        okHttpClient.connectionPool.evictAll()
+        serverSocket.close()
+    }
+
+    @Test
+    fun `connection acquired - ok - sequential requests reuse the first connection`() {
+        repeat(REQUESTS) { get() }
+
+        assertEquals(ConnectionReuseEventListener.Snapshot(REQUESTS - 1L, 1, 0), stats.snapshot())
+        assertEquals(1, acceptedConnections.get())
+    }
+
+    @Test
+    fun `connection acquired - ok - request after evicting the pool opens a new connection`() {
+        get()
+        okHttpClient.connectionPool.evictAll()
+        get()
+        get()
+
+        assertEquals(ConnectionReuseEventListener.Snapshot(1, 2, 0), stats.snapshot())
+        assertEquals(2, acceptedConnections.get())
+    }
+
+    @Test
+    fun `snapshot - ok - difference only counts the connections acquired in between`() {
+        get()
+        val atStart = stats.snapshot()
+        repeat(REQUESTS) { get() }
+
+        assertEquals(ConnectionReuseEventListener.Snapshot(REQUESTS.toLong(), 0, 0), stats.snapshot() - atStart)
+    }
+
+    @Test
+    fun `reset - ok - counters start again from zero`() {
+        repeat(REQUESTS) { get() }
+        stats.reset()
+        get()
+
+        assertEquals(ConnectionReuseEventListener.Snapshot(1, 0, 0), stats.snapshot())
+    }
+
+    private fun get() {
+        val request = Request.Builder().url("http://127.0.0.1:${serverSocket.localPort}/status.php").build()
+        okHttpClient.newCall(request).execute().use { response ->
+            assertEquals(RESPONSE_BODY, response.body?.string())
+        }
+    }
+
+    private fun answerUntilClosed(socket: Socket) {
+        val reader = socket.getInputStream().bufferedReader()
+        val output = socket.getOutputStream()
+        while (true) {
+            val requestLine = reader.readLine() ?: return
+            if (requestLine.isEmpty()) continue
+            generateSequence { reader.readLine() }.takeWhile { it.isNotEmpty() }.count()
+            output.write("HTTP/1.1 200 OK\r\nContent-Length: ${RESPONSE_BODY.length}\r\n\r\n$RESPONSE_BODY".toByteArray())
+            output.flush()
+        }
+    }
+
+    companion object {
+        private const val REQUESTS = 5
+        private const val RESPONSE_BODY = "ok"
+    }
+}
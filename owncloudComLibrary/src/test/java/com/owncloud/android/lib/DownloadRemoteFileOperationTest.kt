@@ -0,0 +1,511 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.RequestConcurrencyLimiter
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.SegmentedDownloadSettings
+import com.owncloud.android.lib.resources.files.SegmentedFileDownload
+import okhttp3.Interceptor
+import okhttp3.MediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody
+import okio.BufferedSource
+import okio.ForwardingSource
+import okio.buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.net.ServerSocket
+import java.net.Socket
+import java.nio.file.Files
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+/**
+ * Downloads against a local HTTP stub that drops the connection in the middle of the response body, checking that
+ * the partial file is resumed with Range and If-Range and that the whole file is downloaded when it cannot be resumed.
+ * Conditional downloads check that an up to date local copy costs a single GET without body.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class DownloadRemoteFileOperationTest {
+
+    private val fileContent = Random(RANDOM_SEED).nextBytes(FILE_LENGTH)
+    private val changedFileContent = Random(RANDOM_SEED + 1).nextBytes(FILE_LENGTH)
+
+    private lateinit var localFolder: File
+    private lateinit var httpStub: HttpStub
+    private lateinit var client: OwnCloudClient
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        localFolder = Files.createTempDirectory("downloads").toFile()
+        httpStub = HttpStub()
+        client = object : OwnCloudClient(
+            Uri.parse(httpStub.baseUrl), null, false, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+    }
+
+    @After
+    fun tearDown() {
+        httpStub.close()
+        localFolder.deleteRecursively()
+    }
+
+    @Test
+    fun `download - ok - interrupted download is resumed from the partial file`() {
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+            output.write(fileContent, 0, DROP_AFTER_BYTES)
+        }
+        httpStub.responses.add { output ->
+            output.writeHead(
+                HttpConstants.HTTP_PARTIAL_CONTENT, "Partial Content", FILE_LENGTH - DROP_AFTER_BYTES, ETAG,
+                contentRange = "bytes $DROP_AFTER_BYTES-${FILE_LENGTH - 1}/$FILE_LENGTH"
+            )
+            output.write(fileContent, DROP_AFTER_BYTES, FILE_LENGTH - DROP_AFTER_BYTES)
+        }
+
+        val interruptedResult = newOperation().execute(client)
+        assertFalse(interruptedResult.isSuccess)
+        assertEquals(DROP_AFTER_BYTES.toLong(), downloadedFile.length())
+
+        val operation = newOperation()
+        val resumedResult = operation.execute(client)
+        assertTrue(resumedResult.isSuccess)
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(ETAG.replace("\"", ""), operation.etag)
+        assertEquals(2, httpStub.requests.size)
+        assertNull(httpStub.requests[0].header(HttpConstants.RANGE_HEADER))
+        assertEquals("bytes=$DROP_AFTER_BYTES-", httpStub.requests[1].header(HttpConstants.RANGE_HEADER))
+        assertEquals(ETAG, httpStub.requests[1].header(HttpConstants.IF_RANGE_HEADER))
+    }
+
+    @Test
+    fun `download - ok - whole file is downloaded again if it changed in the server`() {
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+            output.write(fileContent, 0, DROP_AFTER_BYTES)
+        }
+        httpStub.responses.add { output ->
+            // If-Range does not match the current version, the server ignores the range
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, CHANGED_ETAG)
+            output.write(changedFileContent)
+        }
+
+        assertFalse(newOperation().execute(client).isSuccess)
+        assertTrue(newOperation().execute(client).isSuccess)
+        assertArrayEquals(changedFileContent, downloadedFile.readBytes())
+        assertEquals(ETAG, httpStub.requests[1].header(HttpConstants.IF_RANGE_HEADER))
+    }
+
+    @Test
+    fun `download - ok - whole file is downloaded if the server rejects the range`() {
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+            output.write(fileContent, 0, DROP_AFTER_BYTES)
+        }
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_REQUESTED_RANGE_NOT_SATISFIABLE, "Range Not Satisfiable", 0, ETAG)
+        }
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+            output.write(fileContent)
+        }
+
+        assertFalse(newOperation().execute(client).isSuccess)
+        assertTrue(newOperation().execute(client).isSuccess)
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(3, httpStub.requests.size)
+        assertEquals("bytes=$DROP_AFTER_BYTES-", httpStub.requests[1].header(HttpConstants.RANGE_HEADER))
+        assertNull(httpStub.requests[2].header(HttpConstants.RANGE_HEADER))
+    }
+
+    @Test
+    fun `download - ko - partial file without strong etag is not resumed`() {
+        httpStub.responses.add { output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, "W/$ETAG")
+            output.write(fileContent, 0, DROP_AFTER_BYTES)
+        }
+
+        assertFalse(newOperation().execute(client).isSuccess)
+        assertFalse(downloadedFile.exists())
+    }
+
+    @Test
+    fun `conditional download - ok - nothing is downloaded if the file did not change`() {
+        httpStub.defaultResponse = { request, output -> output.writeFileUnlessNotModified(request) }
+
+        val operation = newOperation(knownEtag = ETAG.replace("\"", ""))
+        val result = operation.execute(client)
+
+        assertTrue(result.isSuccess)
+        assertTrue(operation.isNotModified)
+        assertEquals(ETAG.replace("\"", ""), operation.etag)
+        assertFalse(downloadedFile.exists())
+        assertEquals(ETAG, httpStub.requests.single().header(HttpConstants.IF_NONE_MATCH_HEADER))
+    }
+
+    @Test
+    fun `conditional download - ok - whole file is downloaded if it changed`() {
+        httpStub.defaultResponse = { request, output -> output.writeFileUnlessNotModified(request) }
+
+        val operation = newOperation(knownEtag = CHANGED_ETAG.replace("\"", ""))
+        val result = operation.execute(client)
+
+        assertTrue(result.isSuccess)
+        assertFalse(operation.isNotModified)
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(ETAG.replace("\"", ""), operation.etag)
+        assertEquals(CHANGED_ETAG, httpStub.requests.single().header(HttpConstants.IF_NONE_MATCH_HEADER))
+    }
+
+    @Test
+    fun `round trips - ok - download and check of the local copy send a single GET each`() {
+        val bodyBytes = CopyOnWriteArrayList<Int>()
+        httpStub.defaultResponse = { request, output -> bodyBytes.add(output.writeFileUnlessNotModified(request)) }
+
+        val download = newOperation()
+        assertTrue(download.execute(client).isSuccess)
+        val check = newOperation(knownEtag = download.etag)
+        assertTrue(check.execute(client).isSuccess)
+
+        assertTrue(check.isNotModified)
+        assertEquals(listOf("GET", "GET"), httpStub.requests.map { it.method })
+        assertEquals(listOf(FILE_LENGTH, 0), bodyBytes)
+    }
+
+    @Test
+    fun `round trips - ok - metadata missing in the GET response is read with a Depth 0 PROPFIND`() {
+        httpStub.responses.add { output ->
+            output.write("HTTP/1.1 200 OK\r\nContent-Length: $FILE_LENGTH\r\nConnection: close\r\n\r\n".toByteArray())
+            output.write(fileContent)
+        }
+        httpStub.defaultResponse = { _, output -> output.writeHead(HttpConstants.HTTP_NOT_FOUND, "Not Found", 0, ETAG) }
+
+        assertTrue(newOperation().execute(client).isSuccess)
+
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(listOf("GET", "PROPFIND"), httpStub.requests.map { it.method })
+        assertEquals("0", httpStub.requests[1].header("Depth"))
+    }
+
+    @Test
+    fun `segmented download - ok - ranges are fetched in parallel and written at their offsets`() {
+        httpStub.defaultResponse = { request, output -> output.writeRange(request, fileContent) }
+        val progress = mutableListOf<Long>()
+        val operation = newOperation(SegmentedDownloadSettings(segmentSize = SEGMENT_SIZE, maxConnections = 3)).apply {
+            addDatatransferProgressListener { _, totalTransferredSoFar, _, _ ->
+                synchronized(progress) { progress.add(totalTransferredSoFar) }
+            }
+        }
+
+        assertTrue(operation.execute(client).isSuccess)
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(ETAG.replace("\"", ""), operation.etag)
+        assertEquals(FILE_LENGTH / SEGMENT_SIZE.toInt(), httpStub.requests.size)
+        assertNull(httpStub.requests[0].header(HttpConstants.IF_MATCH_HEADER))
+        assertTrue(httpStub.requests.drop(1).all { it.header(HttpConstants.IF_MATCH_HEADER) == ETAG })
+        assertEquals(FILE_LENGTH.toLong(), progress.maxOrNull())
+    }
+
+    @Test
+    fun `segmented download - ok - single request if the server ignores ranges`() {
+        httpStub.defaultResponse = { _, output ->
+            output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+            output.write(fileContent)
+        }
+
+        assertTrue(newOperation(SegmentedDownloadSettings(segmentSize = SEGMENT_SIZE)).execute(client).isSuccess)
+        assertArrayEquals(fileContent, downloadedFile.readBytes())
+        assertEquals(2, httpStub.requests.size)
+        assertNull(httpStub.requests[1].header(HttpConstants.RANGE_HEADER))
+    }
+
+    @Test
+    fun `segmented download - ok - single request if the file changes in the middle`() {
+        httpStub.defaultResponse = { request, output ->
+            when {
+                request.header(HttpConstants.IF_MATCH_HEADER) != null ->
+                    output.writeHead(HttpConstants.HTTP_PRECONDITION_FAILED, "Precondition Failed", 0, CHANGED_ETAG)
+                request.header(HttpConstants.RANGE_HEADER) != null -> output.writeRange(request, fileContent)
+                else -> {
+                    output.writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, CHANGED_ETAG)
+                    output.write(changedFileContent)
+                }
+            }
+        }
+
+        val operation = newOperation(SegmentedDownloadSettings(segmentSize = SEGMENT_SIZE))
+        assertTrue(operation.execute(client).isSuccess)
+        assertArrayEquals(changedFileContent, downloadedFile.readBytes())
+        assertEquals(CHANGED_ETAG.replace("\"", ""), operation.etag)
+    }
+
+    @Test
+    fun `segmented download - ok - parallel downloads of an account share its transfer permits`() {
+        httpStub.defaultResponse = { request, output -> output.writeRange(request, fileContent) }
+        val openBodies = OpenBodiesCounter()
+        val accountClient = newLimitedClient(openBodies)
+
+        val folders = runParallelSegmentedDownloads(PARALLEL_DOWNLOADS) { accountClient }
+
+        folders.forEach { assertArrayEquals(fileContent, File(it, REMOTE_PATH).readBytes()) }
+        assertEquals(PARALLEL_DOWNLOADS * FILE_LENGTH / SEGMENT_SIZE.toInt(), httpStub.requests.size)
+        assertTrue(openBodies.max <= RequestConcurrencyLimiter.DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS)
+    }
+
+    @Test
+    fun `segmented download - ok - parallel downloads of several accounts never exceed the segments cap`() {
+        httpStub.defaultResponse = { request, output -> output.writeRange(request, fileContent) }
+        val openSegmentBodies = OpenBodiesCounter { it.header(HttpConstants.IF_MATCH_HEADER) != null }
+
+        val folders = runParallelSegmentedDownloads(PARALLEL_DOWNLOADS) { newLimitedClient(openSegmentBodies) }
+
+        folders.forEach { assertArrayEquals(fileContent, File(it, REMOTE_PATH).readBytes()) }
+        assertTrue(openSegmentBodies.max <= SegmentedFileDownload.MAX_PARALLEL_SEGMENTS)
+    }
+
+    private val downloadedFile: File
+        get() = File(localFolder, REMOTE_PATH)
+
+    private fun newOperation(
+        segmentedDownloadSettings: SegmentedDownloadSettings? = null,
+        localFolderPath: String = localFolder.absolutePath,
+        knownEtag: String? = null,
+    ) = DownloadRemoteFileOperation(
+        remotePath = REMOTE_PATH,
+        localFolderPath = localFolderPath,
+        spaceWebDavUrl = httpStub.baseUrl + WEBDAV_PATH,
+        knownEtag = knownEtag,
+        segmentedDownloadSettings = segmentedDownloadSettings,
+    )
+
+    /**
+     * @return folders the file was downloaded to, one per download.
+     */
+    private fun runParallelSegmentedDownloads(downloads: Int, clientForDownload: (Int) -> OwnCloudClient): List<File> {
+        val folders = List(downloads) { File(localFolder, "download$it") }
+        val results = folders.mapIndexed { index, folder ->
+            val operation = newOperation(SegmentedDownloadSettings(segmentSize = SEGMENT_SIZE), folder.absolutePath)
+            val client = clientForDownload(index)
+            val result = AtomicInteger(-1)
+            thread { result.set(if (operation.execute(client).isSuccess) 1 else 0) } to result
+        }
+        results.forEach { (downloadThread, result) ->
+            downloadThread.join(JOIN_TIMEOUT_MILLIS)
+            assertEquals(1, result.get())
+        }
+        return folders
+    }
+
+    /**
+     * Client limiting its requests like the clients of the accounts, counting the response bodies open at once.
+     */
+    private fun newLimitedClient(openBodies: OpenBodiesCounter): OwnCloudClient =
+        object : OwnCloudClient(Uri.parse(httpStub.baseUrl), null, true, null, RuntimeEnvironment.getApplication()) {
+            private val okHttpClient = OkHttpClient.Builder().addInterceptor(openBodies).build()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+
+    /**
+     * Counts the bodies of the responses to the requests matching [isCounted] that are open at the same time. A body
+     * is closed before the transfer permit it holds is released, so the count never includes a body already done.
+     */
+    private class OpenBodiesCounter(
+        private val isCounted: (Request) -> Boolean = { true },
+    ) : Interceptor {
+        private val open = AtomicInteger()
+        private val maxOpen = AtomicInteger()
+
+        val max: Int
+            get() = maxOpen.get()
+
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val response = chain.proceed(chain.request())
+            val body = response.body
+            if (!isCounted(chain.request()) || body == null) {
+                return response
+            }
+            maxOpen.accumulateAndGet(open.incrementAndGet()) { current, new -> maxOf(current, new) }
+            return response.newBuilder().body(CountedResponseBody(body) { open.decrementAndGet() }).build()
+        }
+    }
+
+    private class CountedResponseBody(private val body: ResponseBody, private val onClosed: () -> Unit) : ResponseBody() {
+        private val closed = AtomicInteger()
+        private val source: BufferedSource by lazy {
+            object : ForwardingSource(body.source()) {
+                override fun close() {
+                    if (closed.getAndIncrement() == 0) {
+                        onClosed()
+                    }
+                    super.close()
+                }
+            }.buffer()
+        }
+
+        override fun contentType(): MediaType? = body.contentType()
+
+        override fun contentLength(): Long = body.contentLength()
+
+        override fun source(): BufferedSource = source
+    }
+
+    private fun OutputStream.writeRange(request: StubRequest, content: ByteArray) {
+        val range = request.header(HttpConstants.RANGE_HEADER)!!.substringAfter("bytes=")
+        val start = range.substringBefore("-").toInt()
+        val end = range.substringAfter("-").toIntOrNull()?.coerceAtMost(content.size - 1) ?: (content.size - 1)
+        writeHead(
+            HttpConstants.HTTP_PARTIAL_CONTENT, "Partial Content", end - start + 1, ETAG,
+            contentRange = "bytes $start-$end/${content.size}"
+        )
+        write(content, start, end - start + 1)
+    }
+
+    /**
+     * Answers like a server holding the version of the file with [ETAG], honoring If-None-Match.
+     *
+     * @return bytes of the body written.
+     */
+    private fun OutputStream.writeFileUnlessNotModified(request: StubRequest): Int {
+        if (request.header(HttpConstants.IF_NONE_MATCH_HEADER) == ETAG) {
+            writeHead(HttpConstants.HTTP_NOT_MODIFIED, "Not Modified", 0, ETAG)
+            return 0
+        }
+        writeHead(HttpConstants.HTTP_OK, "OK", FILE_LENGTH, ETAG)
+        write(fileContent)
+        return FILE_LENGTH
+    }
+
+    private fun OutputStream.writeHead(code: Int, message: String, contentLength: Int, etag: String, contentRange: String? = null) {
+        val head = StringBuilder()
+            .append("HTTP/1.1 $code $message\r\n")
+            .append("Content-Length: $contentLength\r\n")
+            .append("ETag: $etag\r\n")
+            .append("Last-Modified: $LAST_MODIFIED\r\n")
+            .append("Connection: close\r\n")
+        contentRange?.let { head.append("Content-Range: $it\r\n") }
+        write(head.append("\r\n").toString().toByteArray())
+        flush()
+    }
+
+    private class StubRequest(val method: String, val headers: Map<String, String>) {
+        fun header(name: String): String? = headers[name.lowercase()]
+    }
+
+    /**
+     * Minimal HTTP/1.1 server answering each connection with the next scripted response, or with [defaultResponse]
+     * when there are no more, and closing it afterwards. A response that writes less bytes than its Content-Length
+     * is a connection dropped mid-stream.
+     */
+    private class HttpStub {
+        private val serverSocket = ServerSocket(0)
+        val baseUrl = "http://127.0.0.1:${serverSocket.localPort}"
+        val responses = CopyOnWriteArrayList<(OutputStream) -> Unit>()
+        val requests = CopyOnWriteArrayList<StubRequest>()
+        var defaultResponse: ((StubRequest, OutputStream) -> Unit)? = null
+
+        init {
+            thread(isDaemon = true) {
+                while (!serverSocket.isClosed) {
+                    val socket = try {
+                        serverSocket.accept()
+                    } catch (e: Exception) {
+                        break
+                    }
+                    thread(isDaemon = true) {
+                        try {
+                            socket.use { answer(it) }
+                        } catch (e: IOException) {
+                            // Client aborted the response
+                        }
+                    }
+                }
+            }
+        }
+
+        private fun answer(socket: Socket) {
+            val reader = socket.getInputStream().bufferedReader()
+            val method = reader.readLine().substringBefore(" ")
+            val headers = generateSequence { reader.readLine() }
+                .takeWhile { it.isNotEmpty() }
+                .associate { it.substringBefore(":").trim().lowercase() to it.substringAfter(":").trim() }
+            val request = StubRequest(method, headers)
+            val response = synchronized(requests) {
+                responses.getOrNull(requests.size).also { requests.add(request) }
+            }
+            if (response != null) {
+                response(socket.getOutputStream())
+            } else {
+                defaultResponse?.invoke(request, socket.getOutputStream())
+            }
+        }
+
+        fun close() {
+            serverSocket.close()
+        }
+    }
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val WEBDAV_PATH = "/remote.php/dav/files/username"
+        private const val REMOTE_PATH = "/Videos/video.mp4"
+        private const val ETAG = "\"5f8d2a1b3c4e\""
+        private const val CHANGED_ETAG = "\"7a9b0c1d2e3f\""
+        private const val LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT"
+        private const val FILE_LENGTH = 256 * 1024
+        private const val DROP_AFTER_BYTES = 100 * 1024
+        private const val SEGMENT_SIZE = 64 * 1024L
+        private const val RANDOM_SEED = 7
+        private const val PARALLEL_DOWNLOADS = 4
+        private const val JOIN_TIMEOUT_MILLIS = 30_000L
+    }
+}
@@ -0,0 +1,191 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.resources.files.CheckPathExistenceRemoteOperation
+import com.owncloud.android.lib.resources.files.GetAvailableRemotePathOperation
+import okhttp3.Interceptor
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Resolves name collisions against a fake server that already holds a burst of photos with the same name, counting
+ * the requests sent compared to checking the candidates one by one.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class GetAvailableRemotePathOperationTest {
+
+    private val takenNames = HashSet<String>()
+    private val requestCount = AtomicInteger()
+    private var failListings = false
+
+    private lateinit var client: OwnCloudClient
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        client = object : OwnCloudClient(
+            Uri.parse(SERVER_URL), null, false, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient.Builder().addInterceptor(::respond).build()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+    }
+
+    @Test
+    fun `get available remote path - ok - free path is checked with a single request`() {
+        takenNames.add("IMG_0002.jpg")
+
+        assertEquals("$FOLDER_PATH$FILE_NAME", getAvailableRemotePath("$FOLDER_PATH$FILE_NAME"))
+        assertEquals(1, requestCount.get())
+    }
+
+    @Test
+    fun `get available remote path - ok - burst of collisions is resolved with one folder listing`() {
+        addBurstOfCollisions()
+
+        val availableRemotePath = getAvailableRemotePath("$FOLDER_PATH$FILE_NAME")
+        val requestsWithListing = requestCount.getAndSet(0)
+        val availableRemotePathCheckingCandidates = getAvailableRemotePathCheckingCandidates("$FOLDER_PATH$FILE_NAME")
+        val requestsCheckingCandidates = requestCount.get()
+
+        assertEquals("${FOLDER_PATH}IMG_0001 ($NUMBER_OF_COLLISIONS).jpg", availableRemotePath)
+        assertEquals(availableRemotePathCheckingCandidates, availableRemotePath)
+        assertEquals(2, requestsWithListing)
+        assertEquals(NUMBER_OF_COLLISIONS + 1, requestsCheckingCandidates)
+    }
+
+    @Test
+    fun `get available remote path - ok - candidates are checked one by one if the folder cannot be listed`() {
+        takenNames.add(FILE_NAME)
+        takenNames.add("IMG_0001 (1).jpg")
+        failListings = true
+
+        assertEquals("${FOLDER_PATH}IMG_0001 (2).jpg", getAvailableRemotePath("$FOLDER_PATH$FILE_NAME"))
+        assertEquals(4, requestCount.get())
+    }
+
+    @Test
+    fun `get available remote path - ok - suffix is added before the extension of the name`() {
+        val takenNames = setOf("file.txt", "file (1).txt", "folder", "archive.tar.gz", "file (1) (1).txt")
+
+        assertEquals("/a/file (2).txt", GetAvailableRemotePathOperation.getAvailableRemotePath("/a/file.txt", takenNames))
+        assertEquals("/a/folder (1)", GetAvailableRemotePathOperation.getAvailableRemotePath("/a/folder/", takenNames))
+        assertEquals("/a.b/folder (1)", GetAvailableRemotePathOperation.getAvailableRemotePath("/a.b/folder", takenNames))
+        assertEquals("/archive.tar (1).gz", GetAvailableRemotePathOperation.getAvailableRemotePath("/archive.tar.gz", takenNames))
+        assertEquals("/a/file (1) (2).txt", GetAvailableRemotePathOperation.getAvailableRemotePath("/a/file (1) (1).txt", takenNames))
+        assertEquals("/a/other.txt", GetAvailableRemotePathOperation.getAvailableRemotePath("/a/other.txt", takenNames))
+    }
+
+    private fun getAvailableRemotePath(remotePath: String): String? =
+        GetAvailableRemotePathOperation(
+            remotePath = remotePath,
+            isUserLoggedIn = true,
+            spaceWebDavUrl = SPACE_WEBDAV_URL,
+        ).execute(client).data
+
+    /**
+     * Same resolution as before [GetAvailableRemotePathOperation], one existence check per candidate.
+     */
+    private fun getAvailableRemotePathCheckingCandidates(remotePath: String): String =
+        (sequenceOf(remotePath) + generateSequence(1) { it + 1 }.map { remotePath.replace(".jpg", " ($it).jpg") })
+            .first { candidate ->
+                !CheckPathExistenceRemoteOperation(
+                    remotePath = candidate,
+                    isUserLoggedIn = true,
+                    spaceWebDavUrl = SPACE_WEBDAV_URL,
+                ).execute(client).isSuccess
+            }
+
+    private fun addBurstOfCollisions() {
+        takenNames.add(FILE_NAME)
+        for (count in 1 until NUMBER_OF_COLLISIONS) {
+            takenNames.add("IMG_0001 ($count).jpg")
+        }
+        for (index in 2..NUMBER_OF_OTHER_FILES) {
+            takenNames.add("IMG_%04d.jpg".format(index))
+        }
+    }
+
+    private fun respond(chain: Interceptor.Chain): Response {
+        requestCount.incrementAndGet()
+        val request = chain.request()
+        val path = request.url.encodedPath.removePrefix(SPACE_PATH)
+        val isListing = request.header(DEPTH_HEADER) == "1"
+        val (code, body) = when {
+            isListing && failListings -> HttpConstants.HTTP_INTERNAL_SERVER_ERROR to ""
+            isListing -> HttpConstants.HTTP_MULTI_STATUS to multistatus(path, takenNames)
+            request.url.pathSegments.last() in takenNames -> HttpConstants.HTTP_MULTI_STATUS to multistatus(path, emptySet())
+            else -> HttpConstants.HTTP_NOT_FOUND to ""
+        }
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Stub")
+            .body(body.toResponseBody("application/xml; charset=utf-8".toMediaType()))
+            .build()
+    }
+
+    private fun multistatus(path: String, names: Set<String>): String =
+        buildString {
+            append("""<?xml version="1.0" encoding="utf-8"?><d:multistatus xmlns:d="DAV:">""")
+            append(responseXml(SPACE_PATH + path))
+            names.forEach { name -> append(responseXml(SPACE_PATH + path + Uri.encode(name))) }
+            append("</d:multistatus>")
+        }
+
+    private fun responseXml(href: String) =
+        "<d:response><d:href>$href</d:href><d:propstat><d:prop><d:resourcetype/></d:prop>" +
+                "<d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>"
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val SERVER_URL = "https://server.url"
+        private const val SPACE_PATH = "/dav/spaces/space-id"
+        private const val SPACE_WEBDAV_URL = SERVER_URL + SPACE_PATH
+        private const val FOLDER_PATH = "/Camera/"
+        private const val FILE_NAME = "IMG_0001.jpg"
+        private const val DEPTH_HEADER = "Depth"
+        private const val NUMBER_OF_COLLISIONS = 300
+        private const val NUMBER_OF_OTHER_FILES = 2_000
+    }
+}
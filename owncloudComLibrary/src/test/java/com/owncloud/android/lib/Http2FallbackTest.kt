@@ -0,0 +1,155 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod
+import okhttp3.Interceptor
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import okhttp3.internal.http2.ErrorCode
+import okhttp3.internal.http2.StreamResetException
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.net.URL
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Sends requests with HTTP/2 enabled to a fake server whose streams are reset unless the request is sent as plain
+ * HTTP/1.1, checking that the client falls back and retries, also when several requests fail at once.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class Http2FallbackTest {
+
+    private val acceptEncodingHeaders = Collections.synchronizedList(ArrayList<String?>())
+    private var concurrentFailures = CountDownLatch(0)
+    private var failAlways = false
+
+    private lateinit var client: OwnCloudClient
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        client = object : OwnCloudClient(
+            Uri.parse(SERVER_URL), null, false, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient.Builder().addInterceptor(::respond).build()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+        client.setHttp2TransportEnabled(true)
+    }
+
+    @Test
+    fun `execute http method - ok - reset stream is retried once over uncompressed HTTP 1_1`() {
+        val status = client.executeHttpMethod(GetMethod(URL(SERVER_URL + FILE_PATH)))
+
+        assertEquals(HttpConstants.HTTP_OK, status)
+        assertEquals(listOf(null, HttpConstants.ACCEPT_ENCODING_IDENTITY), acceptEncodingHeaders)
+        assertFalse(client.isHttp2TransportEnabled)
+    }
+
+    @Test
+    fun `execute http method - ok - file transfer never asks for compressed responses`() {
+        val status = client.executeHttpMethod(GetMethod(URL(SERVER_URL + FILE_PATH)).apply { isFileTransfer = true })
+
+        assertEquals(HttpConstants.HTTP_OK, status)
+        assertEquals(listOf(HttpConstants.ACCEPT_ENCODING_IDENTITY), acceptEncodingHeaders)
+        assertTrue(client.isHttp2TransportEnabled)
+    }
+
+    @Test(expected = StreamResetException::class)
+    fun `execute http method - ko - reset stream is not retried with HTTP 2 disabled`() {
+        client.setHttp2TransportEnabled(false)
+        failAlways = true
+
+        try {
+            client.executeHttpMethod(GetMethod(URL(SERVER_URL + FILE_PATH)))
+        } finally {
+            assertEquals(1, acceptEncodingHeaders.size)
+        }
+    }
+
+    @Test
+    fun `execute http method - ok - concurrent requests reset at once all fall back and succeed`() {
+        concurrentFailures = CountDownLatch(CONCURRENT_REQUESTS)
+        val executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS)
+
+        val statuses = try {
+            (1..CONCURRENT_REQUESTS).map {
+                executor.submit<Int> { client.executeHttpMethod(GetMethod(URL(SERVER_URL + FILE_PATH))) }
+            }.map { it.get(TIMEOUT_SECONDS, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        assertEquals(List(CONCURRENT_REQUESTS) { HttpConstants.HTTP_OK }, statuses)
+        assertEquals(CONCURRENT_REQUESTS, acceptEncodingHeaders.count { it == null })
+        assertEquals(CONCURRENT_REQUESTS, acceptEncodingHeaders.count { it == HttpConstants.ACCEPT_ENCODING_IDENTITY })
+        assertFalse(client.isHttp2TransportEnabled)
+    }
+
+    private fun respond(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val acceptEncoding = request.header(HttpConstants.ACCEPT_ENCODING_HEADER)
+        acceptEncodingHeaders.add(acceptEncoding)
+        if (failAlways || acceptEncoding != HttpConstants.ACCEPT_ENCODING_IDENTITY) {
+            // Holds every request sent with HTTP/2 until all of them are in flight, so they fail at once
+            concurrentFailures.countDown()
+            concurrentFailures.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            throw StreamResetException(ErrorCode.REFUSED_STREAM)
+        }
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(HttpConstants.HTTP_OK)
+            .message("Stub")
+            .body("".toResponseBody())
+            .build()
+    }
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val SERVER_URL = "https://server.url"
+        private const val FILE_PATH = "/remote.php/dav/files/user/file.txt"
+        private const val CONCURRENT_REQUESTS = 8
+        private const val TIMEOUT_SECONDS = 10L
+    }
+}
@@ -0,0 +1,152 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.os.Build
+import at.bitfire.dav4jvm.Dav4jvm
+import at.bitfire.dav4jvm.DavOCResource
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.methods.webdav.DavConstants
+import com.owncloud.android.lib.common.http.methods.webdav.DavUtils
+import com.owncloud.android.lib.common.http.methods.webdav.PropfindMethod
+import okhttp3.HttpUrl.Companion.toHttpUrl
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.asResponseBody
+import okio.Buffer
+import okio.ForwardingSource
+import okio.buffer
+import okio.source
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.net.URL
+
+/**
+ * Parses a synthetic multistatus response of [NUMBER_OF_MEMBERS] members, keeping them in the method or handing them
+ * to a consumer while they are parsed, and checks which members the method retains in each case.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class PropfindStreamingMemoryTest {
+
+    private lateinit var multistatusFile: File
+    private var bytesRead = 0L
+
+    @Before
+    fun setUp() {
+        multistatusFile = File.createTempFile("multistatus", ".xml").apply {
+            bufferedWriter().use { writer ->
+                writer.write("""<?xml version="1.0" encoding="utf-8"?><d:multistatus xmlns:d="DAV:" xmlns:oc="http://owncloud.org/ns">""")
+                writer.write(responseXml(FOLDER_PATH, isFolder = true))
+                for (index in 0 until NUMBER_OF_MEMBERS) {
+                    writer.write(responseXml("${FOLDER_PATH}file$index.jpg", isFolder = false))
+                }
+                writer.write("</d:multistatus>")
+            }
+        }
+    }
+
+    @After
+    fun tearDown() {
+        multistatusFile.delete()
+    }
+
+    @Test
+    fun `propfind - ok - members are retained without a consumer`() {
+        val propfindMethod = executePropfind(memberConsumer = null)
+
+        assertNotNull(propfindMethod.root)
+        assertEquals(NUMBER_OF_MEMBERS, propfindMethod.members.size)
+    }
+
+    @Test
+    fun `propfind - ok - members handed to a consumer are not retained`() {
+        val consumedHrefs = mutableListOf<String>()
+        var bytesReadWhenFirstConsumed = -1L
+
+        val propfindMethod = executePropfind(memberConsumer = { member ->
+            if (consumedHrefs.isEmpty()) bytesReadWhenFirstConsumed = bytesRead
+            consumedHrefs.add(member.href.encodedPath)
+        })
+
+        assertNotNull(propfindMethod.root)
+        assertTrue(propfindMethod.members.isEmpty())
+        assertEquals((0 until NUMBER_OF_MEMBERS).map { "${FOLDER_PATH}file$it.jpg" }, consumedHrefs)
+        // Handed over while parsing, not once the whole response is in memory
+        assertTrue(bytesReadWhenFirstConsumed in 1 until multistatusFile.length())
+    }
+
+    private fun executePropfind(memberConsumer: ((at.bitfire.dav4jvm.Response) -> Unit)?): PropfindMethod {
+        val okHttpClient = OkHttpClient.Builder()
+            .addInterceptor { chain ->
+                Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(HttpConstants.HTTP_MULTI_STATUS)
+                    .message("Multi-Status")
+                    .body(
+                        countingSource(multistatusFile).buffer()
+                            .asResponseBody("application/xml; charset=utf-8".toMediaType(), multistatusFile.length())
+                    )
+                    .build()
+            }
+            .build()
+        val propfindMethod = PropfindMethod(URL(SERVER_URL + FOLDER_PATH), DavConstants.DEPTH_1, DavUtils.allPropSet, memberConsumer)
+        propfindMethod.onDavExecute(DavOCResource(okHttpClient, (SERVER_URL + FOLDER_PATH).toHttpUrl(), Dav4jvm.log))
+        return propfindMethod
+    }
+
+    private fun countingSource(file: File) =
+        object : ForwardingSource(file.source()) {
+            override fun read(sink: Buffer, byteCount: Long): Long =
+                super.read(sink, byteCount).also { if (it > 0) bytesRead += it }
+        }
+
+    private fun responseXml(path: String, isFolder: Boolean) =
+        "<d:response><d:href>$path</d:href><d:propstat><d:prop>" +
+                "<d:getetag>\"${path.hashCode()}\"</d:getetag>" +
+                "<d:getlastmodified>Mon, 01 Jan 2024 00:00:00 GMT</d:getlastmodified>" +
+                (if (isFolder) "<d:resourcetype><d:collection/></d:resourcetype>" else "<d:resourcetype/>") +
+                "<d:getcontentlength>1024</d:getcontentlength>" +
+                "<d:getcontenttype>image/jpeg</d:getcontenttype>" +
+                "<oc:permissions>RDNVW</oc:permissions>" +
+                "<oc:id>${path.hashCode()}</oc:id>" +
+                "</d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>"
+
+    companion object {
+        private const val SERVER_URL = "https://server.url"
+        private const val FOLDER_PATH = "/remote.php/dav/files/username/Photos/"
+        private const val NUMBER_OF_MEMBERS = 5_000
+    }
+}
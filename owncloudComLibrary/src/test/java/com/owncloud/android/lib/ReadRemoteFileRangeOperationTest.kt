@@ -0,0 +1,253 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.operations.RemoteOperationResult
+import com.owncloud.android.lib.resources.files.DownloadRemoteFileOperation
+import com.owncloud.android.lib.resources.files.ReadRemoteFileRangeOperation
+import okhttp3.OkHttpClient
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.net.ServerSocket
+import java.net.Socket
+import java.nio.file.Files
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.concurrent.thread
+import kotlin.random.Random
+
+/**
+ * Reads ranges of a file from a local WebDAV stub that counts the body bytes it sends, comparing how much of the file
+ * has to be transferred before its first byte can be read in ranges and when it has to be downloaded first.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class ReadRemoteFileRangeOperationTest {
+
+    private val fileContent = Random(RANDOM_SEED).nextBytes(FILE_LENGTH)
+
+    private lateinit var localFolder: File
+    private lateinit var webDavStub: WebDavStub
+    private lateinit var client: OwnCloudClient
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        localFolder = Files.createTempDirectory("streaming").toFile()
+        webDavStub = WebDavStub(fileContent)
+        client = object : OwnCloudClient(
+            Uri.parse(webDavStub.baseUrl), null, false, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+    }
+
+    @After
+    fun tearDown() {
+        webDavStub.close()
+        localFolder.deleteRecursively()
+    }
+
+    @Test
+    fun `read range - ok - bytes of the range with the length and version of the file`() {
+        val result = newOperation(start = BLOCK_SIZE.toLong(), ifMatchEtag = ETAG).execute(client)
+
+        assertTrue(result.isSuccess)
+        assertArrayEquals(fileContent.copyOfRange(BLOCK_SIZE, 2 * BLOCK_SIZE), result.data.bytes)
+        assertEquals(FILE_LENGTH.toLong(), result.data.totalLength)
+        assertEquals(ETAG, result.data.etag)
+        assertTrue(result.data.modificationTimestamp > 0)
+        assertEquals("bytes=$BLOCK_SIZE-${2 * BLOCK_SIZE - 1}", webDavStub.requests.single().header(HttpConstants.RANGE_HEADER))
+        assertEquals(ETAG, webDavStub.requests.single().header(HttpConstants.IF_MATCH_HEADER))
+    }
+
+    @Test
+    fun `read range - ok - last range of the file is shorter`() {
+        val result = newOperation(start = FILE_LENGTH.toLong() - 10).execute(client)
+
+        assertTrue(result.isSuccess)
+        assertArrayEquals(fileContent.copyOfRange(FILE_LENGTH - 10, FILE_LENGTH), result.data.bytes)
+        assertNull(webDavStub.requests.single().header(HttpConstants.IF_MATCH_HEADER))
+    }
+
+    @Test
+    fun `read range - ko - server ignoring ranges`() {
+        webDavStub.ignoreRanges = true
+
+        val result = newOperation(start = 0).execute(client)
+
+        assertFalse(result.isSuccess)
+        assertEquals(RemoteOperationResult.ResultCode.UNHANDLED_HTTP_CODE, result.code)
+    }
+
+    @Test
+    fun `read range - ko - file changed in the server`() {
+        val result = newOperation(start = 0, ifMatchEtag = CHANGED_ETAG).execute(client)
+
+        assertFalse(result.isSuccess)
+        assertEquals(HttpConstants.HTTP_PRECONDITION_FAILED, result.httpCode)
+    }
+
+    @Test
+    fun `bytes before first byte - ok - first range is read without transferring the rest of the file`() {
+        assertTrue(newOperation(start = 0).execute(client).isSuccess)
+        val bytesBeforeFirstRange = webDavStub.bytesServed.getAndSet(0)
+
+        val download = DownloadRemoteFileOperation(
+            remotePath = REMOTE_PATH,
+            localFolderPath = localFolder.absolutePath,
+            spaceWebDavUrl = webDavStub.baseUrl + WEBDAV_PATH,
+        )
+        assertTrue(download.execute(client).isSuccess)
+
+        assertEquals(BLOCK_SIZE.toLong(), bytesBeforeFirstRange)
+        assertEquals(FILE_LENGTH.toLong(), webDavStub.bytesServed.get())
+        assertEquals(2, webDavStub.requests.size)
+    }
+
+    private fun newOperation(start: Long, ifMatchEtag: String? = null) = ReadRemoteFileRangeOperation(
+        remotePath = REMOTE_PATH,
+        start = start,
+        length = BLOCK_SIZE,
+        spaceWebDavUrl = webDavStub.baseUrl + WEBDAV_PATH,
+        ifMatchEtag = ifMatchEtag,
+    )
+
+    private class StubRequest(val headers: Map<String, String>) {
+        fun header(name: String): String? = headers[name.lowercase()]
+    }
+
+    /**
+     * Minimal HTTP/1.1 server answering GET requests for [content], honoring Range and If-Match headers like a WebDAV
+     * server does, and closing each connection afterwards. Body bytes are counted before they are sent.
+     */
+    private class WebDavStub(private val content: ByteArray) {
+        private val serverSocket = ServerSocket(0)
+        val baseUrl = "http://127.0.0.1:${serverSocket.localPort}"
+        val requests = CopyOnWriteArrayList<StubRequest>()
+        val bytesServed = AtomicLong(0)
+        var ignoreRanges = false
+
+        init {
+            thread(isDaemon = true) {
+                while (!serverSocket.isClosed) {
+                    val socket = try {
+                        serverSocket.accept()
+                    } catch (e: Exception) {
+                        break
+                    }
+                    thread(isDaemon = true) {
+                        try {
+                            socket.use { answer(it) }
+                        } catch (e: IOException) {
+                            // Client aborted the response
+                        }
+                    }
+                }
+            }
+        }
+
+        private fun answer(socket: Socket) {
+            val reader = socket.getInputStream().bufferedReader()
+            reader.readLine() // request line
+            val headers = generateSequence { reader.readLine() }
+                .takeWhile { it.isNotEmpty() }
+                .associate { it.substringBefore(":").trim().lowercase() to it.substringAfter(":").trim() }
+            val request = StubRequest(headers)
+            requests.add(request)
+
+            val output = socket.getOutputStream()
+            val ifMatch = request.header(HttpConstants.IF_MATCH_HEADER)
+            val range = request.header(HttpConstants.RANGE_HEADER)?.substringAfter("bytes=")
+            when {
+                ifMatch != null && ifMatch != ETAG -> output.writeHead(HttpConstants.HTTP_PRECONDITION_FAILED, "Precondition Failed", 0)
+                range == null || ignoreRanges -> {
+                    output.writeHead(HttpConstants.HTTP_OK, "OK", content.size)
+                    output.writeBody(0, content.size)
+                }
+                else -> {
+                    val start = range.substringBefore("-").toInt()
+                    val end = range.substringAfter("-").toIntOrNull()?.coerceAtMost(content.size - 1) ?: (content.size - 1)
+                    output.writeHead(
+                        HttpConstants.HTTP_PARTIAL_CONTENT, "Partial Content", end - start + 1,
+                        contentRange = "bytes $start-$end/${content.size}"
+                    )
+                    output.writeBody(start, end - start + 1)
+                }
+            }
+        }
+
+        private fun OutputStream.writeHead(code: Int, message: String, contentLength: Int, contentRange: String? = null) {
+            val head = StringBuilder()
+                .append("HTTP/1.1 $code $message\r\n")
+                .append("Content-Length: $contentLength\r\n")
+                .append("ETag: $ETAG\r\n")
+                .append("Last-Modified: $LAST_MODIFIED\r\n")
+                .append("Connection: close\r\n")
+            contentRange?.let { head.append("Content-Range: $it\r\n") }
+            write(head.append("\r\n").toString().toByteArray())
+            flush()
+        }
+
+        private fun OutputStream.writeBody(offset: Int, length: Int) {
+            bytesServed.addAndGet(length.toLong())
+            write(content, offset, length)
+        }
+
+        fun close() {
+            serverSocket.close()
+        }
+    }
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val WEBDAV_PATH = "/remote.php/dav/files/username"
+        private const val REMOTE_PATH = "/Videos/video.mp4"
+        private const val ETAG = "\"5f8d2a1b3c4e\""
+        private const val CHANGED_ETAG = "\"7a9b0c1d2e3f\""
+        private const val LAST_MODIFIED = "Mon, 01 Jan 2024 00:00:00 GMT"
+        private const val FILE_LENGTH = 8 * 1024 * 1024
+        private const val BLOCK_SIZE = 512 * 1024
+        private const val RANDOM_SEED = 7
+    }
+}
@@ -0,0 +1,167 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import android.net.Uri
+import android.os.Build
+import com.owncloud.android.lib.common.OwnCloudClient
+import com.owncloud.android.lib.common.SingleSessionManager
+import com.owncloud.android.lib.common.http.HttpConstants
+import com.owncloud.android.lib.common.http.RequestConcurrencyLimiter
+import com.owncloud.android.lib.common.http.RequestConcurrencyLimiter.RequestClass
+import com.owncloud.android.lib.common.http.methods.nonwebdav.GetMethod
+import okhttp3.Interceptor
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.net.URL
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * Checks the permits of [RequestConcurrencyLimiter], alone and as used by [OwnCloudClient], waiting for blocked
+ * threads to park instead of measuring times.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O], manifest = Config.NONE)
+class RequestConcurrencyLimiterTest {
+
+    private val requestCount = AtomicInteger()
+
+    private lateinit var client: OwnCloudClient
+
+    @Before
+    fun setUp() {
+        SingleSessionManager.setUserAgent(USER_AGENT)
+        client = object : OwnCloudClient(
+            Uri.parse(SERVER_URL), null, true, null, RuntimeEnvironment.getApplication()
+        ) {
+            private val okHttpClient = OkHttpClient.Builder().addInterceptor(::respond).build()
+            override fun getOkHttpClient(): OkHttpClient = okHttpClient
+        }
+    }
+
+    @Test
+    fun `limiter - ok - request waits until a permit of its class is released`() {
+        val limiter = RequestConcurrencyLimiter(maxParallelMetadataRequests = 2, maxParallelTransferRequests = 1)
+        repeat(2) { limiter.acquire(RequestClass.METADATA) }
+
+        val waitingRequest = thread { limiter.acquire(RequestClass.METADATA) }
+        waitingRequest.awaitParked()
+        limiter.acquire(RequestClass.TRANSFER)
+
+        assertEquals(Thread.State.WAITING, waitingRequest.state)
+        limiter.release(RequestClass.METADATA)
+        waitingRequest.join(JOIN_TIMEOUT_MILLIS)
+        assertEquals(Thread.State.TERMINATED, waitingRequest.state)
+        assertEquals(3, limiter.getQueueWaitStats(RequestClass.METADATA).requestCount)
+        assertEquals(1, limiter.getQueueWaitStats(RequestClass.TRANSFER).requestCount)
+    }
+
+    @Test
+    fun `client - ok - download holds its transfer permit until its body is closed`() {
+        val downloads = List(RequestConcurrencyLimiter.DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS) { newDownload() }
+        downloads.forEach { assertEquals(HttpConstants.HTTP_OK, client.executeHttpMethod(it)) }
+
+        val waitingDownload = thread { client.executeHttpMethod(newDownload()) }
+        waitingDownload.awaitParked()
+
+        assertEquals(Thread.State.WAITING, waitingDownload.state)
+        assertEquals(downloads.size, requestCount.get())
+        assertEquals(HttpConstants.HTTP_OK, client.executeHttpMethod(GetMethod(URL(SERVER_URL + FILE_PATH))))
+
+        downloads.first().getResponseBodyAsStream()!!.use { it.readBytes() }
+        waitingDownload.join(JOIN_TIMEOUT_MILLIS)
+        assertEquals(Thread.State.TERMINATED, waitingDownload.state)
+        assertEquals(downloads.size + 2, requestCount.get())
+    }
+
+    @Test
+    fun `client - ok - aborted download releases its transfer permit`() {
+        val downloads = List(RequestConcurrencyLimiter.DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS) { newDownload() }
+        downloads.forEach { client.executeHttpMethod(it) }
+
+        val waitingDownload = thread { client.executeHttpMethod(newDownload()) }
+        waitingDownload.awaitParked()
+        downloads.first().abort()
+        downloads.first().abort()
+
+        waitingDownload.join(JOIN_TIMEOUT_MILLIS)
+        assertEquals(Thread.State.TERMINATED, waitingDownload.state)
+
+        // Aborting twice released a single permit, which is held now by the download that was waiting
+        val blockedDownload = thread { client.executeHttpMethod(newDownload()) }
+        blockedDownload.awaitParked()
+        assertEquals(Thread.State.WAITING, blockedDownload.state)
+        downloads[1].abort()
+        blockedDownload.join(JOIN_TIMEOUT_MILLIS)
+        assertEquals(Thread.State.TERMINATED, blockedDownload.state)
+    }
+
+    @Test
+    fun `client - ok - failed download releases its transfer permit right away`() {
+        repeat(RequestConcurrencyLimiter.DEFAULT_MAX_PARALLEL_TRANSFER_REQUESTS + 1) {
+            assertEquals(HttpConstants.HTTP_NOT_FOUND, client.executeHttpMethod(newDownload(MISSING_FILE_PATH)))
+        }
+    }
+
+    private fun newDownload(path: String = FILE_PATH) = GetMethod(URL(SERVER_URL + path)).apply { isFileTransfer = true }
+
+    private fun Thread.awaitParked() {
+        while (state != Thread.State.WAITING && state != Thread.State.TERMINATED) {
+            Thread.yield()
+        }
+    }
+
+    private fun respond(chain: Interceptor.Chain): Response {
+        requestCount.incrementAndGet()
+        val request = chain.request()
+        val code = if (request.url.encodedPath == MISSING_FILE_PATH) HttpConstants.HTTP_NOT_FOUND else HttpConstants.HTTP_OK
+        return Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Stub")
+            .body(ByteArray(BODY_LENGTH).toResponseBody("application/octet-stream".toMediaType()))
+            .build()
+    }
+
+    companion object {
+        private const val USER_AGENT = "Mozilla/5.0 (Android) PiCloud-android/test"
+        private const val SERVER_URL = "https://server.url"
+        private const val FILE_PATH = "/remote.php/dav/files/user/file.bin"
+        private const val MISSING_FILE_PATH = "/remote.php/dav/files/user/missing.bin"
+        private const val BODY_LENGTH = 1_024
+        private const val JOIN_TIMEOUT_MILLIS = 10_000L
+    }
+}
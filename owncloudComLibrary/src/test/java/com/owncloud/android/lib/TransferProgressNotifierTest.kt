@@ -0,0 +1,78 @@
+/* PiCloud Android Library is available under MIT license
+ *   Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+package com.owncloud.android.lib
+
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener
+import com.owncloud.android.lib.common.network.TransferProgressNotifier
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class TransferProgressNotifierTest {
+
+    private val notifications = mutableListOf<Long>()
+    private val listener = OnDatatransferProgressListener { progressRate, _, _, _ -> notifications.add(progressRate) }
+
+    @Test
+    fun `on bytes transferred - ok - notifies once per threshold and keeps the total`() {
+        val notifier = TransferProgressNotifier(minBytesBetweenUpdates = 1_000, minMillisBetweenUpdates = Long.MAX_VALUE)
+        notifier.addDatatransferProgressListener(listener)
+
+        var transferred = 0L
+        repeat(TOTAL / READ) {
+            transferred += READ
+            notifier.onBytesTransferred(READ.toLong(), transferred, TOTAL.toLong(), SOME_PATH)
+        }
+
+        assertEquals(TOTAL / 1_000, notifications.size)
+        assertEquals(TOTAL.toLong(), notifications.sum())
+    }
+
+    @Test
+    fun `on bytes transferred - ok - always notifies completion`() {
+        val notifier = TransferProgressNotifier(minBytesBetweenUpdates = Long.MAX_VALUE, minMillisBetweenUpdates = Long.MAX_VALUE)
+        notifier.addDatatransferProgressListener(listener)
+
+        notifier.onBytesTransferred(READ.toLong(), READ.toLong(), TOTAL.toLong(), SOME_PATH)
+        notifier.onBytesTransferred((TOTAL - READ).toLong(), TOTAL.toLong(), TOTAL.toLong(), SOME_PATH)
+
+        assertEquals(listOf(TOTAL.toLong()), notifications)
+    }
+
+    @Test
+    fun `remove listener - ok - not notified anymore`() {
+        val notifier = TransferProgressNotifier(minBytesBetweenUpdates = 0, minMillisBetweenUpdates = 0)
+        notifier.addDatatransferProgressListener(listener)
+        notifier.removeDatatransferProgressListener(listener)
+
+        notifier.onBytesTransferred(READ.toLong(), READ.toLong(), TOTAL.toLong(), SOME_PATH)
+
+        assertEquals(0, notifications.size)
+    }
+
+    companion object {
+        private const val READ = 100
+        private const val TOTAL = 10_000
+        private const val SOME_PATH = "/some/path"
+    }
+}
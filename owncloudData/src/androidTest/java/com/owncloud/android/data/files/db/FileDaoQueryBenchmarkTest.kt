@@ -0,0 +1,146 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.data.files.db
+
+import android.util.Log
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.data.OwncloudDatabase
+import com.owncloud.android.domain.files.model.MIME_DIR
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * Measures the latency of the hot [FileDao] queries over synthetic accounts of growing size.
+ *
+ * Sizes can be overridden with the instrumentation argument `fileDaoBenchmarkSizes`, e.g.
+ * `-e fileDaoBenchmarkSizes 10000,100000`. Results are written to logcat with the tag [TAG].
+ */
+@LargeTest
+class FileDaoQueryBenchmarkTest {
+
+    @Test
+    fun fileDaoQueriesLatency() {
+        val sizes = InstrumentationRegistry.getArguments().getString(ARGUMENT_SIZES)
+            ?.split(",")?.map { it.trim().toInt() }
+            ?: DEFAULT_SIZES
+
+        sizes.forEach { benchmarkAccountWithFiles(it) }
+    }
+
+    private fun benchmarkAccountWithFiles(numberOfFiles: Int) {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        OwncloudDatabase.switchToInMemory(context)
+        val db = OwncloudDatabase.getDatabase(context)
+        val fileDao = db.fileDao()
+
+        val folderIds = populateAccount(db, fileDao, numberOfFiles)
+        val random = Random(SEED)
+
+        measure("getFolderContent", numberOfFiles) {
+            assertEquals(FILES_PER_FOLDER, fileDao.getFolderContent(folderIds.random(random)).size)
+        }
+        measure("getFileByOwnerAndRemotePath", numberOfFiles) {
+            val index = random.nextInt(numberOfFiles)
+            assertNotNull(fileDao.getFileByOwnerAndRemotePath(OWNER, remotePathOf(index), null))
+        }
+        measure("getFileByRemoteId", numberOfFiles) {
+            assertNotNull(fileDao.getFileByRemoteId(remoteIdOf(random.nextInt(numberOfFiles))))
+        }
+        measure("getFilesAvailableOfflineFromAccount", numberOfFiles) {
+            fileDao.getFilesAvailableOfflineFromAccount(OWNER)
+        }
+        measure("getFilesAvailableOfflineFromEveryAccount", numberOfFiles) {
+            fileDao.getFilesAvailableOfflineFromEveryAccount()
+        }
+
+        db.close()
+    }
+
+    /**
+     * Inserts [numberOfFiles] files spread over folders of [FILES_PER_FOLDER] files and returns the folder ids.
+     */
+    private fun populateAccount(db: OwncloudDatabase, fileDao: FileDao, numberOfFiles: Int): List<Long> {
+        val folderIds = mutableListOf<Long>()
+        db.runInTransaction {
+            var folderId = 0L
+            for (index in 0 until numberOfFiles) {
+                if (index % FILES_PER_FOLDER == 0) {
+                    folderId = fileDao.insertOrIgnore(
+                        syntheticFile(remotePath = "/folder${index / FILES_PER_FOLDER}/", remoteId = null, mimeType = MIME_DIR)
+                    )
+                    folderIds.add(folderId)
+                }
+                fileDao.insertOrIgnore(
+                    syntheticFile(remotePath = remotePathOf(index), remoteId = remoteIdOf(index), mimeType = "image/jpeg").apply {
+                        parentId = folderId
+                        availableOfflineStatus = if (index % AVAILABLE_OFFLINE_EVERY == 0) 1 else 0
+                    }
+                )
+            }
+        }
+        return folderIds
+    }
+
+    private fun measure(methodName: String, numberOfFiles: Int, query: () -> Unit) {
+        repeat(WARM_UP_ITERATIONS) { query() }
+        val latencies = LongArray(MEASURED_ITERATIONS) {
+            val start = System.nanoTime()
+            query()
+            System.nanoTime() - start
+        }.sorted()
+        Log.i(
+            TAG,
+            "$methodName with $numberOfFiles files: " +
+                    "median ${latencies[latencies.size / 2] / 1_000} us, p95 ${latencies[latencies.size * 95 / 100] / 1_000} us"
+        )
+    }
+
+    private fun syntheticFile(remotePath: String, remoteId: String?, mimeType: String) =
+        OCFileEntity(
+            owner = OWNER,
+            remotePath = remotePath,
+            remoteId = remoteId,
+            length = 1_024,
+            creationTimestamp = 0,
+            modificationTimestamp = 0,
+            mimeType = mimeType,
+            etag = remotePath.hashCode().toString(),
+            permissions = "RDNVCK",
+        )
+
+    private fun remotePathOf(index: Int) = "/folder${index / FILES_PER_FOLDER}/file$index.jpg"
+
+    private fun remoteIdOf(index: Int) = "remoteId$index"
+
+    companion object {
+        private const val TAG = "FileDaoQueryBenchmark"
+        private const val ARGUMENT_SIZES = "fileDaoBenchmarkSizes"
+        private val DEFAULT_SIZES = listOf(10_000, 100_000, 500_000)
+
+        private const val OWNER = "admin@benchmark"
+        private const val FILES_PER_FOLDER = 100
+        private const val AVAILABLE_OFFLINE_EVERY = 1_000
+        private const val SEED = 42
+        private const val WARM_UP_ITERATIONS = 10
+        private const val MEASURED_ITERATIONS = 100
+    }
+}
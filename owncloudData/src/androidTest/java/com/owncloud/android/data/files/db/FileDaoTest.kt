@@ -0,0 +1,145 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.data.files.db
+
+import androidx.test.filters.SmallTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.owncloud.android.data.OwncloudDatabase
+import com.owncloud.android.domain.files.model.MIME_DIR
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Before
+import org.junit.Test
+
+@SmallTest
+class FileDaoTest {
+    private lateinit var db: OwncloudDatabase
+    private lateinit var fileDao: FileDao
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        OwncloudDatabase.switchToInMemory(context)
+        db = OwncloudDatabase.getDatabase(context)
+        fileDao = db.fileDao()
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun upsertAllInsertsNewFilesAndUpdatesExistingOnes() {
+        val folderId = fileDao.insertOrIgnore(folder())
+        val existingId = fileDao.insertOrIgnore(file(index = 0).apply { parentId = folderId })
+
+        fileDao.upsertAll(
+            listOf(
+                file(index = 0, etag = NEW_ETAG).apply {
+                    id = existingId
+                    parentId = folderId
+                },
+                file(index = 1).apply { parentId = folderId },
+            )
+        )
+
+        val folderContent = fileDao.getFolderContent(folderId).associateBy { it.remotePath }
+        assertEquals(2, folderContent.size)
+        assertEquals(existingId, folderContent.getValue(remotePathOf(0)).id)
+        assertEquals(NEW_ETAG, folderContent.getValue(remotePathOf(0)).etag)
+        assertNotEquals(existingId, folderContent.getValue(remotePathOf(1)).id)
+    }
+
+    @Test
+    fun insertFilesInFolderReturnsOnlyTheFilesThatChanged() {
+        val folderId = fileDao.insertOrIgnore(folder())
+        val unchangedId = fileDao.insertOrIgnore(file(index = 0).apply { parentId = folderId })
+        val changedId = fileDao.insertOrIgnore(file(index = 1).apply { parentId = folderId })
+
+        val filesThatChanged = fileDao.insertFilesInFolderAndReturnTheFilesThatChanged(
+            folder = folder().apply { id = folderId },
+            folderContent = listOf(
+                file(index = 1, etag = NEW_ETAG).apply { id = changedId },
+                file(index = 2),
+                file(index = 3, remoteId = null),
+            )
+        )
+
+        assertEquals(
+            setOf(remotePathOf(1), remotePathOf(2), remotePathOf(3)),
+            filesThatChanged.map { it.remotePath }.toSet()
+        )
+        assertEquals(3, filesThatChanged.size)
+        assertEquals(NEW_ETAG, filesThatChanged.single { it.id == changedId }.etag)
+        filesThatChanged.forEach { assertEquals(folderId, it.parentId) }
+        assertEquals(4, fileDao.getFolderContent(folderId).size)
+        assertEquals(ETAG, fileDao.getFileById(unchangedId)?.etag)
+    }
+
+    @Test
+    fun insertFilesInFolderReadsBackMoreChangedFilesThanBindArgumentsPerQuery() {
+        val numberOfFiles = FileDao.MAX_BIND_ARGUMENTS_PER_QUERY * 2 + 1
+
+        val filesThatChanged = fileDao.insertFilesInFolderAndReturnTheFilesThatChanged(
+            folder = folder(),
+            folderContent = List(numberOfFiles) { file(index = it) }
+        )
+
+        assertEquals(numberOfFiles, filesThatChanged.size)
+        assertEquals(numberOfFiles, filesThatChanged.map { it.remoteId }.toSet().size)
+    }
+
+    private fun folder() =
+        OCFileEntity(
+            owner = OWNER,
+            remotePath = FOLDER_PATH,
+            remoteId = "folderRemoteId",
+            length = 0,
+            creationTimestamp = 0,
+            modificationTimestamp = 0,
+            mimeType = MIME_DIR,
+            etag = ETAG,
+            permissions = PERMISSIONS,
+        )
+
+    private fun file(index: Int, etag: String = ETAG, remoteId: String? = "remoteId$index") =
+        OCFileEntity(
+            owner = OWNER,
+            remotePath = remotePathOf(index),
+            remoteId = remoteId,
+            length = 1_024,
+            creationTimestamp = 0,
+            modificationTimestamp = 0,
+            mimeType = "image/jpeg",
+            etag = etag,
+            permissions = PERMISSIONS,
+        )
+
+    private fun remotePathOf(index: Int) = "${FOLDER_PATH}file$index.jpg"
+
+    companion object {
+        private const val OWNER = "admin@server"
+        private const val FOLDER_PATH = "/Photos/"
+        private const val ETAG = "etag"
+        private const val NEW_ETAG = "newEtag"
+        private const val PERMISSIONS = "RDNVCK"
+    }
+}
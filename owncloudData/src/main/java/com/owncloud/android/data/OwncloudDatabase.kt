@@ -82,6 +82,7 @@ import com.owncloud.android.data.user.db.UserQuotaEntity
         AutoMigration(from = 44, to = 45),
         AutoMigration(from = 45, to = 46),
         AutoMigration(from = 46, to = 47),
+        AutoMigration(from = 47, to = 48),
     ],
     version = ProviderMeta.DB_VERSION,
     exportSchema = true
@@ -35,6 +35,8 @@ interface LocalFileDataSource {
     fun getFileByRemotePath(remotePath: String, owner: String, spaceId: String?): OCFile?
     fun getFileByRemoteId(remoteId: String): OCFile?
     fun getFolderContent(folderId: Long): List<OCFile>
+    fun getFolderContentWithRemoteIdsOrPaths(folderId: Long, remoteIds: List<String>, remotePaths: List<String>): List<OCFile>
+    fun getFolderContentIds(folderId: Long): List<Long>
     fun getSearchFolderContent(folderId: Long, search: String): List<OCFile>
     fun getSearchAvailableOfflineFolderContent(folderId: Long, search: String): List<OCFile>
     fun getSearchSharedByLinkFolderContent(folderId: Long, search: String): List<OCFile>
@@ -45,6 +47,7 @@ interface LocalFileDataSource {
     fun getFilesAvailableOfflineFromAccount(owner: String): List<OCFile>
     fun getFilesAvailableOfflineFromEveryAccount(): List<OCFile>
     fun getDownloadedFilesForAccount(owner: String): List<OCFile>
+    fun getDownloadedFilesUnderRemotePath(remotePath: String, owner: String, spaceId: String?): List<OCFile>
     fun getFileWithSyncInfoByIdAsFlow(id: Long): Flow<OCFileWithSyncInfo?>
     fun getFilesWithLastUsageOlderThanGivenTime(milliseconds: Long): List<OCFile>
     fun moveFile(sourceFile: OCFile, targetFolder: OCFile, finalRemotePath: String, finalStoragePath: String)
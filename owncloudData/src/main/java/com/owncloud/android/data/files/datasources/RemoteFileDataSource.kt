@@ -76,6 +76,16 @@ interface RemoteFileDataSource {
         spaceWebDavUrl: String? = null,
     ): List<OCFile>
 
+    /**
+     * Reads the folder content handing it in batches to [onFilesBatch] while it is received, and returns the folder.
+     */
+    fun refreshFolderInBatches(
+        remotePath: String,
+        accountName: String,
+        spaceWebDavUrl: String? = null,
+        onFilesBatch: (remoteFolder: OCFile, remoteFiles: List<OCFile>) -> Unit,
+    ): OCFile
+
     fun deleteFile(
         remotePath: String,
         accountName: String,
@@ -81,6 +81,14 @@ class OCLocalFileDataSource(
             it.toModel()
         }
 
+    override fun getFolderContentWithRemoteIdsOrPaths(folderId: Long, remoteIds: List<String>, remotePaths: List<String>): List<OCFile> =
+        fileDao.getFolderContentWithRemoteIdsOrPaths(folderId = folderId, remoteIds = remoteIds, remotePaths = remotePaths).map {
+            it.toModel()
+        }
+
+    override fun getFolderContentIds(folderId: Long): List<Long> =
+        fileDao.getFolderContentIds(folderId = folderId)
+
     override fun getSearchFolderContent(folderId: Long, search: String): List<OCFile> =
         fileDao.getSearchFolderContent(folderId = folderId, search = search).map {
             it.toModel()
@@ -131,6 +139,11 @@ class OCLocalFileDataSource(
             it.toModel()
         }
 
+    override fun getDownloadedFilesUnderRemotePath(remotePath: String, owner: String, spaceId: String?): List<OCFile> =
+        fileDao.getDownloadedFilesUnderRemotePath(accountOwner = owner, remotePath = remotePath, spaceId = spaceId).map {
+            it.toModel()
+        }
+
     override fun getFilesWithLastUsageOlderThanGivenTime(milliseconds: Long): List<OCFile> =
         fileDao.getFilesWithLastUsageOlderThanGivenTime(milliseconds).map {
             it.toModel()
@@ -89,51 +89,12 @@ class OCRemoteFileDataSource(
         accountName: String,
         spaceWebDavUrl: String?,
         isUserLogged: Boolean,
-    ): String {
-        var checkExistsFile = checkPathExistence(
+    ): String = executeRemoteOperation {
+        clientManager.getFileService(accountName).getAvailableRemotePath(
             path = remotePath,
             isUserLogged = isUserLogged,
-            accountName = accountName,
             spaceWebDavUrl = spaceWebDavUrl,
         )
-        if (!checkExistsFile) {
-            return remotePath
-        }
-
-        val pos = remotePath.lastIndexOf(".")
-        var suffix: String
-        var extension = ""
-        if (pos >= 0) {
-            extension = remotePath.substring(pos + 1)
-            remotePath.apply {
-                substring(0, pos)
-            }
-        }
-        var count = 1
-        do {
-            suffix = " ($count)"
-            checkExistsFile = if (pos >= 0) {
-                checkPathExistence(
-                    path = "${remotePath.substringBeforeLast('.', "")}$suffix.$extension",
-                    isUserLogged = isUserLogged,
-                    accountName = accountName,
-                    spaceWebDavUrl = spaceWebDavUrl,
-                )
-            } else {
-                checkPathExistence(
-                    path = "$remotePath$suffix",
-                    isUserLogged = isUserLogged,
-                    accountName = accountName,
-                    spaceWebDavUrl = spaceWebDavUrl,
-                )
-            }
-            count++
-        } while (checkExistsFile)
-        return if (pos >= 0) {
-            "${remotePath.substringBeforeLast('.', "")}$suffix.$extension"
-        } else {
-            remotePath + suffix
-        }
     }
 
     override fun moveFile(
@@ -177,6 +138,22 @@ class OCRemoteFileDataSource(
             listOfRemote.map { remoteFile -> remoteFile.toModel() }
         }
 
+    override fun refreshFolderInBatches(
+        remotePath: String,
+        accountName: String,
+        spaceWebDavUrl: String?,
+        onFilesBatch: (remoteFolder: OCFile, remoteFiles: List<OCFile>) -> Unit,
+    ): OCFile =
+        executeRemoteOperation {
+            clientManager.getFileService(accountName).refreshFolder(
+                remotePath = remotePath,
+                spaceWebDavUrl = spaceWebDavUrl,
+                onRemoteFilesBatch = { remoteFolder, remoteFiles ->
+                    onFilesBatch(remoteFolder.toModel(), remoteFiles.map { remoteFile -> remoteFile.toModel() })
+                },
+            )
+        }.first().toModel()
+
     override fun deleteFile(
         remotePath: String,
         accountName: String,
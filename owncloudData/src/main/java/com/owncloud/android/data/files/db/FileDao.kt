@@ -99,6 +99,23 @@ interface FileDao {
         folderId: Long
     ): List<OCFileEntity>
 
+    @Query(SELECT_FOLDER_CONTENT_WITH_REMOTE_IDS_OR_PATHS)
+    fun getFolderContentWithRemoteIdsOrPaths(
+        folderId: Long,
+        remoteIds: List<String>,
+        remotePaths: List<String>,
+    ): List<OCFileEntity>
+
+    @Query(SELECT_FOLDER_CONTENT_WITHOUT_REMOTE_ID)
+    fun getFolderContentWithoutRemoteId(
+        folderId: Long
+    ): List<OCFileEntity>
+
+    @Query(SELECT_FOLDER_CONTENT_IDS)
+    fun getFolderContentIds(
+        folderId: Long
+    ): List<Long>
+
     @Transaction
     @Query(SELECT_FOLDER_CONTENT)
     fun getFolderContentWithSyncInfo(
@@ -142,6 +159,13 @@ interface FileDao {
         accountOwner: String
     ): List<OCFileEntity>
 
+    @Query(SELECT_DOWNLOADED_FILES_UNDER_REMOTE_PATH)
+    fun getDownloadedFilesUnderRemotePath(
+        accountOwner: String,
+        remotePath: String,
+        spaceId: String?,
+    ): List<OCFileEntity>
+
     @Query(SELECT_FILES_WHERE_LAST_USAGE_IS_OLDER_THAN_GIVEN_TIME)
     fun getFilesWithLastUsageOlderThanGivenTime(milliseconds: Long): List<OCFileEntity>
 
@@ -154,6 +178,9 @@ interface FileDao {
     @Upsert
     fun upsert(ocFileEntity: OCFileEntity)
 
+    @Upsert
+    fun upsertAll(ocFileEntities: List<OCFileEntity>)
+
     @Transaction
     fun updateSyncStatusForFile(id: Long, workerUuid: UUID?) {
         val fileWithSyncInfoEntity = getFileWithSyncInfoById(id)
@@ -203,6 +230,9 @@ interface FileDao {
     /**
      * Make sure that the ids are set properly. We don't take care of conflicts and that stuff here.
      *
+     * The whole folder content is upserted in a single batch, and the changed rows are read back by their remote ids,
+     * so the cost grows linearly with the size of the content and not with the size of the folder.
+     *
      * return folder content
      */
     @Transaction
@@ -217,19 +247,16 @@ interface FileDao {
             folderId = folder.id
         }
 
-        folderContent.forEach { fileToInsert ->
-            upsert(fileToInsert.apply {
-                parentId = folderId
-                availableOfflineStatus = getNewAvailableOfflineStatus(folder.availableOfflineStatus, fileToInsert.availableOfflineStatus)
-            })
-        }
-        val folderContentLocal = getFolderContent(folderId)
+        upsertAll(folderContent.onEach { fileToInsert ->
+            fileToInsert.parentId = folderId
+            fileToInsert.availableOfflineStatus =
+                getNewAvailableOfflineStatus(folder.availableOfflineStatus, fileToInsert.availableOfflineStatus)
+        })
 
-        return folderContentLocal.filter { localFile ->
-            folderContent.any { changedFile ->
-                localFile.remoteId == changedFile.remoteId
-            }
-        }
+        val changedRemoteIds = folderContent.mapTo(HashSet(folderContent.size)) { it.remoteId }
+        return changedRemoteIds.filterNotNull().chunked(MAX_BIND_ARGUMENTS_PER_QUERY).flatMap { remoteIds ->
+            getFolderContentWithRemoteIdsOrPaths(folderId = folderId, remoteIds = remoteIds, remotePaths = emptyList())
+        } + if (null in changedRemoteIds) getFolderContentWithoutRemoteId(folderId) else emptyList()
     }
 
     @Transaction
@@ -490,6 +517,10 @@ interface FileDao {
         }
 
     companion object {
+        /**
+         * Older SQLite versions shipped with Android do not accept more than 999 bind arguments per statement.
+         */
+        const val MAX_BIND_ARGUMENTS_PER_QUERY = 900
 
         private const val SELECT_FILE_WITH_ID = """
             SELECT *
@@ -526,6 +557,21 @@ interface FileDao {
             WHERE parentId = :folderId
         """
 
+        private const val SELECT_FOLDER_CONTENT_WITH_REMOTE_IDS_OR_PATHS = """
+            SELECT *
+            FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
+            WHERE parentId = :folderId AND (remoteId IN (:remoteIds) OR remotePath IN (:remotePaths))
+        """
+        private const val SELECT_FOLDER_CONTENT_WITHOUT_REMOTE_ID = """
+            SELECT *
+            FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
+            WHERE parentId = :folderId AND remoteId IS NULL
+        """
+        private const val SELECT_FOLDER_CONTENT_IDS = """
+            SELECT id
+            FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
+            WHERE parentId = :folderId
+        """
         private const val SELECT_FILTERED_FOLDER_CONTENT = """
             SELECT *
             FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
@@ -556,6 +602,13 @@ interface FileDao {
             WHERE owner = :accountOwner AND storagePath IS NOT NULL AND keepInSync = '0'
         """
 
+        private const val SELECT_DOWNLOADED_FILES_UNDER_REMOTE_PATH = """
+            SELECT *
+            FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
+            WHERE owner = :accountOwner AND spaceId IS :spaceId AND storagePath IS NOT NULL AND
+                substr(remotePath, 1, length(:remotePath)) = :remotePath
+        """
+
         private const val SELECT_FILES_SHARED_BY_LINK = """
             SELECT *
             FROM ${ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME}
@@ -22,6 +22,7 @@ import android.database.Cursor
 import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.ForeignKey
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.owncloud.android.data.ProviderMeta.ProviderTableMeta.FILES_TABLE_NAME
 import com.owncloud.android.data.ProviderMeta.ProviderTableMeta.FILE_ACCOUNT_OWNER
@@ -63,7 +64,13 @@ import com.owncloud.android.domain.files.model.MIME_DIR_UNIX
         parentColumns = arrayOf(SPACES_ACCOUNT_NAME, SPACES_ID),
         childColumns = arrayOf(FILE_OWNER, FILE_SPACE_ID),
         onDelete = ForeignKey.CASCADE
-    )]
+    )],
+    indices = [
+        Index(value = ["parentId"]),
+        Index(value = ["owner", "remotePath", "spaceId"]),
+        Index(value = ["remoteId"]),
+        Index(value = ["keepInSync", "owner"]),
+    ]
 )
 data class OCFileEntity(
     var parentId: Long? = null,
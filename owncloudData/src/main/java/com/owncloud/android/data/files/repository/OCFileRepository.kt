@@ -246,6 +246,9 @@ class OCFileRepository(
 
     override fun getDownloadedFilesForAccount(owner: String): List<OCFile> = localFileDataSource.getDownloadedFilesForAccount(owner)
 
+    override fun getDownloadedFilesUnderRemotePath(remotePath: String, owner: String, spaceId: String?): List<OCFile> =
+        localFileDataSource.getDownloadedFilesUnderRemotePath(remotePath, owner, spaceId)
+
     override fun getFilesWithLastUsageOlderThanGivenTime(milliseconds: Long): List<OCFile> =
         localFileDataSource.getFilesWithLastUsageOlderThanGivenTime(milliseconds)
 
@@ -334,12 +337,21 @@ class OCFileRepository(
         return remoteFileDataSource.readFile(remotePath, accountName, spaceWebDavUrl).copy(spaceId = spaceId)
     }
 
+    override fun readFolderInBatches(remotePath: String, accountName: String, spaceId: String?, onFilesBatch: (List<OCFile>) -> Unit) {
+        val spaceWebDavUrl = localSpacesDataSource.getWebDavUrlForSpace(spaceId, accountName)
+
+        remoteFileDataSource.refreshFolderInBatches(remotePath, accountName, spaceWebDavUrl) { _, remoteFiles ->
+            onFilesBatch(remoteFiles.map { it.copy(spaceId = spaceId) })
+        }
+    }
+
     override fun refreshFolder(
         remotePath: String,
         accountName: String,
         spaceId: String?,
         isActionSetFolderAvailableOfflineOrSynchronize: Boolean,
     ): List<OCFile> {
+        val start = System.currentTimeMillis()
         val spaceWebDavUrl = localSpacesDataSource.getWebDavUrlForSpace(spaceId, accountName)
 
         // Retrieve remote folder data
@@ -373,50 +385,17 @@ class OCFileRepository(
                 // Let's try with remote path if the file does not have remote id yet
                 val localChildToSync = localFilesMap.remove(remoteChild.remoteId) ?: localFilesMap.remove(remoteChild.remotePath)
 
-                // If local child does not exists, just insert the new one.
-                if (localChildToSync == null) {
-                    folderContentUpdated.add(
-                        remoteChild.apply {
-                            parentId = localFolderByRemotePath.id
-                            needsToUpdateThumbnail = !remoteChild.isFolder
-                            // remote eTag will not be set unless file CONTENTS are synchronized
-                            etag = ""
-                            availableOfflineStatus =
-                                if (remoteFolder.isAvailableOffline) AVAILABLE_OFFLINE_PARENT else NOT_AVAILABLE_OFFLINE
-
-                        })
-                } else if (localChildToSync.etag != remoteChild.etag ||
-                    localChildToSync.localModificationTimestamp > remoteChild.lastSyncDateForData!! ||
-                    isActionSetFolderAvailableOfflineOrSynchronize
-                ) {
-                    // File exists in the database, we need to check several stuff.
-                    folderContentUpdated.add(
-                        remoteChild.apply {
-                            copyLocalPropertiesFrom(localChildToSync)
-                            // DO NOT update etag till contents are synced.
-                            etag = localChildToSync.etag
-                            needsToUpdateThumbnail =
-                                (!remoteChild.isFolder && remoteChild.modificationTimestamp != localChildToSync.modificationTimestamp) ||
-                                        localChildToSync.needsToUpdateThumbnail
-                            // Probably not needed, if the child was already in the database, the av offline status should be also there
-                            if (remoteFolder.isAvailableOffline) {
-                                availableOfflineStatus = AVAILABLE_OFFLINE_PARENT
-                            }
-                            // Fix: What about renames? Need to fix storage path
-                        })
-                }
+                mergeRemoteChildWithLocal(
+                    remoteChild = remoteChild,
+                    localChildToSync = localChildToSync,
+                    localFolder = localFolderByRemotePath,
+                    isActionSetFolderAvailableOfflineOrSynchronize = isActionSetFolderAvailableOfflineOrSynchronize,
+                )?.let { folderContentUpdated.add(it) }
             }
 
             // Remaining items should be removed from the database and local storage. They do not exists in remote anymore.
             localFilesMap.map { it.value }.forEach { ocFile ->
-                ocFile.etagInConflict?.let {
-                    localFileDataSource.cleanConflict(ocFile.id!!)
-                }
-                if (ocFile.isFolder) {
-                    deleteLocalFolderRecursively(ocFile = ocFile, onlyFromLocalStorage = false)
-                } else {
-                    deleteLocalFile(ocFile = ocFile, onlyFromLocalStorage = false)
-                }
+                deleteLocalFileRemovedInServer(ocFile)
             }
         }
 
@@ -426,10 +405,163 @@ class OCFileRepository(
             remoteFolder.etagInConflict = null
         }
 
-        return localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+        val startOfWrites = System.currentTimeMillis()
+        val filesThatChanged = localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
             folder = remoteFolder,
             listOfFiles = folderContentUpdated
         )
+        logFolderRefreshed(
+            remotePath = remotePath,
+            rowsWritten = folderContentUpdated.size + 1,
+            writesTimeMillis = System.currentTimeMillis() - startOfWrites,
+            totalTimeMillis = System.currentTimeMillis() - start,
+        )
+        return filesThatChanged
+    }
+
+    /**
+     * Same as [refreshFolder], but the folder content is received, merged and saved in batches, and the files that
+     * changed are handed to [onFilesChanged] batch by batch instead of being returned, so the memory needed does not
+     * depend on the size of the folder.
+     *
+     * The folder keeps its previous etag until all its content has been saved, so an interrupted refresh is repeated
+     * the next time.
+     */
+    override fun refreshFolderInBatches(
+        remotePath: String,
+        accountName: String,
+        spaceId: String?,
+        isActionSetFolderAvailableOfflineOrSynchronize: Boolean,
+        onFilesChanged: (List<OCFile>) -> Unit,
+    ) {
+        val start = System.currentTimeMillis()
+        var rowsWritten = 0
+        var writesTimeMillis = 0L
+        val spaceWebDavUrl = localSpacesDataSource.getWebDavUrlForSpace(spaceId, accountName)
+
+        val localFolderByRemotePath: OCFile? = localFileDataSource.getFileByRemotePath(remotePath = remotePath, owner = accountName, spaceId = spaceId)
+        val previousLocalContentIds = localFolderByRemotePath?.let { localFileDataSource.getFolderContentIds(it.id!!) }.orEmpty()
+        val syncedLocalContentIds = HashSet<Long>()
+        var storedFolder: OCFile? = localFolderByRemotePath
+        var anyConflictInThisFolder = false
+
+        val remoteFolder = remoteFileDataSource.refreshFolderInBatches(remotePath, accountName, spaceWebDavUrl) { remoteFolderInBatch, remoteFiles ->
+            val remoteFolderContent = remoteFiles.map { it.copy(spaceId = spaceId) }
+            val folderContentUpdated = if (localFolderByRemotePath == null) {
+                remoteFolderContent.map { it.apply { needsToUpdateThumbnail = !it.isFolder } }
+            } else {
+                val localFilesMap = localFileDataSource.getFolderContentWithRemoteIdsOrPaths(
+                    folderId = localFolderByRemotePath.id!!,
+                    remoteIds = remoteFolderContent.mapNotNull { it.remoteId },
+                    remotePaths = remoteFolderContent.map { it.remotePath },
+                ).associateBy { localFile -> localFile.remoteId ?: localFile.remotePath }.toMutableMap()
+
+                remoteFolderContent.mapNotNull { remoteChild ->
+                    val localChildToSync = localFilesMap.remove(remoteChild.remoteId) ?: localFilesMap.remove(remoteChild.remotePath)
+                    localChildToSync?.id?.let { syncedLocalContentIds.add(it) }
+                    mergeRemoteChildWithLocal(
+                        remoteChild = remoteChild,
+                        localChildToSync = localChildToSync,
+                        localFolder = localFolderByRemotePath,
+                        isActionSetFolderAvailableOfflineOrSynchronize = isActionSetFolderAvailableOfflineOrSynchronize,
+                    )
+                }
+            }
+            anyConflictInThisFolder = anyConflictInThisFolder || folderContentUpdated.any { it.etagInConflict != null }
+
+            val startOfWrites = System.currentTimeMillis()
+            val filesThatChanged = localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+                folder = storedFolder ?: remoteFolderInBatch.copy(spaceId = spaceId, etag = ""),
+                listOfFiles = folderContentUpdated
+            )
+            rowsWritten += folderContentUpdated.size + 1
+            writesTimeMillis += System.currentTimeMillis() - startOfWrites
+            if (storedFolder == null) {
+                storedFolder = localFileDataSource.getFileByRemotePath(remotePath = remotePath, owner = accountName, spaceId = spaceId)
+            }
+            onFilesChanged(filesThatChanged)
+        }.copy(spaceId = spaceId)
+
+        // Remaining items should be removed from the database and local storage. They do not exists in remote anymore.
+        previousLocalContentIds.filterNot { it in syncedLocalContentIds }.forEach { fileId ->
+            localFileDataSource.getFileById(fileId)?.let { deleteLocalFileRemovedInServer(it) }
+        }
+
+        storedFolder?.let { remoteFolder.copyLocalPropertiesFrom(it) }
+        if (!anyConflictInThisFolder) {
+            remoteFolder.etagInConflict = null
+        }
+        val startOfWrites = System.currentTimeMillis()
+        localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+            folder = remoteFolder,
+            listOfFiles = emptyList()
+        )
+        logFolderRefreshed(
+            remotePath = remotePath,
+            rowsWritten = rowsWritten + 1,
+            writesTimeMillis = writesTimeMillis + System.currentTimeMillis() - startOfWrites,
+            totalTimeMillis = System.currentTimeMillis() - start,
+        )
+    }
+
+    /**
+     * Rows written count the folder itself each time it is saved, so a refresh in batches writes it once per batch
+     * and once more at the end.
+     */
+    private fun logFolderRefreshed(remotePath: String, rowsWritten: Int, writesTimeMillis: Long, totalTimeMillis: Long) {
+        Timber.d("Folder $remotePath refreshed: $rowsWritten rows written in $writesTimeMillis ms, $totalTimeMillis ms in total")
+    }
+
+    /**
+     * Returns the remote child with the local properties to keep, or null if nothing changed and it does not need to
+     * be saved.
+     */
+    private fun mergeRemoteChildWithLocal(
+        remoteChild: OCFile,
+        localChildToSync: OCFile?,
+        localFolder: OCFile,
+        isActionSetFolderAvailableOfflineOrSynchronize: Boolean,
+    ): OCFile? =
+        // If local child does not exists, just insert the new one.
+        if (localChildToSync == null) {
+            remoteChild.apply {
+                parentId = localFolder.id
+                needsToUpdateThumbnail = !remoteChild.isFolder
+                // remote eTag will not be set unless file CONTENTS are synchronized
+                etag = ""
+                availableOfflineStatus =
+                    if (localFolder.isAvailableOffline) AVAILABLE_OFFLINE_PARENT else NOT_AVAILABLE_OFFLINE
+
+            }
+        } else if (localChildToSync.etag != remoteChild.etag ||
+            localChildToSync.localModificationTimestamp > remoteChild.lastSyncDateForData!! ||
+            isActionSetFolderAvailableOfflineOrSynchronize
+        ) {
+            // File exists in the database, we need to check several stuff.
+            remoteChild.apply {
+                copyLocalPropertiesFrom(localChildToSync)
+                // DO NOT update etag till contents are synced.
+                etag = localChildToSync.etag
+                needsToUpdateThumbnail =
+                    (!remoteChild.isFolder && remoteChild.modificationTimestamp != localChildToSync.modificationTimestamp) ||
+                            localChildToSync.needsToUpdateThumbnail
+                // Probably not needed, if the child was already in the database, the av offline status should be also there
+                if (localFolder.isAvailableOffline) {
+                    availableOfflineStatus = AVAILABLE_OFFLINE_PARENT
+                }
+                // Fix: What about renames? Need to fix storage path
+            }
+        } else null
+
+    private fun deleteLocalFileRemovedInServer(ocFile: OCFile) {
+        ocFile.etagInConflict?.let {
+            localFileDataSource.cleanConflict(ocFile.id!!)
+        }
+        if (ocFile.isFolder) {
+            deleteLocalFolderRecursively(ocFile = ocFile, onlyFromLocalStorage = false)
+        } else {
+            deleteLocalFile(ocFile = ocFile, onlyFromLocalStorage = false)
+        }
     }
 
     override fun deleteFiles(listOfFilesToDelete: List<OCFile>, removeOnlyLocalCopy: Boolean) {
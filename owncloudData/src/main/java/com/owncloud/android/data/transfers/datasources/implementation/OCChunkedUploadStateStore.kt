@@ -0,0 +1,76 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.data.transfers.datasources.implementation
+
+import androidx.annotation.VisibleForTesting
+import com.owncloud.android.data.providers.SharedPreferencesProvider
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadStateStore
+
+/**
+ * Persists the acknowledged chunks of every chunked upload in shared preferences, keyed by transfer id, as the length
+ * and last modification time of the file and the chunk size, followed by a comma separated list of chunk indexes.
+ */
+class OCChunkedUploadStateStore(
+    private val sharedPreferencesProvider: SharedPreferencesProvider
+) : ChunkedUploadStateStore {
+
+    @Synchronized
+    override fun getAcknowledgedChunks(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long): Set<Long> {
+        val storedState = sharedPreferencesProvider.getString(getKey(transferId), null) ?: return emptySet()
+        val (length, lastModified, storedChunkSize, chunks) = storedState.split(FIELDS_SEPARATOR).takeIf { it.size == 4 }
+            ?: listOf("", "", "", "")
+        if (ChunkedUploadSourceVersion(length.toLongOrNull() ?: -1, lastModified.toLongOrNull() ?: -1) != sourceVersion ||
+            storedChunkSize.toLongOrNull() != chunkSize
+        ) {
+            // The file or the chunk size changed since these chunks were acknowledged, they cannot be assembled with the new ones
+            clear(transferId)
+            return emptySet()
+        }
+        return chunks.split(CHUNKS_SEPARATOR).mapNotNull { it.toLongOrNull() }.toSet()
+    }
+
+    @Synchronized
+    override fun acknowledgeChunk(transferId: String, sourceVersion: ChunkedUploadSourceVersion, chunkSize: Long, chunkIndex: Long) {
+        val acknowledgedChunks = getAcknowledgedChunks(transferId, sourceVersion, chunkSize) + chunkIndex
+        sharedPreferencesProvider.putString(
+            getKey(transferId),
+            listOf(
+                sourceVersion.length.toString(),
+                sourceVersion.lastModified.toString(),
+                chunkSize.toString(),
+                acknowledgedChunks.joinToString(CHUNKS_SEPARATOR)
+            ).joinToString(FIELDS_SEPARATOR)
+        )
+    }
+
+    @Synchronized
+    override fun clear(transferId: String) {
+        sharedPreferencesProvider.removePreference(getKey(transferId))
+    }
+
+    private fun getKey(transferId: String) = KEY_ACKNOWLEDGED_CHUNKS_PREFIX + transferId
+
+    companion object {
+        @VisibleForTesting
+        const val KEY_ACKNOWLEDGED_CHUNKS_PREFIX = "acknowledged_chunks_"
+        private const val FIELDS_SEPARATOR = ";"
+        private const val CHUNKS_SEPARATOR = ","
+    }
+}
@@ -39,6 +39,9 @@ class OCLocalTransferDataSource(
     override fun saveTransfer(transfer: OCTransfer): Long =
         transferDao.insertOrReplace(transfer.toEntity())
 
+    override fun saveTransfers(transfers: List<OCTransfer>): List<Long> =
+        transferDao.insertOrReplaceAll(transfers.map { it.toEntity() })
+
     override fun updateTransfer(transfer: OCTransfer) {
         transferDao.insertOrReplace(transfer.toEntity())
     }
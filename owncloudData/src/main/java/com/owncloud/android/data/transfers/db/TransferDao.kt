@@ -48,6 +48,9 @@ interface TransferDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     fun insertOrReplace(ocTransferEntity: OCTransferEntity): Long
 
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insertOrReplaceAll(ocTransferEntities: List<OCTransferEntity>): List<Long>
+
     @Query(UPDATE_TRANSFER_STATUS_WITH_ID)
     fun updateTransferStatusWithId(id: Long, newStatus: Int)
 
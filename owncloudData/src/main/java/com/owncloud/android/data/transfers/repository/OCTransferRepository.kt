@@ -34,6 +34,9 @@ class OCTransferRepository(
     override fun saveTransfer(transfer: OCTransfer) =
         localTransferDataSource.saveTransfer(transfer = transfer)
 
+    override fun saveTransfers(transfers: List<OCTransfer>) =
+        localTransferDataSource.saveTransfers(transfers = transfers)
+
     override fun updateTransfer(transfer: OCTransfer) =
         localTransferDataSource.updateTransfer(transfer = transfer)
 
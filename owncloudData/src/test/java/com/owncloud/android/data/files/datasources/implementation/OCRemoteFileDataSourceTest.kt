@@ -158,11 +158,11 @@ class OCRemoteFileDataSourceTest {
 
     @Test
     fun `getAvailableRemotePath returns same String path if file does not exist`() {
-        val checkPathExistenceRemoteResult = createRemoteOperationResultMock(data = false, isSuccess = true)
+        val getAvailableRemotePathResult = createRemoteOperationResultMock(data = sourceRemotePath, isSuccess = true)
 
         every {
-            ocFileService.checkPathExistence(sourceRemotePath, true)
-        } returns checkPathExistenceRemoteResult
+            ocFileService.getAvailableRemotePath(sourceRemotePath, true, null)
+        } returns getAvailableRemotePathResult
 
         val firstCopyName = ocRemoteFileDataSource.getAvailableRemotePath(
             remotePath = sourceRemotePath,
@@ -175,22 +175,18 @@ class OCRemoteFileDataSourceTest {
 
         verify(exactly = 1) {
             clientManager.getFileService(OC_ACCOUNT_NAME)
-            ocFileService.checkPathExistence(sourceRemotePath, true)
+            ocFileService.getAvailableRemotePath(sourceRemotePath, true, null)
         }
     }
 
     @Test
     fun `getAvailableRemotePath returns String path with (1) if file already exists`() {
-        val checkPathExistenceRemoteResultFirst = createRemoteOperationResultMock(data = true, isSuccess = true)
-        val checkPathExistenceRemoteResultSecond = createRemoteOperationResultMock(data = false, isSuccess = true)
         val finalRemotePath = "/source/remote/path/file (1).txt"
+        val getAvailableRemotePathResult = createRemoteOperationResultMock(data = finalRemotePath, isSuccess = true)
 
         every {
-            ocFileService.checkPathExistence(sourceRemotePath, true)
-        } returns checkPathExistenceRemoteResultFirst
-        every {
-            ocFileService.checkPathExistence(finalRemotePath, true)
-        } returns checkPathExistenceRemoteResultSecond
+            ocFileService.getAvailableRemotePath(sourceRemotePath, true, null)
+        } returns getAvailableRemotePathResult
 
         val firstCopyName = ocRemoteFileDataSource.getAvailableRemotePath(
             remotePath = sourceRemotePath,
@@ -201,41 +197,11 @@ class OCRemoteFileDataSourceTest {
 
         assertEquals(finalRemotePath, firstCopyName)
 
-        verify(exactly = 2) { clientManager.getFileService(OC_ACCOUNT_NAME) }
         verify(exactly = 1) {
-            ocFileService.checkPathExistence(sourceRemotePath, true)
-            ocFileService.checkPathExistence(finalRemotePath,  true)
-        }
-    }
-
-    @Test
-    fun `getAvailableRemotePath returns String path with two (1) if file with (1) already exists`() {
-        val checkPathExistenceRemoteResultFirst = createRemoteOperationResultMock(data = true, isSuccess = true)
-        val checkPathExistenceRemoteResultSecond = createRemoteOperationResultMock(data = false, isSuccess = true)
-        val remotePath = "/remote/path/file (1).txt"
-        val finalRemotePath = "/remote/path/file (1) (1).txt"
-
-        every {
-            ocFileService.checkPathExistence(remotePath, true)
-        } returns checkPathExistenceRemoteResultFirst
-        every {
-            ocFileService.checkPathExistence(finalRemotePath, true)
-        } returns checkPathExistenceRemoteResultSecond
-
-        val firstCopyName = ocRemoteFileDataSource.getAvailableRemotePath(
-            remotePath = remotePath,
-            accountName = OC_ACCOUNT_NAME,
-            spaceWebDavUrl = null,
-            isUserLogged = true,
-        )
-
-        assertEquals(finalRemotePath, firstCopyName)
-
-        verify(exactly = 2) { clientManager.getFileService(OC_ACCOUNT_NAME) }
-        verify(exactly = 1) {
-            ocFileService.checkPathExistence(remotePath, true)
-            ocFileService.checkPathExistence(finalRemotePath, true)
+            clientManager.getFileService(OC_ACCOUNT_NAME)
+            ocFileService.getAvailableRemotePath(sourceRemotePath, true, null)
         }
+        verify(exactly = 0) { ocFileService.checkPathExistence(any(), any(), any()) }
     }
 
     @Test
@@ -1437,6 +1437,43 @@ class OCFileRepositoryTest {
         }
     }
 
+    @Test
+    fun `readFolderInBatches hands the folder content batch by batch without saving it`() {
+        val ocParentFolderWithoutSpaceId = OC_PARENT_FOLDER_WITH_SPACE_ID.copy(spaceId = null)
+        val ocFileWithoutSpaceId = OC_FILE_WITH_SPACE_ID.copy(spaceId = null)
+        every {
+            remoteFileDataSource.refreshFolderInBatches(
+                remotePath = OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+                accountName = OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+                spaceWebDavUrl = OC_SPACE_PERSONAL.root.webDavUrl,
+                onFilesBatch = any(),
+            )
+        } answers {
+            lastArg<(OCFile, List<OCFile>) -> Unit>().invoke(ocParentFolderWithoutSpaceId, listOf(ocFileWithoutSpaceId))
+            ocParentFolderWithoutSpaceId
+        }
+
+        val folderContent = mutableListOf<OCFile>()
+        ocFileRepository.readFolderInBatches(
+            OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+            OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+            OC_PARENT_FOLDER_WITH_SPACE_ID.spaceId
+        ) { folderContent.addAll(it) }
+        assertEquals(listOf(OC_FILE_WITH_SPACE_ID), folderContent)
+
+        verify(exactly = 1) {
+            remoteFileDataSource.refreshFolderInBatches(
+                remotePath = OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+                accountName = OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+                spaceWebDavUrl = OC_SPACE_PERSONAL.root.webDavUrl,
+                onFilesBatch = any(),
+            )
+        }
+        verify(exactly = 0) {
+            localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(any(), any())
+        }
+    }
+
     @Test
     fun `refreshFolder returns an empty list of OCFiles when folder doesn't exist in database`() {
         val ocParentFolderWithoutSpaceId = OC_PARENT_FOLDER_WITH_SPACE_ID.copy(spaceId = null)
@@ -1756,6 +1793,86 @@ class OCFileRepositoryTest {
         }
     }
 
+    @Suppress("MaxLineLength")
+    @Test
+    fun `refreshFolderInBatches hands the files that changed batch by batch and removes the local files not in the server anymore`() {
+        val ocParentFolderWithoutSpaceId = OC_PARENT_FOLDER_WITH_SPACE_ID.copy(spaceId = null)
+        val ocFileWithoutSpaceIdAndDifferentEtag = OC_FILE_WITH_SPACE_ID.copy(spaceId = null, etag = "5efb0c13c688i2")
+        val additionalOcFile = OC_FILE_WITH_SPACE_ID.copy(id = 300, remotePath = "/Folder/image3.jpt",
+            remoteId = "00000003oci9p7er2hox2", privateLink = "http://server.url/f/70")
+        every {
+            remoteFileDataSource.refreshFolderInBatches(
+                remotePath = OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+                accountName = OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+                spaceWebDavUrl = OC_SPACE_PERSONAL.root.webDavUrl,
+                onFilesBatch = any(),
+            )
+        } answers {
+            lastArg<(OCFile, List<OCFile>) -> Unit>().invoke(ocParentFolderWithoutSpaceId, listOf(ocFileWithoutSpaceIdAndDifferentEtag))
+            ocParentFolderWithoutSpaceId
+        }
+        every {
+            localFileDataSource.getFileByRemotePath(
+                remotePath = OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+                owner = OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+                spaceId = OC_PARENT_FOLDER_WITH_SPACE_ID.spaceId
+            )
+        } returns OC_PARENT_FOLDER_WITH_SPACE_ID
+        every {
+            localFileDataSource.getFolderContentIds(folderId = OC_PARENT_FOLDER_WITH_SPACE_ID.id!!)
+        } returns listOf(OC_FILE_WITH_SPACE_ID.id!!, additionalOcFile.id!!)
+        every {
+            localFileDataSource.getFolderContentWithRemoteIdsOrPaths(
+                folderId = OC_PARENT_FOLDER_WITH_SPACE_ID.id!!,
+                remoteIds = listOf(OC_FILE_WITH_SPACE_ID.remoteId!!),
+                remotePaths = listOf(OC_FILE_WITH_SPACE_ID.remotePath),
+            )
+        } returns listOf(OC_FILE_WITH_SPACE_ID)
+        every {
+            localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+                listOfFiles = listOf(OC_FILE_WITH_SPACE_ID),
+                folder = OC_PARENT_FOLDER_WITH_SPACE_ID,
+            )
+        } returns listOf(OC_FILE_WITH_SPACE_ID)
+        every {
+            localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+                listOfFiles = emptyList(),
+                folder = OC_PARENT_FOLDER_WITH_SPACE_ID,
+            )
+        } returns emptyList()
+        every {
+            localFileDataSource.getFileById(additionalOcFile.id!!)
+        } returns additionalOcFile
+        every {
+            localStorageProvider.deleteLocalFile(additionalOcFile)
+        } returns true
+
+        val filesThatChanged = mutableListOf<OCFile>()
+        ocFileRepository.refreshFolderInBatches(
+            OC_PARENT_FOLDER_WITH_SPACE_ID.remotePath,
+            OC_PARENT_FOLDER_WITH_SPACE_ID.owner,
+            OC_PARENT_FOLDER_WITH_SPACE_ID.spaceId,
+            false
+        ) { filesThatChanged.addAll(it) }
+        assertEquals(listOf(OC_FILE_WITH_SPACE_ID), filesThatChanged)
+
+        verify(exactly = 1) {
+            localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+                listOfFiles = listOf(OC_FILE_WITH_SPACE_ID),
+                folder = OC_PARENT_FOLDER_WITH_SPACE_ID,
+            )
+            localStorageProvider.deleteLocalFile(additionalOcFile)
+            localFileDataSource.deleteFile(additionalOcFile.id!!)
+            localFileDataSource.saveFilesInFolderAndReturnTheFilesThatChanged(
+                listOfFiles = emptyList(),
+                folder = OC_PARENT_FOLDER_WITH_SPACE_ID,
+            )
+        }
+        verify(exactly = 0) {
+            localFileDataSource.getFolderContent(any())
+        }
+    }
+
     @Test
     fun `deleteFiles removes a file and its conflict from local and remote correctly`() {
         every {
@@ -0,0 +1,142 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.owncloud.android.data.transfers.datasources.implementation
+
+import com.owncloud.android.data.providers.SharedPreferencesProvider
+import com.owncloud.android.data.transfers.datasources.implementation.OCChunkedUploadStateStore.Companion.KEY_ACKNOWLEDGED_CHUNKS_PREFIX
+import com.owncloud.android.lib.resources.files.chunks.ChunkedUploadSourceVersion
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class OCChunkedUploadStateStoreTest {
+    private lateinit var ocChunkedUploadStateStore: OCChunkedUploadStateStore
+    private val sharedPreferencesProvider = mockk<SharedPreferencesProvider>(relaxUnitFun = true)
+
+    private val transferId = "transferId"
+    private val key = KEY_ACKNOWLEDGED_CHUNKS_PREFIX + transferId
+    private val sourceVersion = ChunkedUploadSourceVersion(length = 30_000_000, lastModified = 1_700_000_000_000)
+    private val chunkSize = 10_240_000L
+
+    @Before
+    fun setUp() {
+        ocChunkedUploadStateStore = OCChunkedUploadStateStore(sharedPreferencesProvider)
+    }
+
+    @Test
+    fun `getAcknowledgedChunks returns an empty set when nothing was stored`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns null
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertTrue(result.isEmpty())
+    }
+
+    @Test
+    fun `getAcknowledgedChunks returns the stored chunk indexes`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "30000000;1700000000000;10240000;0,2,5"
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertEquals(setOf(0L, 2L, 5L), result)
+    }
+
+    @Test
+    fun `getAcknowledgedChunks discards the chunks acknowledged for another version of the file`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "30000000;1600000000000;10240000;0,2,5"
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertTrue(result.isEmpty())
+        verify(exactly = 1) {
+            sharedPreferencesProvider.removePreference(key)
+        }
+    }
+
+    @Test
+    fun `getAcknowledgedChunks discards the chunks acknowledged with another chunk size`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "30000000;1700000000000;5120000;0,2,5"
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertTrue(result.isEmpty())
+        verify(exactly = 1) {
+            sharedPreferencesProvider.removePreference(key)
+        }
+    }
+
+    @Test
+    fun `getAcknowledgedChunks discards chunks stored without the chunk size`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "30000000;1700000000000;0,2,5"
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertTrue(result.isEmpty())
+        verify(exactly = 1) {
+            sharedPreferencesProvider.removePreference(key)
+        }
+    }
+
+    @Test
+    fun `getAcknowledgedChunks discards chunks stored without the version of the file`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "0,2,5"
+
+        val result = ocChunkedUploadStateStore.getAcknowledgedChunks(transferId, sourceVersion, chunkSize)
+
+        assertTrue(result.isEmpty())
+        verify(exactly = 1) {
+            sharedPreferencesProvider.removePreference(key)
+        }
+    }
+
+    @Test
+    fun `acknowledgeChunk appends the chunk index to the stored ones`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "30000000;1700000000000;10240000;0,1"
+
+        ocChunkedUploadStateStore.acknowledgeChunk(transferId, sourceVersion, chunkSize, 3)
+
+        verify(exactly = 1) {
+            sharedPreferencesProvider.putString(key, "30000000;1700000000000;10240000;0,1,3")
+        }
+    }
+
+    @Test
+    fun `acknowledgeChunk starts again when the file changed`() {
+        every { sharedPreferencesProvider.getString(key, null) } returns "20000000;1700000000000;10240000;0,1"
+
+        ocChunkedUploadStateStore.acknowledgeChunk(transferId, sourceVersion, chunkSize, 3)
+
+        verify(exactly = 1) {
+            sharedPreferencesProvider.putString(key, "30000000;1700000000000;10240000;3")
+        }
+    }
+
+    @Test
+    fun `clear removes the stored chunk indexes`() {
+        ocChunkedUploadStateStore.clear(transferId)
+
+        verify(exactly = 1) {
+            sharedPreferencesProvider.removePreference(key)
+        }
+    }
+}
@@ -65,6 +65,22 @@ class OCLocalTransferDataSourceTest {
         }
     }
 
+    @Test
+    fun `saveTransfers inserts all the transfers at once`() {
+        val resultExpected = listOf(1L, 2L)
+        every {
+            transferDao.insertOrReplaceAll(any())
+        } returns resultExpected
+
+        val resultActual = ocLocalTransferDataSource.saveTransfers(listOf(OC_TRANSFER, OC_TRANSFER.copy(id = 2L)))
+
+        assertEquals(resultExpected, resultActual)
+
+        verify(exactly = 1) {
+            transferDao.insertOrReplaceAll(listOf(OC_TRANSFER.toEntity(), OC_TRANSFER.copy(id = 2L).toEntity()))
+        }
+    }
+
     @Test
     fun `updateTransfer updates the transfer correctly`() {
         val resultExpected = 1L
@@ -57,6 +57,20 @@ class OCTransferRepositoryTest {
         }
     }
 
+    @Test
+    fun `saveTransfers inserts all the transfers correctly`() {
+        every {
+            localTransferDataSource.saveTransfers(listOf(OC_TRANSFER))
+        } returns listOf(1L)
+
+        val result = ocTransferRepository.saveTransfers(listOf(OC_TRANSFER))
+        assertEquals(listOf(1L), result)
+
+        verify(exactly = 1) {
+            localTransferDataSource.saveTransfers(listOf(OC_TRANSFER))
+        }
+    }
+
     @Test
     fun `updateTransfer updates a transfer correctly`() {
         ocTransferRepository.updateTransfer(OC_TRANSFER)
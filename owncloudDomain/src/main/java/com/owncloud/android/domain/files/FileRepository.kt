@@ -52,17 +52,29 @@ interface FileRepository {
     fun getFilesAvailableOfflineFromAccount(owner: String): List<OCFile>
     fun getFilesAvailableOfflineFromEveryAccount(): List<OCFile>
     fun getDownloadedFilesForAccount(owner: String): List<OCFile>
+    // Downloaded files in the folder with the given remote path and in all its subfolders
+    fun getDownloadedFilesUnderRemotePath(remotePath: String, owner: String, spaceId: String? = null): List<OCFile>
     fun getFilesWithLastUsageOlderThanGivenTime(milliseconds: Long): List<OCFile>
 
     // Returns files in conflict
     fun moveFile(listOfFilesToMove: List<OCFile>, targetFolder: OCFile, replace: List<Boolean?> = emptyList(), isUserLogged: Boolean): List<OCFile>
     fun readFile(remotePath: String, accountName: String, spaceId: String? = null): OCFile
+    // Hands the folder content to onFilesBatch while it is received, without saving it. onFilesBatch must not send requests itself
+    fun readFolderInBatches(remotePath: String, accountName: String, spaceId: String? = null, onFilesBatch: (List<OCFile>) -> Unit)
     fun refreshFolder(
         remotePath: String,
         accountName: String,
         spaceId: String? = null,
         isActionSetFolderAvailableOfflineOrSynchronize: Boolean = false
     ): List<OCFile>
+    // onFilesChanged runs while the response is still being read, so it must not send requests itself
+    fun refreshFolderInBatches(
+        remotePath: String,
+        accountName: String,
+        spaceId: String? = null,
+        isActionSetFolderAvailableOfflineOrSynchronize: Boolean = false,
+        onFilesChanged: (List<OCFile>) -> Unit,
+    )
     fun deleteFiles(listOfFilesToDelete: List<OCFile>, removeOnlyLocalCopy: Boolean)
     fun renameFile(ocFile: OCFile, newName: String)
     fun saveFile(file: OCFile)
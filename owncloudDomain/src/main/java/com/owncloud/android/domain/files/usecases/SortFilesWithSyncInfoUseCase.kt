@@ -33,12 +33,14 @@ class SortFilesWithSyncInfoUseCase : BaseUseCase<List<OCFileWithSyncInfo>, SortF
         }
 
     private fun sortByName(listOfFiles: List<OCFileWithSyncInfo>, ascending: Boolean): List<OCFileWithSyncInfo> {
-        val newListOfFiles =
-            if (ascending) listOfFiles.sortedBy { it.file.fileName.lowercase() }
-            else listOfFiles.sortedByDescending { it.file.fileName.lowercase() }
-
-        // Show first the folders when sorting by name
-        return newListOfFiles.sortedByDescending { it.file.isFolder }
+        val byName: Comparator<Pair<OCFileWithSyncInfo, String>> =
+            if (ascending) compareBy { it.second }
+            else compareByDescending { it.second }
+
+        // Show first the folders when sorting by name. Names are lowercased once, not in every comparison.
+        return listOfFiles.map { it to it.file.fileName.lowercase() }
+            .sortedWith(compareByDescending<Pair<OCFileWithSyncInfo, String>> { it.first.file.isFolder }.then(byName))
+            .map { it.first }
     }
 
     private fun sortBySize(listOfFiles: List<OCFileWithSyncInfo>, ascending: Boolean): List<OCFileWithSyncInfo> =
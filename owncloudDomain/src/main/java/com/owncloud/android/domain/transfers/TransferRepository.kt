@@ -28,6 +28,7 @@ import kotlinx.coroutines.flow.Flow
 
 interface TransferRepository {
     fun saveTransfer(transfer: OCTransfer): Long
+    fun saveTransfers(transfers: List<OCTransfer>): List<Long>
     fun updateTransfer(transfer: OCTransfer)
     fun updateTransferStatusToInProgressById(id: Long)
     fun updateTransferStatusToEnqueuedById(id: Long)
@@ -0,0 +1,69 @@
+/**
+ * PiCloud  Android client application
+ *
+ * Copyright (C) 2025 LNKASIA TECHSOL.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 2,
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.owncloud.android.domain.files.usecases
+
+import com.owncloud.android.domain.files.model.OCFile
+import com.owncloud.android.domain.files.model.OCFileWithSyncInfo
+import com.owncloud.android.testutil.OC_FILE
+import com.owncloud.android.testutil.OC_FOLDER
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class SortFilesWithSyncInfoUseCaseTest {
+    private val useCase = SortFilesWithSyncInfoUseCase()
+
+    private val folderB = withSyncInfo(OC_FOLDER.copy(id = 1, remotePath = "/b/"))
+    private val folderA = withSyncInfo(OC_FOLDER.copy(id = 2, remotePath = "/A/"))
+    private val fileC = withSyncInfo(OC_FILE.copy(id = 3, remotePath = "/c.jpg"))
+    private val fileA = withSyncInfo(OC_FILE.copy(id = 4, remotePath = "/a.jpg"))
+    private val fileB = withSyncInfo(OC_FILE.copy(id = 5, remotePath = "/B.jpg"))
+
+    @Test
+    fun `sort by name - ok - folders first and ignoring case`() {
+        val sortedFiles = useCase(
+            SortFilesWithSyncInfoUseCase.Params(
+                listOfFiles = listOf(fileC, folderB, fileB, fileA, folderA),
+                sortType = SortType.SORT_BY_NAME,
+                ascending = true,
+            )
+        )
+
+        assertEquals(listOf(folderA, folderB, fileA, fileB, fileC), sortedFiles)
+    }
+
+    @Test
+    fun `sort by name - ok - descending keeps folders first`() {
+        val sortedFiles = useCase(
+            SortFilesWithSyncInfoUseCase.Params(
+                listOfFiles = listOf(fileC, folderB, fileB, fileA, folderA),
+                sortType = SortType.SORT_BY_NAME,
+                ascending = false,
+            )
+        )
+
+        assertEquals(listOf(folderB, folderA, fileC, fileB, fileA), sortedFiles)
+    }
+
+    private fun withSyncInfo(file: OCFile) =
+        OCFileWithSyncInfo(
+            file = file,
+            uploadWorkerUuid = null,
+            downloadWorkerUuid = null,
+            isSynchronizing = false,
+        )
+}